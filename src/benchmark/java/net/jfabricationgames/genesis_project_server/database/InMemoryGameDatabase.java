@@ -0,0 +1,239 @@
+package net.jfabricationgames.genesis_project_server.database;
+
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.jfabricationgames.genesis_project_server.exception.GameDataException;
+import net.jfabricationgames.genesis_project_server.game.GameDataManager;
+
+/**
+ * A {@link StandInDatabase} that keeps the users, games and moves in memory, so complete game sessions (create_user, verify_user,
+ * create_game, set_move, update_game, get_game, list_moves) can be played against the service without a database (including the players
+ * of the games, that are checked for the requests of a session).
+ * <p>
+ * Only the statements that are used by these sessions are answered; other queries return no rows.
+ */
+public class InMemoryGameDatabase {
+	
+	private static class User {
+		
+		private final int id;
+		private final String username;
+		private final String password;
+		
+		public User(int id, String username, String password) {
+			this.id = id;
+			this.username = username;
+			this.password = password;
+		}
+	}
+	
+	private static class Game {
+		
+		private volatile byte[] data = new byte[0];
+		private volatile int codec = StorageCodec.IDENTITY.getId();
+		private final Set<User> players = ConcurrentHashMap.newKeySet();
+		/**
+		 * The moves of the game (ordered by their number; synchronized on the list)
+		 */
+		private final List<Move> moves = new ArrayList<Move>();
+	}
+	
+	private static class Move {
+		
+		private final int id;
+		private final int num;
+		private final byte[] data;
+		private final int codec;
+		private final User user;
+		
+		public Move(int id, int num, byte[] data, int codec, User user) {
+			this.id = id;
+			this.num = num;
+			this.data = data;
+			this.codec = codec;
+			this.user = user;
+		}
+	}
+	
+	private final StandInDatabase database = new StandInDatabase();
+	
+	private final ConcurrentMap<String, User> users = new ConcurrentHashMap<String, User>();
+	private final ConcurrentMap<Integer, User> usersById = new ConcurrentHashMap<Integer, User>();
+	private final ConcurrentMap<Integer, Game> games = new ConcurrentHashMap<Integer, Game>();
+	
+	private final AtomicInteger userIds = new AtomicInteger();
+	private final AtomicInteger gameIds = new AtomicInteger();
+	private final AtomicInteger moveIds = new AtomicInteger();
+	
+	/**
+	 * @param latencyMicros
+	 *        The time that every statement takes (to simulate the latency of a real database).
+	 */
+	public InMemoryGameDatabase(long latencyMicros) {
+		database.withLatency(latencyMicros, TimeUnit.MICROSECONDS);
+	}
+	
+	/**
+	 * Create the {@link DatabaseConnection} of the service on this database.
+	 */
+	public void install(String databaseName, int poolSize) throws SQLException, GameDataException {
+		StatementRegistry registry = DatabaseConnection.initialize(database.getDataSource(), databaseName, poolSize).getStatementRegistry();
+		
+		//users
+		on(registry, SqlStatement.COUNT_USERS, parameters -> row(getUser(parameters.get(0)) != null ? 1 : 0));
+		on(registry, SqlStatement.CREATE_USER, parameters -> {
+			User user = new User(userIds.incrementAndGet(), (String) parameters.get(0), (String) parameters.get(1));
+			if (users.putIfAbsent(key(user.username), user) != null) {
+				throw new SQLIntegrityConstraintViolationException("Duplicate entry '" + user.username + "' for key 'username'");
+			}
+			usersById.put(user.id, user);
+			return row(user.id);
+		});
+		on(registry, SqlStatement.GET_USER_PASSWORD, parameters -> {
+			User user = getUser(parameters.get(0));
+			return user == null ? Collections.emptyList() : row(user.password);
+		});
+		on(registry, SqlStatement.GET_USER_ID, parameters -> {
+			User user = getUser(parameters.get(0));
+			return user == null ? Collections.emptyList() : row(user.id);
+		});
+		database.on("SELECT id, username FROM " + registry.getTable(DatabaseConnection.TABLE_USERS) + " WHERE username IN (", parameters -> {
+			List<Object[]> rows = new ArrayList<Object[]>();
+			for (Object username : parameters) {
+				User user = getUser(username);
+				if (user != null) {
+					rows.add(new Object[] {user.id, user.username});
+				}
+			}
+			return rows;
+		});
+		
+		//games
+		on(registry, SqlStatement.CREATE_GAME, parameters -> {
+			int id = gameIds.incrementAndGet();
+			games.put(id, new Game());
+			return row(id);
+		});
+		on(registry, SqlStatement.CREATE_PLAYER, parameters -> {
+			Game game = games.get(parameters.get(1));
+			User user = usersById.get(parameters.get(0));
+			if (game != null && user != null) {
+				game.players.add(user);
+			}
+			return row(parameters.get(1));
+		});
+		on(registry, SqlStatement.GET_PLAYER_NAMES, parameters -> {
+			Game game = games.get(parameters.get(0));
+			List<Object[]> rows = new ArrayList<Object[]>();
+			if (game != null) {
+				for (User player : game.players) {
+					rows.add(new Object[] {player.username});
+				}
+			}
+			return rows;
+		});
+		on(registry, SqlStatement.UPDATE_GAME, parameters -> {
+			Game game = games.get(parameters.get(4));
+			if (game == null) {
+				return Collections.emptyList();
+			}
+			game.data = (byte[]) parameters.get(0);
+			game.codec = (Integer) parameters.get(1);
+			return row(parameters.get(4));
+		});
+		on(registry, SqlStatement.GET_GAME, parameters -> {
+			Game game = games.get(parameters.get(0));
+			return game == null ? Collections.emptyList() : row(game.data, game.codec, 1);
+		});
+		
+		//moves
+		on(registry, SqlStatement.GET_LAST_MOVE_NUMBER, parameters -> {
+			Game game = games.get(parameters.get(0));
+			if (game == null) {
+				return row(0);
+			}
+			synchronized (game.moves) {
+				return row(game.moves.isEmpty() ? 0 : game.moves.get(game.moves.size() - 1).num);
+			}
+		});
+		on(registry, SqlStatement.CREATE_MOVE, parameters -> {
+			Game game = games.get(parameters.get(4));
+			if (game == null) {
+				return Collections.emptyList();
+			}
+			int num = (Integer) parameters.get(3);
+			synchronized (game.moves) {
+				if (!game.moves.isEmpty() && game.moves.get(game.moves.size() - 1).num >= num) {
+					throw new SQLIntegrityConstraintViolationException("Duplicate entry '" + num + "' for key 'game_move_num'");
+				}
+				Move move = new Move(moveIds.incrementAndGet(), num, (byte[]) parameters.get(1), (Integer) parameters.get(2),
+						usersById.get(parameters.get(0)));
+				game.moves.add(move);
+				return row(move.id);
+			}
+		});
+		on(registry, SqlStatement.LIST_TAIL_MOVES, parameters -> listMoves((Integer) parameters.get(0), (Integer) parameters.get(1), false));
+		//the moves of a game (from all users)
+		database.on(new GameDataManager().buildMoveListQuery(false, true, true), parameters -> listMoves((Integer) parameters.get(0), 0, true));
+	}
+	
+	private void on(StatementRegistry registry, SqlStatement statement, StandInDatabase.StatementHandler handler) {
+		database.on(registry.get(statement).getSql(), handler);
+	}
+	
+	private List<Object[]> listMoves(int gameId, int afterNum, boolean descending) {
+		Game game = games.get(gameId);
+		List<Object[]> rows = new ArrayList<Object[]>();
+		if (game != null) {
+			synchronized (game.moves) {
+				for (Move move : game.moves) {
+					if (move.num > afterNum) {
+						rows.add(new Object[] {move.id, move.num, move.data, move.user.username, move.codec});
+					}
+				}
+			}
+		}
+		if (descending) {
+			Collections.reverse(rows);
+		}
+		return rows;
+	}
+	
+	private User getUser(Object username) {
+		return users.get(key((String) username));
+	}
+	
+	/**
+	 * The usernames are compared case insensitive (like in the database).
+	 */
+	private String key(String username) {
+		return username.toLowerCase(Locale.ROOT);
+	}
+	
+	private static List<Object[]> row(Object... values) {
+		return Collections.singletonList(values);
+	}
+	
+	public int getUsers() {
+		return users.size();
+	}
+	public int getGames() {
+		return games.size();
+	}
+	public int getMoves() {
+		return moveIds.get();
+	}
+	public long getExecutedStatements() {
+		return database.getExecutedStatements();
+	}
+}
\ No newline at end of file
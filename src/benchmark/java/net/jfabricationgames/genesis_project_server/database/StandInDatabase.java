@@ -0,0 +1,264 @@
+package net.jfabricationgames.genesis_project_server.database;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.sql.DataSource;
+
+/**
+ * An in-memory stand-in for the MySQL database, that answers the statements of the service by registered handlers (instead of executing
+ * them), so the service can be benchmarked without a database.
+ * <p>
+ * A handler is selected by a fragment of the SQL statement (the first handler whose fragment is contained in the statement is used). The
+ * rows that a handler returns are the result of a query or (by their number) the affected rows of an update. The rows of an update are
+ * also its generated keys. Queries without a handler return no rows and updates without a handler affect one row (and generate an
+ * increasing key).
+ * <p>
+ * The stand-in only implements the parts of JDBC that are used by the service.
+ */
+public class StandInDatabase {
+	
+	/**
+	 * Answers a statement (by the bound parameters).
+	 */
+	@FunctionalInterface
+	public interface StatementHandler {
+		
+		public List<Object[]> execute(List<Object> parameters) throws SQLException;
+	}
+	
+	private final List<Map.Entry<String, StatementHandler>> handlers = new CopyOnWriteArrayList<Map.Entry<String, StatementHandler>>();
+	
+	private final AtomicInteger nextKey = new AtomicInteger();
+	private final AtomicLong executedStatements = new AtomicLong();
+	
+	private volatile long latencyNanos;
+	
+	/**
+	 * Register a handler for the statements that contain the SQL fragment.
+	 */
+	public StandInDatabase on(String sqlFragment, StatementHandler handler) {
+		handlers.add(new AbstractMap.SimpleImmutableEntry<String, StatementHandler>(sqlFragment, handler));
+		return this;
+	}
+	
+	/**
+	 * Get a data source, whose connections execute the statements on this stand-in.
+	 */
+	public DataSource getDataSource() {
+		return proxy(DataSource.class, (method, args) -> {
+			if (method.getName().equals("getConnection")) {
+				return createConnection();
+			}
+			return unsupported(method);
+		});
+	}
+	
+	/**
+	 * Delay every execution of a statement (to simulate the latency of a real database).
+	 */
+	public StandInDatabase withLatency(long latency, TimeUnit unit) {
+		latencyNanos = unit.toNanos(latency);
+		return this;
+	}
+	
+	public long getExecutedStatements() {
+		return executedStatements.get();
+	}
+	
+	private Connection createConnection() {
+		boolean[] closed = {false};
+		return proxy(Connection.class, (method, args) -> {
+			switch (method.getName()) {
+				case "prepareStatement":
+					return createStatement((String) args[0]);
+				case "setAutoCommit":
+				case "commit":
+				case "rollback":
+					return null;
+				case "getAutoCommit":
+					return false;
+				case "isValid":
+					return !closed[0];
+				case "close":
+					closed[0] = true;
+					return null;
+				case "isClosed":
+					return closed[0];
+				default:
+					return unsupported(method);
+			}
+		});
+	}
+	
+	private StatementHandler findHandler(String sql) {
+		for (Map.Entry<String, StatementHandler> handler : handlers) {
+			if (sql.contains(handler.getKey())) {
+				return handler.getValue();
+			}
+		}
+		return null;
+	}
+	
+	private PreparedStatement createStatement(String sql) {
+		StatementHandler handler = findHandler(sql);
+		List<Object> parameters = new ArrayList<Object>();
+		List<List<Object>> batch = new ArrayList<List<Object>>();
+		List<Object[]> generatedKeys = new ArrayList<Object[]>();
+		boolean[] closed = {false};
+		return proxy(PreparedStatement.class, (method, args) -> {
+			String name = method.getName();
+			if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+				int index = (Integer) args[0];
+				while (parameters.size() < index) {
+					parameters.add(null);
+				}
+				parameters.set(index - 1, name.equals("setNull") ? null : args[1]);
+				return null;
+			}
+			switch (name) {
+				case "clearParameters":
+					parameters.clear();
+					return null;
+				case "executeQuery":
+					return createResultSet(execute(handler, parameters));
+				case "executeUpdate":
+					generatedKeys.clear();
+					generatedKeys.addAll(executeUpdate(handler, parameters));
+					return generatedKeys.size();
+				case "getGeneratedKeys":
+					return createResultSet(new ArrayList<Object[]>(generatedKeys));
+				case "addBatch":
+					batch.add(new ArrayList<Object>(parameters));
+					return null;
+				case "executeBatch":
+					int[] results = new int[batch.size()];
+					for (int i = 0; i < results.length; i++) {
+						results[i] = executeUpdate(handler, batch.get(i)).size();
+					}
+					return results;
+				case "clearBatch":
+					batch.clear();
+					return null;
+				case "setFetchSize":
+				case "setMaxRows":
+					return null;
+				case "close":
+					closed[0] = true;
+					return null;
+				case "isClosed":
+					return closed[0];
+				case "toString":
+					return "StandInStatement: " + sql + " " + parameters;
+				default:
+					return unsupported(method);
+			}
+		});
+	}
+	
+	private List<Object[]> execute(StatementHandler handler, List<Object> parameters) throws SQLException {
+		executedStatements.incrementAndGet();
+		if (latencyNanos > 0) {
+			LockSupport.parkNanos(latencyNanos);
+		}
+		if (handler == null) {
+			return Collections.emptyList();
+		}
+		return handler.execute(Collections.unmodifiableList(parameters));
+	}
+	
+	private List<Object[]> executeUpdate(StatementHandler handler, List<Object> parameters) throws SQLException {
+		List<Object[]> rows = execute(handler, parameters);
+		if (handler == null) {
+			return Collections.singletonList(new Object[] {nextKey.incrementAndGet()});
+		}
+		return rows;
+	}
+	
+	private ResultSet createResultSet(List<Object[]> rows) {
+		int[] row = {-1};
+		boolean[] wasNull = {false};
+		return proxy(ResultSet.class, (method, args) -> {
+			String name = method.getName();
+			if (name.equals("next")) {
+				return ++row[0] < rows.size();
+			}
+			if (name.startsWith("get") && args != null && args.length == 1 && args[0] instanceof Integer) {
+				Object value = rows.get(row[0])[(Integer) args[0] - 1];
+				wasNull[0] = value == null;
+				return convert(value, method.getReturnType());
+			}
+			switch (name) {
+				case "wasNull":
+					return wasNull[0];
+				case "close":
+					return null;
+				case "toString":
+					return "StandInResultSet: " + rows.size() + " rows";
+				default:
+					return unsupported(method);
+			}
+		});
+	}
+	
+	private Object convert(Object value, Class<?> type) throws SQLException {
+		if (type == int.class) {
+			return value == null ? 0 : ((Number) value).intValue();
+		}
+		if (type == long.class) {
+			return value == null ? 0L : ((Number) value).longValue();
+		}
+		if (type == boolean.class) {
+			return value instanceof Boolean ? value : value != null && ((Number) value).intValue() != 0;
+		}
+		if (type == String.class) {
+			return value == null ? null : value.toString();
+		}
+		if (type == Date.class || type == byte[].class || type == Object.class) {
+			return value;
+		}
+		throw new SQLException("unsupported result type: " + type);
+	}
+	
+	private Object unsupported(Method method) throws SQLException {
+		if (method.getName().equals("toString")) {
+			return "StandInDatabase";
+		}
+		throw new SQLException("not supported by the database stand-in: " + method.getName() + Arrays.toString(method.getParameterTypes()));
+	}
+	
+	private interface Invocation {
+		
+		public Object invoke(Method method, Object[] args) throws Throwable;
+	}
+	
+	@SuppressWarnings("unchecked")
+	private static <T> T proxy(Class<T> type, Invocation invocation) {
+		return (T) Proxy.newProxyInstance(StandInDatabase.class.getClassLoader(), new Class<?>[] {type},
+				(proxy, method, args) -> {
+					if (method.getName().equals("equals") && args != null && args.length == 1) {
+						return proxy == args[0];
+					}
+					if (method.getName().equals("hashCode") && args == null) {
+						return System.identityHashCode(proxy);
+					}
+					return invocation.invoke(method, args);
+				});
+	}
+}
\ No newline at end of file
@@ -0,0 +1,81 @@
+package net.jfabricationgames.genesis_project_server.database;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.jfabricationgames.genesis_project_server.util.BenchmarkData;
+
+/**
+ * Measures the encoding and decoding of game states with the {@link StorageCodec}s. The size of the stored game state is printed when the
+ * game state is created.
+ * <p>
+ * A stored game state (e.g. a game that was loaded with get_game) can be used instead of the generated ones:
+ * -Djmh.args="-p gameFile=game.json -p planets=0"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StorageCodecBenchmark {
+	
+	/**
+	 * The number of planets of the generated game state (50 planets are about 3 KB of JSON)
+	 */
+	@Param({"10", "50", "200", "800"})
+	private int planets;
+	
+	/**
+	 * A JSON file with a game state, that is used instead of the generated game state (optional)
+	 */
+	@Param({""})
+	private String gameFile;
+	
+	@Param({"IDENTITY", "DEFLATE"})
+	private StorageCodec codec;
+	
+	private String gameState;
+	private byte[] encodedGameState;
+	
+	@Setup
+	public void setUp() throws IOException {
+		if (gameFile.isEmpty()) {
+			gameState = BenchmarkData.createGame(planets);
+		}
+		else {
+			gameState = new String(Files.readAllBytes(Paths.get(gameFile)), StandardCharsets.UTF_8);
+		}
+		encodedGameState = codec.encode(gameState);
+		
+		int rawBytes = gameState.getBytes(StandardCharsets.UTF_8).length;
+		System.out.println(String.format("%s: %d raw bytes, %d stored bytes (ratio: %.3f)", codec, rawBytes, encodedGameState.length,
+				encodedGameState.length / (double) rawBytes));
+	}
+	
+	@Benchmark
+	public byte[] encode() {
+		return codec.encode(gameState);
+	}
+	
+	@Benchmark
+	public String decode() throws SQLException {
+		return codec.decode(encodedGameState);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,109 @@
+package net.jfabricationgames.genesis_project_server.game;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import net.jfabricationgames.genesis_project_server.util.BenchmarkData;
+
+
+/**
+ * Measures the JSON serialization of {@link GameList}s and {@link MoveList}s (like in the list endpoints of the service).
+ * <p>
+ * The *NewMapper benchmarks create the {@link ObjectMapper} for every call (like the service does), the *SharedWriter benchmarks reuse one
+ * {@link ObjectWriter}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonSerializationBenchmark {
+	
+	/**
+	 * The number of planets of a game (50 planets are about 3 KB of JSON)
+	 */
+	private static final int PLANETS_PER_GAME = 50;
+	private static final int MOVES_PER_GAME = 40;
+	
+	/**
+	 * The number of games in the list (the move list contains {@link #MOVES_PER_GAME} moves per game)
+	 */
+	@Param({"10", "100", "1000"})
+	private int games;
+	
+	private GameList gameList;
+	private MoveList moveList;
+	private ObjectWriter sharedWriter;
+	
+	@Setup
+	public void setUp() {
+		String game = BenchmarkData.createGame(PLANETS_PER_GAME);
+		Map<Integer, String> gameData = new HashMap<Integer, String>();
+		Map<Integer, LocalDate> started = new HashMap<Integer, LocalDate>();
+		Map<Integer, LocalDate> lastPlayed = new HashMap<Integer, LocalDate>();
+		for (int id = 1; id <= games; id++) {
+			gameData.put(id, game);
+			started.put(id, LocalDate.of(2019, 1, 1).plusDays(id % 365));
+			lastPlayed.put(id, LocalDate.of(2019, 6, 1).plusDays(id % 180));
+		}
+		gameList = new GameList();
+		gameList.setGames(gameData);
+		gameList.setStarted(started);
+		gameList.setLastPlayed(lastPlayed);
+		
+		Map<Integer, String> moves = new HashMap<Integer, String>();
+		Map<Integer, Integer> idToNum = new HashMap<Integer, Integer>();
+		Map<Integer, String> idToUsername = new HashMap<Integer, String>();
+		for (int id = 1; id <= games * MOVES_PER_GAME; id++) {
+			moves.put(id, BenchmarkData.createMove(id, PLANETS_PER_GAME));
+			idToNum.put(id, (id - 1) % MOVES_PER_GAME + 1);
+			idToUsername.put(id, "player" + (id % 3 + 1));
+		}
+		moveList = new MoveList();
+		moveList.setMoves(moves);
+		moveList.setIdToNum(idToNum);
+		moveList.setIdToUsername(idToUsername);
+		
+		sharedWriter = new ObjectMapper().registerModule(new JavaTimeModule()).writer();
+	}
+	
+	@Benchmark
+	public String serializeGameListNewMapper() throws JsonProcessingException {
+		return new ObjectMapper().registerModule(new JavaTimeModule()).writer().writeValueAsString(gameList);
+	}
+	
+	@Benchmark
+	public String serializeGameListSharedWriter() throws JsonProcessingException {
+		return sharedWriter.writeValueAsString(gameList);
+	}
+	
+	@Benchmark
+	public String serializeMoveListNewMapper() throws JsonProcessingException {
+		return new ObjectMapper().registerModule(new JavaTimeModule()).writer().writeValueAsString(moveList);
+	}
+	
+	@Benchmark
+	public String serializeMoveListSharedWriter() throws JsonProcessingException {
+		return sharedWriter.writeValueAsString(moveList);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,65 @@
+package net.jfabricationgames.genesis_project_server.game;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the building of the (dynamic) list queries of the {@link GameDataManager}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QueryBuilderBenchmark {
+	
+	private static final String TABLE_GAMES = "genesis_project.games";
+	private static final String TABLE_PLAYERS = "genesis_project.players";
+	private static final String TABLE_USERS = "genesis_project.users";
+	private static final String TABLE_MOVES = "genesis_project.moves";
+	
+	/**
+	 * Whether the queries are restricted to a user and a game (or select all users and games)
+	 */
+	@Param({"true", "false"})
+	private boolean restricted;
+	
+	private GameDataManager gameDataManager;
+	
+	@Setup
+	public void setUp() {
+		gameDataManager = new GameDataManager();
+	}
+	
+	@Benchmark
+	public String buildGameListQuery() {
+		return gameDataManager.buildGameListQuery(true, restricted ? "user" : "-", TABLE_GAMES, TABLE_PLAYERS, TABLE_USERS);
+	}
+	
+	@Benchmark
+	public String buildMoveListQuery() {
+		return gameDataManager.buildMoveListQuery(!restricted, !restricted, !restricted, TABLE_MOVES, TABLE_USERS);
+	}
+	
+	@Benchmark
+	public String buildGamePageQuery() {
+		return gameDataManager.buildGamePageQuery(true, !restricted, false, TABLE_GAMES, TABLE_PLAYERS, TABLE_USERS);
+	}
+	
+	@Benchmark
+	public String buildMovePageQuery() {
+		return gameDataManager.buildMovePageQuery(!restricted, !restricted, false, TABLE_MOVES, TABLE_USERS);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,108 @@
+package net.jfabricationgames.genesis_project_server.load;
+
+import java.util.Collections;
+import java.util.Map;
+
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.Invocation.Builder;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+
+import net.jfabricationgames.genesis_project_server.service.GenesisProjectService;
+
+/**
+ * Sends the requests of the virtual players to the service and records their latencies in the {@link LoadReport}.
+ */
+public class LoadClient implements AutoCloseable {
+	
+	/**
+	 * The response of a request (the body is only read for successful requests).
+	 */
+	public static class Result {
+		
+		private final int status;
+		private final String body;
+		private final EntityTag tag;
+		private final String sessionToken;
+		
+		public Result(int status, String body, EntityTag tag, String sessionToken) {
+			this.status = status;
+			this.body = body;
+			this.tag = tag;
+			this.sessionToken = sessionToken;
+		}
+		
+		public boolean isSuccessful() {
+			return status >= 200 && status < 300;
+		}
+		
+		public int getStatus() {
+			return status;
+		}
+		
+		public String getBody() {
+			return body;
+		}
+		
+		public EntityTag getTag() {
+			return tag;
+		}
+		
+		public String getSessionToken() {
+			return sessionToken;
+		}
+	}
+	
+	private final Client client;
+	private final WebTarget target;
+	private final LoadReport report;
+	
+	public LoadClient(String serviceUri, LoadReport report) {
+		this.report = report;
+		client = ClientBuilder.newClient();
+		target = client.target(serviceUri);
+	}
+	
+	@Override
+	public void close() {
+		client.close();
+	}
+	
+	public Result get(String endpoint, String path, String sessionToken, EntityTag ifNoneMatch) {
+		Map<String, Object> headers = ifNoneMatch == null ? Collections.emptyMap()
+				: Collections.singletonMap(HttpHeaders.IF_NONE_MATCH, ifNoneMatch.toString());
+		return send(endpoint, path, sessionToken, headers, null);
+	}
+	
+	public Result post(String endpoint, String sessionToken, Map<String, Object> headers, Entity<?> entity) {
+		return send(endpoint, endpoint, sessionToken, headers, entity);
+	}
+	
+	private Result send(String endpoint, String path, String sessionToken, Map<String, Object> headers, Entity<?> entity) {
+		Builder builder = target.path(path).request();
+		if (sessionToken != null) {
+			builder.header(HttpHeaders.AUTHORIZATION, "Bearer " + sessionToken);
+		}
+		for (Map.Entry<String, Object> header : headers.entrySet()) {
+			builder.header(header.getKey(), header.getValue());
+		}
+		
+		long start = System.nanoTime();
+		try (Response response = entity == null ? builder.get() : builder.post(entity)) {
+			//the body is read before the latency is recorded (the request is only complete when the body was received)
+			String body = response.hasEntity() ? response.readEntity(String.class) : null;
+			report.record(endpoint, response.getStatus(), System.nanoTime() - start);
+			return new Result(response.getStatus(), body, response.getEntityTag(),
+					response.getHeaderString(GenesisProjectService.SESSION_TOKEN_HEADER));
+		}
+		catch (ProcessingException pe) {
+			report.record(endpoint, LoadReport.NO_RESPONSE, System.nanoTime() - start);
+			return new Result(LoadReport.NO_RESPONSE, null, null, null);
+		}
+	}
+}
\ No newline at end of file
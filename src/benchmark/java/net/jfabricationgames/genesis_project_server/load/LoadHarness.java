@@ -0,0 +1,140 @@
+package net.jfabricationgames.genesis_project_server.load;
+
+import java.io.File;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.glassfish.grizzly.http.server.HttpServer;
+import org.glassfish.grizzly.http.server.NetworkListener;
+import org.glassfish.grizzly.threadpool.ThreadPoolConfig;
+import org.glassfish.jersey.grizzly2.httpserver.GrizzlyHttpServerFactory;
+import org.glassfish.jersey.server.ResourceConfig;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import net.jfabricationgames.genesis_project_server.config.ServiceConfiguration;
+import net.jfabricationgames.genesis_project_server.database.InMemoryGameDatabase;
+import net.jfabricationgames.genesis_project_server.service.GenesisProjectContextListener;
+import net.jfabricationgames.genesis_project_server.service.GenesisProjectService;
+
+/**
+ * Starts the service in an embedded HTTP server (on an {@link InMemoryGameDatabase}) and lets virtual players play games against each other
+ * (see {@link VirtualGame}), to find the limits of the service before the production server does.
+ * <p>
+ * The throughput and the latency percentiles of every endpoint are printed at the end of the run and written to a JSON report (see
+ * {@link LoadOptions} for the options).
+ */
+public class LoadHarness {
+	
+	private static final Logger LOGGER = LogManager.getLogger(LoadHarness.class);
+	
+	private static final String DATABASE = "genesis_project";
+	private static final long PROGRESS_INTERVAL_MILLIS = 10000;
+	
+	private final LoadOptions options;
+	private final LoadReport report = new LoadReport();
+	
+	private volatile boolean running;
+	
+	public LoadHarness(LoadOptions options) {
+		this.options = options;
+	}
+	
+	public static void main(String[] args) throws Exception {
+		LoadOptions options = LoadOptions.parse(args);
+		new LoadHarness(options).run();
+	}
+	
+	public void run() throws Exception {
+		System.out.println("load run options: " + options);
+		if (!options.isRateLimit()) {
+			System.setProperty(ServiceConfiguration.SYSTEM_PROPERTY_PREFIX + "rate_limit.enabled", "false");
+		}
+		//keep a connection per client thread alive (the default are 5 connections per host)
+		System.setProperty("http.maxConnections", Integer.toString(options.getClientThreads()));
+		
+		InMemoryGameDatabase database = new InMemoryGameDatabase(options.getDatabaseLatencyMicros());
+		database.install(DATABASE, options.getPoolSize());
+		GenesisProjectContextListener contextListener = new GenesisProjectContextListener();
+		contextListener.contextInitialized(null);
+		
+		//the resources and providers are found like in the servlet container (see web.xml)
+		ResourceConfig application = new ResourceConfig().packages(GenesisProjectService.class.getPackage().getName());
+		HttpServer server = GrizzlyHttpServerFactory.createHttpServer(URI.create("http://localhost:" + options.getPort() + "/"), application, false);
+		NetworkListener listener = server.getListeners().iterator().next();
+		listener.getTransport().setWorkerThreadPoolConfig(
+				ThreadPoolConfig.defaultConfig().setCorePoolSize(options.getServerThreads()).setMaxPoolSize(options.getServerThreads()));
+		server.start();
+		String serviceUri = "http://localhost:" + listener.getPort() + "/genesis_project";
+		LOGGER.info("load harness started the service on {}", serviceUri);
+		
+		ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(options.getClientThreads());
+		try (LoadClient client = new LoadClient(serviceUri, report)) {
+			running = true;
+			report.start();
+			startGames(client, scheduler);
+			
+			long end = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(options.getDurationSeconds());
+			long lastRequests = 0;
+			while (System.currentTimeMillis() < end) {
+				Thread.sleep(Math.min(PROGRESS_INTERVAL_MILLIS, Math.max(1, end - System.currentTimeMillis())));
+				long requests = report.getRequests();
+				System.out.println(String.format("%d requests (%d in the last interval), %d errors, %d games, %d moves", requests,
+						requests - lastRequests, report.getErrors(), database.getGames(), database.getMoves()));
+				lastRequests = requests;
+			}
+			
+			running = false;
+			scheduler.shutdownNow();
+			scheduler.awaitTermination(1, TimeUnit.MINUTES);
+			report.stop();
+		}
+		finally {
+			scheduler.shutdownNow();
+			server.shutdownNow();
+			contextListener.contextDestroyed(null);
+		}
+		
+		report.print(System.out);
+		System.out.println(String.format("database: %d users, %d games, %d moves, %d executed statements", database.getUsers(),
+				database.getGames(), database.getMoves(), database.getExecutedStatements()));
+		writeReport();
+	}
+	
+	/**
+	 * Divide the players into games and start the games (evenly distributed over the ramp up time).
+	 */
+	private void startGames(LoadClient client, ScheduledThreadPoolExecutor scheduler) {
+		int games = Math.max(1, options.getPlayers() / options.getPlayersPerGame());
+		long rampUpMillis = TimeUnit.SECONDS.toMillis(options.getRampUpSeconds());
+		for (int i = 0; i < games; i++) {
+			List<String> players = new ArrayList<String>();
+			for (int j = 0; j < options.getPlayersPerGame(); j++) {
+				players.add("load_player_" + (i * options.getPlayersPerGame() + j));
+			}
+			new VirtualGame(options, client, report, scheduler, () -> running, players).start(rampUpMillis * i / games);
+		}
+	}
+	
+	private void writeReport() throws Exception {
+		if (options.getReport().isEmpty()) {
+			return;
+		}
+		Map<String, Object> json = new LinkedHashMap<String, Object>();
+		json.put("options", options.getValues());
+		json.putAll(report.toMap());
+		File file = new File(options.getReport());
+		if (file.getParentFile() != null) {
+			file.getParentFile().mkdirs();
+		}
+		new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(file, json);
+		System.out.println("report written to " + file.getAbsolutePath());
+	}
+}
\ No newline at end of file
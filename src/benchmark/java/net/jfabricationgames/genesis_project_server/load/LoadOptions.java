@@ -0,0 +1,121 @@
+package net.jfabricationgames.genesis_project_server.load;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import net.jfabricationgames.genesis_project_server.database.DatabaseConnection;
+
+/**
+ * The options of a load run, given as command line arguments in the form --name=value (e.g. --players=3000 --duration-seconds=300).
+ */
+public class LoadOptions {
+	
+	private final Map<String, String> values = new LinkedHashMap<String, String>();
+	
+	public LoadOptions() {
+		//the number of virtual players and the number of players per game
+		values.put("players", "1000");
+		values.put("players-per-game", "3");
+		//the duration of the run and the time in which the games are started
+		values.put("duration-seconds", "60");
+		values.put("ramp-up-seconds", "10");
+		//the mean time between two moves of a game (exponentially distributed)
+		values.put("think-time-millis", "2000");
+		//the interval in which the waiting players poll the game (get_game with If-None-Match and list_moves if the game changed)
+		values.put("poll-interval-millis", "5000");
+		//the number of moves after which a game ends (and the players start a new game)
+		values.put("moves-per-game", "30");
+		//the size of the game that is sent by update_game (50 planets are about 3 KB of JSON)
+		values.put("planets", "50");
+		//the threads that send the requests and the threads that handle the requests in the embedded HTTP server
+		values.put("client-threads", "64");
+		values.put("server-threads", "32");
+		//the size of the connection pool and the time that every statement takes in the database stand-in
+		values.put("pool-size", Integer.toString(DatabaseConnection.DEFAULT_POOL_MAX_SIZE));
+		values.put("database-latency-micros", "1000");
+		//the port of the embedded HTTP server (0 for a free port)
+		values.put("port", "0");
+		//the rate limits are disabled by default, because all virtual players send their requests from the same address
+		values.put("rate-limit", "false");
+		//the file to which the report is written as JSON (no file if empty)
+		values.put("report", "target/load-report.json");
+	}
+	
+	/**
+	 * Parse the command line arguments (options that are not given keep their default value).
+	 * 
+	 * @throws IllegalArgumentException
+	 *         An {@link IllegalArgumentException} is thrown if an argument is not a known option
+	 */
+	public static LoadOptions parse(String[] args) throws IllegalArgumentException {
+		LoadOptions options = new LoadOptions();
+		for (String arg : args) {
+			int separator = arg.indexOf('=');
+			String name = arg.startsWith("--") && separator != -1 ? arg.substring(2, separator) : null;
+			if (name == null || !options.values.containsKey(name)) {
+				throw new IllegalArgumentException("unknown option: " + arg + " (known options: " + options.values + ")");
+			}
+			options.values.put(name, arg.substring(separator + 1));
+		}
+		return options;
+	}
+	
+	@Override
+	public String toString() {
+		return values.toString();
+	}
+	
+	public Map<String, String> getValues() {
+		return values;
+	}
+	
+	private int getInt(String name) {
+		return Integer.parseInt(values.get(name));
+	}
+	
+	public int getPlayers() {
+		return getInt("players");
+	}
+	public int getPlayersPerGame() {
+		return getInt("players-per-game");
+	}
+	public int getDurationSeconds() {
+		return getInt("duration-seconds");
+	}
+	public int getRampUpSeconds() {
+		return getInt("ramp-up-seconds");
+	}
+	public int getThinkTimeMillis() {
+		return getInt("think-time-millis");
+	}
+	public int getPollIntervalMillis() {
+		return getInt("poll-interval-millis");
+	}
+	public int getMovesPerGame() {
+		return getInt("moves-per-game");
+	}
+	public int getPlanets() {
+		return getInt("planets");
+	}
+	public int getClientThreads() {
+		return getInt("client-threads");
+	}
+	public int getServerThreads() {
+		return getInt("server-threads");
+	}
+	public int getPoolSize() {
+		return getInt("pool-size");
+	}
+	public int getDatabaseLatencyMicros() {
+		return getInt("database-latency-micros");
+	}
+	public int getPort() {
+		return getInt("port");
+	}
+	public boolean isRateLimit() {
+		return Boolean.parseBoolean(values.get("rate-limit"));
+	}
+	public String getReport() {
+		return values.get("report");
+	}
+}
\ No newline at end of file
@@ -0,0 +1,146 @@
+package net.jfabricationgames.genesis_project_server.load;
+
+import java.io.PrintStream;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import net.jfabricationgames.genesis_project_server.metrics.LatencyHistogram;
+
+/**
+ * Collects the latencies and response statuses of the requests of a load run (per endpoint) and reports the throughput and the latency
+ * percentiles.
+ */
+public class LoadReport {
+	
+	/**
+	 * The status that is recorded for requests that failed without a response (e.g. because the connection was refused)
+	 */
+	public static final int NO_RESPONSE = 0;
+	
+	private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+	
+	private static class EndpointResults {
+		
+		private final LatencyHistogram latencies = new LatencyHistogram();
+		private final ConcurrentMap<Integer, LongAdder> statuses = new ConcurrentSkipListMap<Integer, LongAdder>();
+		private final LongAdder errors = new LongAdder();
+		
+		public void record(int status, long nanos) {
+			latencies.recordNanos(nanos);
+			statuses.computeIfAbsent(status, s -> new LongAdder()).increment();
+			if (isError(status)) {
+				errors.increment();
+			}
+		}
+	}
+	
+	private final ConcurrentMap<String, EndpointResults> endpoints = new ConcurrentSkipListMap<String, EndpointResults>();
+	/**
+	 * The time by which the requests were started later than scheduled (a high lag means that the client threads are the bottleneck)
+	 */
+	private final LatencyHistogram schedulingLag = new LatencyHistogram();
+	
+	private final LongAdder requests = new LongAdder();
+	private final LongAdder errors = new LongAdder();
+	
+	private volatile long startNanos;
+	private volatile long endNanos;
+	
+	private static boolean isError(int status) {
+		return status == NO_RESPONSE || status >= 400;
+	}
+	
+	public void start() {
+		startNanos = System.nanoTime();
+	}
+	public void stop() {
+		endNanos = System.nanoTime();
+	}
+	
+	public void record(String endpoint, int status, long nanos) {
+		endpoints.computeIfAbsent(endpoint, e -> new EndpointResults()).record(status, nanos);
+		requests.increment();
+		if (isError(status)) {
+			errors.increment();
+		}
+	}
+	
+	public void recordSchedulingLag(long nanos) {
+		schedulingLag.recordNanos(nanos);
+	}
+	
+	public long getRequests() {
+		return requests.sum();
+	}
+	public long getErrors() {
+		return errors.sum();
+	}
+	
+	private double getDurationSeconds() {
+		long end = endNanos != 0 ? endNanos : System.nanoTime();
+		return Math.max(1, end - startNanos) / (double) TimeUnit.SECONDS.toNanos(1);
+	}
+	
+	/**
+	 * Print the results as a table (the latencies in milliseconds).
+	 */
+	public void print(PrintStream out) {
+		double durationSeconds = getDurationSeconds();
+		out.println(String.format(Locale.ROOT, "%-20s %10s %8s %10s %9s %9s %9s %9s %9s  %s", "Endpoint", "Requests", "Errors", "Req/s", "p50",
+				"p90", "p99", "p99.9", "max", "Statuses"));
+		for (Map.Entry<String, EndpointResults> endpoint : endpoints.entrySet()) {
+			EndpointResults results = endpoint.getValue();
+			long count = results.latencies.getCount();
+			StringBuilder line = new StringBuilder(String.format(Locale.ROOT, "%-20s %10d %8d %10.1f", endpoint.getKey(), count,
+					results.errors.sum(), count / durationSeconds));
+			for (double percentile : PERCENTILES) {
+				line.append(String.format(Locale.ROOT, " %9.2f", results.latencies.getValueAtPercentile(percentile) / 1000d));
+			}
+			line.append(String.format(Locale.ROOT, " %9.2f  %s", results.latencies.getValueAtPercentile(100) / 1000d, results.statuses));
+			out.println(line);
+		}
+		out.println(String.format(Locale.ROOT, "%-20s %10d %8d %10.1f", "total", getRequests(), getErrors(), getRequests() / durationSeconds));
+		out.println(String.format(Locale.ROOT, "duration: %.1f s; client scheduling lag: p99 %.2f ms, max %.2f ms", durationSeconds,
+				schedulingLag.getValueAtPercentile(99) / 1000d, schedulingLag.getValueAtPercentile(100) / 1000d));
+	}
+	
+	/**
+	 * Get the results as a map (to be written as JSON). The latencies are given in milliseconds.
+	 */
+	public Map<String, Object> toMap() {
+		double durationSeconds = getDurationSeconds();
+		Map<String, Object> report = new LinkedHashMap<String, Object>();
+		report.put("durationSeconds", durationSeconds);
+		report.put("requests", getRequests());
+		report.put("errors", getErrors());
+		report.put("requestsPerSecond", getRequests() / durationSeconds);
+		report.put("schedulingLagP99Millis", schedulingLag.getValueAtPercentile(99) / 1000d);
+		
+		Map<String, Object> endpointReports = new LinkedHashMap<String, Object>();
+		for (Map.Entry<String, EndpointResults> endpoint : endpoints.entrySet()) {
+			EndpointResults results = endpoint.getValue();
+			Map<String, Object> endpointReport = new LinkedHashMap<String, Object>();
+			endpointReport.put("requests", results.latencies.getCount());
+			endpointReport.put("errors", results.errors.sum());
+			endpointReport.put("requestsPerSecond", results.latencies.getCount() / durationSeconds);
+			endpointReport.put("meanMillis", results.latencies.getCount() == 0 ? 0
+					: results.latencies.getSumMicros() / (double) results.latencies.getCount() / 1000d);
+			for (double percentile : PERCENTILES) {
+				endpointReport.put("p" + (percentile == (long) percentile ? Long.toString((long) percentile) : Double.toString(percentile)) + "Millis",
+						results.latencies.getValueAtPercentile(percentile) / 1000d);
+			}
+			endpointReport.put("maxMillis", results.latencies.getValueAtPercentile(100) / 1000d);
+			Map<String, Long> statuses = new LinkedHashMap<String, Long>();
+			results.statuses.forEach((status, count) -> statuses.put(Integer.toString(status), count.sum()));
+			endpointReport.put("statuses", statuses);
+			endpointReports.put(endpoint.getKey(), endpointReport);
+		}
+		report.put("endpoints", endpointReports);
+		return report;
+	}
+}
\ No newline at end of file
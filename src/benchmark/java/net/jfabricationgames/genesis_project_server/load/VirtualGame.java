@@ -0,0 +1,169 @@
+package net.jfabricationgames.genesis_project_server.load;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.MediaType;
+
+import net.jfabricationgames.genesis_project_server.user.Login;
+import net.jfabricationgames.genesis_project_server.util.BenchmarkData;
+
+/**
+ * A group of virtual players that play games against each other, like the clients of the game do:
+ * <ul>
+ * <li>Every player creates a user and logs in (create_user, verify_user)</li>
+ * <li>The first player creates a game for the group (create_game)</li>
+ * <li>The players make their moves in turn (set_move followed by update_game) with a think time between the moves</li>
+ * <li>The waiting players poll the game (get_game with the ETag of the last version and list_moves if the game changed)</li>
+ * <li>After the last move of a game the group starts a new game</li>
+ * </ul>
+ * All steps are scheduled on a shared scheduler (so thousands of players don't need thousands of threads).
+ */
+public class VirtualGame {
+	
+	private static final String PASSWORD_ENCRYPTION_KEY = "vcuh31250hvcsojnl312vcnlsgr329fdsip";//encryption key from UserDataManager class
+	private static final String PASSWORD = "load_test_password";
+	
+	private final LoadOptions options;
+	private final LoadClient client;
+	private final LoadReport report;
+	private final ScheduledExecutorService scheduler;
+	private final BooleanSupplier running;
+	
+	private final List<String> players;
+	private final String[] sessionTokens;
+	private final EntityTag[] knownVersions;
+	private final String game;
+	
+	private volatile int gameId = -1;
+	private volatile int moves;
+	
+	public VirtualGame(LoadOptions options, LoadClient client, LoadReport report, ScheduledExecutorService scheduler, BooleanSupplier running,
+			List<String> players) {
+		this.options = options;
+		this.client = client;
+		this.report = report;
+		this.scheduler = scheduler;
+		this.running = running;
+		this.players = players;
+		sessionTokens = new String[players.size()];
+		knownVersions = new EntityTag[players.size()];
+		game = BenchmarkData.createGame(options.getPlanets());
+	}
+	
+	/**
+	 * Start the session of the players after a delay (the players log in and start a game).
+	 */
+	public void start(long delayMillis) {
+		schedule(this::login, delayMillis);
+	}
+	
+	private void login() {
+		for (int i = 0; i < players.size(); i++) {
+			client.post("create_user", null, Collections.emptyMap(), Entity.entity(createLogin(players.get(i)), MediaType.APPLICATION_JSON));
+			LoadClient.Result result = client.post("verify_user", null, Collections.emptyMap(),
+					Entity.entity(createLogin(players.get(i)), MediaType.APPLICATION_JSON));
+			sessionTokens[i] = result.getSessionToken();
+		}
+		createGame();
+		for (int i = 0; i < players.size(); i++) {
+			int player = i;
+			schedule(() -> poll(player), randomPollInterval());
+		}
+	}
+	
+	private Login createLogin(String username) {
+		Login login = new Login(username, PASSWORD);
+		login.encryptPassword(PASSWORD_ENCRYPTION_KEY);
+		return login;
+	}
+	
+	private void createGame() {
+		LoadClient.Result result = client.post("create_game", sessionTokens[0], Collections.emptyMap(),
+				Entity.entity(players, MediaType.APPLICATION_JSON));
+		if (result.isSuccessful()) {
+			gameId = Integer.parseInt(result.getBody().trim());
+			moves = 0;
+			schedule(this::playTurn, randomThinkTime());
+		}
+		else {
+			schedule(this::createGame, randomThinkTime());
+		}
+	}
+	
+	/**
+	 * The active player makes a move and stores the game.
+	 */
+	private void playTurn() {
+		int player = moves % players.size();
+		Map<String, Object> moveHeaders = new HashMap<String, Object>();
+		moveHeaders.put("game_id", gameId);
+		moveHeaders.put("username", players.get(player));
+		LoadClient.Result result = client.post("set_move", sessionTokens[player], moveHeaders,
+				Entity.entity(BenchmarkData.createMove(moves + 1, options.getPlanets()), MediaType.APPLICATION_JSON));
+		if (result.isSuccessful()) {
+			client.post("update_game", sessionTokens[player], Collections.singletonMap("id", gameId), Entity.entity(game, MediaType.APPLICATION_JSON));
+			moves++;
+		}
+		
+		if (moves >= options.getMovesPerGame()) {
+			schedule(this::createGame, randomThinkTime());
+		}
+		else {
+			schedule(this::playTurn, randomThinkTime());
+		}
+	}
+	
+	/**
+	 * A waiting player checks whether the game changed and loads the moves if so.
+	 */
+	private void poll(int player) {
+		int id = gameId;
+		if (id != -1 && moves % players.size() != player) {
+			LoadClient.Result result = client.get("get_game", "get_game/" + id, sessionTokens[player], knownVersions[player]);
+			if (result.isSuccessful()) {
+				knownVersions[player] = result.getTag();
+				client.get("list_moves", "list_moves/" + id + "/-/-1", sessionTokens[player], null);
+			}
+		}
+		schedule(() -> poll(player), randomPollInterval());
+	}
+	
+	/**
+	 * Schedule a step of the session (if the load run is not yet finished).
+	 */
+	private void schedule(Runnable step, long delayMillis) {
+		if (!running.getAsBoolean()) {
+			return;
+		}
+		long scheduled = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis);
+		scheduler.schedule(() -> {
+			report.recordSchedulingLag(Math.max(0, System.nanoTime() - scheduled));
+			if (running.getAsBoolean()) {
+				step.run();
+			}
+		}, delayMillis, TimeUnit.MILLISECONDS);
+	}
+	
+	/**
+	 * The think times are exponentially distributed (so the moves of the games are not synchronized).
+	 */
+	private long randomThinkTime() {
+		return (long) (-Math.log(1 - ThreadLocalRandom.current().nextDouble()) * options.getThinkTimeMillis());
+	}
+	
+	/**
+	 * The poll intervals vary by 20% (so the players don't poll at the same time).
+	 */
+	private long randomPollInterval() {
+		return (long) (options.getPollIntervalMillis() * (0.8 + 0.4 * ThreadLocalRandom.current().nextDouble()));
+	}
+}
\ No newline at end of file
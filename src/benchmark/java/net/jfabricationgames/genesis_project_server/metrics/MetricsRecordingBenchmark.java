@@ -0,0 +1,88 @@
+package net.jfabricationgames.genesis_project_server.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the CPU time that the recording of a request in the {@link MetricsRegistry} adds to every request (single threaded and with
+ * concurrent requests to the same endpoint), to check that the metrics can stay enabled in production.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MetricsRecordingBenchmark {
+	
+	/**
+	 * The latency that is recorded (varied per operation, so different buckets of the histogram are used)
+	 */
+	@State(Scope.Thread)
+	public static class Latency {
+		
+		private long i;
+		
+		public long next() {
+			return ++i * 997;
+		}
+	}
+	
+	private LatencyHistogram histogram;
+	private MetricsRegistry registry;
+	/**
+	 * A registry with the metrics of 50 endpoints (for the export)
+	 */
+	private MetricsRegistry exportedRegistry;
+	
+	@Setup
+	public void setUp() {
+		histogram = new LatencyHistogram();
+		registry = new MetricsRegistry();
+		exportedRegistry = new MetricsRegistry();
+		for (int i = 0; i < 50; i++) {
+			exportedRegistry.requestStarted("endpoint" + i);
+			exportedRegistry.requestFinished("endpoint" + i, 200, i * 997);
+		}
+	}
+	
+	@Benchmark
+	public void recordLatency(Latency latency) {
+		histogram.recordNanos(latency.next());
+	}
+	
+	@Benchmark
+	@Threads(4)
+	public void recordLatencyConcurrently(Latency latency) {
+		histogram.recordNanos(latency.next());
+	}
+	
+	@Benchmark
+	public void recordRequest(Latency latency) {
+		registry.requestStarted("get_game");
+		registry.requestFinished("get_game", 200, latency.next());
+	}
+	
+	@Benchmark
+	@Threads(4)
+	public void recordRequestConcurrently(Latency latency) {
+		registry.requestStarted("get_game");
+		registry.requestFinished("get_game", 200, latency.next());
+	}
+	
+	@Benchmark
+	public String toPrometheusFormat() {
+		return exportedRegistry.toPrometheusFormat();
+	}
+}
\ No newline at end of file
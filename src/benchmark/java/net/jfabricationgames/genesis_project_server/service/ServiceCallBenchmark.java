@@ -0,0 +1,107 @@
+package net.jfabricationgames.genesis_project_server.service;
+
+import java.lang.reflect.Proxy;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.jfabricationgames.genesis_project_server.database.DatabaseConnection;
+import net.jfabricationgames.genesis_project_server.database.StandInDatabase;
+import net.jfabricationgames.genesis_project_server.database.StorageCodec;
+import net.jfabricationgames.genesis_project_server.util.BenchmarkData;
+
+/**
+ * Measures complete calls of the {@link GenesisProjectService} endpoints (including the {@link DatabaseRequestExecutor}, the connection
+ * pool, the statement cache, the storage codec and the JSON serialization) against a {@link StandInDatabase}, so only the service's own
+ * overhead is measured. The JAX-RS filters are not included, because the endpoints are called without a servlet container.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ServiceCallBenchmark {
+	
+	private static final long RESPONSE_TIMEOUT_MILLIS = 10000;
+	private static final int POOL_SIZE = 4;
+	
+	/**
+	 * The number of planets of the games (50 planets are about 3 KB of JSON)
+	 */
+	@Param({"50"})
+	private int planets;
+	/**
+	 * The number of games that are listed by list_games
+	 */
+	@Param({"20"})
+	private int games;
+	
+	private GenesisProjectService service;
+	private Request request;
+	
+	@Setup
+	public void setUp() throws SQLException {
+		//the games are stored with the codec that the service would use to write them
+		String game = BenchmarkData.createGame(planets);
+		StorageCodec codec = StorageCodec.forValue(game);
+		byte[] data = codec.encode(game);
+		
+		List<Object[]> gameList = new ArrayList<Object[]>();
+		for (int id = 1; id <= games; id++) {
+			gameList.add(new Object[] {id, Date.valueOf(LocalDate.of(2019, 1, 1)), Date.valueOf(LocalDate.of(2019, 6, 1)), data, codec.getId()});
+		}
+		
+		StandInDatabase database = new StandInDatabase() //
+				.on("SELECT data, data_codec, active FROM", parameters -> Collections.singletonList(new Object[] {data, codec.getId(), 1})) //
+				.on("SELECT g.id, g.started, g.last_played, g.data, g.data_codec FROM", parameters -> gameList);
+		DatabaseConnection.initialize(database.getDataSource(), "genesis_project", POOL_SIZE);
+		
+		service = new GenesisProjectService();
+		//no preconditions (like an If-None-Match header) are sent, so every call loads the game
+		request = (Request) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {Request.class}, (proxy, method, args) -> null);
+	}
+	
+	@TearDown
+	public void tearDown() {
+		DatabaseRequestExecutor.shutdown();
+		DatabaseConnection.shutdown();
+	}
+	
+	@Benchmark
+	public Response getGame() throws InterruptedException, ExecutionException, TimeoutException {
+		StubAsyncResponse response = new StubAsyncResponse();
+		//no session token is sent (the service is called directly, so the session filter doesn't run)
+		service.getGame(1, request, null, response);
+		return response.await(RESPONSE_TIMEOUT_MILLIS);
+	}
+	
+	@Benchmark
+	public Response listGames() throws InterruptedException, ExecutionException, TimeoutException {
+		StubAsyncResponse response = new StubAsyncResponse();
+		service.listGames(true, "-", request, null, response);
+		return response.await(RESPONSE_TIMEOUT_MILLIS);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,105 @@
+package net.jfabricationgames.genesis_project_server.service;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.TimeoutHandler;
+import javax.ws.rs.core.Response;
+
+/**
+ * An {@link AsyncResponse} that is used to call the endpoints of the {@link GenesisProjectService} directly (without a servlet container).
+ * The response can be awaited with {@link #await(long)}.
+ */
+public class StubAsyncResponse implements AsyncResponse {
+	
+	private final CompletableFuture<Object> response = new CompletableFuture<Object>();
+	
+	/**
+	 * Wait for the endpoint to resume the response.
+	 * 
+	 * @return The {@link Response} of the endpoint.
+	 */
+	public Response await(long timeoutMillis) throws InterruptedException, ExecutionException, TimeoutException {
+		Object entity = response.get(timeoutMillis, TimeUnit.MILLISECONDS);
+		if (entity instanceof Response) {
+			return (Response) entity;
+		}
+		return Response.ok(entity).build();
+	}
+	
+	/**
+	 * Get the future, that is completed when the endpoint resumes the response.
+	 */
+	public CompletableFuture<Object> getResponse() {
+		return response;
+	}
+	
+	@Override
+	public boolean resume(Object response) {
+		return this.response.complete(response);
+	}
+	@Override
+	public boolean resume(Throwable response) {
+		return this.response.completeExceptionally(response);
+	}
+	
+	@Override
+	public boolean cancel() {
+		return response.cancel(false);
+	}
+	@Override
+	public boolean cancel(int retryAfter) {
+		return cancel();
+	}
+	@Override
+	public boolean cancel(Date retryAfter) {
+		return cancel();
+	}
+	
+	@Override
+	public boolean isSuspended() {
+		return !response.isDone();
+	}
+	@Override
+	public boolean isCancelled() {
+		return response.isCancelled();
+	}
+	@Override
+	public boolean isDone() {
+		return response.isDone();
+	}
+	
+	/**
+	 * The timeout is handled by the caller of {@link #await(long)}.
+	 */
+	@Override
+	public boolean setTimeout(long time, TimeUnit unit) {
+		return true;
+	}
+	@Override
+	public void setTimeoutHandler(TimeoutHandler handler) {}
+	
+	@Override
+	public Collection<Class<?>> register(Class<?> callback) {
+		return Collections.emptyList();
+	}
+	@Override
+	public Map<Class<?>, Collection<Class<?>>> register(Class<?> callback, Class<?>... callbacks) {
+		return Collections.emptyMap();
+	}
+	@Override
+	public Collection<Class<?>> register(Object callback) {
+		return Collections.emptyList();
+	}
+	@Override
+	public Map<Class<?>, Collection<Class<?>>> register(Object callback, Object... callbacks) {
+		return Collections.emptyMap();
+	}
+}
\ No newline at end of file
@@ -0,0 +1,55 @@
+package net.jfabricationgames.genesis_project_server.user;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the password hashing of the {@link UserDataManager} (that is done for every login, user creation and user update).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PasswordHashBenchmark {
+	
+	private static final String ENCRYPTION_KEY = "benchmark_encryption_key";
+	private static final String PASSWORD = "a_typical_password_123";
+	
+	private UserDataManager userDataManager;
+	private String encryptedPassword;
+	
+	@Setup
+	public void setUp() {
+		userDataManager = new UserDataManager();
+		Login login = new Login("user", PASSWORD);
+		login.encryptPassword(ENCRYPTION_KEY);
+		encryptedPassword = login.getPassword();
+	}
+	
+	@Benchmark
+	public String hashPassword() {
+		return userDataManager.getPasswordHash(PASSWORD);
+	}
+	
+	/**
+	 * Decrypt the password of a login before hashing it (like the service does for every received login).
+	 */
+	@Benchmark
+	public String decryptAndHashPassword() {
+		Login login = new Login("user", encryptedPassword);
+		login.decryptPassword(ENCRYPTION_KEY);
+		return userDataManager.getPasswordHash(login.getPassword());
+	}
+}
\ No newline at end of file
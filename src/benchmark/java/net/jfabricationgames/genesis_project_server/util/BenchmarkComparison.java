@@ -0,0 +1,77 @@
+package net.jfabricationgames.genesis_project_server.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Compares two JMH result files (written with -rf json) and reports the change of every benchmark that is contained in both files.
+ * <p>
+ * Usage: BenchmarkComparison &lt;baseline.json&gt; &lt;current.json&gt; [maxRegressionPercent (default: 10)]
+ * <p>
+ * The exit code is 1 if a benchmark got slower than the allowed regression, so the comparison can be used in a build.
+ */
+public class BenchmarkComparison {
+	
+	private static final double DEFAULT_MAX_REGRESSION_PERCENT = 10;
+	
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.err.println("usage: BenchmarkComparison <baseline.json> <current.json> [maxRegressionPercent]");
+			System.exit(2);
+		}
+		double maxRegressionPercent = args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_MAX_REGRESSION_PERCENT;
+		
+		Map<String, JsonNode> baseline = readResults(new File(args[0]));
+		Map<String, JsonNode> current = readResults(new File(args[1]));
+		
+		int regressions = 0;
+		System.out.println(String.format(Locale.ROOT, "%-90s %14s %14s %10s %9s", "Benchmark", "Baseline", "Current", "Unit", "Change"));
+		for (Map.Entry<String, JsonNode> result : current.entrySet()) {
+			JsonNode baselineResult = baseline.get(result.getKey());
+			if (baselineResult == null) {
+				continue;
+			}
+			double baselineScore = baselineResult.get("primaryMetric").get("score").asDouble();
+			double currentScore = result.getValue().get("primaryMetric").get("score").asDouble();
+			String unit = result.getValue().get("primaryMetric").get("scoreUnit").asText();
+			double changePercent = (currentScore - baselineScore) / baselineScore * 100;
+			
+			//the throughput modes report operations per time (a lower score is slower), the other modes report time per operation
+			boolean throughput = result.getValue().get("mode").asText().equals("thrpt");
+			double regressionPercent = throughput ? -changePercent : changePercent;
+			boolean regression = regressionPercent > maxRegressionPercent;
+			if (regression) {
+				regressions++;
+			}
+			System.out.println(String.format(Locale.ROOT, "%-90s %14.3f %14.3f %10s %+8.1f%%%s", result.getKey(), baselineScore, currentScore, unit,
+					changePercent, regression ? "  REGRESSION" : ""));
+		}
+		
+		if (regressions > 0) {
+			System.out.println(regressions + " benchmark(s) regressed by more than " + maxRegressionPercent + "%");
+			System.exit(1);
+		}
+	}
+	
+	/**
+	 * Read the results of a JMH result file (mapped by the benchmark name and its parameters).
+	 */
+	private static Map<String, JsonNode> readResults(File file) throws IOException {
+		Map<String, JsonNode> results = new LinkedHashMap<String, JsonNode>();
+		for (JsonNode result : new ObjectMapper().readTree(file)) {
+			StringBuilder name = new StringBuilder(result.get("benchmark").asText());
+			JsonNode params = result.get("params");
+			if (params != null) {
+				params.fields().forEachRemaining(param -> name.append(" ").append(param.getKey()).append("=").append(param.getValue().asText()));
+			}
+			results.put(name.toString(), result);
+		}
+		return results;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,35 @@
+package net.jfabricationgames.genesis_project_server.util;
+
+/**
+ * Creates realistic payloads for the benchmarks.
+ */
+public class BenchmarkData {
+	
+	private BenchmarkData() {}
+	
+	/**
+	 * Create a JSON payload that is similar to a game (many objects with repeating keys; about 3 KB for 50 planets). The payload only contains
+	 * characters that are supported by the {@link Cryptographer}.
+	 */
+	public static String createGame(int planets) {
+		StringBuilder sb = new StringBuilder("{\"players\":[\"player1\",\"player2\",\"player3\"],\"round\":4,\"planets\":[");
+		for (int i = 0; i < planets; i++) {
+			if (i > 0) {
+				sb.append(",");
+			}
+			sb.append("{\"id\":").append(i).append(",\"owner\":\"player").append(i % 3 + 1).append("\",\"type\":\"")
+					.append(i % 2 == 0 ? "GREEN" : "BLACK").append("\",\"buildings\":[\"COLONY\",\"MINE\"],\"resources\":{\"ORE\":")
+					.append(i * 7 % 13).append(",\"CARBON\":").append(i * 11 % 17).append("},\"name\":\"Planet Nr. ").append(i).append(" (ä)\"}");
+		}
+		sb.append("]}");
+		return sb.toString();
+	}
+	
+	/**
+	 * Create a JSON payload that is similar to a move.
+	 */
+	public static String createMove(int num, int planets) {
+		return "{\"type\":\"BUILD\",\"player\":\"player" + (num % 3 + 1) + "\",\"planet\":" + (num % planets)
+				+ ",\"building\":\"MINE\",\"resources\":{\"CARBON\":3,\"ORE\":1}}";
+	}
+}
\ No newline at end of file
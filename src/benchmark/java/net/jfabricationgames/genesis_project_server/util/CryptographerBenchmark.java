@@ -0,0 +1,113 @@
+package net.jfabricationgames.genesis_project_server.util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the {@link Cryptographer} on payloads of the size of a game (compared to the original implementation, that concatenated the
+ * result string and searched the encoding characters for every character).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CryptographerBenchmark {
+	
+	private static final String PASSWORD = "genesis_project_password";
+	
+	/**
+	 * The number of planets of the game that is encrypted (50 planets are about 3 KB of JSON)
+	 */
+	@Param({"10", "50", "250"})
+	private int planets;
+	
+	private static final String ENCODING_CHARS = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZäöüÄÖÜ1234567890,;.:-_#'+*~!\"§$%&/()=?ß`^°{[]}\\'/- \n\t";
+	
+	private String text;
+	private String encryptedText;
+	private char[] buffer;
+	
+	@Setup
+	public void setUp() {
+		text = BenchmarkData.createGame(planets);
+		encryptedText = Cryptographer.encryptText(text, PASSWORD);
+		buffer = new char[1024];
+	}
+	
+	@Benchmark
+	public String encryptText() {
+		return Cryptographer.encryptText(text, PASSWORD);
+	}
+	
+	@Benchmark
+	public String decryptText() {
+		return Cryptographer.decryptText(encryptedText, PASSWORD);
+	}
+	
+	@Benchmark
+	public String encryptTextOriginal() {
+		String encryptedText = "";
+		for (int i = 0; i < text.length(); i++) {
+			int charIndex = ENCODING_CHARS.indexOf(text.charAt(i)) + ENCODING_CHARS.indexOf(PASSWORD.charAt(i % PASSWORD.length()));
+			encryptedText += ENCODING_CHARS.charAt(charIndex % ENCODING_CHARS.length());
+		}
+		return encryptedText;
+	}
+	
+	@Benchmark
+	public String decryptTextOriginal() {
+		String decryptedText = "";
+		for (int i = 0; i < encryptedText.length(); i++) {
+			int charIndex = ENCODING_CHARS.indexOf(encryptedText.charAt(i)) - ENCODING_CHARS.indexOf(PASSWORD.charAt(i % PASSWORD.length()));
+			decryptedText += ENCODING_CHARS.charAt((charIndex + ENCODING_CHARS.length()) % ENCODING_CHARS.length());
+		}
+		return decryptedText;
+	}
+	
+	/**
+	 * Encrypt the text in chunks of 1 KB using a {@link CryptographerWriter}.
+	 */
+	@Benchmark
+	public String encryptWriter() throws IOException {
+		StringWriter encrypted = new StringWriter(text.length());
+		try (Writer writer = new CryptographerWriter(encrypted, PASSWORD, Cryptographer.Mode.ENCRYPT)) {
+			for (int i = 0; i < text.length(); i += buffer.length) {
+				writer.write(text, i, Math.min(buffer.length, text.length() - i));
+			}
+		}
+		return encrypted.toString();
+	}
+	
+	/**
+	 * Decrypt the text in chunks of 1 KB using a {@link CryptographerReader}.
+	 */
+	@Benchmark
+	public int decryptReader() throws IOException {
+		int checksum = 0;
+		try (Reader reader = new CryptographerReader(new StringReader(encryptedText), PASSWORD, Cryptographer.Mode.DECRYPT)) {
+			int read;
+			while ((read = reader.read(buffer, 0, buffer.length)) != -1) {
+				checksum += buffer[read - 1];
+			}
+		}
+		return checksum;
+	}
+}
\ No newline at end of file
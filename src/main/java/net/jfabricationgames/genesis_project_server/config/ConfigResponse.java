@@ -0,0 +1,135 @@
+package net.jfabricationgames.genesis_project_server.config;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A configuration file, that is prepared to be sent: the UTF-8 encoded content, a gzip compressed variant (if it's smaller) and a strong
+ * entity tag, that is derived from the content (so it only changes if the content changes).
+ */
+public class ConfigResponse {
+	
+	/**
+	 * The number of bytes of the SHA-256 hash that are used for the entity tag
+	 */
+	private static final int TAG_HASH_BYTES = 16;
+	
+	private final String content;
+	private final byte[] identity;
+	/**
+	 * The gzip compressed content (or null if the compression doesn't make the content smaller)
+	 */
+	private final byte[] gzip;
+	private final String tag;
+	
+	private ConfigResponse(String content, byte[] identity, byte[] gzip, String tag) {
+		this.content = content;
+		this.identity = identity;
+		this.gzip = gzip;
+		this.tag = tag;
+	}
+	
+	/**
+	 * Encode and compress the content of a configuration file.
+	 */
+	public static ConfigResponse create(String content) throws IOException {
+		byte[] identity = content.getBytes(StandardCharsets.UTF_8);
+		
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream(identity.length / 4 + 32);
+		try (GZIPOutputStream gzipStream = new GZIPOutputStream(compressed)) {
+			gzipStream.write(identity);
+		}
+		byte[] gzip = compressed.size() < identity.length ? compressed.toByteArray() : null;
+		
+		return new ConfigResponse(content, identity, gzip, createTag(identity));
+	}
+	
+	private static String createTag(byte[] identity) {
+		try {
+			byte[] hash = MessageDigest.getInstance("SHA-256").digest(identity);
+			StringBuilder tag = new StringBuilder(TAG_HASH_BYTES * 2);
+			for (int i = 0; i < TAG_HASH_BYTES; i++) {
+				tag.append(String.format("%02x", hash[i]));
+			}
+			return tag.toString();
+		}
+		catch (NoSuchAlgorithmException nsae) {
+			//every java platform has to support SHA-256
+			throw new IllegalStateException("SHA-256 is not supported", nsae);
+		}
+	}
+	
+	/**
+	 * Check whether the client accepts gzip compressed responses (by the value of the Accept-Encoding header).
+	 */
+	public static boolean acceptsGzip(String acceptEncoding) {
+		if (acceptEncoding == null) {
+			return false;
+		}
+		boolean accepted = false;
+		for (String coding : acceptEncoding.split(",")) {
+			String[] parameters = coding.split(";");
+			String name = parameters[0].trim().toLowerCase();
+			if (!name.equals("gzip") && !name.equals("x-gzip") && !name.equals("*")) {
+				continue;
+			}
+			boolean acceptable = true;
+			for (int i = 1; i < parameters.length; i++) {
+				String parameter = parameters[i].trim();
+				if (parameter.startsWith("q=")) {
+					try {
+						acceptable = Double.parseDouble(parameter.substring(2).trim()) > 0;
+					}
+					catch (NumberFormatException nfe) {
+						acceptable = false;
+					}
+				}
+			}
+			//an explicit gzip entry overrides the wildcard
+			if (!name.equals("*")) {
+				return acceptable;
+			}
+			accepted = acceptable;
+		}
+		return accepted;
+	}
+	
+	/**
+	 * Get the content (as it was loaded from the file).
+	 */
+	public String getContent() {
+		return content;
+	}
+	
+	/**
+	 * Get the bytes that are sent (the gzip compressed content if gzip is used).
+	 */
+	public byte[] getBytes(boolean gzipped) {
+		return gzipped ? gzip : identity;
+	}
+	
+	/**
+	 * Check whether a compressed variant of the content is available.
+	 */
+	public boolean hasGzip() {
+		return gzip != null;
+	}
+	
+	/**
+	 * Get the strong entity tag of a variant (the compressed variant has its own tag, because its bytes differ from the content).
+	 */
+	public String getTag(boolean gzipped) {
+		return gzipped ? tag + "-gzip" : tag;
+	}
+	
+	public int getSize() {
+		return identity.length;
+	}
+	public int getCompressedSize() {
+		return gzip == null ? identity.length : gzip.length;
+	}
+}
\ No newline at end of file
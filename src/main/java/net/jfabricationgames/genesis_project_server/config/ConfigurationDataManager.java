@@ -1,30 +1,79 @@
 package net.jfabricationgames.genesis_project_server.config;
 
-import java.io.File;
+import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.file.Files;
+import java.io.InputStreamReader;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Loads the configuration files, that are requested by the clients (get_config), and keeps them prepared to be sent (see
+ * {@link ConfigResponse}).
+ * <p>
+ * If hot reloading is enabled (and the files are located in the file system), the files are watched and all configurations are loaded again
+ * when a file changed. The loaded configurations are replaced at once, so a request never sees a partially loaded set of configurations. If a
+ * changed file can't be loaded (e.g. because it's no valid JSON), the previous configurations are kept.
+ */
 public class ConfigurationDataManager {
 	
 	private static final Logger LOGGER = LogManager.getLogger(ConfigurationDataManager.class);
 	
 	private static final String CONFIG_RESOURCE_FILE = "config/configs.properties";
 	
-	private Map<String, String> configs;
+	public static final boolean DEFAULT_HOT_RELOAD = true;
+	public static final long DEFAULT_RELOAD_DELAY_MILLIS = 200;
+	
+	private static final ObjectMapper JSON_MAPPER = new ObjectMapper();
+	
+	/**
+	 * The resource files of the configurations (by the names of the configurations)
+	 */
+	private final Map<String, String> configFiles;
+	/**
+	 * The loaded configurations (an unmodifiable map that is replaced completely when the files are reloaded)
+	 */
+	private volatile Map<String, ConfigResponse> configs;
+	
+	private WatchService watchService;
+	private Thread watcher;
+	
+	private final AtomicLong reloads = new AtomicLong();
+	private final AtomicLong failedReloads = new AtomicLong();
 	
 	private static ConfigurationDataManager instance;
 	
 	private ConfigurationDataManager() throws IOException {
-		configs = new HashMap<String, String>();
-		loadConfigurations();
+		configFiles = loadConfigFiles();
+		configs = loadConfigurations();
+		
+		ServiceConfiguration config = ServiceConfiguration.getInstance();
+		if (config.getBoolean("config_files.hot_reload", DEFAULT_HOT_RELOAD)) {
+			startWatching(config.getLong("config_files.reload_delay_millis", DEFAULT_RELOAD_DELAY_MILLIS));
+		}
 	}
 	
 	public static synchronized ConfigurationDataManager getInstance() throws IOException {
@@ -34,34 +83,187 @@ public class ConfigurationDataManager {
 		return instance;
 	}
 	
-	private void loadConfigurations() throws IOException {
+	/**
+	 * Stop watching the configuration files (if the configurations were loaded).
+	 */
+	public static synchronized void shutdown() {
+		if (instance != null) {
+			instance.stopWatching();
+			instance = null;
+		}
+	}
+	
+	private Map<String, String> loadConfigFiles() throws IOException {
 		ClassLoader loader = Thread.currentThread().getContextClassLoader();
 		Properties configProperties = new Properties();
 		try (InputStream resourceStream = loader.getResourceAsStream(CONFIG_RESOURCE_FILE)) {
 			configProperties.load(resourceStream);
 		}
 		
+		Map<String, String> configFiles = new HashMap<String, String>();
+		for (String key : configProperties.stringPropertyNames()) {
+			configFiles.put(key, configProperties.getProperty(key));
+		}
+		return Collections.unmodifiableMap(configFiles);
+	}
+	
+	private Map<String, ConfigResponse> loadConfigurations() throws IOException {
 		LOGGER.debug("loading configurations from configuration properties file");
-		for (Object key : configProperties.keySet()) {
-			String keyString = key.toString();
-			String configFile = configProperties.getProperty(keyString);
-			
-			LOGGER.debug("keyString: " + key.toString() + "   configFile: " + configFile);
+		Map<String, ConfigResponse> loadedConfigs = new HashMap<String, ConfigResponse>();
+		for (Map.Entry<String, String> configFile : configFiles.entrySet()) {
+			LOGGER.debug("keyString: " + configFile.getKey() + "   configFile: " + configFile.getValue());
 			
-			String loadedConfig = loadConfigFileToString(configFile);
-			//LOGGER.debug("loaded config: " + loadedConfig.substring(0, Math.min(200, loadedConfig.length())) + "...   configs: " + configs);
-			configs.put(keyString, loadedConfig);
+			String loadedConfig = loadConfigFileToString(configFile.getValue());
+			if (configFile.getValue().endsWith(".json")) {
+				//a file that is currently written is not loaded
+				JSON_MAPPER.readTree(loadedConfig);
+			}
+			loadedConfigs.put(configFile.getKey(), ConfigResponse.create(loadedConfig));
 		}
+		return Collections.unmodifiableMap(loadedConfigs);
 	}
 	
 	private String loadConfigFileToString(String configFile) throws IOException {
 		ClassLoader loader = Thread.currentThread().getContextClassLoader();
-		File file = new File(loader.getResource(configFile).getFile());
-		String loadedConfig = Files.readAllLines(file.toPath()).stream().collect(Collectors.joining("\n"));
-		return loadedConfig;
+		InputStream resourceStream = loader.getResourceAsStream(configFile);
+		if (resourceStream == null) {
+			throw new IOException("the configuration file " + configFile + " was not found");
+		}
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(resourceStream, StandardCharsets.UTF_8))) {
+			return reader.lines().collect(Collectors.joining("\n"));
+		}
+	}
+	
+	/**
+	 * Load all configuration files again (the previous configurations are kept if a file can't be loaded).
+	 */
+	public void reload() {
+		try {
+			configs = loadConfigurations();
+			reloads.incrementAndGet();
+			LOGGER.info("configuration files reloaded");
+		}
+		catch (IOException | RuntimeException e) {
+			failedReloads.incrementAndGet();
+			LOGGER.warn("configuration files couldn't be reloaded; keeping the previous configurations", e);
+		}
+	}
+	
+	/**
+	 * Watch the directories of the configuration files (only files in the file system can be watched; not files in an archive).
+	 */
+	private void startWatching(long reloadDelayMillis) {
+		ClassLoader loader = Thread.currentThread().getContextClassLoader();
+		Map<Path, Set<Path>> watchedFiles = new HashMap<Path, Set<Path>>();
+		for (String configFile : configFiles.values()) {
+			URL resource = loader.getResource(configFile);
+			if (resource == null || !resource.getProtocol().equals("file")) {
+				continue;
+			}
+			try {
+				Path path = Paths.get(resource.toURI());
+				watchedFiles.computeIfAbsent(path.getParent(), directory -> new HashSet<Path>()).add(path.getFileName());
+			}
+			catch (URISyntaxException | RuntimeException e) {
+				LOGGER.warn("the configuration file {} can't be watched", configFile, e);
+			}
+		}
+		if (watchedFiles.isEmpty()) {
+			LOGGER.info("no configuration files can be watched; hot reloading is disabled");
+			return;
+		}
+		
+		try {
+			watchService = FileSystems.getDefault().newWatchService();
+			for (Path directory : watchedFiles.keySet()) {
+				directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+			}
+		}
+		catch (IOException ioe) {
+			LOGGER.warn("the configuration files can't be watched; hot reloading is disabled", ioe);
+			stopWatching();
+			return;
+		}
+		
+		watcher = new Thread(() -> watchFiles(watchedFiles, reloadDelayMillis), "config-file-watcher");
+		watcher.setDaemon(true);
+		watcher.start();
+		LOGGER.info("watching the configuration files for changes (directories: {})", watchedFiles.keySet());
+	}
+	
+	private void watchFiles(Map<Path, Set<Path>> watchedFiles, long reloadDelayMillis) {
+		try {
+			while (true) {
+				WatchKey key = watchService.take();
+				boolean changed = hasChangedFile(key, watchedFiles);
+				
+				//a file is often written in several steps, so the events of the next moments are collected before the files are reloaded
+				if (changed) {
+					Thread.sleep(reloadDelayMillis);
+					while ((key = watchService.poll()) != null) {
+						hasChangedFile(key, watchedFiles);
+					}
+					reload();
+				}
+			}
+		}
+		catch (InterruptedException | ClosedWatchServiceException e) {
+			LOGGER.debug("stopped watching the configuration files");
+		}
+	}
+	
+	private boolean hasChangedFile(WatchKey key, Map<Path, Set<Path>> watchedFiles) {
+		boolean changed = false;
+		Set<Path> files = watchedFiles.getOrDefault(key.watchable(), Collections.emptySet());
+		for (WatchEvent<?> event : key.pollEvents()) {
+			if (event.kind() == StandardWatchEventKinds.OVERFLOW || files.contains(event.context())) {
+				changed = true;
+			}
+		}
+		key.reset();
+		return changed;
+	}
+	
+	private void stopWatching() {
+		if (watcher != null) {
+			watcher.interrupt();
+		}
+		if (watchService != null) {
+			try {
+				watchService.close();
+			}
+			catch (IOException ioe) {
+				LOGGER.warn("the watch service couldn't be closed", ioe);
+			}
+		}
 	}
 	
 	public String getConfiguration(String configName) {
+		ConfigResponse config = configs.get(configName);
+		return config == null ? null : config.getContent();
+	}
+	
+	/**
+	 * Get a configuration prepared to be sent (or null if there is no configuration with this name).
+	 */
+	public ConfigResponse getResponse(String configName) {
 		return configs.get(configName);
 	}
+	
+	public Map<String, Object> getStatistics() {
+		Map<String, Object> statistics = new LinkedHashMap<String, Object>();
+		statistics.put("hotReload", watcher != null);
+		statistics.put("reloads", reloads.get());
+		statistics.put("failedReloads", failedReloads.get());
+		Map<String, Object> configStatistics = new LinkedHashMap<String, Object>();
+		for (Map.Entry<String, ConfigResponse> config : configs.entrySet()) {
+			Map<String, Object> sizes = new LinkedHashMap<String, Object>();
+			sizes.put("size", config.getValue().getSize());
+			sizes.put("compressedSize", config.getValue().getCompressedSize());
+			sizes.put("tag", config.getValue().getTag(false));
+			configStatistics.put(config.getKey(), sizes);
+		}
+		statistics.put("configs", configStatistics);
+		return statistics;
+	}
 }
\ No newline at end of file
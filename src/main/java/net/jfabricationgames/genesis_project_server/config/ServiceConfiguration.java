@@ -0,0 +1,87 @@
+package net.jfabricationgames.genesis_project_server.config;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * The configuration of the service (caches, buffers, limits, ...) that is loaded from the properties file config/service.properties.
+ * <p>
+ * All properties are optional. If a property (or the whole file) is missing, the default value is used. A property can be overridden by a
+ * system property with the prefix {@value #SYSTEM_PROPERTY_PREFIX} (e.g. -Dgenesis_project.rate_limit.enabled=false).
+ */
+public class ServiceConfiguration {
+	
+	private static final Logger LOGGER = LogManager.getLogger(ServiceConfiguration.class);
+	
+	public static final String SERVICE_CONFIG_RESOURCE_FILE = "config/service.properties";
+	public static final String SYSTEM_PROPERTY_PREFIX = "genesis_project.";
+	
+	private Properties properties;
+	
+	private static ServiceConfiguration instance;
+	
+	private ServiceConfiguration() {
+		properties = new Properties();
+		loadConfig();
+	}
+	
+	public static synchronized ServiceConfiguration getInstance() {
+		if (instance == null) {
+			instance = new ServiceConfiguration();
+		}
+		return instance;
+	}
+	
+	private void loadConfig() {
+		ClassLoader loader = Thread.currentThread().getContextClassLoader();
+		try (InputStream resourceStream = loader.getResourceAsStream(SERVICE_CONFIG_RESOURCE_FILE)) {
+			if (resourceStream == null) {
+				LOGGER.warn("service configuration {} not found; using the default values", SERVICE_CONFIG_RESOURCE_FILE);
+				return;
+			}
+			properties.load(resourceStream);
+			LOGGER.info("service configuration loaded: {}", properties);
+		}
+		catch (IOException ioe) {
+			LOGGER.error("service configuration couldn't be loaded; using the default values", ioe);
+		}
+	}
+	
+	public String getString(String key, String defaultValue) {
+		String value = System.getProperty(SYSTEM_PROPERTY_PREFIX + key, properties.getProperty(key));
+		if (value == null || value.trim().equals("")) {
+			return defaultValue;
+		}
+		return value.trim();
+	}
+	
+	public int getInt(String key, int defaultValue) {
+		return (int) getLong(key, defaultValue);
+	}
+	
+	public long getLong(String key, long defaultValue) {
+		String value = getString(key, null);
+		if (value == null) {
+			return defaultValue;
+		}
+		try {
+			return Long.parseLong(value);
+		}
+		catch (NumberFormatException nfe) {
+			LOGGER.error("the property {} is not a valid number: {} (using the default value {})", key, value, defaultValue);
+			return defaultValue;
+		}
+	}
+	
+	public boolean getBoolean(String key, boolean defaultValue) {
+		String value = getString(key, null);
+		if (value == null) {
+			return defaultValue;
+		}
+		return Boolean.parseBoolean(value);
+	}
+}
@@ -0,0 +1,211 @@
+package net.jfabricationgames.genesis_project_server.database;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * A bounded pool of physical database connections that are reused for all queries (instead of opening a new connection for every query).
+ * <p>
+ * The number of connections is limited by the maximum pool size. If all connections are in use, a caller waits for a connection to be
+ * returned until the acquire timeout is reached. Connections that were idle for longer than the validation interval are validated before
+ * they are handed out again.
+ */
+public class ConnectionPool {
+	
+	private static final Logger LOGGER = LogManager.getLogger(ConnectionPool.class);
+	
+	private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+	
+	private final DataSource dataSource;
+	private final int minSize;
+	private final int maxSize;
+	private final long acquireTimeoutMillis;
+	private final long validationIntervalMillis;
+	private final int statementCacheSize;
+	
+	/**
+	 * The permits limit the number of connections that are handed out at the same time (to the maximum pool size)
+	 */
+	private final Semaphore permits;
+	/**
+	 * The idle connections (the most recently used connection first)
+	 */
+	private final LinkedBlockingDeque<PooledConnection> idleConnections;
+	
+	private final AtomicInteger openConnections = new AtomicInteger();
+	private final AtomicLong acquiredConnections = new AtomicLong();
+	private final AtomicLong createdConnections = new AtomicLong();
+	private final AtomicLong discardedConnections = new AtomicLong();
+	private final AtomicLong acquireTimeouts = new AtomicLong();
+	
+	private volatile boolean closed;
+	
+	public ConnectionPool(DataSource dataSource, int minSize, int maxSize, long acquireTimeoutMillis, long validationIntervalMillis,
+			int statementCacheSize) {
+		if (minSize < 0 || maxSize < 1 || minSize > maxSize) {
+			throw new IllegalArgumentException("invalid pool size (min: " + minSize + ", max: " + maxSize + ")");
+		}
+		this.dataSource = dataSource;
+		this.minSize = minSize;
+		this.maxSize = maxSize;
+		this.acquireTimeoutMillis = acquireTimeoutMillis;
+		this.validationIntervalMillis = validationIntervalMillis;
+		this.statementCacheSize = statementCacheSize;
+		
+		permits = new Semaphore(maxSize, true);
+		idleConnections = new LinkedBlockingDeque<PooledConnection>();
+	}
+	
+	/**
+	 * Open the minimum number of connections, so the first requests don't have to wait for the connections to be created.
+	 */
+	public void fill() throws SQLException {
+		while (openConnections.get() < minSize) {
+			idleConnections.offerLast(createConnection());
+		}
+		LOGGER.info("connection pool filled (open connections: {}, min size: {}, max size: {})", openConnections.get(), minSize, maxSize);
+	}
+	
+	/**
+	 * Get a connection from the pool. The connection has to be returned to the pool by closing it (after use).
+	 * 
+	 * @throws SQLTransientConnectionException
+	 *         A {@link SQLTransientConnectionException} is thrown if no connection becomes available before the acquire timeout is reached
+	 */
+	public PooledConnection acquire() throws SQLException {
+		if (closed) {
+			throw new SQLException("The connection pool is already shut down");
+		}
+		
+		try {
+			if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+				acquireTimeouts.incrementAndGet();
+				throw new SQLTransientConnectionException(
+						"No database connection available after " + acquireTimeoutMillis + " ms (max pool size: " + maxSize + ")");
+			}
+		}
+		catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			throw new SQLTransientConnectionException("Interrupted while waiting for a database connection", ie);
+		}
+		
+		try {
+			PooledConnection connection = getIdleOrCreateConnection();
+			acquiredConnections.incrementAndGet();
+			return connection;
+		}
+		catch (SQLException | RuntimeException e) {
+			permits.release();
+			throw e;
+		}
+	}
+	
+	private PooledConnection getIdleOrCreateConnection() throws SQLException {
+		PooledConnection connection;
+		while ((connection = idleConnections.pollFirst()) != null) {
+			boolean needsValidation = System.currentTimeMillis() - connection.getLastUsed() > validationIntervalMillis;
+			if (!needsValidation || connection.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+				return connection;
+			}
+			LOGGER.info("discarding an idle connection that failed the validation");
+			discard(connection);
+		}
+		return createConnection();
+	}
+	
+	private PooledConnection createConnection() throws SQLException {
+		Connection connection = dataSource.getConnection();
+		openConnections.incrementAndGet();
+		createdConnections.incrementAndGet();
+		return new PooledConnection(this, connection, statementCacheSize);
+	}
+	
+	/**
+	 * Return a connection to the pool (called when closing a {@link PooledConnection}).
+	 */
+	protected void release(PooledConnection connection) {
+		try {
+			if (closed || connection.isBroken()) {
+				discard(connection);
+			}
+			else {
+				connection.setLastUsed(System.currentTimeMillis());
+				idleConnections.offerFirst(connection);
+				//the pool might have been shut down (and the idle connections closed) while the connection was returned
+				if (closed && idleConnections.remove(connection)) {
+					discard(connection);
+				}
+			}
+		}
+		finally {
+			permits.release();
+		}
+	}
+	
+	private void discard(PooledConnection connection) {
+		connection.closePhysicalConnection();
+		openConnections.decrementAndGet();
+		discardedConnections.incrementAndGet();
+	}
+	
+	/**
+	 * Close all idle connections (connections that are currently in use are closed when they are returned).
+	 */
+	public void clear() {
+		PooledConnection connection;
+		while ((connection = idleConnections.pollFirst()) != null) {
+			discard(connection);
+		}
+	}
+	
+	/**
+	 * Shut down the pool and close all connections. Connections that are in use are closed as soon as they are returned to the pool.
+	 */
+	public void shutdown() {
+		LOGGER.info("shutting down connection pool (open connections: {})", openConnections.get());
+		closed = true;
+		clear();
+	}
+	
+	/**
+	 * Get the current state of the pool (for logging and monitoring).
+	 */
+	public Map<String, Object> getStatistics() {
+		Map<String, Object> statistics = new LinkedHashMap<String, Object>();
+		statistics.put("maxSize", maxSize);
+		statistics.put("minSize", minSize);
+		statistics.put("openConnections", openConnections.get());
+		statistics.put("idleConnections", idleConnections.size());
+		statistics.put("activeConnections", maxSize - permits.availablePermits());
+		statistics.put("waitingThreads", permits.getQueueLength());
+		statistics.put("acquiredConnections", acquiredConnections.get());
+		statistics.put("createdConnections", createdConnections.get());
+		statistics.put("discardedConnections", discardedConnections.get());
+		statistics.put("acquireTimeouts", acquireTimeouts.get());
+		return statistics;
+	}
+	
+	public int getMinSize() {
+		return minSize;
+	}
+	public int getMaxSize() {
+		return maxSize;
+	}
+	
+	public boolean isClosed() {
+		return closed;
+	}
+}
\ No newline at end of file
@@ -1,25 +1,23 @@
 package net.jfabricationgames.genesis_project_server.database;
 
-import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.file.Files;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.util.Properties;
-import java.util.stream.Collectors;
 
 import javax.sql.DataSource;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import com.mysql.cj.jdbc.AbandonedConnectionCleanupThread;
 import com.mysql.cj.jdbc.MysqlDataSource;
 
+import net.jfabricationgames.genesis_project_server.database.QueryStatistics.Phase;
 import net.jfabricationgames.genesis_project_server.exception.GameDataException;
 import net.jfabricationgames.genesis_project_server.exception.GameDataException.Cause;
 import net.jfabricationgames.genesis_project_server.service.GenesisProjectService;
@@ -46,10 +44,17 @@ public class DatabaseConnection {
 	public static final String DATABASE_CONFIG_RESOURCE_FILE = "config/database.properties";
 	public static final String DATABASE_NAME_REPLACEMENT = "<<DATABASE_NAME>>";
 	
+	public static final int DEFAULT_POOL_MIN_SIZE = 2;
+	public static final int DEFAULT_POOL_MAX_SIZE = 10;
+	public static final long DEFAULT_POOL_ACQUIRE_TIMEOUT_MILLIS = 5000;
+	public static final long DEFAULT_POOL_VALIDATION_INTERVAL_MILLIS = 30000;
+	public static final int DEFAULT_STATEMENT_CACHE_SIZE = 64;
+	
 	public static final String TABLE_GAMES = "games";
 	public static final String TABLE_MOVES = "moves";
 	public static final String TABLE_PLAYERS = "players";
 	public static final String TABLE_USERS = "users";
+	public static final String TABLE_ARCHIVED_GAMES = "archived_games";
 	
 	/**
 	 * The passwords are loaded from a properties file "database.properties" which is not added to the git-repository (for obvious reasons)
@@ -61,18 +66,45 @@ public class DatabaseConnection {
 	private String USER_PASSWORD;
 	private String USER;
 	private String DATABASE;
-	private String DATABASE_BUILD_FILE;
+	private String MIGRATIONS_INDEX_FILE;
+	
+	private int POOL_MIN_SIZE;
+	private int POOL_MAX_SIZE;
+	private long POOL_ACQUIRE_TIMEOUT_MILLIS;
+	private long POOL_VALIDATION_INTERVAL_MILLIS;
+	private int STATEMENT_CACHE_SIZE;
+	
+	/**
+	 * The data source is created only once (after loading the configuration) and is used to create the pooled connections.
+	 */
+	private MysqlDataSource dataSource;
+	/**
+	 * All queries are executed on connections of this pool, so the connections (and the TCP connections to MySQL) are reused.
+	 */
+	private ConnectionPool connectionPool;
+	/**
+	 * All statements with the fully qualified table names (built once after loading the configuration).
+	 */
+	private StatementRegistry statementRegistry;
 	
 	public static final String VERSION = "1.0.0";
 	
 	private static final boolean autoCommit = false;
 	
-	private static DatabaseConnection instance;
+	private static volatile DatabaseConnection instance;
+	
+	/**
+	 * Whether a connection to the MySQL database was created (the cleanup thread of the driver only needs to be stopped if the driver was
+	 * used; a DatabaseConnection on a given data source doesn't use it)
+	 */
+	private static boolean mysqlDriverUsed;
 	
 	private DatabaseConnection() throws SQLException {
 		LOGGER.info("Creating DatabaseConnection; current version is " + VERSION);
+		mysqlDriverUsed = true;
 		try {
 			loadConfig();
+			statementRegistry = new StatementRegistry(DATABASE);
 			
 			if (GenesisProjectService.isTestRun()) {
 				//drop the test database before use to ensure a clean test environment
@@ -82,7 +114,12 @@ public class DatabaseConnection {
 			//test the privileges for testing purposes
 			testPrivileges(USER);
 			
-			createDatabaseResourcesIfNotExists();
+			migrateSchema();
+			
+			dataSource = getDataSource();
+			connectionPool = new ConnectionPool(dataSource, POOL_MIN_SIZE, POOL_MAX_SIZE, POOL_ACQUIRE_TIMEOUT_MILLIS,
+					POOL_VALIDATION_INTERVAL_MILLIS, STATEMENT_CACHE_SIZE);
+			connectionPool.fill();
 		}
 		catch (SQLException sqle) {
 			LOGGER.error("Error while creating the database resources", sqle);
@@ -94,11 +131,63 @@ public class DatabaseConnection {
 		}
 	}
 	
-	public static synchronized DatabaseConnection getInstance() throws SQLException {
-		if (instance == null) {
-			instance = new DatabaseConnection();
+	/**
+	 * Create a DatabaseConnection on a given data source (instead of the configured MySQL database), without testing the privileges and
+	 * migrating the schema. Used to run the service against a database stand-in (e.g. in benchmarks).
+	 */
+	private DatabaseConnection(DataSource dataSource, String database, int poolSize) throws SQLException {
+		LOGGER.info("Creating DatabaseConnection on a given data source (database: {})", database);
+		DATABASE = database;
+		statementRegistry = new StatementRegistry(DATABASE);
+		connectionPool = new ConnectionPool(dataSource, poolSize, poolSize, DEFAULT_POOL_ACQUIRE_TIMEOUT_MILLIS,
+				DEFAULT_POOL_VALIDATION_INTERVAL_MILLIS, DEFAULT_STATEMENT_CACHE_SIZE);
+		connectionPool.fill();
+	}
+	
+	/**
+	 * Create the instance on a given data source (see {@link #DatabaseConnection(DataSource, String, int)}).
+	 * 
+	 * @throws IllegalStateException
+	 *         An {@link IllegalStateException} is thrown if the instance was already created
+	 */
+	public static DatabaseConnection initialize(DataSource dataSource, String database, int poolSize) throws SQLException {
+		synchronized (DatabaseConnection.class) {
+			if (instance != null) {
+				throw new IllegalStateException("The DatabaseConnection was already created");
+			}
+			instance = new DatabaseConnection(dataSource, database, poolSize);
+			return instance;
+		}
+	}
+	
+	public static DatabaseConnection getInstance() throws SQLException {
+		//only synchronize if the instance is not yet created (to not synchronize every request)
+		DatabaseConnection databaseConnection = instance;
+		if (databaseConnection == null) {
+			synchronized (DatabaseConnection.class) {
+				if (instance == null) {
+					instance = new DatabaseConnection();
+				}
+				databaseConnection = instance;
+			}
+		}
+		return databaseConnection;
+	}
+	
+	/**
+	 * Shut down the connection pool and close all connections (called when the webapp is undeployed).
+	 */
+	public static void shutdown() {
+		synchronized (DatabaseConnection.class) {
+			if (instance != null) {
+				instance.connectionPool.shutdown();
+				instance = null;
+			}
+			if (mysqlDriverUsed) {
+				//stop the cleanup thread of the mysql driver, so the webapp's class loader can be released
+				AbandonedConnectionCleanupThread.checkedShutdown();
+			}
 		}
-		return instance;
 	}
 	
 	/**
@@ -113,7 +202,15 @@ public class DatabaseConnection {
 		USER_PASSWORD = databaseConfigProperties.getProperty("MYSQL_USER_PASSWORD");
 		USER = databaseConfigProperties.getProperty("MYSQL_USER");
 		DATABASE = databaseConfigProperties.getProperty("DATABASE");
-		DATABASE_BUILD_FILE = databaseConfigProperties.getProperty("DATABASE_BUILD_FILE");
+		MIGRATIONS_INDEX_FILE = databaseConfigProperties.getProperty("MIGRATIONS_INDEX_FILE", SchemaMigrator.DEFAULT_MIGRATIONS_INDEX_FILE);
+		
+		POOL_MIN_SIZE = getIntProperty(databaseConfigProperties, "POOL_MIN_SIZE", DEFAULT_POOL_MIN_SIZE);
+		POOL_MAX_SIZE = getIntProperty(databaseConfigProperties, "POOL_MAX_SIZE", DEFAULT_POOL_MAX_SIZE);
+		POOL_ACQUIRE_TIMEOUT_MILLIS = getIntProperty(databaseConfigProperties, "POOL_ACQUIRE_TIMEOUT_MILLIS",
+				(int) DEFAULT_POOL_ACQUIRE_TIMEOUT_MILLIS);
+		POOL_VALIDATION_INTERVAL_MILLIS = getIntProperty(databaseConfigProperties, "POOL_VALIDATION_INTERVAL_MILLIS",
+				(int) DEFAULT_POOL_VALIDATION_INTERVAL_MILLIS);
+		STATEMENT_CACHE_SIZE = getIntProperty(databaseConfigProperties, "STATEMENT_CACHE_SIZE", DEFAULT_STATEMENT_CACHE_SIZE);
 		
 		if (USER_PASSWORD == null || USER_PASSWORD.equals("")) {
 			throw new IOException("No password could be loaded from properties.");
@@ -132,6 +229,25 @@ public class DatabaseConnection {
 		}
 		
 		LOGGER.info("configuration loaded: [USER: {}, DATABASE: {}, USER_PASSWORD loaded: {}]", USER, DATABASE, USER_PASSWORD != null);
+		LOGGER.info("connection pool configuration loaded: [POOL_MIN_SIZE: {}, POOL_MAX_SIZE: {}, POOL_ACQUIRE_TIMEOUT_MILLIS: {}, "
+				+ "POOL_VALIDATION_INTERVAL_MILLIS: {}, STATEMENT_CACHE_SIZE: {}]", POOL_MIN_SIZE, POOL_MAX_SIZE, POOL_ACQUIRE_TIMEOUT_MILLIS,
+				POOL_VALIDATION_INTERVAL_MILLIS, STATEMENT_CACHE_SIZE);
+	}
+	
+	/**
+	 * Load an optional integer property (or use the default value if the property is not set).
+	 */
+	private int getIntProperty(Properties properties, String key, int defaultValue) throws IOException {
+		String value = properties.getProperty(key);
+		if (value == null || value.trim().equals("")) {
+			return defaultValue;
+		}
+		try {
+			return Integer.parseInt(value.trim());
+		}
+		catch (NumberFormatException nfe) {
+			throw new IOException("The property " + key + " is not a valid number: " + value, nfe);
+		}
 	}
 	
 	/**
@@ -165,8 +281,10 @@ public class DatabaseConnection {
 	public void resetTestDatabase() throws SQLException {
 		if (GenesisProjectService.isTestRun()) {
 			LOGGER.warn("resetting test database");
+			//close the idle connections, because they still reference the dropped database
+			connectionPool.clear();
 			dropTestDatabase();
-			createDatabaseResourcesIfNotExists();
+			migrateSchema();
 		}
 		else {
 			throw new SQLException("The current environment is no test environment. Abborting reset of test database.");
@@ -194,41 +312,29 @@ public class DatabaseConnection {
 		LOGGER.info("test database was dropped successfully");
 	}
 	
-	private void createDatabaseResourcesIfNotExists() throws SQLException {
-		String query;
-		try {
-			//load the database script as a resource
-			ClassLoader loader = Thread.currentThread().getContextClassLoader();
-			String filename = loader.getResource(DATABASE_BUILD_FILE).getFile();
-			File databaseBuild = new File(filename);
-			query = Files.readAllLines(databaseBuild.toPath()).stream().collect(Collectors.joining("\n"));
-			//replace the database name with the name of the current database
-			query = query.replaceAll(DATABASE_NAME_REPLACEMENT, DATABASE);
-		}
-		catch (IOException ioe) {
-			throw new SQLException("query couldn't be loaded", ioe);
-		}
-		
-		DataSource dataSource = getDataSourceWithoutDatabase();
-		try (Connection connection = dataSource.getConnection()) {
-			try (Statement statement = connection.createStatement()) {
-				connection.setAutoCommit(autoCommit);
-				LOGGER.info("Creating database resources (if not exists); sending query:\n" + query);
-				statement.execute(query);
-				
-				connection.commit();
-			}
-			catch (SQLException sqle) {
-				connection.rollback();
-				throw sqle;
-			}
-		}
+	/**
+	 * Create the database and migrate its schema to the current version (only the migrations that were not yet applied are executed).
+	 */
+	private void migrateSchema() throws SQLException {
+		SchemaMigrator migrator = new SchemaMigrator(getDataSourceWithoutDatabase(), DATABASE, MIGRATIONS_INDEX_FILE);
+		migrator.migrate();
 	}
 	
 	public MysqlDataSource getDataSource() {
 		//https://www.journaldev.com/2509/java-datasource-jdbc-datasource-example
 		MysqlDataSource dataSource = getDataSourceWithoutDatabase();
 		dataSource.setDatabaseName(DATABASE);
+		try {
+			//use server side prepared statements, so the statements (that are cached per connection) are parsed only once by the server
+			dataSource.setUseServerPrepStmts(true);
+			//send batched inserts as one multi-row insert
+			dataSource.setRewriteBatchedStatements(true);
+			//read the results of statements with a fetch size in chunks (using a server side cursor) instead of loading all rows at once
+			dataSource.setUseCursorFetch(true);
+		}
+		catch (SQLException sqle) {
+			sqle.printStackTrace();
+		}
 		return dataSource;
 	}
 	private MysqlDataSource getDataSourceWithoutDatabase() {
@@ -278,61 +384,89 @@ public class DatabaseConnection {
 	 */
 	public int executeSQL(String query, SqlExecutionType type, CheckedSqlConsumer<PreparedStatement> variableSetter,
 			CheckedSqlConsumer<ResultSet> resultConsumer) throws SQLException {
-		MysqlDataSource dataSource = getDataSource();
-		
-		LOGGER.debug("executeSQL was called (query: {}, type: {} type)", query, type);
+		return executeSQL(RegisteredStatement.uncached(query), type, variableSetter, resultConsumer);
+	}
+	
+	/**
+	 * Execute a registered SQL statement (that is cached per connection) and return the number of affected rows.
+	 * 
+	 * @see #executeSQL(String, SqlExecutionType, CheckedSqlConsumer, CheckedSqlConsumer)
+	 */
+	public int executeSQL(RegisteredStatement registeredStatement, SqlExecutionType type, CheckedSqlConsumer<PreparedStatement> variableSetter,
+			CheckedSqlConsumer<ResultSet> resultConsumer) throws SQLException {
+		LOGGER.debug("executeSQL was called (query: {}, type: {} type)", registeredStatement.getName(), type);
 		
+		QueryStatistics queryStatistics = QueryStatistics.getInstance();
 		int affectedRows = 0;
-		try (Connection connection = dataSource.getConnection()) {
-			connection.setAutoCommit(false);
+		long start = System.nanoTime();
+		//get a connection from the pool (the connection is returned to the pool when it's closed)
+		try (PooledConnection pooledConnection = connectionPool.acquire()) {
+			queryStatistics.record(registeredStatement.getName(), Phase.ACQUIRE, System.nanoTime() - start);
+			Connection connection = pooledConnection.getConnection();
+			connection.setAutoCommit(autoCommit);
 			
-			if (type == SqlExecutionType.CREATE) {
-				//create a prepared statement that returns the id of the created object(s)
-				try (PreparedStatement statement = connection.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
-					variableSetter.accept(statement);
-					
-					LOGGER.info("executing prepared statement: {}", statement);
-					affectedRows = statement.executeUpdate();
-					
-					//get the generated keys and let the consumer accept them
-					ResultSet result = statement.getGeneratedKeys();
-					resultConsumer.accept(result);
-					
-					connection.commit();
-				}
-				catch (SQLException sqle) {
-					connection.rollback();
-					throw sqle;
-				}
+			try {
+				Transaction transaction = new Transaction(pooledConnection, statementRegistry);
+				affectedRows = transaction.execute(registeredStatement, type, variableSetter, resultConsumer);
+				
+				long commit = System.nanoTime();
+				connection.commit();
+				queryStatistics.record(registeredStatement.getName(), Phase.COMMIT, System.nanoTime() - commit);
 			}
-			else {
-				//type is UPDATE or QUERY: create a prepared statement without returning the generated keys
-				try (PreparedStatement statement = connection.prepareStatement(query)) {
-					variableSetter.accept(statement);
-					
-					LOGGER.info("executing prepared statement: {}", statement);
-					if (type == SqlExecutionType.UPDATE) {
-						//execute the update and list the number of affected rows
-						affectedRows = statement.executeUpdate();
-					}
-					else if (type == SqlExecutionType.QUERY) {
-						//execute the query and let the consumer accept the result set
-						ResultSet result = statement.executeQuery();
-						resultConsumer.accept(result);
-					}
-					
-					connection.commit();
-				}
-				catch (SQLException sqle) {
-					connection.rollback();
-					throw sqle;
-				}
+			catch (SQLException sqle) {
+				pooledConnection.checkException(sqle);
+				connection.rollback();
+				throw sqle;
+			}
+			catch (RuntimeException re) {
+				connection.rollback();
+				throw re;
 			}
 		}
 		
 		return affectedRows;
 	}
 	
+	/**
+	 * Execute a {@link UnitOfWork} (that can execute several statements) on one connection in one transaction. The transaction is committed
+	 * after the unit of work is executed or rolled back if the unit of work throws an exception.
+	 * 
+	 * @param unitOfWork
+	 *        The unit of work that executes the statements
+	 * 
+	 * @return The result of the unit of work
+	 */
+	public <T> T executeInTransaction(UnitOfWork<T> unitOfWork) throws SQLException, GameDataException {
+		LOGGER.debug("executeInTransaction was called");
+		
+		QueryStatistics queryStatistics = QueryStatistics.getInstance();
+		long start = System.nanoTime();
+		//get a connection from the pool (the connection is returned to the pool when it's closed)
+		try (PooledConnection pooledConnection = connectionPool.acquire()) {
+			queryStatistics.record(QueryStatistics.TRANSACTION, Phase.ACQUIRE, System.nanoTime() - start);
+			Connection connection = pooledConnection.getConnection();
+			connection.setAutoCommit(autoCommit);
+			
+			try {
+				T result = unitOfWork.execute(new Transaction(pooledConnection, statementRegistry));
+				
+				long commit = System.nanoTime();
+				connection.commit();
+				queryStatistics.record(QueryStatistics.TRANSACTION, Phase.COMMIT, System.nanoTime() - commit);
+				return result;
+			}
+			catch (SQLException sqle) {
+				pooledConnection.checkException(sqle);
+				connection.rollback();
+				throw sqle;
+			}
+			catch (GameDataException | RuntimeException e) {
+				connection.rollback();
+				throw e;
+			}
+		}
+	}
+	
 	/**
 	 * Creates a DatabaseConnection and capsules the SQLException that might be thrown in a GameDataException.
 	 */
@@ -374,10 +508,31 @@ public class DatabaseConnection {
 	 */
 	public static int executeCheckedSQL(String query, SqlExecutionType type, CheckedSqlConsumer<PreparedStatement> variableSetter,
 			CheckedSqlConsumer<ResultSet> resultConsumer) throws GameDataException {
+		return executeCheckedSQL(RegisteredStatement.uncached(query), type, variableSetter, resultConsumer);
+	}
+	
+	/**
+	 * Execute a static statement from the {@link StatementRegistry} (that is cached per connection).
+	 * 
+	 * @see #executeCheckedSQL(String, SqlExecutionType, CheckedSqlConsumer, CheckedSqlConsumer)
+	 */
+	public static int executeCheckedSQL(SqlStatement statement, SqlExecutionType type, CheckedSqlConsumer<PreparedStatement> variableSetter,
+			CheckedSqlConsumer<ResultSet> resultConsumer) throws GameDataException {
+		DatabaseConnection dbConnection = DatabaseConnection.getCheckedDatabaseConnection();
+		return executeCheckedSQL(dbConnection.getStatementRegistry().get(statement), type, variableSetter, resultConsumer);
+	}
+	
+	/**
+	 * Execute a statement that was registered in the {@link StatementRegistry} (that is cached per connection).
+	 * 
+	 * @see #executeCheckedSQL(String, SqlExecutionType, CheckedSqlConsumer, CheckedSqlConsumer)
+	 */
+	public static int executeCheckedSQL(RegisteredStatement statement, SqlExecutionType type, CheckedSqlConsumer<PreparedStatement> variableSetter,
+			CheckedSqlConsumer<ResultSet> resultConsumer) throws GameDataException {
 		DatabaseConnection dbConnection = DatabaseConnection.getCheckedDatabaseConnection();
 		
 		try {
-			return dbConnection.executeSQL(query, type, variableSetter, resultConsumer);
+			return dbConnection.executeSQL(statement, type, variableSetter, resultConsumer);
 		}
 		catch (SQLException sqle) {
 			throw new GameDataException("query execution failed with an SQLException", sqle, Cause.SQL_EXCEPTION);
@@ -385,19 +540,44 @@ public class DatabaseConnection {
 	}
 	
 	/**
-	 * Get the name of the table with a leading database name.
+	 * Execute a {@link UnitOfWork} in one transaction (encapsules the executeInTransaction method of the {@link DatabaseConnection} class by
+	 * covering a possible SQLException with a {@link GameDataException})
+	 * 
+	 * @see #executeInTransaction(UnitOfWork)
 	 */
-	public static String getTable(String table) throws GameDataException {
+	public static <T> T executeCheckedTransaction(UnitOfWork<T> unitOfWork) throws GameDataException {
+		DatabaseConnection dbConnection = DatabaseConnection.getCheckedDatabaseConnection();
+		
 		try {
-			//execute get instance first to load the configuration
-			DatabaseConnection dbConnection = getInstance();
-			return dbConnection.getDATABASE() + "." + table;
+			return dbConnection.executeInTransaction(unitOfWork);
 		}
 		catch (SQLException sqle) {
-			throw new GameDataException("An SQLException occured while trying to get a DatabaseConnection instance", sqle, Cause.SQL_EXCEPTION);
+			throw new GameDataException("transaction failed with an SQLException", sqle, Cause.SQL_EXCEPTION);
 		}
 	}
 	
+	/**
+	 * Get the name of the table with a leading database name.
+	 */
+	public static String getTable(String table) throws GameDataException {
+		return getCheckedStatementRegistry().getTable(table);
+	}
+	
+	/**
+	 * Get the {@link StatementRegistry} and capsule the SQLException that might be thrown in a GameDataException.
+	 */
+	public static StatementRegistry getCheckedStatementRegistry() throws GameDataException {
+		return getCheckedDatabaseConnection().getStatementRegistry();
+	}
+	
+	public ConnectionPool getConnectionPool() {
+		return connectionPool;
+	}
+	
+	public StatementRegistry getStatementRegistry() {
+		return statementRegistry;
+	}
+	
 	public String getUSER() {
 		return USER;
 	}
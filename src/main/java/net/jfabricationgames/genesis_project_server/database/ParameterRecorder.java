@@ -0,0 +1,65 @@
+package net.jfabricationgames.genesis_project_server.database;
+
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Records the parameters that a variable setter binds to a statement (for the slow query log), by calling the setter again on a proxy of
+ * a {@link PreparedStatement} that only records the values.
+ * <p>
+ * The parameters are only recorded for slow statements, so the recording doesn't slow down the normal execution.
+ */
+public abstract class ParameterRecorder {
+	
+	/**
+	 * Get the parameters that the variable setter binds, truncated to the maximum length (e.g. "{1=42, 2='Player1', 3=<2048 bytes>}").
+	 */
+	public static String record(CheckedSqlConsumer<PreparedStatement> variableSetter, int maxLength) {
+		Map<Integer, String> parameters = new TreeMap<Integer, String>();
+		PreparedStatement recorder = (PreparedStatement) Proxy.newProxyInstance(ParameterRecorder.class.getClassLoader(),
+				new Class<?>[] {PreparedStatement.class}, (proxy, method, args) -> {
+					if (method.getName().startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+						parameters.put((Integer) args[0], method.getName().equals("setNull") ? "NULL" : format(args[1], maxLength));
+					}
+					return getDefaultValue(method.getReturnType());
+				});
+		
+		try {
+			variableSetter.accept(recorder);
+		}
+		catch (SQLException | RuntimeException e) {
+			return parameters + " (recording failed: " + e + ")";
+		}
+		return parameters.toString();
+	}
+	
+	private static String format(Object value, int maxLength) {
+		if (value == null) {
+			return "NULL";
+		}
+		if (value instanceof byte[]) {
+			return "<" + ((byte[]) value).length + " bytes>";
+		}
+		String text = value.toString();
+		if (text.length() > maxLength) {
+			text = text.substring(0, maxLength) + "...(" + text.length() + " chars)";
+		}
+		return value instanceof CharSequence ? "'" + text + "'" : text;
+	}
+	
+	private static Object getDefaultValue(Class<?> type) {
+		if (type == boolean.class) {
+			return false;
+		}
+		if (type == int.class) {
+			return 0;
+		}
+		if (type == long.class) {
+			return 0L;
+		}
+		return null;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,145 @@
+package net.jfabricationgames.genesis_project_server.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * A physical database connection that is managed by a {@link ConnectionPool}.
+ * <p>
+ * Closing a PooledConnection doesn't close the physical connection, but returns it to the pool (or discards it if it was marked as broken).
+ * <p>
+ * Every pooled connection keeps a (size limited) cache of its prepared statements, so the statements are only prepared once per connection.
+ */
+public class PooledConnection implements AutoCloseable {
+	
+	private static final Logger LOGGER = LogManager.getLogger(PooledConnection.class);
+	
+	/**
+	 * SQL states of the class "08" indicate a connection exception (the connection can't be used anymore)
+	 */
+	private static final String CONNECTION_EXCEPTION_SQL_STATE_CLASS = "08";
+	
+	private final ConnectionPool pool;
+	private final Connection connection;
+	/**
+	 * The prepared statements of this connection, ordered by their last access (the least recently used statement is closed if the cache is
+	 * full)
+	 */
+	private final Map<String, PreparedStatement> statementCache;
+	
+	private long lastUsed;
+	private boolean broken;
+	
+	protected PooledConnection(ConnectionPool pool, Connection connection, int statementCacheSize) {
+		this.pool = pool;
+		this.connection = connection;
+		this.lastUsed = System.currentTimeMillis();
+		
+		statementCache = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+			
+			private static final long serialVersionUID = -1683521373470347531L;
+			
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+				if (size() > statementCacheSize) {
+					closeStatement(eldest.getValue());
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+	
+	/**
+	 * Return the connection to the pool.
+	 */
+	@Override
+	public void close() {
+		pool.release(this);
+	}
+	
+	/**
+	 * Check whether an exception indicates, that the physical connection is no longer usable and mark the connection as broken if so.
+	 */
+	public void checkException(SQLException sqle) {
+		String sqlState = sqle.getSQLState();
+		if (sqlState != null && sqlState.startsWith(CONNECTION_EXCEPTION_SQL_STATE_CLASS)) {
+			LOGGER.warn("marking pooled connection as broken (SQL state: {})", sqlState);
+			broken = true;
+		}
+	}
+	
+	/**
+	 * Get a prepared statement from the statement cache (or null if the statement is not cached).
+	 */
+	protected PreparedStatement getCachedStatement(String key) {
+		return statementCache.get(key);
+	}
+	/**
+	 * Add a prepared statement to the statement cache.
+	 */
+	protected void cacheStatement(String key, PreparedStatement statement) {
+		PreparedStatement replaced = statementCache.put(key, statement);
+		if (replaced != null && replaced != statement) {
+			closeStatement(replaced);
+		}
+	}
+	
+	private void closeStatement(PreparedStatement statement) {
+		try {
+			statement.close();
+		}
+		catch (SQLException sqle) {
+			LOGGER.warn("cached statement couldn't be closed", sqle);
+		}
+	}
+	
+	/**
+	 * Close the physical connection (without returning it to the pool).
+	 */
+	protected void closePhysicalConnection() {
+		statementCache.clear();
+		try {
+			connection.close();
+		}
+		catch (SQLException sqle) {
+			LOGGER.warn("physical connection couldn't be closed", sqle);
+		}
+	}
+	
+	/**
+	 * Check whether the physical connection is still usable.
+	 */
+	protected boolean isValid(int timeoutSeconds) {
+		try {
+			return connection.isValid(timeoutSeconds);
+		}
+		catch (SQLException sqle) {
+			return false;
+		}
+	}
+	
+	public Connection getConnection() {
+		return connection;
+	}
+	
+	protected long getLastUsed() {
+		return lastUsed;
+	}
+	protected void setLastUsed(long lastUsed) {
+		this.lastUsed = lastUsed;
+	}
+	
+	public boolean isBroken() {
+		return broken;
+	}
+	public void setBroken(boolean broken) {
+		this.broken = broken;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,262 @@
+package net.jfabricationgames.genesis_project_server.database;
+
+import java.sql.PreparedStatement;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import net.jfabricationgames.genesis_project_server.config.ServiceConfiguration;
+import net.jfabricationgames.genesis_project_server.metrics.LatencyHistogram;
+import net.jfabricationgames.genesis_project_server.metrics.PrometheusFormat;
+
+/**
+ * Records the execution times of the SQL statements (per statement and phase), the number of rows that the queries returned and the
+ * failures, and writes the statements that took longer than a threshold to the slow query log.
+ * <p>
+ * The phases are recorded separately, so a slow statement can be traced to waiting for a connection, preparing, executing the statement,
+ * reading the result or committing the transaction.
+ */
+public class QueryStatistics {
+	
+	/**
+	 * The slow queries are written to a separate log (see log4j2.xml)
+	 */
+	private static final Logger SLOW_QUERY_LOGGER = LogManager.getLogger("net.jfabricationgames.genesis_project_server.slow_queries");
+	
+	public static final long DEFAULT_SLOW_QUERY_THRESHOLD_MILLIS = 500;
+	public static final int DEFAULT_MAX_PARAMETER_LENGTH = 64;
+	
+	/**
+	 * The name under which the connection acquisition and the commit of transactions (that execute several statements) are recorded
+	 */
+	public static final String TRANSACTION = "TRANSACTION";
+	
+	private static final QueryStatistics instance = new QueryStatistics(
+			ServiceConfiguration.getInstance().getBoolean("sql_metrics.enabled", true),
+			ServiceConfiguration.getInstance().getLong("slow_query.threshold_millis", DEFAULT_SLOW_QUERY_THRESHOLD_MILLIS),
+			ServiceConfiguration.getInstance().getInt("slow_query.max_parameter_length", DEFAULT_MAX_PARAMETER_LENGTH));
+	
+	/**
+	 * The phases of the execution of a statement.
+	 */
+	public enum Phase {
+		
+		/**
+		 * Waiting for a connection of the pool
+		 */
+		ACQUIRE, //
+		/**
+		 * Getting the prepared statement (from the statement cache of the connection)
+		 */
+		PREPARE, //
+		/**
+		 * Setting the parameters and executing the statement
+		 */
+		EXECUTE, //
+		/**
+		 * Reading the results (the rows of a query or the generated keys)
+		 */
+		CONSUME, //
+		/**
+		 * Committing the transaction
+		 */
+		COMMIT;
+	}
+	
+	/**
+	 * The statistics of one statement.
+	 */
+	private static class StatementStatistics {
+		
+		private final LatencyHistogram[] phases = new LatencyHistogram[Phase.values().length];
+		private final LongAdder executions = new LongAdder();
+		private final LongAdder failures = new LongAdder();
+		private final LongAdder returnedRows = new LongAdder();
+		private final LongAdder slowExecutions = new LongAdder();
+		
+		public StatementStatistics() {
+			for (int i = 0; i < phases.length; i++) {
+				phases[i] = new LatencyHistogram();
+			}
+		}
+	}
+	
+	private final boolean enabled;
+	private final long slowQueryThresholdNanos;
+	private final int maxParameterLength;
+	
+	private final ConcurrentMap<String, StatementStatistics> statements;
+	
+	protected QueryStatistics(boolean enabled, long slowQueryThresholdMillis, int maxParameterLength) {
+		this.enabled = enabled;
+		this.slowQueryThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowQueryThresholdMillis);
+		this.maxParameterLength = maxParameterLength;
+		statements = new ConcurrentHashMap<String, StatementStatistics>();
+	}
+	
+	public static QueryStatistics getInstance() {
+		return instance;
+	}
+	
+	private StatementStatistics getStatement(String statement) {
+		StatementStatistics statistics = statements.get(statement);
+		if (statistics == null) {
+			statistics = statements.computeIfAbsent(statement, name -> new StatementStatistics());
+		}
+		return statistics;
+	}
+	
+	/**
+	 * Record the duration of one phase of a statement.
+	 */
+	public void record(String statement, Phase phase, long nanos) {
+		if (enabled) {
+			getStatement(statement).phases[phase.ordinal()].recordNanos(nanos);
+		}
+	}
+	
+	/**
+	 * Record an execution of a statement (after the phases PREPARE to CONSUME) and write it to the slow query log if it took longer than the
+	 * threshold.
+	 * 
+	 * @param registeredStatement
+	 *        The executed statement
+	 * 
+	 * @param prepareNanos
+	 *        The duration of the phase PREPARE
+	 * 
+	 * @param executeNanos
+	 *        The duration of the phase EXECUTE
+	 * 
+	 * @param consumeNanos
+	 *        The duration of the phase CONSUME
+	 * 
+	 * @param rows
+	 *        The number of rows that were returned (or -1 for updates)
+	 * 
+	 * @param variableSetter
+	 *        The setter of the statement's parameters (only used to log the parameters of slow queries; null for batches)
+	 */
+	public void recordExecution(RegisteredStatement registeredStatement, long prepareNanos, long executeNanos, long consumeNanos, int rows,
+			CheckedSqlConsumer<PreparedStatement> variableSetter) {
+		if (!enabled) {
+			return;
+		}
+		StatementStatistics statistics = getStatement(registeredStatement.getName());
+		statistics.executions.increment();
+		statistics.phases[Phase.PREPARE.ordinal()].recordNanos(prepareNanos);
+		statistics.phases[Phase.EXECUTE.ordinal()].recordNanos(executeNanos);
+		statistics.phases[Phase.CONSUME.ordinal()].recordNanos(consumeNanos);
+		if (rows > 0) {
+			statistics.returnedRows.add(rows);
+		}
+		
+		long totalNanos = prepareNanos + executeNanos + consumeNanos;
+		if (totalNanos >= slowQueryThresholdNanos) {
+			statistics.slowExecutions.increment();
+			if (SLOW_QUERY_LOGGER.isWarnEnabled()) {
+				SLOW_QUERY_LOGGER.warn("slow statement {} ({} ms; prepare: {} ms, execute: {} ms, consume: {} ms; rows: {}): {} parameters: {}",
+						registeredStatement.getName(), toMillis(totalNanos), toMillis(prepareNanos), toMillis(executeNanos),
+						toMillis(consumeNanos), rows, registeredStatement.getSql(),
+						variableSetter != null ? ParameterRecorder.record(variableSetter, maxParameterLength) : "(batch)");
+			}
+		}
+	}
+	
+	/**
+	 * Record a failed execution of a statement.
+	 */
+	public void recordFailure(String statement) {
+		if (enabled) {
+			getStatement(statement).failures.increment();
+		}
+	}
+	
+	private String toMillis(long nanos) {
+		return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+	}
+	
+	/**
+	 * Write the statement metrics in the Prometheus text format.
+	 */
+	public String toPrometheusFormat() {
+		Map<String, StatementStatistics> sortedStatements = new ConcurrentSkipListMap<String, StatementStatistics>(statements);
+		StringBuilder sb = new StringBuilder();
+		
+		PrometheusFormat.writeHeader(sb, "genesis_sql_executions_total", "counter", "The number of executions of the SQL statements.");
+		for (Map.Entry<String, StatementStatistics> statement : sortedStatements.entrySet()) {
+			PrometheusFormat.writeSample(sb, "genesis_sql_executions_total", PrometheusFormat.label("statement", statement.getKey()),
+					statement.getValue().executions.sum());
+		}
+		
+		PrometheusFormat.writeHeader(sb, "genesis_sql_failures_total", "counter", "The number of failed executions of the SQL statements.");
+		for (Map.Entry<String, StatementStatistics> statement : sortedStatements.entrySet()) {
+			PrometheusFormat.writeSample(sb, "genesis_sql_failures_total", PrometheusFormat.label("statement", statement.getKey()),
+					statement.getValue().failures.sum());
+		}
+		
+		PrometheusFormat.writeHeader(sb, "genesis_sql_slow_executions_total", "counter",
+				"The number of executions of the SQL statements that exceeded the slow query threshold.");
+		for (Map.Entry<String, StatementStatistics> statement : sortedStatements.entrySet()) {
+			PrometheusFormat.writeSample(sb, "genesis_sql_slow_executions_total", PrometheusFormat.label("statement", statement.getKey()),
+					statement.getValue().slowExecutions.sum());
+		}
+		
+		PrometheusFormat.writeHeader(sb, "genesis_sql_returned_rows_total", "counter", "The number of rows that the SQL queries returned.");
+		for (Map.Entry<String, StatementStatistics> statement : sortedStatements.entrySet()) {
+			PrometheusFormat.writeSample(sb, "genesis_sql_returned_rows_total", PrometheusFormat.label("statement", statement.getKey()),
+					statement.getValue().returnedRows.sum());
+		}
+		
+		PrometheusFormat.writeHeader(sb, "genesis_sql_phase_duration_seconds", "histogram",
+				"The duration of the phases of the SQL statement executions.");
+		for (Map.Entry<String, StatementStatistics> statement : sortedStatements.entrySet()) {
+			for (Phase phase : Phase.values()) {
+				LatencyHistogram histogram = statement.getValue().phases[phase.ordinal()];
+				if (histogram.getCount() > 0) {
+					String labels = PrometheusFormat.label("statement", statement.getKey()) + ","
+							+ PrometheusFormat.label("phase", phase.name().toLowerCase(Locale.ROOT));
+					PrometheusFormat.writeHistogram(sb, "genesis_sql_phase_duration_seconds", labels, histogram);
+				}
+			}
+		}
+		
+		return sb.toString();
+	}
+	
+	/**
+	 * Get the executions, rows and the phase latencies per statement (for logging and monitoring).
+	 */
+	public Map<String, Object> getStatistics() {
+		Map<String, Object> statistics = new LinkedHashMap<String, Object>();
+		for (Map.Entry<String, StatementStatistics> statement : new ConcurrentSkipListMap<String, StatementStatistics>(statements).entrySet()) {
+			Map<String, Object> statementStatistics = new LinkedHashMap<String, Object>();
+			statementStatistics.put("executions", statement.getValue().executions.sum());
+			statementStatistics.put("failures", statement.getValue().failures.sum());
+			statementStatistics.put("slowExecutions", statement.getValue().slowExecutions.sum());
+			statementStatistics.put("returnedRows", statement.getValue().returnedRows.sum());
+			for (Phase phase : Phase.values()) {
+				LatencyHistogram histogram = statement.getValue().phases[phase.ordinal()];
+				if (histogram.getCount() > 0) {
+					String name = phase.name().toLowerCase(Locale.ROOT);
+					statementStatistics.put(name + "P50Millis", histogram.getValueAtPercentile(50) / 1e3);
+					statementStatistics.put(name + "P99Millis", histogram.getValueAtPercentile(99) / 1e3);
+				}
+			}
+			statistics.put(statement.getKey(), statementStatistics);
+		}
+		return statistics;
+	}
+	
+	public boolean isEnabled() {
+		return enabled;
+	}
+}
\ No newline at end of file
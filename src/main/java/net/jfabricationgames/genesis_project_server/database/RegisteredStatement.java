@@ -0,0 +1,64 @@
+package net.jfabricationgames.genesis_project_server.database;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An SQL statement with fully qualified table names, that is registered in the {@link StatementRegistry} (so it is prepared only once per
+ * pooled connection).
+ */
+public class RegisteredStatement {
+	
+	private final String name;
+	private final String sql;
+	/**
+	 * Only cached statements are kept open in the statement cache of a pooled connection (ad-hoc queries are closed after execution)
+	 */
+	private final boolean cached;
+	
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	
+	protected RegisteredStatement(String name, String sql, boolean cached) {
+		this.name = name;
+		this.sql = sql;
+		this.cached = cached;
+	}
+	
+	/**
+	 * Create a statement for an ad-hoc query, that is not cached.
+	 */
+	public static RegisteredStatement uncached(String sql) {
+		return new RegisteredStatement(sql, sql, false);
+	}
+	
+	@Override
+	public String toString() {
+		return "RegisteredStatement [name=" + name + ", sql=" + sql + "]";
+	}
+	
+	protected void countHit() {
+		hits.incrementAndGet();
+	}
+	protected void countMiss() {
+		misses.incrementAndGet();
+	}
+	
+	public String getName() {
+		return name;
+	}
+	
+	public String getSql() {
+		return sql;
+	}
+	
+	public boolean isCached() {
+		return cached;
+	}
+	
+	public long getHits() {
+		return hits.get();
+	}
+	public long getMisses() {
+		return misses.get();
+	}
+}
\ No newline at end of file
@@ -0,0 +1,47 @@
+package net.jfabricationgames.genesis_project_server.database;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+
+/**
+ * Counts the rows that are read from a {@link ResultSet} (for the query statistics), by wrapping the result set in a proxy that counts the
+ * successful calls of {@link ResultSet#next()}.
+ */
+public class RowCountingResultSet {
+	
+	private final ResultSet resultSet;
+	private int rows;
+	
+	public RowCountingResultSet(ResultSet delegate) {
+		resultSet = (ResultSet) Proxy.newProxyInstance(RowCountingResultSet.class.getClassLoader(), new Class<?>[] {ResultSet.class},
+				(proxy, method, args) -> {
+					Object result;
+					try {
+						result = method.invoke(delegate, args);
+					}
+					catch (InvocationTargetException ite) {
+						//throw the original exception (e.g. an SQLException)
+						throw ite.getCause();
+					}
+					if (Boolean.TRUE.equals(result) && method.getName().equals("next")) {
+						rows++;
+					}
+					return result;
+				});
+	}
+	
+	/**
+	 * The result set that counts the rows.
+	 */
+	public ResultSet getResultSet() {
+		return resultSet;
+	}
+	
+	/**
+	 * The number of rows that were read.
+	 */
+	public int getRows() {
+		return rows;
+	}
+}
\ No newline at end of file
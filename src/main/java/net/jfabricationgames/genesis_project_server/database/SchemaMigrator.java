@@ -0,0 +1,309 @@
+package net.jfabricationgames.genesis_project_server.database;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import javax.sql.DataSource;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Migrates the database schema by applying versioned migration scripts (instead of executing the complete build script on every start).
+ * <p>
+ * The scripts are listed (in the order of their versions) in an index file. Every script is named V&lt;version&gt;__&lt;description&gt;.sql and
+ * is applied only once. The applied versions are stored (with the checksums of the scripts) in the table schema_version, so on startup only
+ * the new scripts are executed. A script that was changed after it was applied is reported as error, because the schema of the database
+ * would no longer match the scripts.
+ * <p>
+ * MySQL commits DDL statements implicitly, so a script that fails is not rolled back. The scripts should therefore contain only one change
+ * or use statements that can be repeated (like CREATE TABLE IF NOT EXISTS).
+ */
+public class SchemaMigrator {
+	
+	private static final Logger LOGGER = LogManager.getLogger(SchemaMigrator.class);
+	
+	public static final String DEFAULT_MIGRATIONS_INDEX_FILE = "config/migrations/migrations.index";
+	public static final String SCHEMA_VERSION_TABLE = "schema_version";
+	
+	private static final Pattern SCRIPT_NAME_PATTERN = Pattern.compile("V(\\d+)__(\\w+)\\.sql");
+	/**
+	 * The time (in seconds) to wait for other instances of the service that migrate the same database
+	 */
+	private static final int MIGRATION_LOCK_TIMEOUT_SECONDS = 60;
+	
+	/**
+	 * A migration script (with its version and checksum).
+	 */
+	public static class Migration {
+		
+		private final int version;
+		private final String description;
+		private final String scriptName;
+		private final String script;
+		private final String checksum;
+		
+		public Migration(int version, String description, String scriptName, String script, String checksum) {
+			this.version = version;
+			this.description = description;
+			this.scriptName = scriptName;
+			this.script = script;
+			this.checksum = checksum;
+		}
+		
+		@Override
+		public String toString() {
+			return "Migration [version=" + version + ", description=" + description + ", scriptName=" + scriptName + ", checksum=" + checksum + "]";
+		}
+		
+		public int getVersion() {
+			return version;
+		}
+		public String getDescription() {
+			return description;
+		}
+		public String getScriptName() {
+			return scriptName;
+		}
+		public String getScript() {
+			return script;
+		}
+		public String getChecksum() {
+			return checksum;
+		}
+	}
+	
+	/**
+	 * The data source has to allow multiple queries in one statement (the scripts contain several statements) and must not select a
+	 * database (because the database might not exist yet).
+	 */
+	private final DataSource dataSource;
+	private final String database;
+	private final String indexFile;
+	
+	public SchemaMigrator(DataSource dataSource, String database, String indexFile) {
+		this.dataSource = dataSource;
+		this.database = database;
+		this.indexFile = indexFile;
+	}
+	
+	/**
+	 * Apply all migrations that were not yet applied to the database.
+	 * 
+	 * @return The number of applied migrations.
+	 */
+	public int migrate() throws SQLException {
+		List<Migration> migrations;
+		try {
+			migrations = loadMigrations();
+		}
+		catch (IOException ioe) {
+			throw new SQLException("the migration scripts couldn't be loaded", ioe);
+		}
+		
+		try (Connection connection = dataSource.getConnection()) {
+			connection.setAutoCommit(true);
+			createSchemaVersionTable(connection);
+			
+			//prevent other instances of the service from migrating the database at the same time
+			String lockName = database + "." + SCHEMA_VERSION_TABLE;
+			acquireLock(connection, lockName);
+			try {
+				return applyMigrations(connection, migrations);
+			}
+			finally {
+				releaseLock(connection, lockName);
+			}
+		}
+	}
+	
+	private int applyMigrations(Connection connection, List<Migration> migrations) throws SQLException {
+		Map<Integer, String> appliedChecksums = loadAppliedChecksums(connection);
+		verifyAppliedMigrations(migrations, appliedChecksums);
+		
+		int appliedMigrations = 0;
+		for (Migration migration : migrations) {
+			if (appliedChecksums.containsKey(migration.getVersion())) {
+				continue;
+			}
+			
+			LOGGER.info("applying migration {} ({})", migration.getVersion(), migration.getScriptName());
+			long start = System.currentTimeMillis();
+			try (Statement statement = connection.createStatement()) {
+				statement.execute(migration.getScript().replace(DatabaseConnection.DATABASE_NAME_REPLACEMENT, database));
+			}
+			catch (SQLException sqle) {
+				throw new SQLException("migration " + migration.getScriptName() + " failed", sqle.getSQLState(), sqle.getErrorCode(), sqle);
+			}
+			long executionMillis = System.currentTimeMillis() - start;
+			
+			String insert = "INSERT INTO " + getSchemaVersionTable() + " (version, description, script, checksum, execution_millis) VALUES (?, ?, ?, ?, ?)";
+			try (PreparedStatement statement = connection.prepareStatement(insert)) {
+				statement.setInt(1, migration.getVersion());
+				statement.setString(2, migration.getDescription());
+				statement.setString(3, migration.getScriptName());
+				statement.setString(4, migration.getChecksum());
+				statement.setLong(5, executionMillis);
+				statement.executeUpdate();
+			}
+			appliedMigrations++;
+		}
+		
+		LOGGER.info("database schema is up to date (version: {}, applied migrations: {})", migrations.isEmpty() ? 0
+				: migrations.get(migrations.size() - 1).getVersion(), appliedMigrations);
+		return appliedMigrations;
+	}
+	
+	/**
+	 * Check that the applied migrations were not changed and are still known.
+	 */
+	protected void verifyAppliedMigrations(List<Migration> migrations, Map<Integer, String> appliedChecksums) throws SQLException {
+		Map<Integer, Migration> migrationsByVersion = new HashMap<Integer, Migration>();
+		for (Migration migration : migrations) {
+			migrationsByVersion.put(migration.getVersion(), migration);
+		}
+		
+		for (Map.Entry<Integer, String> applied : appliedChecksums.entrySet()) {
+			Migration migration = migrationsByVersion.get(applied.getKey());
+			if (migration == null) {
+				throw new SQLException("the applied migration " + applied.getKey() + " is not known (the database is newer than the service)");
+			}
+			if (!migration.getChecksum().equals(applied.getValue())) {
+				throw new SQLException("the migration " + migration.getScriptName() + " was changed after it was applied (checksum in database: "
+						+ applied.getValue() + ", checksum of script: " + migration.getChecksum() + ")");
+			}
+		}
+	}
+	
+	private void createSchemaVersionTable(Connection connection) throws SQLException {
+		try (Statement statement = connection.createStatement()) {
+			statement.execute("CREATE DATABASE IF NOT EXISTS " + database + ";\n" //
+					+ "CREATE TABLE IF NOT EXISTS " + getSchemaVersionTable() + " (\n" //
+					+ "	version INT NOT NULL PRIMARY KEY,\n" //
+					+ "	description VARCHAR(200),\n" //
+					+ "	script VARCHAR(200),\n" //
+					+ "	checksum CHAR(64),\n" //
+					+ "	applied_on TIMESTAMP DEFAULT CURRENT_TIMESTAMP,\n" //
+					+ "	execution_millis BIGINT\n" //
+					+ ");");
+		}
+	}
+	
+	private Map<Integer, String> loadAppliedChecksums(Connection connection) throws SQLException {
+		Map<Integer, String> appliedChecksums = new HashMap<Integer, String>();
+		try (Statement statement = connection.createStatement();
+				ResultSet result = statement.executeQuery("SELECT version, checksum FROM " + getSchemaVersionTable())) {
+			while (result.next()) {
+				appliedChecksums.put(result.getInt(1), result.getString(2));
+			}
+		}
+		return appliedChecksums;
+	}
+	
+	private void acquireLock(Connection connection, String lockName) throws SQLException {
+		try (PreparedStatement statement = connection.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+			statement.setString(1, lockName);
+			statement.setInt(2, MIGRATION_LOCK_TIMEOUT_SECONDS);
+			try (ResultSet result = statement.executeQuery()) {
+				if (!result.next() || result.getInt(1) != 1) {
+					throw new SQLException("the migration lock couldn't be acquired (the database is migrated by another instance)");
+				}
+			}
+		}
+	}
+	private void releaseLock(Connection connection, String lockName) {
+		try (PreparedStatement statement = connection.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+			statement.setString(1, lockName);
+			statement.executeQuery().close();
+		}
+		catch (SQLException sqle) {
+			//the lock is released anyway when the connection is closed
+			LOGGER.warn("the migration lock couldn't be released", sqle);
+		}
+	}
+	
+	/**
+	 * Load all migrations from the index file (ordered by their versions).
+	 */
+	public List<Migration> loadMigrations() throws IOException {
+		List<Migration> migrations = new ArrayList<Migration>();
+		for (String scriptName : readResource(indexFile).split("\n")) {
+			scriptName = scriptName.trim();
+			if (scriptName.isEmpty() || scriptName.startsWith("#")) {
+				continue;
+			}
+			
+			String scriptFile = indexFile.substring(0, indexFile.lastIndexOf('/') + 1) + scriptName;
+			Migration migration = createMigration(scriptName, readResource(scriptFile));
+			if (!migrations.isEmpty() && migration.getVersion() <= migrations.get(migrations.size() - 1).getVersion()) {
+				throw new IOException("the migrations are not ordered by their versions: " + scriptName);
+			}
+			migrations.add(migration);
+		}
+		return migrations;
+	}
+	
+	/**
+	 * Create a migration from the name and the content of a script.
+	 */
+	protected static Migration createMigration(String scriptName, String script) throws IOException {
+		Matcher matcher = SCRIPT_NAME_PATTERN.matcher(scriptName);
+		if (!matcher.matches()) {
+			throw new IOException("invalid migration script name (expected V<version>__<description>.sql): " + scriptName);
+		}
+		int version = Integer.parseInt(matcher.group(1));
+		String description = matcher.group(2).replace('_', ' ');
+		return new Migration(version, description, scriptName, script, createChecksum(script));
+	}
+	
+	/**
+	 * Create the checksum (SHA-256) of a script (the line endings are normalized, so the checksum doesn't depend on the operating system).
+	 */
+	protected static String createChecksum(String script) {
+		try {
+			MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+			byte[] hash = sha256.digest(script.replace("\r\n", "\n").getBytes(StandardCharsets.UTF_8));
+			StringBuilder sb = new StringBuilder();
+			for (byte b : hash) {
+				sb.append(String.format("%02x", b));
+			}
+			return sb.toString();
+		}
+		catch (NoSuchAlgorithmException nsae) {
+			throw new IllegalStateException("SHA-256 is not available", nsae);
+		}
+	}
+	
+	private String readResource(String resource) throws IOException {
+		ClassLoader loader = Thread.currentThread().getContextClassLoader();
+		try (InputStream resourceStream = loader.getResourceAsStream(resource)) {
+			if (resourceStream == null) {
+				throw new IOException("resource not found: " + resource);
+			}
+			try (BufferedReader reader = new BufferedReader(new InputStreamReader(resourceStream, StandardCharsets.UTF_8))) {
+				return reader.lines().collect(Collectors.joining("\n"));
+			}
+		}
+	}
+	
+	private String getSchemaVersionTable() {
+		return database + "." + SCHEMA_VERSION_TABLE;
+	}
+}
\ No newline at end of file
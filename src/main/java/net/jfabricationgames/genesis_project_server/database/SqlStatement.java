@@ -0,0 +1,64 @@
+package net.jfabricationgames.genesis_project_server.database;
+
+/**
+ * All static SQL statements of the service. The table names are given as placeholders (e.g. &lt;&lt;games&gt;&gt;) that are replaced
+ * with the fully qualified table names (including the database name) once, when the {@link StatementRegistry} is created.
+ */
+public enum SqlStatement {
+	
+	//games
+	UPDATE_GAME("UPDATE <<games>> SET data = ?, data_codec = ?, snapshot_num = ?, last_played = ? WHERE id = ? AND active = 1"), //
+	GET_GAME("SELECT data, data_codec, active FROM <<games>> WHERE id = ?"), //
+	GET_GAME_SNAPSHOT("SELECT data, data_codec, snapshot_num, compacted_num, active FROM <<games>> WHERE id = ?"), //
+	GET_SNAPSHOT_NUM("SELECT snapshot_num FROM <<games>> WHERE id = ?"), //
+	CREATE_GAME("INSERT INTO <<games>> (id, active, started, last_played, data) VALUES (0, 1, ?, ?, '')"), //
+	//players
+	CREATE_PLAYER("INSERT INTO <<players>> (user_id, game_id) VALUES (?, ?)"), //
+	GET_PLAYER_NAMES("SELECT u.username FROM <<players>> p JOIN <<users>> u ON u.id = p.user_id WHERE p.game_id = ?"), //
+	//moves
+	CREATE_MOVE("INSERT INTO <<moves>> (user_id, game_id, move, move_codec, num) SELECT ?, g.id, ?, ?, ? FROM <<games>> g WHERE g.id = ? AND g.active = 1"), //
+	//the moves up to compacted_num may be removed (by the compaction or the archive), so their numbers are taken from the game
+	GET_LAST_MOVE_NUMBER("SELECT GREATEST((SELECT COALESCE(MAX(num), 0) FROM <<moves>> WHERE game_id = ?), "
+			+ "(SELECT COALESCE(MAX(compacted_num), 0) FROM <<games>> WHERE id = ?))"), //
+	LIST_TAIL_MOVES("SELECT m.id, m.num, m.move, u.username, m.move_codec FROM <<moves>> m JOIN <<users>> u ON m.user_id = u.id "
+			+ "WHERE m.game_id = ? AND m.num > ? ORDER BY m.num"), //
+	//compaction of the moves that are included in the snapshots of the games
+	LIST_COMPACTABLE_GAMES("SELECT id, snapshot_num FROM <<games>> WHERE id > ? AND snapshot_num - compacted_num > ? ORDER BY id LIMIT ?"), //
+	DELETE_COMPACTED_MOVES("DELETE FROM <<moves>> WHERE game_id = ? AND num <= ?"), //
+	SET_COMPACTED_NUM("UPDATE <<games>> SET compacted_num = ? WHERE id = ? AND compacted_num < ?"), //
+	//background compression of the stored games and moves (only rows that are stored uncompressed and not smaller than the minimum size)
+	LIST_UNCOMPRESSED_GAMES("SELECT id, data FROM <<games>> WHERE data_codec = 0 AND id > ? AND LENGTH(data) >= ? ORDER BY id LIMIT ?"), //
+	COMPRESS_GAME("UPDATE <<games>> SET data = ?, data_codec = ? WHERE id = ? AND data_codec = 0 AND data = ?"), //
+	LIST_UNCOMPRESSED_MOVES("SELECT id, move FROM <<moves>> WHERE move_codec = 0 AND id > ? AND LENGTH(move) >= ? ORDER BY id LIMIT ?"), //
+	COMPRESS_MOVE("UPDATE <<moves>> SET move = ?, move_codec = ? WHERE id = ? AND move_codec = 0 AND move = ?"), //
+	//archive of inactive games (the archived games are replaced by stubs without data in the games table)
+	LIST_IDLE_GAMES("SELECT id FROM <<games>> WHERE active = 1 AND last_played < ? ORDER BY id LIMIT ?"), //
+	LOCK_ACTIVE_GAME("SELECT data, data_codec, compacted_num FROM <<games>> WHERE id = ? AND active = 1 FOR UPDATE"), //
+	LIST_GAME_MOVES("SELECT m.id, m.user_id, m.num, m.move, m.move_codec, u.username FROM <<moves>> m JOIN <<users>> u ON u.id = m.user_id "
+			+ "WHERE m.game_id = ? ORDER BY m.num"), //
+	CREATE_ARCHIVED_GAME("INSERT INTO <<archived_games>> (game_id, archived, data, data_codec, moves, moves_codec, compacted_num) "
+			+ "VALUES (?, ?, ?, ?, ?, ?, ?)"), //
+	DELETE_GAME_MOVES("DELETE FROM <<moves>> WHERE game_id = ?"), //
+	DEACTIVATE_GAME("UPDATE <<games>> SET active = 0, data = '', data_codec = 0, compacted_num = ? WHERE id = ?"), //
+	GET_ARCHIVED_GAME("SELECT data, data_codec, moves, moves_codec, compacted_num FROM <<archived_games>> WHERE game_id = ?"), //
+	LOCK_ARCHIVED_GAME("SELECT data, data_codec, moves, moves_codec, compacted_num FROM <<archived_games>> WHERE game_id = ? FOR UPDATE"), //
+	RESTORE_GAME("UPDATE <<games>> SET active = 1, data = ?, data_codec = ?, compacted_num = ? WHERE id = ?"), //
+	RESTORE_MOVE("INSERT INTO <<moves>> (id, user_id, game_id, move, move_codec, num) VALUES (?, ?, ?, ?, ?, ?)"), //
+	DELETE_ARCHIVED_GAME("DELETE FROM <<archived_games>> WHERE game_id = ?"), //
+	//users
+	GET_USER_ID("SELECT id FROM <<users>> WHERE username = ?"), //
+	COUNT_USERS("SELECT COUNT(*) FROM <<users>> WHERE username = ?"), //
+	GET_USER_PASSWORD("SELECT password FROM <<users>> WHERE username = ?"), //
+	CREATE_USER("INSERT INTO <<users>> (username, password) VALUES (?, ?)"), //
+	UPDATE_USER("UPDATE <<users>> SET username = ?, password = ? WHERE username = ?");
+	
+	private final String template;
+	
+	private SqlStatement(String template) {
+		this.template = template;
+	}
+	
+	public String getTemplate() {
+		return template;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,133 @@
+package net.jfabricationgames.genesis_project_server.database;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Holds all SQL statements with the fully qualified table names (built once on startup) and hands out the prepared statements that are
+ * cached per pooled connection.
+ * <p>
+ * Statements that depend on request parameters (like the game and move lists) are registered on their first use and are reused afterwards.
+ */
+public class StatementRegistry {
+	
+	private static final String[] TABLES = new String[] {DatabaseConnection.TABLE_GAMES, DatabaseConnection.TABLE_MOVES,
+			DatabaseConnection.TABLE_PLAYERS, DatabaseConnection.TABLE_USERS, DatabaseConnection.TABLE_ARCHIVED_GAMES};
+			
+	private final String database;
+	
+	private final Map<SqlStatement, RegisteredStatement> staticStatements;
+	private final ConcurrentMap<String, RegisteredStatement> dynamicStatements;
+	
+	public StatementRegistry(String database) {
+		this.database = database;
+		
+		staticStatements = new LinkedHashMap<SqlStatement, RegisteredStatement>();
+		for (SqlStatement statement : SqlStatement.values()) {
+			staticStatements.put(statement, new RegisteredStatement(statement.name(), resolveTables(statement.getTemplate()), true));
+		}
+		dynamicStatements = new ConcurrentHashMap<String, RegisteredStatement>();
+	}
+	
+	/**
+	 * Replace the table placeholders (like &lt;&lt;games&gt;&gt;) by the fully qualified table names.
+	 */
+	public String resolveTables(String template) {
+		String sql = template;
+		for (String table : TABLES) {
+			sql = sql.replace("<<" + table + ">>", getTable(table));
+		}
+		return sql;
+	}
+	
+	/**
+	 * Get the name of the table with a leading database name.
+	 */
+	public String getTable(String table) {
+		return database + "." + table;
+	}
+	
+	public RegisteredStatement get(SqlStatement statement) {
+		return staticStatements.get(statement);
+	}
+	
+	/**
+	 * Get a statement, that is created depending on request parameters. The statement is created (by the supplier) only if no statement with
+	 * this name was registered before.
+	 */
+	public RegisteredStatement getOrRegister(String name, Supplier<String> sqlSupplier) {
+		return dynamicStatements.computeIfAbsent(name, key -> new RegisteredStatement(key, sqlSupplier.get(), true));
+	}
+	
+	/**
+	 * Get a prepared statement for the connection. Cached statements are taken from the statement cache of the connection (or prepared and
+	 * added to the cache if they are not yet cached).
+	 */
+	public PreparedStatement prepare(PooledConnection connection, RegisteredStatement registeredStatement, boolean returnGeneratedKeys)
+			throws SQLException {
+		if (!registeredStatement.isCached()) {
+			return prepareStatement(connection, registeredStatement, returnGeneratedKeys);
+		}
+		
+		String cacheKey = returnGeneratedKeys ? registeredStatement.getName() + "#generated_keys" : registeredStatement.getName();
+		PreparedStatement statement = connection.getCachedStatement(cacheKey);
+		if (statement != null && !statement.isClosed()) {
+			registeredStatement.countHit();
+			statement.clearParameters();
+			return statement;
+		}
+		
+		registeredStatement.countMiss();
+		statement = prepareStatement(connection, registeredStatement, returnGeneratedKeys);
+		connection.cacheStatement(cacheKey, statement);
+		return statement;
+	}
+	private PreparedStatement prepareStatement(PooledConnection connection, RegisteredStatement registeredStatement, boolean returnGeneratedKeys)
+			throws SQLException {
+		if (returnGeneratedKeys) {
+			return connection.getConnection().prepareStatement(registeredStatement.getSql(), Statement.RETURN_GENERATED_KEYS);
+		}
+		else {
+			return connection.getConnection().prepareStatement(registeredStatement.getSql());
+		}
+	}
+	
+	/**
+	 * Release a statement after use (only uncached statements are closed; cached statements stay open in the connection's cache).
+	 */
+	public void release(RegisteredStatement registeredStatement, PreparedStatement statement) throws SQLException {
+		if (!registeredStatement.isCached()) {
+			statement.close();
+		}
+	}
+	
+	/**
+	 * Get the hit and miss counters of all registered statements.
+	 */
+	public Map<String, Map<String, Long>> getStatistics() {
+		Map<String, Map<String, Long>> statistics = new LinkedHashMap<String, Map<String, Long>>();
+		for (RegisteredStatement statement : staticStatements.values()) {
+			addStatistics(statistics, statement);
+		}
+		for (RegisteredStatement statement : dynamicStatements.values()) {
+			addStatistics(statistics, statement);
+		}
+		return statistics;
+	}
+	private void addStatistics(Map<String, Map<String, Long>> statistics, RegisteredStatement statement) {
+		Map<String, Long> counters = new LinkedHashMap<String, Long>();
+		counters.put("hits", statement.getHits());
+		counters.put("misses", statement.getMisses());
+		statistics.put(statement.getName(), counters);
+	}
+	
+	public String getDatabase() {
+		return database;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,206 @@
+package net.jfabricationgames.genesis_project_server.database;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import net.jfabricationgames.genesis_project_server.config.ServiceConfiguration;
+
+/**
+ * The encodings of the game and move payloads in the database (games.data and moves.move). Every row stores the id of its codec (in the
+ * columns data_codec and move_codec), so rows with different codecs can be read and the codec of new rows can be changed at any time.
+ * <p>
+ * Payloads that are smaller than the configured minimum size are stored uncompressed (compressing them doesn't save enough space to pay
+ * for the CPU time).
+ */
+public enum StorageCodec {
+	
+	/**
+	 * The UTF-8 bytes of the payload (the encoding of all rows that were written before the codecs were introduced)
+	 */
+	IDENTITY(0) {
+		
+		@Override
+		public byte[] encode(String value) {
+			return value.getBytes(StandardCharsets.UTF_8);
+		}
+		
+		@Override
+		public String decode(byte[] data) {
+			return new String(data, StandardCharsets.UTF_8);
+		}
+	}, //
+	/**
+	 * The UTF-8 bytes of the payload compressed with deflate (zlib format)
+	 */
+	DEFLATE(1) {
+		
+		@Override
+		public byte[] encode(String value) {
+			Deflater deflater = DEFLATERS.get();
+			deflater.reset();
+			deflater.setInput(value.getBytes(StandardCharsets.UTF_8));
+			deflater.finish();
+			
+			byte[] buffer = BUFFERS.get();
+			ByteArrayOutputStream compressed = new ByteArrayOutputStream(value.length() / 4 + 16);
+			while (!deflater.finished()) {
+				int length = deflater.deflate(buffer);
+				compressed.write(buffer, 0, length);
+			}
+			return compressed.toByteArray();
+		}
+		
+		@Override
+		public String decode(byte[] data) throws SQLException {
+			Inflater inflater = INFLATERS.get();
+			inflater.reset();
+			inflater.setInput(data);
+			
+			byte[] buffer = BUFFERS.get();
+			ByteArrayOutputStream decompressed = new ByteArrayOutputStream(data.length * 4);
+			try {
+				while (!inflater.finished()) {
+					int length = inflater.inflate(buffer);
+					if (length == 0 && !inflater.finished() && (inflater.needsInput() || inflater.needsDictionary())) {
+						throw new DataFormatException("the compressed data is incomplete");
+					}
+					decompressed.write(buffer, 0, length);
+				}
+			}
+			catch (DataFormatException dfe) {
+				throw new SQLException("the stored data couldn't be decompressed", dfe);
+			}
+			return new String(decompressed.toByteArray(), StandardCharsets.UTF_8);
+		}
+	}; //
+	
+	private static final Logger LOGGER = LogManager.getLogger(StorageCodec.class);
+	
+	public static final String DEFAULT_CODEC = "deflate";
+	public static final int DEFAULT_MIN_COMPRESS_SIZE = 512;
+	public static final int DEFAULT_DEFLATE_LEVEL = Deflater.DEFAULT_COMPRESSION;
+	
+	private static final int BUFFER_SIZE = 8192;
+	
+	//the deflaters and inflaters allocate native memory, so they are reused by every thread instead of being created for every payload
+	private static final ThreadLocal<Deflater> DEFLATERS = ThreadLocal
+			.withInitial(() -> new Deflater(ServiceConfiguration.getInstance().getInt("storage.deflate_level", DEFAULT_DEFLATE_LEVEL)));
+	private static final ThreadLocal<Inflater> INFLATERS = ThreadLocal.withInitial(Inflater::new);
+	private static final ThreadLocal<byte[]> BUFFERS = ThreadLocal.withInitial(() -> new byte[BUFFER_SIZE]);
+	
+	private final int id;
+	
+	private StorageCodec(int id) {
+		this.id = id;
+	}
+	
+	/**
+	 * Encode a payload for the database.
+	 */
+	public abstract byte[] encode(String value);
+	
+	/**
+	 * Decode a payload that was loaded from the database.
+	 * 
+	 * @throws SQLException
+	 *         An {@link SQLException} is thrown if the stored data is corrupt.
+	 */
+	public abstract String decode(byte[] data) throws SQLException;
+	
+	/**
+	 * Get the codec by the id that is stored in the database.
+	 * 
+	 * @throws SQLException
+	 *         An {@link SQLException} is thrown if the id is unknown (e.g. because the row was written by a newer version of the service).
+	 */
+	public static StorageCodec forId(int id) throws SQLException {
+		for (StorageCodec codec : values()) {
+			if (codec.id == id) {
+				return codec;
+			}
+		}
+		throw new SQLException("unknown storage codec: " + id);
+	}
+	
+	/**
+	 * Get the codec with which new payloads are written (configured in the service configuration).
+	 */
+	public static StorageCodec getWriteCodec() {
+		return Configuration.WRITE_CODEC;
+	}
+	
+	/**
+	 * Get the codec for a payload (the write codec or {@link #IDENTITY} if the payload is smaller than the configured minimum size).
+	 */
+	public static StorageCodec forValue(String value) {
+		if (value.length() < Configuration.MIN_COMPRESS_SIZE) {
+			return IDENTITY;
+		}
+		return Configuration.WRITE_CODEC;
+	}
+	
+	/**
+	 * Get the minimum size of a payload that is compressed (smaller payloads are stored uncompressed).
+	 */
+	public static int getMinCompressSize() {
+		return Configuration.MIN_COMPRESS_SIZE;
+	}
+	
+	/**
+	 * Set an encoded payload and the id of its codec as parameters of a statement.
+	 */
+	public static void setData(PreparedStatement ps, int dataIndex, int codecIndex, String value) throws SQLException {
+		if (value == null) {
+			ps.setBytes(dataIndex, null);
+			ps.setInt(codecIndex, IDENTITY.id);
+			return;
+		}
+		StorageCodec codec = forValue(value);
+		ps.setBytes(dataIndex, codec.encode(value));
+		ps.setInt(codecIndex, codec.id);
+	}
+	
+	/**
+	 * Get a payload from a result and decode it with the codec that is stored in the row.
+	 */
+	public static String getData(ResultSet resultSet, int dataIndex, int codecIndex) throws SQLException {
+		byte[] data = resultSet.getBytes(dataIndex);
+		if (data == null) {
+			return null;
+		}
+		return forId(resultSet.getInt(codecIndex)).decode(data);
+	}
+	
+	public int getId() {
+		return id;
+	}
+	
+	/**
+	 * The configured codec (loaded when the codecs are used for the first time).
+	 */
+	private static class Configuration {
+		
+		private static final StorageCodec WRITE_CODEC = loadWriteCodec();
+		private static final int MIN_COMPRESS_SIZE = ServiceConfiguration.getInstance().getInt("storage.min_compress_size", DEFAULT_MIN_COMPRESS_SIZE);
+		
+		private static StorageCodec loadWriteCodec() {
+			String name = ServiceConfiguration.getInstance().getString("storage.codec", DEFAULT_CODEC);
+			try {
+				return StorageCodec.valueOf(name.toUpperCase());
+			}
+			catch (IllegalArgumentException iae) {
+				LOGGER.error("unknown storage codec: {} (using the default codec {})", name, DEFAULT_CODEC);
+				return DEFLATE;
+			}
+		}
+	}
+}
\ No newline at end of file
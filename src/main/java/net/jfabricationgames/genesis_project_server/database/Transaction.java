@@ -0,0 +1,202 @@
+package net.jfabricationgames.genesis_project_server.database;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Executes statements on one pooled connection without committing them (the commit or rollback is done by the {@link DatabaseConnection}
+ * after all statements of a {@link UnitOfWork} were executed).
+ */
+public class Transaction {
+	
+	private static final Logger LOGGER = LogManager.getLogger(Transaction.class);
+	
+	private final PooledConnection connection;
+	private final StatementRegistry statementRegistry;
+	
+	protected Transaction(PooledConnection connection, StatementRegistry statementRegistry) {
+		this.connection = connection;
+		this.statementRegistry = statementRegistry;
+	}
+	
+	/**
+	 * Execute a static statement from the {@link StatementRegistry} in this transaction.
+	 * 
+	 * @see #execute(RegisteredStatement, SqlExecutionType, CheckedSqlConsumer, CheckedSqlConsumer)
+	 */
+	public int execute(SqlStatement statement, SqlExecutionType type, CheckedSqlConsumer<PreparedStatement> variableSetter,
+			CheckedSqlConsumer<ResultSet> resultConsumer) throws SQLException {
+		return execute(statementRegistry.get(statement), type, variableSetter, resultConsumer);
+	}
+	
+	/**
+	 * Execute a statement in this transaction (without committing it).
+	 * 
+	 * @param registeredStatement
+	 *        The statement that is executed
+	 * 
+	 * @param type
+	 *        The type of the execution
+	 * 
+	 * @param variableSetter
+	 *        A consumer that prepares the statement by setting the variables
+	 * 
+	 * @param resultConsumer
+	 *        A consumer that works on the ResultSet of a query (or the generated keys of a CREATE statement)
+	 * 
+	 * @return Depending on the parameter type:
+	 *         <ul>
+	 *         <li>UPDATE: the number of affected rows</li>
+	 *         <li>CREATE: the number of affected rows</li>
+	 *         <li>QUERY: 0</li>
+	 *         </ul>
+	 */
+	public int execute(RegisteredStatement registeredStatement, SqlExecutionType type, CheckedSqlConsumer<PreparedStatement> variableSetter,
+			CheckedSqlConsumer<ResultSet> resultConsumer) throws SQLException {
+		QueryStatistics queryStatistics = QueryStatistics.getInstance();
+		int affectedRows = 0;
+		int returnedRows = -1;
+		long start = System.nanoTime();
+		//get the prepared statement from the connection's statement cache (CREATE statements return the id of the created object(s))
+		PreparedStatement statement = statementRegistry.prepare(connection, registeredStatement, type == SqlExecutionType.CREATE);
+		long prepared = System.nanoTime();
+		long executed = prepared;
+		try {
+			variableSetter.accept(statement);
+			
+			LOGGER.info("executing prepared statement: {}", statement);
+			if (type == SqlExecutionType.CREATE) {
+				affectedRows = statement.executeUpdate();
+				executed = System.nanoTime();
+				
+				//get the generated keys and let the consumer accept them
+				try (ResultSet result = statement.getGeneratedKeys()) {
+					resultConsumer.accept(result);
+				}
+			}
+			else if (type == SqlExecutionType.UPDATE) {
+				//execute the update and list the number of affected rows
+				affectedRows = statement.executeUpdate();
+				executed = System.nanoTime();
+			}
+			else if (type == SqlExecutionType.QUERY) {
+				//execute the query and let the consumer accept the result set
+				try (ResultSet result = statement.executeQuery()) {
+					executed = System.nanoTime();
+					if (queryStatistics.isEnabled()) {
+						RowCountingResultSet countingResult = new RowCountingResultSet(result);
+						resultConsumer.accept(countingResult.getResultSet());
+						returnedRows = countingResult.getRows();
+					}
+					else {
+						resultConsumer.accept(result);
+					}
+				}
+			}
+		}
+		catch (SQLException | RuntimeException e) {
+			queryStatistics.recordFailure(registeredStatement.getName());
+			throw e;
+		}
+		finally {
+			statementRegistry.release(registeredStatement, statement);
+		}
+		queryStatistics.recordExecution(registeredStatement, prepared - start, executed - prepared, System.nanoTime() - executed, returnedRows,
+				variableSetter);
+		return affectedRows;
+	}
+	
+	/**
+	 * Execute a static statement from the {@link StatementRegistry} as batch in this transaction.
+	 * 
+	 * @see #executeBatch(RegisteredStatement, List)
+	 */
+	public int executeBatch(SqlStatement statement, List<CheckedSqlConsumer<PreparedStatement>> variableSetters) throws SQLException {
+		return executeBatch(statementRegistry.get(statement), variableSetters);
+	}
+	
+	/**
+	 * Execute an update statement once for every variable setter in one JDBC batch (inserts are rewritten to one multi-row insert by the
+	 * driver).
+	 * 
+	 * @param registeredStatement
+	 *        The update statement that is executed
+	 * 
+	 * @param variableSetters
+	 *        The consumers that set the variables for each execution of the statement
+	 * 
+	 * @return The number of executions that were successful (the driver doesn't report the number of affected rows for rewritten batches)
+	 */
+	public int executeBatch(RegisteredStatement registeredStatement, List<CheckedSqlConsumer<PreparedStatement>> variableSetters)
+			throws SQLException {
+		int successfulExecutions = 0;
+		for (int result : executeBatchForUpdateCounts(registeredStatement, variableSetters)) {
+			if (result > 0 || result == Statement.SUCCESS_NO_INFO) {
+				successfulExecutions++;
+			}
+		}
+		return successfulExecutions;
+	}
+	
+	/**
+	 * Execute a static statement from the {@link StatementRegistry} as batch in this transaction.
+	 * 
+	 * @see #executeBatchForUpdateCounts(RegisteredStatement, List)
+	 */
+	public int[] executeBatchForUpdateCounts(SqlStatement statement, List<CheckedSqlConsumer<PreparedStatement>> variableSetters)
+			throws SQLException {
+		return executeBatchForUpdateCounts(statementRegistry.get(statement), variableSetters);
+	}
+	
+	/**
+	 * Execute an update statement once for every variable setter in one JDBC batch.
+	 * 
+	 * @param registeredStatement
+	 *        The update statement that is executed
+	 * 
+	 * @param variableSetters
+	 *        The consumers that set the variables for each execution of the statement
+	 * 
+	 * @return The number of affected rows of every execution, in the order of the variable setters (or {@link Statement#SUCCESS_NO_INFO}
+	 *         if the driver doesn't report the number of affected rows, e.g. for rewritten inserts)
+	 */
+	public int[] executeBatchForUpdateCounts(RegisteredStatement registeredStatement, List<CheckedSqlConsumer<PreparedStatement>> variableSetters)
+			throws SQLException {
+		QueryStatistics queryStatistics = QueryStatistics.getInstance();
+		long start = System.nanoTime();
+		PreparedStatement statement = statementRegistry.prepare(connection, registeredStatement, false);
+		long prepared = System.nanoTime();
+		try {
+			for (CheckedSqlConsumer<PreparedStatement> variableSetter : variableSetters) {
+				variableSetter.accept(statement);
+				statement.addBatch();
+			}
+			
+			LOGGER.info("executing batch of {} prepared statements: {}", variableSetters.size(), registeredStatement.getSql());
+			int[] results = statement.executeBatch();
+			long executed = System.nanoTime();
+			
+			//the parameters of a batch are not logged
+			queryStatistics.recordExecution(registeredStatement, prepared - start, executed - prepared, 0, -1, null);
+			return results;
+		}
+		catch (SQLException | RuntimeException e) {
+			queryStatistics.recordFailure(registeredStatement.getName());
+			throw e;
+		}
+		finally {
+			statement.clearBatch();
+			statementRegistry.release(registeredStatement, statement);
+		}
+	}
+	
+	public StatementRegistry getStatementRegistry() {
+		return statementRegistry;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,16 @@
+package net.jfabricationgames.genesis_project_server.database;
+
+import java.sql.SQLException;
+
+import net.jfabricationgames.genesis_project_server.exception.GameDataException;
+
+/**
+ * A unit of work that executes several statements in one {@link Transaction} (on one connection with one commit).
+ * <p>
+ * If the unit of work throws an exception, the transaction is rolled back.
+ */
+@FunctionalInterface
+public interface UnitOfWork<T> {
+	
+	public T execute(Transaction transaction) throws SQLException, GameDataException;
+}
\ No newline at end of file
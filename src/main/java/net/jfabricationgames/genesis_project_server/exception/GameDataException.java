@@ -24,6 +24,8 @@ public class GameDataException extends Exception {
 		SQL_EXCEPTION, // 
 		NOT_FOUND, //
 		UNKNOWN, //
-		NO_PERMISSION,
+		NO_PERMISSION, //
+		INVALID_REQUEST, //
+		CONFLICT,
 	}
 }
\ No newline at end of file
@@ -0,0 +1,207 @@
+package net.jfabricationgames.genesis_project_server.game;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import net.jfabricationgames.genesis_project_server.config.ServiceConfiguration;
+import net.jfabricationgames.genesis_project_server.database.CheckedSqlConsumer;
+import net.jfabricationgames.genesis_project_server.database.DatabaseConnection;
+import net.jfabricationgames.genesis_project_server.database.SqlExecutionType;
+import net.jfabricationgames.genesis_project_server.database.SqlStatement;
+import net.jfabricationgames.genesis_project_server.database.StorageCodec;
+import net.jfabricationgames.genesis_project_server.exception.GameDataException;
+import net.jfabricationgames.genesis_project_server.exception.GameDataException.Cause;
+
+/**
+ * Compresses the games and moves that are stored uncompressed (because they were written before the storage codecs were introduced) in
+ * the background. The rows are compressed in small batches (ordered by their ids), so the database is not blocked by the migration.
+ * <p>
+ * A row is only replaced if it wasn't changed after it was loaded, so concurrent updates are never overwritten. The compressor stops when
+ * all rows are compressed (it's started again with the next start of the service, to compress the rows of a previous version).
+ */
+public class BackgroundCompressor {
+	
+	private static final Logger LOGGER = LogManager.getLogger(BackgroundCompressor.class);
+	
+	public static final boolean DEFAULT_ENABLED = true;
+	public static final int DEFAULT_BATCH_SIZE = 100;
+	public static final long DEFAULT_INTERVAL_MILLIS = 1000;
+	
+	private static BackgroundCompressor instance;
+	
+	/**
+	 * The tables whose payloads are compressed (in this order).
+	 */
+	private enum Table {
+		
+		GAMES(SqlStatement.LIST_UNCOMPRESSED_GAMES, SqlStatement.COMPRESS_GAME), //
+		MOVES(SqlStatement.LIST_UNCOMPRESSED_MOVES, SqlStatement.COMPRESS_MOVE); //
+		
+		private final SqlStatement listStatement;
+		private final SqlStatement compressStatement;
+		
+		private Table(SqlStatement listStatement, SqlStatement compressStatement) {
+			this.listStatement = listStatement;
+			this.compressStatement = compressStatement;
+		}
+	}
+	
+	private final int batchSize;
+	private final StorageCodec codec;
+	private final ScheduledExecutorService executor;
+	
+	/**
+	 * The table that is currently compressed (or null if all tables are compressed)
+	 */
+	private volatile Table table = Table.GAMES;
+	/**
+	 * The id of the last row that was compressed in the current table
+	 */
+	private int lastId;
+	
+	private final AtomicLong compressedRows = new AtomicLong();
+	private final AtomicLong uncompressedBytes = new AtomicLong();
+	private final AtomicLong compressedBytes = new AtomicLong();
+	
+	private BackgroundCompressor(int batchSize, long intervalMillis, StorageCodec codec) {
+		this.batchSize = batchSize;
+		this.codec = codec;
+		
+		executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "background-compressor");
+			thread.setDaemon(true);
+			thread.setPriority(Thread.MIN_PRIORITY);
+			return thread;
+		});
+		executor.scheduleWithFixedDelay(this::compressNextBatch, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+		LOGGER.info("background compression started (codec: {}, batch size: {})", codec, batchSize);
+	}
+	
+	/**
+	 * Start the compression (if it's enabled and the configured codec compresses the payloads).
+	 */
+	public static synchronized void start() {
+		ServiceConfiguration config = ServiceConfiguration.getInstance();
+		if (instance != null || !config.getBoolean("storage.background_compression.enabled", DEFAULT_ENABLED)
+				|| StorageCodec.getWriteCodec() == StorageCodec.IDENTITY) {
+			return;
+		}
+		instance = new BackgroundCompressor(config.getInt("storage.background_compression.batch_size", DEFAULT_BATCH_SIZE),
+				config.getLong("storage.background_compression.interval_millis", DEFAULT_INTERVAL_MILLIS), StorageCodec.getWriteCodec());
+	}
+	
+	/**
+	 * Stop the compression (the next start continues with the remaining uncompressed rows).
+	 */
+	public static synchronized void shutdown() {
+		if (instance != null) {
+			instance.executor.shutdownNow();
+			instance = null;
+		}
+	}
+	
+	public static synchronized Map<String, Object> getStatistics() {
+		Map<String, Object> statistics = new LinkedHashMap<String, Object>();
+		statistics.put("running", instance != null && instance.table != null);
+		if (instance != null) {
+			statistics.put("table", instance.table);
+			statistics.put("compressedRows", instance.compressedRows.get());
+			statistics.put("uncompressedBytes", instance.uncompressedBytes.get());
+			statistics.put("compressedBytes", instance.compressedBytes.get());
+		}
+		return statistics;
+	}
+	
+	private void compressNextBatch() {
+		try {
+			if (compressBatch(table) == 0) {
+				LOGGER.info("all rows of the table {} are compressed", table);
+				lastId = 0;
+				table = table.ordinal() + 1 < Table.values().length ? Table.values()[table.ordinal() + 1] : null;
+				if (table == null) {
+					LOGGER.info("background compression finished (compressed rows: {}, {} bytes -> {} bytes)", compressedRows.get(),
+							uncompressedBytes.get(), compressedBytes.get());
+					executor.shutdown();
+				}
+			}
+		}
+		catch (GameDataException | RuntimeException e) {
+			//the batch is compressed again with the next run
+			LOGGER.warn("the background compression of the table {} failed", table, e);
+		}
+	}
+	
+	/**
+	 * Compress the next batch of uncompressed rows of a table.
+	 * 
+	 * @return The number of rows that were loaded (0 if there are no more uncompressed rows).
+	 */
+	private int compressBatch(Table table) throws GameDataException {
+		Map<Integer, byte[]> uncompressed = new LinkedHashMap<Integer, byte[]>();
+		CheckedSqlConsumer<PreparedStatement> variableSetter = ps -> {
+			ps.setInt(1, lastId);
+			ps.setInt(2, StorageCodec.getMinCompressSize());
+			ps.setInt(3, batchSize);
+		};
+		CheckedSqlConsumer<ResultSet> resultConsumer = resultSet -> {
+			while (resultSet.next()) {
+				uncompressed.put(resultSet.getInt(1), resultSet.getBytes(2));
+			}
+		};
+		DatabaseConnection.executeCheckedSQL(table.listStatement, SqlExecutionType.QUERY, variableSetter, resultConsumer);
+		if (uncompressed.isEmpty()) {
+			return 0;
+		}
+		
+		List<CheckedSqlConsumer<PreparedStatement>> compressSetters = new ArrayList<CheckedSqlConsumer<PreparedStatement>>();
+		long batchUncompressedBytes = 0;
+		long batchCompressedBytes = 0;
+		for (Map.Entry<Integer, byte[]> row : uncompressed.entrySet()) {
+			byte[] compressed;
+			try {
+				compressed = codec.encode(StorageCodec.IDENTITY.decode(row.getValue()));
+			}
+			catch (SQLException sqle) {
+				throw new GameDataException("the stored data couldn't be decoded", sqle, Cause.SQL_EXCEPTION);
+			}
+			if (compressed.length >= row.getValue().length) {
+				//the payload can't be compressed, so it stays uncompressed
+				continue;
+			}
+			batchUncompressedBytes += row.getValue().length;
+			batchCompressedBytes += compressed.length;
+			compressSetters.add(ps -> {
+				ps.setBytes(1, compressed);
+				ps.setInt(2, codec.getId());
+				ps.setInt(3, row.getKey());
+				//the row is only replaced if it wasn't changed in the meantime
+				ps.setBytes(4, row.getValue());
+			});
+		}
+		
+		if (!compressSetters.isEmpty()) {
+			int rows = DatabaseConnection.executeCheckedTransaction(transaction -> transaction.executeBatch(table.compressStatement, compressSetters));
+			compressedRows.addAndGet(rows);
+			uncompressedBytes.addAndGet(batchUncompressedBytes);
+			compressedBytes.addAndGet(batchCompressedBytes);
+		}
+		
+		//continue after the last loaded row (the rows that were not compressed are skipped)
+		for (int id : uncompressed.keySet()) {
+			lastId = id;
+		}
+		return uncompressed.size();
+	}
+}
\ No newline at end of file
@@ -0,0 +1,443 @@
+package net.jfabricationgames.genesis_project_server.game;
+
+import java.io.IOException;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import net.jfabricationgames.genesis_project_server.config.ServiceConfiguration;
+import net.jfabricationgames.genesis_project_server.database.CheckedSqlConsumer;
+import net.jfabricationgames.genesis_project_server.database.DatabaseConnection;
+import net.jfabricationgames.genesis_project_server.database.SqlExecutionType;
+import net.jfabricationgames.genesis_project_server.database.SqlStatement;
+import net.jfabricationgames.genesis_project_server.database.StorageCodec;
+import net.jfabricationgames.genesis_project_server.exception.GameDataException;
+import net.jfabricationgames.genesis_project_server.exception.GameDataException.Cause;
+
+/**
+ * The archive of inactive games. An archived game and all of its moves are moved to one compressed row of the archive table and only a stub
+ * of the game (with active = 0 and without data) is kept in the games table, so the archived games don't slow down the listings and the
+ * queries on the moves.
+ * <p>
+ * Games are archived on request (archive_game) or in the background, when they were not played for the configured number of days. Archived
+ * games are excluded from the game lists. They are loaded from the archive when they are requested (the additional latency is reported in
+ * the statistics) and restored when they are updated or a move is set.
+ */
+public class GameArchive {
+	
+	private static final Logger LOGGER = LogManager.getLogger(GameArchive.class);
+	
+	public static final boolean DEFAULT_IDLE_ARCHIVAL_ENABLED = false;
+	public static final int DEFAULT_IDLE_DAYS = 90;
+	public static final int DEFAULT_BATCH_SIZE = 100;
+	public static final long DEFAULT_INTERVAL_MILLIS = 3600000;
+	
+	private static final ObjectMapper JSON_MAPPER = new ObjectMapper();
+	
+	private static GameArchive instance;
+	
+	/**
+	 * A move of an archived game (all moves of a game are stored as one JSON array in the archive).
+	 */
+	public static class ArchivedMove {
+		
+		private int id;
+		private int userId;
+		private String username;
+		private int num;
+		private String move;
+		
+		public ArchivedMove() {
+			
+		}
+		
+		public ArchivedMove(int id, int userId, String username, int num, String move) {
+			this.id = id;
+			this.userId = userId;
+			this.username = username;
+			this.num = num;
+			this.move = move;
+		}
+		
+		public int getId() {
+			return id;
+		}
+		public void setId(int id) {
+			this.id = id;
+		}
+		
+		public int getUserId() {
+			return userId;
+		}
+		public void setUserId(int userId) {
+			this.userId = userId;
+		}
+		
+		public String getUsername() {
+			return username;
+		}
+		public void setUsername(String username) {
+			this.username = username;
+		}
+		
+		public int getNum() {
+			return num;
+		}
+		public void setNum(int num) {
+			this.num = num;
+		}
+		
+		public String getMove() {
+			return move;
+		}
+		public void setMove(String move) {
+			this.move = move;
+		}
+	}
+	
+	/**
+	 * The stored data of a game that is archived or restored.
+	 */
+	private static class StoredGame {
+		
+		private byte[] data;
+		private int dataCodec;
+		private int compactedNum;
+		private String moves;
+	}
+	
+	private ScheduledExecutorService idleArchival;
+	private int idleDays;
+	private int batchSize;
+	
+	private final AtomicLong archivedGames = new AtomicLong();
+	private final AtomicLong restoredGames = new AtomicLong();
+	private final AtomicLong archiveLoads = new AtomicLong();
+	private final AtomicLong archiveLoadNanos = new AtomicLong();
+	private final AtomicLong failedBatches = new AtomicLong();
+	private volatile long maxArchiveLoadNanos;
+	
+	private GameArchive() {
+		
+	}
+	
+	public static synchronized GameArchive getInstance() {
+		if (instance == null) {
+			instance = new GameArchive();
+		}
+		return instance;
+	}
+	
+	/**
+	 * Start the archival of idle games in the background (if it's enabled).
+	 */
+	public static synchronized void start() {
+		ServiceConfiguration config = ServiceConfiguration.getInstance();
+		if (!config.getBoolean("archive.idle_archival.enabled", DEFAULT_IDLE_ARCHIVAL_ENABLED)) {
+			return;
+		}
+		getInstance().startIdleArchival(config.getInt("archive.idle_days", DEFAULT_IDLE_DAYS),
+				config.getInt("archive.batch_size", DEFAULT_BATCH_SIZE), config.getLong("archive.interval_millis", DEFAULT_INTERVAL_MILLIS));
+	}
+	
+	/**
+	 * Stop the archival of idle games.
+	 */
+	public static synchronized void shutdown() {
+		if (instance != null && instance.idleArchival != null) {
+			instance.idleArchival.shutdownNow();
+			instance.idleArchival = null;
+		}
+	}
+	
+	private void startIdleArchival(int idleDays, int batchSize, long intervalMillis) {
+		if (idleArchival != null) {
+			return;
+		}
+		this.idleDays = idleDays;
+		this.batchSize = batchSize;
+		
+		idleArchival = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "game-archive");
+			thread.setDaemon(true);
+			thread.setPriority(Thread.MIN_PRIORITY);
+			return thread;
+		});
+		idleArchival.scheduleWithFixedDelay(this::archiveIdleGames, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+		LOGGER.info("archival of idle games started (idle days: {}, batch size: {})", idleDays, batchSize);
+	}
+	
+	/**
+	 * Archive the next batch of games that were not played for the configured number of days.
+	 */
+	private void archiveIdleGames() {
+		try {
+			List<Integer> idleGames = new ArrayList<Integer>();
+			CheckedSqlConsumer<PreparedStatement> variableSetter = ps -> {
+				ps.setDate(1, Date.valueOf(LocalDate.now().minusDays(idleDays)));
+				ps.setInt(2, batchSize);
+			};
+			CheckedSqlConsumer<ResultSet> resultConsumer = resultSet -> {
+				while (resultSet.next()) {
+					idleGames.add(resultSet.getInt(1));
+				}
+			};
+			DatabaseConnection.executeCheckedSQL(SqlStatement.LIST_IDLE_GAMES, SqlExecutionType.QUERY, variableSetter, resultConsumer);
+			
+			for (int gameId : idleGames) {
+				archiveGame(gameId);
+			}
+			if (!idleGames.isEmpty()) {
+				LOGGER.info("archived {} idle games", idleGames.size());
+			}
+		}
+		catch (GameDataException | RuntimeException e) {
+			//the games are archived with the next run
+			failedBatches.incrementAndGet();
+			LOGGER.warn("the archival of idle games failed", e);
+		}
+	}
+	
+	/**
+	 * Move a game and all of its moves to the archive.
+	 * 
+	 * @return True if the game was archived; false if there is no active game with the id.
+	 */
+	public boolean archiveGame(int id) throws GameDataException {
+		synchronized (GameDataManager.getGameLock(id)) {
+			//buffered updates are written first (and the next updates are not buffered, so they restore the game)
+			GameWriteBuffer writeBuffer = GameWriteBuffer.getInstance();
+			if (writeBuffer.getBufferedGame(id) != null) {
+				writeBuffer.flush();
+			}
+			writeBuffer.removeKnownGame(id);
+			
+			boolean archived = DatabaseConnection.executeCheckedTransaction(transaction -> {
+				StoredGame game = new StoredGame();
+				transaction.execute(SqlStatement.LOCK_ACTIVE_GAME, SqlExecutionType.QUERY, ps -> ps.setInt(1, id), resultSet -> {
+					if (resultSet.next()) {
+						game.data = resultSet.getBytes(1);
+						game.dataCodec = resultSet.getInt(2);
+						game.compactedNum = resultSet.getInt(3);
+					}
+				});
+				if (game.data == null) {
+					return false;
+				}
+				
+				List<ArchivedMove> moves = new ArrayList<ArchivedMove>();
+				transaction.execute(SqlStatement.LIST_GAME_MOVES, SqlExecutionType.QUERY, ps -> ps.setInt(1, id), resultSet -> {
+					while (resultSet.next()) {
+						moves.add(new ArchivedMove(resultSet.getInt(1), resultSet.getInt(2), resultSet.getString(6), resultSet.getInt(3),
+								StorageCodec.getData(resultSet, 4, 5)));
+					}
+				});
+				int lastMoveNum = moves.isEmpty() ? game.compactedNum : moves.get(moves.size() - 1).getNum();
+				
+				//the game is copied as it's stored; the moves are always compressed
+				transaction.execute(SqlStatement.CREATE_ARCHIVED_GAME, SqlExecutionType.UPDATE, ps -> {
+					ps.setInt(1, id);
+					ps.setDate(2, Date.valueOf(LocalDate.now()));
+					ps.setBytes(3, game.data);
+					ps.setInt(4, game.dataCodec);
+					ps.setBytes(5, StorageCodec.DEFLATE.encode(encodeMoves(moves)));
+					ps.setInt(6, StorageCodec.DEFLATE.getId());
+					ps.setInt(7, game.compactedNum);
+				}, null);
+				transaction.execute(SqlStatement.DELETE_GAME_MOVES, SqlExecutionType.UPDATE, ps -> ps.setInt(1, id), null);
+				//the stub keeps the number of the last move, so the move numbers are not reused when the game is restored
+				transaction.execute(SqlStatement.DEACTIVATE_GAME, SqlExecutionType.UPDATE, ps -> {
+					ps.setInt(1, lastMoveNum);
+					ps.setInt(2, id);
+				}, null);
+				return true;
+			});
+			
+			if (archived) {
+				GameDocumentCache.getInstance().invalidate(id);
+				GameVersionRegistry.getInstance().gameArchiveChanged(id);
+				MoveWaiterRegistry.getInstance().remove(id);
+				archivedGames.incrementAndGet();
+				LOGGER.debug("game {} was archived", id);
+			}
+			return archived;
+		}
+	}
+	
+	/**
+	 * Move a game and its moves back from the archive to the games and moves tables.
+	 * 
+	 * @return True if the game was restored; false if the game is not archived.
+	 */
+	public boolean restoreGame(int id) throws GameDataException {
+		synchronized (GameDataManager.getGameLock(id)) {
+			int lastMoveNum = DatabaseConnection.executeCheckedTransaction(transaction -> {
+				StoredGame archivedGame = new StoredGame();
+				transaction.execute(SqlStatement.LOCK_ARCHIVED_GAME, SqlExecutionType.QUERY, ps -> ps.setInt(1, id), resultSet -> {
+					if (resultSet.next()) {
+						archivedGame.data = resultSet.getBytes(1);
+						archivedGame.dataCodec = resultSet.getInt(2);
+						archivedGame.moves = StorageCodec.getData(resultSet, 3, 4);
+						archivedGame.compactedNum = resultSet.getInt(5);
+					}
+				});
+				if (archivedGame.data == null) {
+					return -1;
+				}
+				
+				transaction.execute(SqlStatement.RESTORE_GAME, SqlExecutionType.UPDATE, ps -> {
+					ps.setBytes(1, archivedGame.data);
+					ps.setInt(2, archivedGame.dataCodec);
+					ps.setInt(3, archivedGame.compactedNum);
+					ps.setInt(4, id);
+				}, null);
+				
+				List<ArchivedMove> moves = decodeMoves(archivedGame.moves);
+				List<CheckedSqlConsumer<PreparedStatement>> moveSetters = new ArrayList<CheckedSqlConsumer<PreparedStatement>>();
+				for (ArchivedMove move : moves) {
+					moveSetters.add(ps -> {
+						ps.setInt(1, move.getId());
+						ps.setInt(2, move.getUserId());
+						ps.setInt(3, id);
+						StorageCodec.setData(ps, 4, 5, move.getMove());
+						ps.setInt(6, move.getNum());
+					});
+				}
+				if (!moveSetters.isEmpty()) {
+					transaction.executeBatch(SqlStatement.RESTORE_MOVE, moveSetters);
+				}
+				transaction.execute(SqlStatement.DELETE_ARCHIVED_GAME, SqlExecutionType.UPDATE, ps -> ps.setInt(1, id), null);
+				return moves.isEmpty() ? 0 : moves.get(moves.size() - 1).getNum();
+			});
+			
+			if (lastMoveNum == -1) {
+				return false;
+			}
+			GameVersionRegistry.getInstance().gameArchiveChanged(id);
+			MoveWaiterRegistry.getInstance().seed(id, lastMoveNum);
+			restoredGames.incrementAndGet();
+			LOGGER.info("game {} was restored from the archive", id);
+			return true;
+		}
+	}
+	
+	/**
+	 * Load an archived game (without restoring it).
+	 * 
+	 * @return The game (serialized as JSON).
+	 */
+	public String loadGame(int id) throws GameDataException {
+		return loadGameState(id, Integer.MAX_VALUE).getGame();
+	}
+	
+	/**
+	 * Load the state of an archived game (without restoring it): the archived game and the archived moves after the move snapshotNum.
+	 */
+	public GameState loadGameState(int id, int snapshotNum) throws GameDataException {
+		long start = System.nanoTime();
+		
+		GameState state = new GameState();
+		List<ArchivedMove> archivedMoves = new ArrayList<ArchivedMove>();
+		CheckedSqlConsumer<ResultSet> resultConsumer = resultSet -> {
+			if (resultSet.next()) {
+				state.setGame(StorageCodec.getData(resultSet, 1, 2));
+				state.setCompactedNum(resultSet.getInt(5));
+				//the moves are only decoded if the tail moves are requested
+				if (snapshotNum != Integer.MAX_VALUE) {
+					archivedMoves.addAll(decodeMoves(StorageCodec.getData(resultSet, 3, 4)));
+				}
+			}
+		};
+		DatabaseConnection.executeCheckedSQL(SqlStatement.GET_ARCHIVED_GAME, SqlExecutionType.QUERY, ps -> ps.setInt(1, id), resultConsumer);
+		if (state.getGame() == null) {
+			throw new GameDataException("the game " + id + " was not found in the archive", Cause.NOT_FOUND);
+		}
+		
+		state.setSnapshotNum(snapshotNum);
+		state.setMoves(toTailMoveList(archivedMoves, snapshotNum));
+		
+		long loadNanos = System.nanoTime() - start;
+		archiveLoads.incrementAndGet();
+		archiveLoadNanos.addAndGet(loadNanos);
+		maxArchiveLoadNanos = Math.max(maxArchiveLoadNanos, loadNanos);
+		LOGGER.debug("game {} was loaded from the archive ({} ms)", id, TimeUnit.NANOSECONDS.toMillis(loadNanos));
+		return state;
+	}
+	
+	/**
+	 * Create a move list of the archived moves after the move snapshotNum.
+	 */
+	protected static MoveList toTailMoveList(List<ArchivedMove> archivedMoves, int snapshotNum) {
+		Map<Integer, String> moves = new HashMap<Integer, String>();
+		Map<Integer, Integer> idToNum = new HashMap<Integer, Integer>();
+		Map<Integer, String> idToUsername = new HashMap<Integer, String>();
+		for (ArchivedMove move : archivedMoves) {
+			if (move.getNum() > snapshotNum) {
+				moves.put(move.getId(), move.getMove());
+				idToNum.put(move.getId(), move.getNum());
+				idToUsername.put(move.getId(), move.getUsername());
+			}
+		}
+		
+		MoveList moveList = new MoveList();
+		moveList.setMoves(moves);
+		moveList.setIdToNum(idToNum);
+		moveList.setIdToUsername(idToUsername);
+		return moveList;
+	}
+	
+	/**
+	 * Serialize the moves of a game to the JSON array that is stored in the archive.
+	 */
+	protected static String encodeMoves(List<ArchivedMove> moves) throws SQLException {
+		try {
+			return JSON_MAPPER.writeValueAsString(moves);
+		}
+		catch (IOException ioe) {
+			throw new SQLException("the archived moves couldn't be serialized", ioe);
+		}
+	}
+	
+	/**
+	 * Parse the moves of a game from the JSON array that is stored in the archive.
+	 */
+	protected static List<ArchivedMove> decodeMoves(String moves) throws SQLException {
+		try {
+			return Arrays.asList(JSON_MAPPER.readValue(moves, ArchivedMove[].class));
+		}
+		catch (IOException ioe) {
+			throw new SQLException("the archived moves couldn't be parsed", ioe);
+		}
+	}
+	
+	public Map<String, Object> getStatistics() {
+		long loads = archiveLoads.get();
+		
+		Map<String, Object> statistics = new LinkedHashMap<String, Object>();
+		statistics.put("idleArchival", idleArchival != null);
+		statistics.put("archivedGames", archivedGames.get());
+		statistics.put("restoredGames", restoredGames.get());
+		statistics.put("archiveLoads", loads);
+		statistics.put("averageArchiveLoadMillis", loads == 0 ? 0.0 : archiveLoadNanos.get() / (double) loads / 1_000_000);
+		statistics.put("maxArchiveLoadMillis", maxArchiveLoadNanos / 1_000_000.0);
+		statistics.put("failedBatches", failedBatches.get());
+		return statistics;
+	}
+}
\ No newline at end of file
@@ -1,29 +1,91 @@
 package net.jfabricationgames.genesis_project_server.game;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.sql.Date;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import net.jfabricationgames.genesis_project_server.config.ServiceConfiguration;
 import net.jfabricationgames.genesis_project_server.database.CheckedSqlConsumer;
 import net.jfabricationgames.genesis_project_server.database.DatabaseConnection;
+import net.jfabricationgames.genesis_project_server.database.RegisteredStatement;
 import net.jfabricationgames.genesis_project_server.database.SqlExecutionType;
+import net.jfabricationgames.genesis_project_server.database.SqlStatement;
+import net.jfabricationgames.genesis_project_server.database.StatementRegistry;
+import net.jfabricationgames.genesis_project_server.database.StorageCodec;
+import net.jfabricationgames.genesis_project_server.database.Transaction;
 import net.jfabricationgames.genesis_project_server.exception.GameDataException;
 import net.jfabricationgames.genesis_project_server.exception.GameDataException.Cause;
+import net.jfabricationgames.genesis_project_server.user.UserIdCache;
 
 public class GameDataManager {
 	
+	private static final Logger LOGGER = LogManager.getLogger(GameDataManager.class);
+	
+	/**
+	 * The number of attempts to set a move, if the move number is already used (by a concurrent move that was not yet known)
+	 */
+	private static final int MAX_SET_MOVE_ATTEMPTS = 3;
+	
+	/**
+	 * The number of rows that are fetched at once when a list is streamed
+	 */
+	public static final int DEFAULT_STREAM_FETCH_SIZE = 500;
+	/**
+	 * The maximum number of games or moves on a page of a paginated list
+	 */
+	public static final int DEFAULT_MAX_PAGE_SIZE = 1000;
+	/**
+	 * Indicates that a game update includes all moves that were committed before the update
+	 */
+	public static final int LAST_COMMITTED_MOVE = -1;
+	/**
+	 * Indicates that a game update includes the same moves as the stored game (e.g. because only the document of the game was patched)
+	 */
+	public static final int CURRENT_SNAPSHOT = -2;
+	
+	private static final ObjectMapper JSON_MAPPER = new ObjectMapper();
+	/**
+	 * The locks of the games (updates and patches of a game are not executed concurrently, so a patch is never applied to an outdated game)
+	 */
+	private static final Object[] GAME_LOCKS = new Object[64];
+	
+	static {
+		for (int i = 0; i < GAME_LOCKS.length; i++) {
+			GAME_LOCKS[i] = new Object();
+		}
+	}
+	
 	private String game;
+	private boolean archived;
 	private int id;
-	private boolean userExisting;
-	private boolean gameExisting;
+	private int lastMoveNumber;
+	private int storedSnapshotNum;
+	private PageCursor lastPosition;
+	private boolean hasNextPage;
 	
 	/**
-	 * Update a game in the database.
+	 * Update a game in the database. The game is stored as a snapshot that includes all moves that were committed before the update. If the
+	 * move compaction is enabled, the snapshot number of the stored game is kept (see {@link #CURRENT_SNAPSHOT}), because the moves that
+	 * were not included in the game would be removed.
 	 * 
 	 * @param id
 	 *        The id of the game that is updated.
@@ -32,20 +94,160 @@ public class GameDataManager {
 	 *        The game as JSON representation.
 	 */
 	public void updateGame(int id, String game) throws GameDataException {
-		String query = "UPDATE " + DatabaseConnection.getTable(DatabaseConnection.TABLE_GAMES) + " SET data = ? WHERE id = ?";
-		CheckedSqlConsumer<PreparedStatement> variableSetter = ps -> {
-			ps.setString(1, game);
-			ps.setInt(2, id);
-		};
+		updateGame(id, game, LAST_COMMITTED_MOVE);
+	}
+	
+	/**
+	 * Update a game in the database. The game is stored as a snapshot of the game after the move snapshotNum (the moves after this move are
+	 * the tail of the game, that is returned by {@link #getGameState(int)}).
+	 * 
+	 * @param id
+	 *        The id of the game that is updated.
+	 * 
+	 * @param game
+	 *        The game as JSON representation.
+	 * 
+	 * @param snapshotNum
+	 *        The number of the last move that is included in the game (or {@link #LAST_COMMITTED_MOVE} or {@link #CURRENT_SNAPSHOT}). If the
+	 *        move compaction is enabled, {@link #LAST_COMMITTED_MOVE} is handled like {@link #CURRENT_SNAPSHOT}, because the compaction
+	 *        removes the moves up to the snapshot (so only the moves that the client included in the game can be removed).
+	 */
+	public void updateGame(int id, String game, int snapshotNum) throws GameDataException {
+		if (snapshotNum == LAST_COMMITTED_MOVE && MoveCompactor.isEnabled()) {
+			//the included moves are not known, so the snapshot number is kept (no moves become compactable by the update)
+			updateGame(id, game, CURRENT_SNAPSHOT);
+			return;
+		}
 		
-		int affectedRows = DatabaseConnection.executeCheckedSQL(query, SqlExecutionType.UPDATE, variableSetter, null);
+		synchronized (getGameLock(id)) {
+			int lastCommittedMove = getLastCommittedMoveNumber(id);
+			if (snapshotNum > lastCommittedMove) {
+				throw new GameDataException("the move " + snapshotNum + " of the game " + id + " was not yet committed (last move: "
+						+ lastCommittedMove + ")", Cause.INVALID_REQUEST);
+			}
+			int includedMoves;
+			if (snapshotNum == LAST_COMMITTED_MOVE) {
+				includedMoves = lastCommittedMove;
+			}
+			else if (snapshotNum == CURRENT_SNAPSHOT) {
+				includedMoves = getSnapshotNum(id);
+			}
+			else {
+				includedMoves = snapshotNum;
+			}
+			
+			//a patched document of the game is outdated after the update
+			GameDocumentCache.getInstance().invalidate(id);
+			
+			//if write-behind is enabled the update is only buffered (and written to the database with the next flush)
+			GameWriteBuffer writeBuffer = GameWriteBuffer.getInstance();
+			if (writeBuffer.buffer(id, game, includedMoves)) {
+				GameVersionRegistry.getInstance().gameUpdated(id);
+				GameEventBus.getInstance().publish(GameEvent.gameUpdated(id));
+				return;
+			}
+			
+			CheckedSqlConsumer<PreparedStatement> variableSetter = ps -> {
+				StorageCodec.setData(ps, 1, 2, game);
+				ps.setInt(3, includedMoves);
+				ps.setDate(4, Date.valueOf(LocalDate.now()));
+				ps.setInt(5, id);
+			};
+			
+			int affectedRows = DatabaseConnection.executeCheckedSQL(SqlStatement.UPDATE_GAME, SqlExecutionType.UPDATE, variableSetter, null);
+			
+			//check whether a row was affected by the update (otherwise throw an exception)
+			if (affectedRows == 0) {
+				//an archived game is restored, so it can be played again
+				if (GameArchive.getInstance().restoreGame(id)) {
+					updateGame(id, game, snapshotNum);
+					return;
+				}
+				throw new GameDataException("no rows affected by update", Cause.NOT_FOUND);
+			}
+			
+			//the game exists, so the next updates can be buffered
+			writeBuffer.addKnownGame(id);
+			GameVersionRegistry.getInstance().gameUpdated(id);
+			GameEventBus.getInstance().publish(GameEvent.gameUpdated(id));
+		}
+	}
+	
+	/**
+	 * Apply a JSON Patch (RFC 6902) to a game and store the patched game.
+	 * 
+	 * @param id
+	 *        The id of the game that is patched.
+	 * 
+	 * @param version
+	 *        The tag of the game version to which the patch is applied (the tag from get_game or the last patch).
+	 * 
+	 * @param patch
+	 *        The JSON patch (an array of operations).
+	 * 
+	 * @return The tag of the patched game version.
+	 * 
+	 * @throws GameDataException
+	 *         A {@link GameDataException} with the cause CONFLICT is thrown if the game was changed since the given version (or if a test
+	 *         operation of the patch failed).
+	 */
+	public String patchGame(int id, String version, String patch) throws GameDataException {
+		JsonNode operations = parseJson(patch, "the JSON patch couldn't be parsed");
 		
-		//check whether a row was affected by the update (otherwise throw an exception)
-		if (affectedRows == 0) {
-			throw new GameDataException("no rows affected by update", Cause.NOT_FOUND);
+		GameVersionRegistry versionRegistry = GameVersionRegistry.getInstance();
+		GameDocumentCache documentCache = GameDocumentCache.getInstance();
+		synchronized (getGameLock(id)) {
+			String currentVersion = versionRegistry.getGameTag(id);
+			if (!currentVersion.equals(version)) {
+				throw new GameDataException("the game " + id + " was changed since the version " + version, Cause.CONFLICT);
+			}
+			
+			//use the document of the last patch or load the game (from the write buffer or the database)
+			JsonNode document = documentCache.get(id, currentVersion);
+			if (document == null) {
+				document = parseJson(getGame(id), "the stored game " + id + " couldn't be parsed");
+			}
+			
+			JsonNode patched;
+			try {
+				patched = JsonPatch.apply(document, operations);
+			}
+			catch (GameDataException gde) {
+				//the document may be patched partially
+				documentCache.invalidate(id);
+				throw gde;
+			}
+			
+			try {
+				//the patch doesn't include further moves in the game
+				updateGame(id, JSON_MAPPER.writeValueAsString(patched), CURRENT_SNAPSHOT);
+			}
+			catch (JsonProcessingException jpe) {
+				throw new GameDataException("the patched game couldn't be serialized", jpe, Cause.UNKNOWN);
+			}
+			
+			String patchedVersion = versionRegistry.getGameTag(id);
+			documentCache.put(id, patchedVersion, patched);
+			return patchedVersion;
+		}
+	}
+	
+	private JsonNode parseJson(String json, String errorMessage) throws GameDataException {
+		try {
+			return JSON_MAPPER.readTree(json);
+		}
+		catch (IOException ioe) {
+			throw new GameDataException(errorMessage, ioe, Cause.INVALID_REQUEST);
 		}
 	}
 	
+	/**
+	 * Get the lock of a game, that is held while the game is updated or patched (several games share one lock).
+	 */
+	static Object getGameLock(int id) {
+		return GAME_LOCKS[Math.floorMod(id, GAME_LOCKS.length)];
+	}
+	
 	/**
 	 * Get the last state of a game from the database.
 	 * 
@@ -55,91 +257,226 @@ public class GameDataManager {
 	 * @return The game (serialized as JSON)
 	 */
 	public String getGame(int id) throws GameDataException {
-		String query = "SELECT data FROM " + DatabaseConnection.getTable(DatabaseConnection.TABLE_GAMES) + " WHERE id = ?";
+		//a buffered game is newer than the game in the database
+		String bufferedGame = GameWriteBuffer.getInstance().getBufferedGame(id);
+		if (bufferedGame != null) {
+			return bufferedGame;
+		}
 		
 		CheckedSqlConsumer<PreparedStatement> variableSetter = ps -> ps.setInt(1, id);
 		CheckedSqlConsumer<ResultSet> resultConsumer = resultSet -> {
 			if (resultSet.next()) {
-				game = resultSet.getString(1);
+				game = StorageCodec.getData(resultSet, 1, 2);
+				archived = !resultSet.getBoolean(3);
 			}
 			else {
 				game = null;
+				archived = false;
 			}
 		};
 		
 		//execute the query that puts the result (the game as json string) in the global field game
-		DatabaseConnection.executeCheckedSQL(query, SqlExecutionType.QUERY, variableSetter, resultConsumer);
+		DatabaseConnection.executeCheckedSQL(SqlStatement.GET_GAME, SqlExecutionType.QUERY, variableSetter, resultConsumer);
 		
 		if (game == null) {
 			throw new GameDataException("result was not found", Cause.NOT_FOUND);
 		}
+		if (archived) {
+			//only a stub of the game is stored in the games table
+			return GameArchive.getInstance().loadGame(id);
+		}
 		
 		return game;
 	}
 	
 	/**
-	 * Create a new game.
+	 * Get the state of a game, that consists of the last snapshot of the game and the moves that were committed after the snapshot (the
+	 * snapshot and the moves are loaded in one transaction, so they are consistent).
 	 * 
-	 * @param players
-	 *        The usernames of all players that take part in the game.
+	 * @param id
+	 *        The id of the game that is to be loaded.
 	 * 
-	 * @return The ID of the game in the database.
+	 * @return The {@link GameState} of the game.
 	 */
-	public int createGame(List<String> players) throws GameDataException {
-		//check whether all players are existing in the database
-		boolean allUsersExisting = true;
-		for (String player : players) {
-			allUsersExisting &= isUserExisting(player);
-		}
+	public GameState getGameState(int id) throws GameDataException {
+		//a buffered game is newer than the game in the database
+		GameState bufferedState = GameWriteBuffer.getInstance().getBufferedState(id);
 		
-		if (!allUsersExisting) {
-			throw new GameDataException("At least one of the players doesn't exist in the database", Cause.NOT_FOUND);
-		}
+		archived = false;
+		GameState state = DatabaseConnection.executeCheckedTransaction(transaction -> {
+			GameState storedState = new GameState();
+			CheckedSqlConsumer<PreparedStatement> variableSetter = ps -> ps.setInt(1, id);
+			CheckedSqlConsumer<ResultSet> resultConsumer = resultSet -> {
+				if (resultSet.next()) {
+					storedState.setGame(StorageCodec.getData(resultSet, 1, 2));
+					storedState.setSnapshotNum(resultSet.getInt(3));
+					storedState.setCompactedNum(resultSet.getInt(4));
+					archived = !resultSet.getBoolean(5);
+				}
+			};
+			transaction.execute(SqlStatement.GET_GAME_SNAPSHOT, SqlExecutionType.QUERY, variableSetter, resultConsumer);
+			if (storedState.getGame() == null || archived) {
+				return storedState;
+			}
+			
+			if (bufferedState != null) {
+				storedState.setGame(bufferedState.getGame());
+				storedState.setSnapshotNum(bufferedState.getSnapshotNum());
+			}
+			storedState.setMoves(loadTailMoves(transaction, id, storedState.getSnapshotNum()));
+			return storedState;
+		});
 		
-		String queryCreateGame = "INSERT INTO " + DatabaseConnection.getTable(DatabaseConnection.TABLE_GAMES)
-				+ " (id, active, started, last_played, data) VALUES (0, 1, ?, ?, '')";
+		if (state.getGame() == null) {
+			throw new GameDataException("result was not found", Cause.NOT_FOUND);
+		}
+		if (archived) {
+			//the game and its moves are loaded from the archive
+			return GameArchive.getInstance().loadGameState(id, state.getSnapshotNum());
+		}
+		return state;
+	}
+	
+	/**
+	 * Load the moves of a game that were made after the move snapshotNum.
+	 */
+	private MoveList loadTailMoves(Transaction transaction, int gameId, int snapshotNum) throws SQLException {
+		Map<Integer, String> moves = new HashMap<Integer, String>();
+		Map<Integer, Integer> idToNum = new HashMap<Integer, Integer>();
+		Map<Integer, String> idToUsername = new HashMap<Integer, String>();
 		
 		CheckedSqlConsumer<PreparedStatement> variableSetter = ps -> {
-			ps.setDate(1, Date.valueOf(LocalDate.now()));
-			ps.setDate(2, Date.valueOf(LocalDate.now()));
+			ps.setInt(1, gameId);
+			ps.setInt(2, snapshotNum);
 		};
 		CheckedSqlConsumer<ResultSet> resultConsumer = resultSet -> {
-			if (resultSet.next()) {
-				id = resultSet.getInt(1);
-			}
-			else {
-				id = -1;
+			while (resultSet.next()) {
+				int id = resultSet.getInt(1);
+				moves.put(id, StorageCodec.getData(resultSet, 3, 5));
+				idToNum.put(id, resultSet.getInt(2));
+				idToUsername.put(id, resultSet.getString(4));
 			}
 		};
+		transaction.execute(SqlStatement.LIST_TAIL_MOVES, SqlExecutionType.QUERY, variableSetter, resultConsumer);
 		
-		//create the new game
-		DatabaseConnection.executeCheckedSQL(queryCreateGame, SqlExecutionType.CREATE, variableSetter, resultConsumer);
-		
-		if (id == -1) {
-			throw new GameDataException("game could not be created", Cause.UNKNOWN);
-		}
-		
-		String queryCreatePlayers = "INSERT INTO " + DatabaseConnection.getTable(DatabaseConnection.TABLE_PLAYERS)
-				+ " (user_id, game_id) VALUES ((SELECT id FROM " + DatabaseConnection.getTable(DatabaseConnection.TABLE_USERS)
-				+ " u WHERE u.username = ?), ?)";
-		//add all players that participate in the game
-		int affectedRows = 0;
-		for (String player : players) {
-			variableSetter = ps -> {
-				ps.setString(1, player);
-				ps.setInt(2, id);
+		MoveList moveList = new MoveList();
+		moveList.setMoves(moves);
+		moveList.setIdToNum(idToNum);
+		moveList.setIdToUsername(idToUsername);
+		return moveList;
+	}
+	
+	/**
+	 * Create a new game.
+	 * 
+	 * @param players
+	 *        The usernames of all players that take part in the game.
+	 * 
+	 * @return The ID of the game in the database.
+	 */
+	public int createGame(List<String> players) throws GameDataException {
+		//create the game and the players in one transaction (so the game is not created if one of the players doesn't exist)
+		int gameId = DatabaseConnection.executeCheckedTransaction(transaction -> {
+			//resolve the ids of the players from the user id cache and load only the ids of the players that are not cached
+			UserIdCache userIdCache = UserIdCache.getInstance();
+			Map<String, Integer> userIds = new TreeMap<String, Integer>(String.CASE_INSENSITIVE_ORDER);
+			List<String> uncachedPlayers = new ArrayList<String>();
+			for (String player : players) {
+				Integer cachedUserId = userIdCache.getCachedUserId(player);
+				if (cachedUserId == null) {
+					uncachedPlayers.add(player);
+				}
+				else if (cachedUserId == UserIdCache.UNKNOWN_USER) {
+					throw new GameDataException("At least one of the players doesn't exist in the database", Cause.NOT_FOUND);
+				}
+				else {
+					userIds.put(player, cachedUserId);
+				}
+			}
+			
+			if (!uncachedPlayers.isEmpty()) {
+				//load the ids of all uncached players in one query (the usernames are compared case insensitive, like in the database)
+				CheckedSqlConsumer<PreparedStatement> variableSetter = ps -> {
+					for (int i = 0; i < uncachedPlayers.size(); i++) {
+						ps.setString(i + 1, uncachedPlayers.get(i));
+					}
+				};
+				CheckedSqlConsumer<ResultSet> resultConsumer = resultSet -> {
+					while (resultSet.next()) {
+						userIds.put(resultSet.getString(2), resultSet.getInt(1));
+						userIdCache.put(resultSet.getString(2), resultSet.getInt(1));
+					}
+				};
+				transaction.execute(getUserIdsStatement(transaction.getStatementRegistry(), uncachedPlayers.size()), SqlExecutionType.QUERY,
+						variableSetter, resultConsumer);
+			}
+			
+			//check whether all players are existing in the database
+			for (String player : uncachedPlayers) {
+				if (!userIds.containsKey(player)) {
+					userIdCache.putUnknown(player);
+					throw new GameDataException("At least one of the players doesn't exist in the database", Cause.NOT_FOUND);
+				}
+			}
+			
+			//create the new game
+			CheckedSqlConsumer<PreparedStatement> variableSetter = ps -> {
+				ps.setDate(1, Date.valueOf(LocalDate.now()));
+				ps.setDate(2, Date.valueOf(LocalDate.now()));
+			};
+			CheckedSqlConsumer<ResultSet> resultConsumer = resultSet -> {
+				if (resultSet.next()) {
+					id = resultSet.getInt(1);
+				}
+				else {
+					id = -1;
+				}
 			};
+			transaction.execute(SqlStatement.CREATE_GAME, SqlExecutionType.CREATE, variableSetter, resultConsumer);
 			
-			//create the player
-			affectedRows = DatabaseConnection.executeCheckedSQL(queryCreatePlayers, SqlExecutionType.UPDATE, variableSetter, null);
+			if (id == -1) {
+				throw new GameDataException("game could not be created", Cause.UNKNOWN);
+			}
 			
-			//check whether a row was affected by the update (otherwise throw an exception)
-			if (affectedRows == 0) {
-				throw new GameDataException("no rows affected by update", Cause.NOT_FOUND);
+			//add all players that participate in the game (in one batch)
+			List<CheckedSqlConsumer<PreparedStatement>> playerSetters = new ArrayList<CheckedSqlConsumer<PreparedStatement>>();
+			for (String player : players) {
+				playerSetters.add(ps -> {
+					ps.setInt(1, userIds.get(player));
+					ps.setInt(2, id);
+				});
 			}
+			int createdPlayers = transaction.executeBatch(SqlStatement.CREATE_PLAYER, playerSetters);
+			
+			//check whether all players were created (otherwise throw an exception)
+			if (createdPlayers != players.size()) {
+				throw new GameDataException("not all players could be added to the game", Cause.UNKNOWN);
+			}
+			
+			return id;
+		});
+		GameWriteBuffer.getInstance().addKnownGame(gameId);
+		GameVersionRegistry.getInstance().gameCreated(gameId);
+		GameEventBus.getInstance().gameCreated(gameId, players);
+		return gameId;
+	}
+	
+	/**
+	 * Get the query that loads the ids of several users from the {@link StatementRegistry} (there is one query for every number of users).
+	 */
+	private RegisteredStatement getUserIdsStatement(StatementRegistry registry, int numUsers) {
+		return registry.getOrRegister("GET_USER_IDS[" + numUsers + "]", () -> buildUserIdsQuery(numUsers, registry.getTable(DatabaseConnection.TABLE_USERS)));
+	}
+	protected String buildUserIdsQuery(int numUsers, String tableUsers) {
+		StringBuilder sb = new StringBuilder("SELECT id, username FROM " + tableUsers + " WHERE username IN (");
+		for (int i = 0; i < numUsers; i++) {
+			if (i > 0) {
+				sb.append(", ");
+			}
+			sb.append("?");
 		}
-		
-		return id;
+		sb.append(")");
+		return sb.toString();
 	}
 	
 	/**
@@ -155,38 +492,125 @@ public class GameDataManager {
 	 *        The move in JSON representation.
 	 */
 	public void setMove(int gameId, String username, String move) throws GameDataException {
-		if (!isUserExisting(username)) {
+		//resolve the user by the user id cache (so the user doesn't have to be looked up in the insert)
+		int userId = UserIdCache.getInstance().getUserId(username);
+		if (userId == UserIdCache.UNKNOWN_USER) {
 			throw new GameDataException("the user " + username + " doesn't exist in the database", Cause.NOT_FOUND);
 		}
-		if (!isGameExisting(gameId)) {
-			throw new GameDataException("a game with the id " + gameId + " doesn't exist in the database", Cause.NOT_FOUND);
-		}
 		
-		//get the last move of the game (of any user) to find the number of the next move
-		MoveList moveList = listMoves(gameId, "-", 1);
-		int num = 1;
-		Iterator<Integer> numKeys = moveList.getIdToNum().values().iterator();
-		if (numKeys.hasNext()) {
-			num = numKeys.next() + 1;
+		MoveNumberSequence moveNumberSequence = MoveNumberSequence.getInstance();
+		for (int attempt = 1;; attempt++) {
+			try {
+				int num = DatabaseConnection.executeCheckedTransaction(transaction -> {
+					if (!moveNumberSequence.isSeeded(gameId)) {
+						//seed the sequence with the number of the last move in the database (only once per game)
+						moveNumberSequence.seed(gameId, loadLastMoveNumber(transaction, gameId));
+					}
+					int moveNumber = moveNumberSequence.next(gameId);
+					
+					//insert the move (the game is resolved in the insert, so nothing is inserted if the game doesn't exist)
+					CheckedSqlConsumer<PreparedStatement> variableSetter = ps -> {
+						ps.setInt(1, userId);
+						StorageCodec.setData(ps, 2, 3, move);
+						ps.setInt(4, moveNumber);
+						ps.setInt(5, gameId);
+					};
+					int affectedRows = transaction.execute(SqlStatement.CREATE_MOVE, SqlExecutionType.UPDATE, variableSetter, null);
+					
+					//check whether a row was affected by the update (otherwise throw an exception)
+					if (affectedRows == 0) {
+						//the game might not exist, so the sequence is not kept
+						moveNumberSequence.reset(gameId);
+						throw new GameDataException("the game " + gameId + " doesn't exist in the database", Cause.NOT_FOUND);
+					}
+					
+					return moveNumber;
+				});
+				GameVersionRegistry.getInstance().moveSet(gameId);
+				//wake up the requests that wait for this move (after the commit, so they can load it)
+				MoveWaiterRegistry.getInstance().moveCommitted(gameId, num);
+				GameEventBus.getInstance().publish(GameEvent.moveSet(gameId, num, username));
+				LOGGER.debug("move {} was set in game {}", num, gameId);
+				return;
+			}
+			catch (GameDataException gde) {
+				if (gde.getCause() instanceof SQLIntegrityConstraintViolationException && attempt < MAX_SET_MOVE_ATTEMPTS) {
+					//the move number was already used (the sequence was seeded with an outdated value), so the sequence is seeded again
+					LOGGER.warn("move number in game {} was already used; retrying with a new sequence (attempt {})", gameId, attempt);
+					moveNumberSequence.reset(gameId);
+				}
+				else if (gde.getGameDataExceptionCause() == Cause.NOT_FOUND && attempt < MAX_SET_MOVE_ATTEMPTS
+						&& GameArchive.getInstance().restoreGame(gameId)) {
+					//the game was archived and is restored, so it can be played again
+					LOGGER.info("game {} was restored from the archive to set a move", gameId);
+				}
+				else {
+					throw gde;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Get the number of the last move of a game that is stored in the database (or 0 if there are no moves yet).
+	 */
+	public int getLastMoveNumber(int gameId) throws GameDataException {
+		return DatabaseConnection.executeCheckedTransaction(transaction -> loadLastMoveNumber(transaction, gameId));
+	}
+	
+	/**
+	 * Get the number of the last committed move of a game (from the {@link MoveWaiterRegistry}; the registry is seeded from the database if
+	 * the number is not yet known).
+	 */
+	private int getLastCommittedMoveNumber(int gameId) throws GameDataException {
+		MoveWaiterRegistry registry = MoveWaiterRegistry.getInstance();
+		int lastMoveNumber = registry.getLastMoveNum(gameId);
+		if (lastMoveNumber == MoveWaiterRegistry.UNKNOWN) {
+			registry.seed(gameId, getLastMoveNumber(gameId));
+			lastMoveNumber = registry.getLastMoveNum(gameId);
+		}
+		return lastMoveNumber;
+	}
+	
+	/**
+	 * Get the number of the last move that is included in the stored game (from the write buffer or the database; 0 if the game doesn't
+	 * exist).
+	 */
+	private int getSnapshotNum(int gameId) throws GameDataException {
+		GameState bufferedState = GameWriteBuffer.getInstance().getBufferedState(gameId);
+		if (bufferedState != null) {
+			return bufferedState.getSnapshotNum();
 		}
-		final int finalNum = num;
 		
-		String query = "INSERT INTO " + DatabaseConnection.getTable(DatabaseConnection.TABLE_MOVES)
-				+ " (user_id, game_id, move, num) VALUES ((SELECT u.id FROM " + DatabaseConnection.getTable(DatabaseConnection.TABLE_USERS)
-				+ " u WHERE u.username = ?), ?, ?, ?)";
+		CheckedSqlConsumer<PreparedStatement> variableSetter = ps -> ps.setInt(1, gameId);
+		CheckedSqlConsumer<ResultSet> resultConsumer = resultSet -> {
+			if (resultSet.next()) {
+				storedSnapshotNum = resultSet.getInt(1);
+			}
+		};
+		
+		storedSnapshotNum = 0;
+		DatabaseConnection.executeCheckedSQL(SqlStatement.GET_SNAPSHOT_NUM, SqlExecutionType.QUERY, variableSetter, resultConsumer);
+		return storedSnapshotNum;
+	}
+	
+	/**
+	 * Load the number of the last move of a game (or 0 if there are no moves yet).
+	 */
+	private int loadLastMoveNumber(Transaction transaction, int gameId) throws SQLException {
 		CheckedSqlConsumer<PreparedStatement> variableSetter = ps -> {
-			ps.setString(1, username);
+			ps.setInt(1, gameId);
 			ps.setInt(2, gameId);
-			ps.setString(3, move);
-			ps.setInt(4, finalNum);
+		};
+		CheckedSqlConsumer<ResultSet> resultConsumer = resultSet -> {
+			if (resultSet.next()) {
+				lastMoveNumber = resultSet.getInt(1);
+			}
 		};
 		
-		int affectedRows = DatabaseConnection.executeCheckedSQL(query, SqlExecutionType.UPDATE, variableSetter, null);
-		
-		//check whether a row was affected by the update (otherwise throw an exception)
-		if (affectedRows == 0) {
-			throw new GameDataException("no rows affected by update", Cause.NOT_FOUND);
-		}
+		lastMoveNumber = 0;
+		transaction.execute(SqlStatement.GET_LAST_MOVE_NUMBER, SqlExecutionType.QUERY, variableSetter, resultConsumer);
+		return lastMoveNumber;
 	}
 	
 	/**
@@ -202,8 +626,8 @@ public class GameDataManager {
 	 */
 	public GameList listGames(boolean complete, String username) throws GameDataException {
 		boolean allUsers = username == null || username.equals("") || username.equals("-");
-		//build the query (depending on the parameters)
-		String query = buildGameListQuery(complete, username);
+		//get the query (that depends on the parameters) from the registry
+		RegisteredStatement query = getGameListStatement(complete, allUsers);
 		
 		Map<Integer, String> games = new HashMap<Integer, String>();
 		Map<Integer, LocalDate> started = new HashMap<Integer, LocalDate>();
@@ -222,7 +646,7 @@ public class GameDataManager {
 				LocalDate lastPlayedDate = resultSet.getDate(3).toLocalDate();
 				String game = null;
 				if (complete) {
-					game = resultSet.getString(4);
+					game = StorageCodec.getData(resultSet, 4, 5);
 				}
 				
 				//add the results to the maps
@@ -242,24 +666,182 @@ public class GameDataManager {
 		gameList.setLastPlayed(lastPlayed);
 		return gameList;
 	}
+	
+	/**
+	 * Get a page of the games in the database (newest games first). The pages are selected by the id of the last game of the previous page
+	 * (keyset pagination), so the database doesn't have to skip the games of the previous pages.
+	 * 
+	 * @param complete
+	 *        Indicates whether complete games (true) or only ids (false) are requested.
+	 * 
+	 * @param username
+	 *        The name of a user to search for user specific games ('-' for all users).
+	 * 
+	 * @param pageSize
+	 *        The maximum number of games on the page.
+	 * 
+	 * @param cursor
+	 *        The cursor of the previous page (or null for the first page).
+	 * 
+	 * @return A {@link GamePage} that contains the games and the cursor of the next page.
+	 */
+	public GamePage listGamesPage(boolean complete, String username, int pageSize, String cursor) throws GameDataException {
+		boolean allUsers = username == null || username.equals("") || username.equals("-");
+		boolean firstPage = cursor == null || cursor.equals("");
+		PageCursor previousPage = firstPage ? null : PageCursor.decodeGameCursor(cursor);
+		int limit = checkPageSize(pageSize);
+		
+		StatementRegistry registry = DatabaseConnection.getCheckedStatementRegistry();
+		String name = "LIST_GAMES_PAGE[complete=" + complete + ", allUsers=" + allUsers + ", firstPage=" + firstPage + "]";
+		RegisteredStatement query = registry.getOrRegister(name,
+				() -> buildGamePageQuery(complete, allUsers, firstPage, registry.getTable(DatabaseConnection.TABLE_GAMES),
+						registry.getTable(DatabaseConnection.TABLE_PLAYERS), registry.getTable(DatabaseConnection.TABLE_USERS)));
+		
+		Map<Integer, String> games = new LinkedHashMap<Integer, String>();
+		Map<Integer, LocalDate> started = new LinkedHashMap<Integer, LocalDate>();
+		Map<Integer, LocalDate> lastPlayed = new LinkedHashMap<Integer, LocalDate>();
+		
+		CheckedSqlConsumer<PreparedStatement> variableSetter = ps -> {
+			int position = 1;
+			if (!allUsers) {
+				ps.setString(position, username);
+				position++;
+			}
+			if (!firstPage) {
+				ps.setInt(position, previousPage.getGameId());
+				position++;
+			}
+			//load one more game to know whether there is a next page
+			ps.setInt(position, limit + 1);
+		};
+		CheckedSqlConsumer<ResultSet> resultConsumer = resultSet -> {
+			lastPosition = null;
+			while (games.size() < limit && resultSet.next()) {
+				int id = resultSet.getInt(1);
+				games.put(id, complete ? StorageCodec.getData(resultSet, 4, 5) : null);
+				started.put(id, resultSet.getDate(2).toLocalDate());
+				lastPlayed.put(id, resultSet.getDate(3).toLocalDate());
+				lastPosition = PageCursor.forGame(id);
+			}
+			//if there is one more game, the next page continues after the last game of this page
+			hasNextPage = games.size() == limit && resultSet.next();
+		};
+		
+		DatabaseConnection.executeCheckedSQL(query, SqlExecutionType.QUERY, variableSetter, resultConsumer);
+		
+		GameList gameList = new GameList();
+		gameList.setGames(games);
+		gameList.setStarted(started);
+		gameList.setLastPlayed(lastPlayed);
+		
+		GamePage page = new GamePage();
+		page.setGames(gameList);
+		page.setNextCursor(hasNextPage ? lastPosition.encode() : null);
+		return page;
+	}
+	protected String buildGamePageQuery(boolean complete, boolean allUsers, boolean firstPage, String tableGames, String tablePlayers,
+			String tableUsers) {
+		StringBuilder sb = new StringBuilder(buildGameListQuery(complete, allUsers ? "-" : "", tableGames, tablePlayers, tableUsers));
+		if (!firstPage) {
+			sb.append(" AND g.id < ?");
+		}
+		sb.append(" ORDER BY g.id DESC LIMIT ?");
+		return sb.toString();
+	}
+	
+	/**
+	 * Check the requested page size and limit it to the maximum page size.
+	 */
+	private int checkPageSize(int pageSize) throws GameDataException {
+		if (pageSize < 1) {
+			throw new GameDataException("the page size has to be positive (was: " + pageSize + ")", Cause.INVALID_REQUEST);
+		}
+		return Math.min(pageSize, ServiceConfiguration.getInstance().getInt("pagination.max_page_size", DEFAULT_MAX_PAGE_SIZE));
+	}
+	
+	/**
+	 * Write the games in the database to a JSON generator (as an array of game objects). The rows are read in chunks and written directly,
+	 * so the games are never held in memory completely.
+	 * 
+	 * @param complete
+	 *        Indicates whether complete games (true) or only ids (false) are requested.
+	 * 
+	 * @param username
+	 *        The name of a user to search for user specific games ('-' for all users).
+	 * 
+	 * @param generator
+	 *        The generator to which the games are written.
+	 */
+	public void streamGames(boolean complete, String username, JsonGenerator generator) throws GameDataException, IOException {
+		boolean allUsers = username == null || username.equals("") || username.equals("-");
+		RegisteredStatement query = getGameListStatement(complete, allUsers, true);
+		
+		CheckedSqlConsumer<PreparedStatement> variableSetter = ps -> {
+			ps.setFetchSize(getStreamFetchSize());
+			if (!allUsers) {
+				ps.setString(1, username);
+			}
+		};
+		CheckedSqlConsumer<ResultSet> resultConsumer = resultSet -> {
+			try {
+				generator.writeStartArray();
+				while (resultSet.next()) {
+					generator.writeStartObject();
+					generator.writeNumberField("id", resultSet.getInt(1));
+					generator.writeStringField("started", resultSet.getDate(2).toLocalDate().toString());
+					generator.writeStringField("lastPlayed", resultSet.getDate(3).toLocalDate().toString());
+					if (complete) {
+						generator.writeStringField("game", StorageCodec.getData(resultSet, 4, 5));
+					}
+					generator.writeEndObject();
+				}
+				generator.writeEndArray();
+			}
+			catch (IOException ioe) {
+				throw new UncheckedIOException(ioe);
+			}
+		};
+		
+		executeStreamingQuery(query, variableSetter, resultConsumer);
+	}
+	
+	/**
+	 * Get the game list query for the parameters from the {@link StatementRegistry} (the query is built only on the first request).
+	 */
+	private RegisteredStatement getGameListStatement(boolean complete, boolean allUsers) throws GameDataException {
+		return getGameListStatement(complete, allUsers, false);
+	}
+	/**
+	 * Get the game list query from the {@link StatementRegistry}. Streaming queries are registered separately, because they keep the fetch size
+	 * that is set on the cached statement.
+	 */
+	private RegisteredStatement getGameListStatement(boolean complete, boolean allUsers, boolean streaming) throws GameDataException {
+		StatementRegistry registry = DatabaseConnection.getCheckedStatementRegistry();
+		String name = (streaming ? "STREAM_GAMES" : "LIST_GAMES") + "[complete=" + complete + ", allUsers=" + allUsers + "]";
+		return registry.getOrRegister(name, () -> buildGameListQuery(complete, allUsers ? "-" : "", registry.getTable(DatabaseConnection.TABLE_GAMES),
+				registry.getTable(DatabaseConnection.TABLE_PLAYERS), registry.getTable(DatabaseConnection.TABLE_USERS)));
+	}
 	protected String buildGameListQuery(boolean complete, String username) throws GameDataException {
 		String tableGames = DatabaseConnection.getTable(DatabaseConnection.TABLE_GAMES);
 		String tablePlayers = DatabaseConnection.getTable(DatabaseConnection.TABLE_PLAYERS);
 		String tableUsers = DatabaseConnection.getTable(DatabaseConnection.TABLE_USERS);
 		return buildGameListQuery(complete, username, tableGames, tablePlayers, tableUsers);
 	}
-	protected String buildGameListQuery(boolean complete, String username, String tableGames, String tablePlayers, String tableUsers)
-			throws GameDataException {
+	protected String buildGameListQuery(boolean complete, String username, String tableGames, String tablePlayers, String tableUsers) {
 		boolean allUsers = username.equals("-");
 		StringBuilder sb = new StringBuilder("SELECT g.id, g.started, g.last_played");
 		if (complete) {
-			sb.append(", g.data");
+			sb.append(", g.data, g.data_codec");
 		}
 		sb.append(" FROM " + tableGames + " g");
 		if (!allUsers) {
 			sb.append(" JOIN " + tablePlayers + " p ON g.id = p.game_id");
 			sb.append(" JOIN " + tableUsers + " u ON u.id = p.user_id");
-			sb.append(" WHERE u.username = ?");
+		}
+		//archived games are not listed
+		sb.append(" WHERE g.active = 1");
+		if (!allUsers) {
+			sb.append(" AND u.username = ?");
 		}
 		return sb.toString();
 	}
@@ -283,7 +865,7 @@ public class GameDataManager {
 		boolean allUsers = username == null || username.equals("") || username.equals("-");
 		boolean allMoves = num == -1;
 		
-		String query = buildMoveListQuery(allGames, allUsers, allMoves);
+		RegisteredStatement query = getMoveListStatement(allGames, allUsers, allMoves);
 		
 		Map<Integer, String> moves = new HashMap<Integer, String>();
 		Map<Integer, Integer> idToNum = new HashMap<Integer, Integer>();
@@ -309,7 +891,7 @@ public class GameDataManager {
 			while (resultSet.next()) {
 				int id = resultSet.getInt(1);
 				int moveNum = resultSet.getInt(2);
-				String move = resultSet.getString(3);
+				String move = StorageCodec.getData(resultSet, 3, 5);
 				String name = resultSet.getString(4);
 				
 				//add the results to the maps
@@ -330,6 +912,239 @@ public class GameDataManager {
 		return moveList;
 	}
 	
+	/**
+	 * Get all moves of a game with a number higher than afterNum (in the order of their numbers). The moves are not limited by the number of
+	 * the move that signalled a waiting request, because more moves can be committed before the moves are loaded.
+	 * 
+	 * @param gameId
+	 *        The id of the game from which the moves should be searched.
+	 * 
+	 * @param afterNum
+	 *        The number of the last move that is already known (only moves with a higher number are returned).
+	 * 
+	 * @return A {@link MoveList} including the moves.
+	 */
+	public MoveList listMovesAfter(int gameId, int afterNum) throws GameDataException {
+		return DatabaseConnection.executeCheckedTransaction(transaction -> loadTailMoves(transaction, gameId, afterNum));
+	}
+	
+	/**
+	 * Get a page of the moves in the database (last made moves first; ordered by the game id if the moves of all games are requested). The
+	 * pages are selected by the game id and the number of the last move of the previous page (keyset pagination on the moveInGame index), so
+	 * the database doesn't have to skip the moves of the previous pages.
+	 * 
+	 * @param gameId
+	 *        The id of the game from which the moves should be searched (-1 for all moves of all games).
+	 * 
+	 * @param username
+	 *        The name of the user from which the moves should be searched ('-' for all users of the game).
+	 * 
+	 * @param pageSize
+	 *        The maximum number of moves on the page.
+	 * 
+	 * @param cursor
+	 *        The cursor of the previous page (or null for the first page).
+	 * 
+	 * @return A {@link MovePage} that contains the moves and the cursor of the next page.
+	 */
+	public MovePage listMovesPage(int gameId, String username, int pageSize, String cursor) throws GameDataException {
+		boolean allGames = gameId == -1;
+		boolean allUsers = username == null || username.equals("") || username.equals("-");
+		boolean firstPage = cursor == null || cursor.equals("");
+		PageCursor previousPage = firstPage ? null : PageCursor.decodeMoveCursor(cursor);
+		int limit = checkPageSize(pageSize);
+		
+		StatementRegistry registry = DatabaseConnection.getCheckedStatementRegistry();
+		String name = "LIST_MOVES_PAGE[allGames=" + allGames + ", allUsers=" + allUsers + ", firstPage=" + firstPage + "]";
+		RegisteredStatement query = registry.getOrRegister(name, () -> buildMovePageQuery(allGames, allUsers, firstPage,
+				registry.getTable(DatabaseConnection.TABLE_MOVES), registry.getTable(DatabaseConnection.TABLE_USERS)));
+		
+		Map<Integer, String> moves = new LinkedHashMap<Integer, String>();
+		Map<Integer, Integer> idToNum = new LinkedHashMap<Integer, Integer>();
+		Map<Integer, String> idToUsername = new LinkedHashMap<Integer, String>();
+		
+		CheckedSqlConsumer<PreparedStatement> variableSetter = ps -> {
+			int position = 1;
+			if (!allUsers) {
+				ps.setString(position, username);
+				position++;
+			}
+			if (!allGames) {
+				ps.setInt(position, gameId);
+				position++;
+			}
+			if (!firstPage) {
+				if (allGames) {
+					ps.setInt(position, previousPage.getGameId());
+					ps.setInt(position + 1, previousPage.getGameId());
+					position += 2;
+				}
+				ps.setInt(position, previousPage.getNum());
+				position++;
+			}
+			//load one more move to know whether there is a next page
+			ps.setInt(position, limit + 1);
+		};
+		CheckedSqlConsumer<ResultSet> resultConsumer = resultSet -> {
+			lastPosition = null;
+			while (moves.size() < limit && resultSet.next()) {
+				int id = resultSet.getInt(1);
+				int moveNum = resultSet.getInt(2);
+				moves.put(id, StorageCodec.getData(resultSet, 3, 6));
+				idToNum.put(id, moveNum);
+				idToUsername.put(id, resultSet.getString(4));
+				lastPosition = PageCursor.forMove(resultSet.getInt(5), moveNum);
+			}
+			//if there is one more move, the next page continues after the last move of this page
+			hasNextPage = moves.size() == limit && resultSet.next();
+		};
+		
+		DatabaseConnection.executeCheckedSQL(query, SqlExecutionType.QUERY, variableSetter, resultConsumer);
+		
+		MoveList moveList = new MoveList();
+		moveList.setMoves(moves);
+		moveList.setIdToNum(idToNum);
+		moveList.setIdToUsername(idToUsername);
+		
+		MovePage page = new MovePage();
+		page.setMoves(moveList);
+		page.setNextCursor(hasNextPage ? lastPosition.encode() : null);
+		return page;
+	}
+	protected String buildMovePageQuery(boolean allGames, boolean allUsers, boolean firstPage, String tableMoves, String tableUsers) {
+		StringBuilder sb = new StringBuilder("SELECT m.id, m.num, m.move, u.username, m.game_id, m.move_codec FROM " + tableMoves + " m JOIN "
+				+ tableUsers + " u ON u.id = m.user_id WHERE");
+		
+		List<String> conditions = new ArrayList<String>();
+		if (!allUsers) {
+			conditions.add("u.username = ?");
+		}
+		if (!allGames) {
+			conditions.add("m.game_id = ?");
+		}
+		if (!firstPage) {
+			//continue after the last move of the previous page
+			if (allGames) {
+				conditions.add("(m.game_id < ? OR (m.game_id = ? AND m.num < ?))");
+			}
+			else {
+				conditions.add("m.num < ?");
+			}
+		}
+		
+		if (conditions.isEmpty()) {
+			//no conditions -> WHERE 1
+			sb.append(" 1");
+		}
+		else {
+			sb.append(" " + String.join(" AND ", conditions));
+		}
+		
+		//order the result by the moveInGame index (game_id, num)
+		if (allGames) {
+			sb.append(" ORDER BY m.game_id DESC, m.num DESC");
+		}
+		else {
+			sb.append(" ORDER BY m.num DESC");
+		}
+		sb.append(" LIMIT ?");
+		
+		return sb.toString();
+	}
+	
+	/**
+	 * Write the moves in the database to a JSON generator (as an array of move objects). The rows are read in chunks and written directly,
+	 * so the moves are never held in memory completely.
+	 * 
+	 * @param gameId
+	 *        The id of the game from which the moves should be searched (-1 for all moves of all games).
+	 * 
+	 * @param username
+	 *        The name of the user from which the moves should be searched ('-' for all users of the game).
+	 * 
+	 * @param numMoves
+	 *        The number of moves that should be searched (last made moves first; -1 for all moves of the game and/or user).
+	 * 
+	 * @param generator
+	 *        The generator to which the moves are written.
+	 */
+	public void streamMoves(int gameId, String username, int num, JsonGenerator generator) throws GameDataException, IOException {
+		boolean allGames = gameId == -1;
+		boolean allUsers = username == null || username.equals("") || username.equals("-");
+		boolean allMoves = num == -1;
+		
+		RegisteredStatement query = getMoveListStatement(allGames, allUsers, allMoves, true);
+		
+		CheckedSqlConsumer<PreparedStatement> variableSetter = ps -> {
+			ps.setFetchSize(getStreamFetchSize());
+			int position = 1;
+			if (!allUsers) {
+				ps.setString(position, username);
+				position++;
+			}
+			if (!allGames) {
+				ps.setInt(position, gameId);
+				position++;
+			}
+			if (!allMoves) {
+				ps.setInt(position, num);
+				position++;
+			}
+		};
+		CheckedSqlConsumer<ResultSet> resultConsumer = resultSet -> {
+			try {
+				generator.writeStartArray();
+				while (resultSet.next()) {
+					generator.writeStartObject();
+					generator.writeNumberField("id", resultSet.getInt(1));
+					generator.writeNumberField("num", resultSet.getInt(2));
+					generator.writeStringField("username", resultSet.getString(4));
+					generator.writeStringField("move", StorageCodec.getData(resultSet, 3, 5));
+					generator.writeEndObject();
+				}
+				generator.writeEndArray();
+			}
+			catch (IOException ioe) {
+				throw new UncheckedIOException(ioe);
+			}
+		};
+		
+		executeStreamingQuery(query, variableSetter, resultConsumer);
+	}
+	
+	/**
+	 * Execute a query whose result consumer writes to a stream (the IOExceptions of the stream are passed through).
+	 */
+	private void executeStreamingQuery(RegisteredStatement query, CheckedSqlConsumer<PreparedStatement> variableSetter,
+			CheckedSqlConsumer<ResultSet> resultConsumer) throws GameDataException, IOException {
+		try {
+			DatabaseConnection.executeCheckedSQL(query, SqlExecutionType.QUERY, variableSetter, resultConsumer);
+		}
+		catch (UncheckedIOException uioe) {
+			throw uioe.getCause();
+		}
+	}
+	
+	private int getStreamFetchSize() {
+		return ServiceConfiguration.getInstance().getInt("streaming.fetch_size", DEFAULT_STREAM_FETCH_SIZE);
+	}
+	
+	/**
+	 * Get the move list query for the parameters from the {@link StatementRegistry} (the query is built only on the first request).
+	 */
+	private RegisteredStatement getMoveListStatement(boolean allGames, boolean allUsers, boolean allMoves) throws GameDataException {
+		return getMoveListStatement(allGames, allUsers, allMoves, false);
+	}
+	/**
+	 * Get the move list query from the {@link StatementRegistry} (streaming queries are registered separately).
+	 */
+	private RegisteredStatement getMoveListStatement(boolean allGames, boolean allUsers, boolean allMoves, boolean streaming) throws GameDataException {
+		StatementRegistry registry = DatabaseConnection.getCheckedStatementRegistry();
+		String name = (streaming ? "STREAM_MOVES" : "LIST_MOVES") + "[allGames=" + allGames + ", allUsers=" + allUsers + ", allMoves=" + allMoves
+				+ "]";
+		return registry.getOrRegister(name, () -> buildMoveListQuery(allGames, allUsers, allMoves, registry.getTable(DatabaseConnection.TABLE_MOVES),
+				registry.getTable(DatabaseConnection.TABLE_USERS)));
+	}
 	public String buildMoveListQuery(boolean allGames, boolean allUsers, boolean allMoves) throws GameDataException {
 		String tableMoves = DatabaseConnection.getTable(DatabaseConnection.TABLE_MOVES);
 		String tableUsers = DatabaseConnection.getTable(DatabaseConnection.TABLE_USERS);
@@ -337,7 +1152,7 @@ public class GameDataManager {
 	}
 	protected String buildMoveListQuery(boolean allGames, boolean allUsers, boolean allMoves, String tableMoves, String tableUsers) {
 		StringBuilder sb = new StringBuilder(
-				"SELECT m.id, m.num, m.move, u.username FROM " + tableMoves + " m JOIN " + tableUsers + " u ON u.id = m.user_id WHERE");
+				"SELECT m.id, m.num, m.move, u.username, m.move_codec FROM " + tableMoves + " m JOIN " + tableUsers + " u ON u.id = m.user_id WHERE");
 		
 		if (allUsers && allGames) {
 			//no conditions -> WHERE 1
@@ -365,48 +1180,4 @@ public class GameDataManager {
 		
 		return sb.toString();
 	}
-	
-	/**
-	 * Test whether a user with the given username exists in the database.
-	 */
-	private boolean isUserExisting(String username) throws GameDataException {
-		String query = "SELECT id FROM " + DatabaseConnection.getTable(DatabaseConnection.TABLE_USERS) + " WHERE username = ?";
-		
-		userExisting = false;
-		
-		CheckedSqlConsumer<PreparedStatement> variableSetter = ps -> {
-			ps.setString(1, username);
-		};
-		CheckedSqlConsumer<ResultSet> resultConsumer = resultSet -> {
-			if (resultSet.next()) {
-				userExisting = true;
-			}
-		};
-		
-		DatabaseConnection.executeCheckedSQL(query, SqlExecutionType.QUERY, variableSetter, resultConsumer);
-		
-		return userExisting;
-	}
-	
-	/**
-	 * Test whether a user with the given username exists in the database.
-	 */
-	private boolean isGameExisting(int gameId) throws GameDataException {
-		String query = "SELECT id FROM " + DatabaseConnection.getTable(DatabaseConnection.TABLE_GAMES) + " WHERE id = ?";
-		
-		gameExisting = false;
-		
-		CheckedSqlConsumer<PreparedStatement> variableSetter = ps -> {
-			ps.setInt(1, gameId);
-		};
-		CheckedSqlConsumer<ResultSet> resultConsumer = resultSet -> {
-			if (resultSet.next()) {
-				gameExisting = true;
-			}
-		};
-		
-		DatabaseConnection.executeCheckedSQL(query, SqlExecutionType.QUERY, variableSetter, resultConsumer);
-		
-		return gameExisting;
-	}
 }
\ No newline at end of file
@@ -0,0 +1,96 @@
+package net.jfabricationgames.genesis_project_server.game;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import net.jfabricationgames.genesis_project_server.config.ServiceConfiguration;
+
+/**
+ * Keeps the parsed documents of the games that were patched recently, so the next patch of a game doesn't have to load and parse the game
+ * again. Every document is stored with the tag of the game version it represents and is only used while the tag is still current.
+ * <p>
+ * The documents are changed in place when they are patched, so they must only be used while holding the lock of the game (see
+ * {@link GameDataManager#patchGame(int, String, String)}).
+ */
+public class GameDocumentCache {
+	
+	public static final int DEFAULT_MAX_SIZE = 100;
+	
+	private static final GameDocumentCache instance = new GameDocumentCache(
+			ServiceConfiguration.getInstance().getInt("patch_game.document_cache_size", DEFAULT_MAX_SIZE));
+	
+	private static class CachedDocument {
+		
+		private final String tag;
+		private final JsonNode document;
+		
+		public CachedDocument(String tag, JsonNode document) {
+			this.tag = tag;
+			this.document = document;
+		}
+	}
+	
+	private final int maxSize;
+	/**
+	 * The documents by the game ids (ordered by their last access, so the least recently used document is removed if the cache is full)
+	 */
+	private final Map<Integer, CachedDocument> documents;
+	
+	private long hits;
+	private long misses;
+	
+	protected GameDocumentCache(int maxSize) {
+		this.maxSize = maxSize;
+		documents = new LinkedHashMap<Integer, CachedDocument>(16, 0.75f, true) {
+			
+			private static final long serialVersionUID = 2311529786203425497L;
+			
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, CachedDocument> eldest) {
+				return size() > GameDocumentCache.this.maxSize;
+			}
+		};
+	}
+	
+	public static GameDocumentCache getInstance() {
+		return instance;
+	}
+	
+	/**
+	 * Get the document of a game if it's cached for the given tag (or null otherwise).
+	 */
+	public synchronized JsonNode get(int gameId, String tag) {
+		CachedDocument cached = documents.get(gameId);
+		if (cached == null || !cached.tag.equals(tag)) {
+			misses++;
+			return null;
+		}
+		hits++;
+		return cached.document;
+	}
+	
+	public synchronized void put(int gameId, String tag, JsonNode document) {
+		if (maxSize > 0) {
+			documents.put(gameId, new CachedDocument(tag, document));
+		}
+	}
+	
+	public synchronized void invalidate(int gameId) {
+		documents.remove(gameId);
+	}
+	
+	public synchronized void clear() {
+		documents.clear();
+	}
+	
+	public synchronized Map<String, Object> getStatistics() {
+		Map<String, Object> statistics = new LinkedHashMap<String, Object>();
+		statistics.put("size", documents.size());
+		statistics.put("maxSize", maxSize);
+		statistics.put("hits", hits);
+		statistics.put("misses", misses);
+		return statistics;
+	}
+}
\ No newline at end of file
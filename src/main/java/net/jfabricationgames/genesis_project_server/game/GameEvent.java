@@ -0,0 +1,121 @@
+package net.jfabricationgames.genesis_project_server.game;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * A change of a game that is sent to the subscribers of the {@link GameEventBus}.
+ * <p>
+ * An event is immutable and serialized only once (when it's sent to the first subscriber), so the JSON representation is shared by all
+ * subscribers.
+ */
+public class GameEvent {
+	
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+	
+	/**
+	 * An event that is sent to all subscribers periodically, so idle connections are not closed by proxies.
+	 */
+	public static final GameEvent HEARTBEAT = new GameEvent(Type.HEARTBEAT, -1, -1, null);
+	
+	public enum Type {
+		
+		GAME_CREATED("game_created"), //
+		GAME_UPDATED("game_updated"), //
+		MOVE_SET("move_set"), //
+		HEARTBEAT("heartbeat"); //
+		
+		private final String name;
+		
+		private Type(String name) {
+			this.name = name;
+		}
+		
+		public String getName() {
+			return name;
+		}
+	}
+	
+	private final Type type;
+	private final int gameId;
+	/**
+	 * The number of the move (only for MOVE_SET events; -1 otherwise)
+	 */
+	private final int num;
+	/**
+	 * The name of the user who made the move (only for MOVE_SET events; null otherwise)
+	 */
+	private final String username;
+	
+	private volatile String json;
+	
+	private GameEvent(Type type, int gameId, int num, String username) {
+		this.type = type;
+		this.gameId = gameId;
+		this.num = num;
+		this.username = username;
+	}
+	
+	public static GameEvent gameCreated(int gameId) {
+		return new GameEvent(Type.GAME_CREATED, gameId, -1, null);
+	}
+	
+	public static GameEvent gameUpdated(int gameId) {
+		return new GameEvent(Type.GAME_UPDATED, gameId, -1, null);
+	}
+	
+	public static GameEvent moveSet(int gameId, int num, String username) {
+		return new GameEvent(Type.MOVE_SET, gameId, num, username);
+	}
+	
+	/**
+	 * Get the JSON representation of the event (e.g. {"gameId":42,"num":7,"username":"player"}), that is created only once.
+	 */
+	public String toJson() {
+		String serialized = json;
+		if (serialized == null) {
+			StringWriter writer = new StringWriter();
+			try (JsonGenerator generator = JSON_FACTORY.createGenerator(writer)) {
+				generator.writeStartObject();
+				generator.writeNumberField("gameId", gameId);
+				if (type == Type.MOVE_SET) {
+					generator.writeNumberField("num", num);
+					generator.writeStringField("username", username);
+				}
+				generator.writeEndObject();
+			}
+			catch (IOException ioe) {
+				throw new UncheckedIOException(ioe);
+			}
+			serialized = writer.toString();
+			//the serialization is idempotent, so a concurrent serialization doesn't matter
+			json = serialized;
+		}
+		return serialized;
+	}
+	
+	@Override
+	public String toString() {
+		return "GameEvent [type=" + type + ", gameId=" + gameId + ", num=" + num + ", username=" + username + "]";
+	}
+	
+	public Type getType() {
+		return type;
+	}
+	
+	public int getGameId() {
+		return gameId;
+	}
+	
+	public int getNum() {
+		return num;
+	}
+	
+	public String getUsername() {
+		return username;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,340 @@
+package net.jfabricationgames.genesis_project_server.game;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import net.jfabricationgames.genesis_project_server.config.ServiceConfiguration;
+import net.jfabricationgames.genesis_project_server.exception.GameDataException;
+
+/**
+ * Sends the changes of games (created games, updated games and moves) to the subscribed users that play in the game.
+ * <p>
+ * A published event is only added to a bounded queue, so the write requests never wait for the event bus. A publisher thread takes the
+ * events from the queue, finds the subscribers that play in the game and adds the event to their buffers. Every subscription has a
+ * bounded buffer of events, that is sent to the subscriber by a small pool of dispatcher threads, so a slow subscriber doesn't delay the
+ * other subscribers. If the buffer of a subscriber is full, the subscription is cancelled (the client has to subscribe again and reload the
+ * game list). A heartbeat is sent to all subscribers periodically.
+ * <p>
+ * The players of the games are taken from the {@link GamePlayerCache} by the publisher thread, so an event only causes a database query
+ * (that is not executed by the write request) if the players of the game are not yet known.
+ */
+public class GameEventBus {
+	
+	private static final Logger LOGGER = LogManager.getLogger(GameEventBus.class);
+	
+	public static final int DEFAULT_BUFFER_SIZE = 64;
+	public static final long DEFAULT_HEARTBEAT_INTERVAL_MILLIS = 15000;
+	public static final int DEFAULT_MAX_SUBSCRIBERS = 1000;
+	public static final int DEFAULT_DISPATCHER_THREADS = 2;
+	public static final int DEFAULT_MAX_PENDING_EVENTS = 10000;
+	
+	private static volatile GameEventBus instance;
+	
+	/**
+	 * The subscription of a user and the buffer of the events that were not yet sent.
+	 */
+	public class Subscription {
+		
+		private final String username;
+		private final GameEventSink sink;
+		private final BlockingQueue<GameEvent> buffer;
+		/**
+		 * Indicates whether a dispatcher thread is sending the buffered events (only one thread sends to a subscriber at a time)
+		 */
+		private final AtomicBoolean scheduled = new AtomicBoolean();
+		private final AtomicBoolean cancelled = new AtomicBoolean();
+		
+		private Subscription(String username, GameEventSink sink) {
+			this.username = username;
+			this.sink = sink;
+			this.buffer = new ArrayBlockingQueue<GameEvent>(bufferSize);
+		}
+		
+		/**
+		 * Cancel the subscription and close the connection to the subscriber.
+		 */
+		public void cancel() {
+			unsubscribe(this);
+		}
+		
+		public String getUsername() {
+			return username;
+		}
+		
+		public boolean isCancelled() {
+			return cancelled.get();
+		}
+	}
+	
+	private final int bufferSize;
+	private final int maxSubscribers;
+	private final GamePlayerCache gamePlayers;
+	
+	/**
+	 * The subscriptions by the (lower case) names of the users
+	 */
+	private final ConcurrentMap<String, Set<Subscription>> subscriptions = new ConcurrentHashMap<String, Set<Subscription>>();
+	private final AtomicInteger subscribers = new AtomicInteger();
+	
+	/**
+	 * Finds the subscribers of the published events (in the order in which the events were published)
+	 */
+	private final ThreadPoolExecutor publisher;
+	private final ExecutorService dispatcher;
+	private final ScheduledExecutorService heartbeatExecutor;
+	
+	private final AtomicLong publishedEvents = new AtomicLong();
+	private final AtomicLong droppedEvents = new AtomicLong();
+	private final AtomicLong sentEvents = new AtomicLong();
+	private final AtomicLong overflows = new AtomicLong();
+	private final AtomicLong failedSends = new AtomicLong();
+	private final AtomicLong rejectedSubscriptions = new AtomicLong();
+	
+	protected GameEventBus(int bufferSize, long heartbeatIntervalMillis, int maxSubscribers, int dispatcherThreads, int maxPendingEvents,
+			GamePlayerCache gamePlayers) {
+		this.bufferSize = bufferSize;
+		this.maxSubscribers = maxSubscribers;
+		this.gamePlayers = gamePlayers;
+		
+		publisher = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(maxPendingEvents), runnable -> {
+			Thread thread = new Thread(runnable, "game-event-publisher");
+			thread.setDaemon(true);
+			return thread;
+		});
+		AtomicInteger threadNumber = new AtomicInteger();
+		dispatcher = Executors.newFixedThreadPool(dispatcherThreads, runnable -> {
+			Thread thread = new Thread(runnable, "game-event-dispatcher-" + threadNumber.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		heartbeatExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "game-event-heartbeat");
+			thread.setDaemon(true);
+			return thread;
+		});
+		heartbeatExecutor.scheduleWithFixedDelay(this::sendHeartbeats, heartbeatIntervalMillis, heartbeatIntervalMillis, TimeUnit.MILLISECONDS);
+	}
+	
+	public static GameEventBus getInstance() {
+		//only synchronize if the instance is not yet created (to not synchronize every request)
+		GameEventBus gameEventBus = instance;
+		if (gameEventBus == null) {
+			synchronized (GameEventBus.class) {
+				if (instance == null) {
+					ServiceConfiguration config = ServiceConfiguration.getInstance();
+					instance = new GameEventBus(config.getInt("game_events.buffer_size", DEFAULT_BUFFER_SIZE),
+							config.getLong("game_events.heartbeat_interval_millis", DEFAULT_HEARTBEAT_INTERVAL_MILLIS),
+							config.getInt("game_events.max_subscribers", DEFAULT_MAX_SUBSCRIBERS),
+							config.getInt("game_events.dispatcher_threads", DEFAULT_DISPATCHER_THREADS),
+							config.getInt("game_events.max_pending_events", DEFAULT_MAX_PENDING_EVENTS), GamePlayerCache.getInstance());
+				}
+				gameEventBus = instance;
+			}
+		}
+		return gameEventBus;
+	}
+	
+	/**
+	 * Shut down the event bus (if it was used) and close the connections to all subscribers.
+	 */
+	public static synchronized void shutdown() {
+		if (instance != null) {
+			instance.close();
+			instance = null;
+		}
+	}
+	
+	/**
+	 * Stop the dispatcher and heartbeat threads and close the connections to all subscribers.
+	 */
+	public void close() {
+		heartbeatExecutor.shutdownNow();
+		publisher.shutdownNow();
+		dispatcher.shutdownNow();
+		for (Set<Subscription> userSubscriptions : subscriptions.values()) {
+			for (Subscription subscription : userSubscriptions) {
+				unsubscribe(subscription);
+			}
+		}
+	}
+	
+	/**
+	 * Subscribe to the events of all games that a user plays in.
+	 * 
+	 * @return The {@link Subscription} or null if the maximum number of subscribers is reached.
+	 */
+	public Subscription subscribe(String username, GameEventSink sink) {
+		if (subscribers.incrementAndGet() > maxSubscribers) {
+			subscribers.decrementAndGet();
+			rejectedSubscriptions.incrementAndGet();
+			return null;
+		}
+		Subscription subscription = new Subscription(username.toLowerCase(Locale.ROOT), sink);
+		subscriptions.computeIfAbsent(subscription.username, name -> ConcurrentHashMap.newKeySet()).add(subscription);
+		LOGGER.debug("user {} subscribed to the game events", username);
+		return subscription;
+	}
+	
+	/**
+	 * Cancel a subscription and close the connection to the subscriber.
+	 */
+	public void unsubscribe(Subscription subscription) {
+		if (!subscription.cancelled.compareAndSet(false, true)) {
+			return;
+		}
+		subscriptions.computeIfPresent(subscription.username, (name, userSubscriptions) -> {
+			userSubscriptions.remove(subscription);
+			return userSubscriptions.isEmpty() ? null : userSubscriptions;
+		});
+		subscribers.decrementAndGet();
+		subscription.buffer.clear();
+		subscription.sink.close();
+		LOGGER.debug("subscription of user {} to the game events cancelled", subscription.username);
+	}
+	
+	/**
+	 * Called after a game was created (the players of the game are known, so they don't have to be loaded).
+	 */
+	public void gameCreated(int gameId, Collection<String> players) {
+		gamePlayers.put(gameId, players);
+		publish(GameEvent.gameCreated(gameId));
+	}
+	
+	/**
+	 * Send an event to all subscribers that play in the game of the event. The subscribers are found by the publisher thread, so the caller
+	 * doesn't wait for the players of the game to be loaded.
+	 */
+	public void publish(GameEvent event) {
+		if (subscribers.get() == 0) {
+			//nobody is interested in the event (so the players don't need to be loaded)
+			return;
+		}
+		publishedEvents.incrementAndGet();
+		try {
+			publisher.execute(() -> addToSubscribers(event));
+		}
+		catch (RejectedExecutionException ree) {
+			//the queue of published events is full (or the event bus is shut down)
+			droppedEvents.incrementAndGet();
+			LOGGER.warn("too many published events are pending; the event of game {} is not sent", event.getGameId());
+		}
+	}
+	
+	/**
+	 * Add an event to the buffers of all subscribers that play in the game of the event (executed by the publisher thread).
+	 */
+	private void addToSubscribers(GameEvent event) {
+		for (String player : getPlayers(event.getGameId())) {
+			Set<Subscription> userSubscriptions = subscriptions.get(player);
+			if (userSubscriptions != null) {
+				for (Subscription subscription : userSubscriptions) {
+					enqueue(subscription, event);
+				}
+			}
+		}
+	}
+	
+	private Set<String> getPlayers(int gameId) {
+		try {
+			return gamePlayers.getPlayers(gameId);
+		}
+		catch (GameDataException gde) {
+			LOGGER.warn("the players of game {} couldn't be loaded; the event is not sent", gameId, gde);
+			return Collections.emptySet();
+		}
+	}
+	
+	private void enqueue(Subscription subscription, GameEvent event) {
+		if (!subscription.buffer.offer(event)) {
+			//the subscriber doesn't receive the events fast enough
+			overflows.incrementAndGet();
+			LOGGER.warn("the event buffer of user {} is full; cancelling the subscription", subscription.username);
+			unsubscribe(subscription);
+			return;
+		}
+		if (subscription.scheduled.compareAndSet(false, true)) {
+			try {
+				dispatcher.execute(() -> dispatch(subscription));
+			}
+			catch (RejectedExecutionException ree) {
+				//the event bus is shut down
+				subscription.scheduled.set(false);
+			}
+		}
+	}
+	
+	/**
+	 * Send the buffered events of a subscriber (executed by a dispatcher thread).
+	 */
+	private void dispatch(Subscription subscription) {
+		while (true) {
+			GameEvent event;
+			while ((event = subscription.buffer.poll()) != null && !subscription.isCancelled()) {
+				try {
+					subscription.sink.send(event);
+					sentEvents.incrementAndGet();
+				}
+				catch (IOException | RuntimeException e) {
+					failedSends.incrementAndGet();
+					LOGGER.debug("the event couldn't be sent to user {}; cancelling the subscription", subscription.username, e);
+					unsubscribe(subscription);
+					return;
+				}
+			}
+			subscription.scheduled.set(false);
+			//an event could have been added after the buffer was empty (but before the flag was reset)
+			if (subscription.buffer.isEmpty() || !subscription.scheduled.compareAndSet(false, true)) {
+				return;
+			}
+		}
+	}
+	
+	private void sendHeartbeats() {
+		for (Set<Subscription> userSubscriptions : subscriptions.values()) {
+			for (Subscription subscription : userSubscriptions) {
+				if (subscription.sink.isClosed()) {
+					unsubscribe(subscription);
+				}
+				else {
+					enqueue(subscription, GameEvent.HEARTBEAT);
+				}
+			}
+		}
+	}
+	
+	public Map<String, Object> getStatistics() {
+		Map<String, Object> statistics = new LinkedHashMap<String, Object>();
+		statistics.put("subscribers", subscribers.get());
+		statistics.put("maxSubscribers", maxSubscribers);
+		statistics.put("publishedEvents", publishedEvents.get());
+		statistics.put("pendingEvents", publisher.getQueue().size());
+		statistics.put("droppedEvents", droppedEvents.get());
+		statistics.put("sentEvents", sentEvents.get());
+		statistics.put("overflows", overflows.get());
+		statistics.put("failedSends", failedSends.get());
+		statistics.put("rejectedSubscriptions", rejectedSubscriptions.get());
+		return statistics;
+	}
+}
\ No newline at end of file
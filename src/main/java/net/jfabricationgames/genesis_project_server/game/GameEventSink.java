@@ -0,0 +1,27 @@
+package net.jfabricationgames.genesis_project_server.game;
+
+import java.io.IOException;
+
+/**
+ * The connection of a subscriber of the {@link GameEventBus}, to which the events are sent (e.g. a server-sent events stream).
+ */
+public interface GameEventSink {
+	
+	/**
+	 * Send an event to the subscriber (called by one thread at a time).
+	 * 
+	 * @throws IOException
+	 *         An {@link IOException} is thrown if the event couldn't be sent (the subscription is cancelled).
+	 */
+	public void send(GameEvent event) throws IOException;
+	
+	/**
+	 * Close the connection to the subscriber.
+	 */
+	public void close();
+	
+	/**
+	 * Check whether the connection to the subscriber was closed (e.g. by the client).
+	 */
+	public boolean isClosed();
+}
\ No newline at end of file
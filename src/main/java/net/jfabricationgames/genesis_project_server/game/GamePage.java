@@ -0,0 +1,39 @@
+package net.jfabricationgames.genesis_project_server.game;
+
+/**
+ * A page of a paginated game list.
+ */
+public class GamePage {
+	
+	/**
+	 * The games of this page.
+	 */
+	private GameList games;
+	/**
+	 * The cursor that is used to request the next page (or null if this is the last page).
+	 */
+	private String nextCursor;
+	
+	public GamePage() {
+		
+	}
+	
+	@Override
+	public String toString() {
+		return "GamePage [games=" + games + ", nextCursor=" + nextCursor + "]";
+	}
+	
+	public GameList getGames() {
+		return games;
+	}
+	public void setGames(GameList games) {
+		this.games = games;
+	}
+	
+	public String getNextCursor() {
+		return nextCursor;
+	}
+	public void setNextCursor(String nextCursor) {
+		this.nextCursor = nextCursor;
+	}
+}
\ No newline at end of file
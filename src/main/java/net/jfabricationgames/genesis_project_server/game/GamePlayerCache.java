@@ -0,0 +1,146 @@
+package net.jfabricationgames.genesis_project_server.game;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.jfabricationgames.genesis_project_server.config.ServiceConfiguration;
+import net.jfabricationgames.genesis_project_server.database.CheckedSqlConsumer;
+import net.jfabricationgames.genesis_project_server.database.DatabaseConnection;
+import net.jfabricationgames.genesis_project_server.database.SqlExecutionType;
+import net.jfabricationgames.genesis_project_server.database.SqlStatement;
+import net.jfabricationgames.genesis_project_server.exception.GameDataException;
+
+/**
+ * A cache of the players of the games (shared by the {@link GameEventBus} and the authorization of the game requests), so the players of a
+ * game are only loaded once from the database.
+ * <p>
+ * The players of a game don't change after the game was created, but the usernames can change (the cache has to be cleared when a user is
+ * renamed). The usernames are stored in lower case (the usernames are compared case insensitive, like in the database). If the cache is
+ * full, it is cleared (the players of the active games are loaded again with their next request).
+ */
+public class GamePlayerCache {
+	
+	public static final int DEFAULT_MAX_SIZE = 10000;
+	
+	private static final GamePlayerCache instance = new GamePlayerCache(
+			ServiceConfiguration.getInstance().getInt("game_players.max_size", DEFAULT_MAX_SIZE));
+	
+	private final int maxSize;
+	/**
+	 * The (lower case) names of the players by the game ids
+	 */
+	private final ConcurrentMap<Integer, Set<String>> gamePlayers = new ConcurrentHashMap<Integer, Set<String>>();
+	
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong clears = new AtomicLong();
+	
+	protected GamePlayerCache(int maxSize) {
+		this.maxSize = maxSize;
+	}
+	
+	public static GamePlayerCache getInstance() {
+		return instance;
+	}
+	
+	/**
+	 * Get the (lower case) names of the players of a game. If the game is not cached, the players are loaded from the database.
+	 * 
+	 * @return The names of the players (an empty set if the game doesn't exist).
+	 */
+	public Set<String> getPlayers(int gameId) throws GameDataException {
+		Set<String> players = getCachedPlayers(gameId);
+		if (players == null) {
+			players = Collections.unmodifiableSet(loadPlayers(gameId));
+			if (!players.isEmpty()) {
+				//a game without players doesn't exist (yet), so the game is not cached
+				cache(gameId, players);
+			}
+		}
+		return players;
+	}
+	
+	/**
+	 * Get the (lower case) names of the players of a game from the cache (without accessing the database).
+	 * 
+	 * @return The names of the players or null if the game is not cached.
+	 */
+	public Set<String> getCachedPlayers(int gameId) {
+		Set<String> players = gamePlayers.get(gameId);
+		if (players == null) {
+			misses.incrementAndGet();
+		}
+		else {
+			hits.incrementAndGet();
+		}
+		return players;
+	}
+	
+	/**
+	 * Check whether a user plays in a game. If the game is not cached, the players are loaded from the database.
+	 */
+	public boolean isPlayer(int gameId, String username) throws GameDataException {
+		return username != null && getPlayers(gameId).contains(username.toLowerCase(Locale.ROOT));
+	}
+	
+	/**
+	 * Add the players of a game to the cache (e.g. because the game was created, so the players are known).
+	 */
+	public void put(int gameId, Collection<String> players) {
+		Set<String> names = new HashSet<String>();
+		for (String player : players) {
+			names.add(player.toLowerCase(Locale.ROOT));
+		}
+		cache(gameId, Collections.unmodifiableSet(names));
+	}
+	
+	/**
+	 * Remove the players of all games from the cache (e.g. because a user was renamed or the test database was reset).
+	 */
+	public void clear() {
+		gamePlayers.clear();
+	}
+	
+	private void cache(int gameId, Set<String> players) {
+		if (gamePlayers.size() >= maxSize) {
+			clears.incrementAndGet();
+			gamePlayers.clear();
+		}
+		gamePlayers.put(gameId, players);
+	}
+	
+	/**
+	 * Load the (lower case) names of the players of a game from the database.
+	 */
+	protected Set<String> loadPlayers(int gameId) throws GameDataException {
+		Set<String> players = new HashSet<String>();
+		CheckedSqlConsumer<PreparedStatement> variableSetter = ps -> ps.setInt(1, gameId);
+		CheckedSqlConsumer<ResultSet> resultConsumer = resultSet -> {
+			while (resultSet.next()) {
+				players.add(resultSet.getString(1).toLowerCase(Locale.ROOT));
+			}
+		};
+		DatabaseConnection.executeCheckedSQL(SqlStatement.GET_PLAYER_NAMES, SqlExecutionType.QUERY, variableSetter, resultConsumer);
+		return players;
+	}
+	
+	public Map<String, Object> getStatistics() {
+		Map<String, Object> statistics = new LinkedHashMap<String, Object>();
+		statistics.put("size", gamePlayers.size());
+		statistics.put("maxSize", maxSize);
+		statistics.put("hits", hits.get());
+		statistics.put("misses", misses.get());
+		statistics.put("clears", clears.get());
+		return statistics;
+	}
+}
\ No newline at end of file
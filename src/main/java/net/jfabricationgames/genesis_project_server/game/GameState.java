@@ -0,0 +1,66 @@
+package net.jfabricationgames.genesis_project_server.game;
+
+/**
+ * The state of a game, that consists of the last stored snapshot of the game and the moves that were made after the snapshot (the tail).
+ */
+public class GameState {
+	
+	/**
+	 * The snapshot of the game as JSON representation.
+	 */
+	private String game;
+	/**
+	 * The number of the last move that is included in the snapshot.
+	 */
+	private int snapshotNum;
+	/**
+	 * The number of the last move that was removed by the compaction (the moves up to this number are no longer stored).
+	 */
+	private int compactedNum;
+	/**
+	 * The moves that were made after the snapshot (num > snapshotNum).
+	 */
+	private MoveList moves;
+	
+	public GameState() {
+		
+	}
+	
+	public GameState(String game, int snapshotNum) {
+		this.game = game;
+		this.snapshotNum = snapshotNum;
+	}
+	
+	@Override
+	public String toString() {
+		return "GameState [game=" + game + ", snapshotNum=" + snapshotNum + ", compactedNum=" + compactedNum + ", moves=" + moves + "]";
+	}
+	
+	public String getGame() {
+		return game;
+	}
+	public void setGame(String game) {
+		this.game = game;
+	}
+	
+	public int getSnapshotNum() {
+		return snapshotNum;
+	}
+	public void setSnapshotNum(int snapshotNum) {
+		this.snapshotNum = snapshotNum;
+	}
+	
+	public int getCompactedNum() {
+		return compactedNum;
+	}
+	public void setCompactedNum(int compactedNum) {
+		this.compactedNum = compactedNum;
+	}
+	
+	public MoveList getMoves() {
+		return moves;
+	}
+	public void setMoves(MoveList moves) {
+		this.moves = moves;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,151 @@
+package net.jfabricationgames.genesis_project_server.game;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps version counters for the games and moves, that are increased on every change. The versions are used to create entity tags for the
+ * game and move resources, so unchanged resources don't have to be loaded and transferred again (conditional requests).
+ * <p>
+ * The versions are only kept in memory, so every tag contains the start time of the service (the tags of a previous run don't match). A
+ * version is increased after the change is written, so a tag that is created before loading a resource never describes a newer state than
+ * the loaded one.
+ */
+public class GameVersionRegistry {
+	
+	private static final GameVersionRegistry instance = new GameVersionRegistry();
+	
+	/**
+	 * Identifies the current run of the service (the versions are lost on a restart)
+	 */
+	private final String epoch;
+	/**
+	 * Increased when all versions are discarded (e.g. because the test database was reset)
+	 */
+	private final AtomicLong generation = new AtomicLong();
+	
+	private final ConcurrentMap<Integer, AtomicLong> gameVersions = new ConcurrentHashMap<Integer, AtomicLong>();
+	private final ConcurrentMap<Integer, AtomicLong> moveVersions = new ConcurrentHashMap<Integer, AtomicLong>();
+	/**
+	 * The version of all games (increased if any game is created or updated)
+	 */
+	private final AtomicLong gamesVersion = new AtomicLong();
+	/**
+	 * The version of all moves (increased if any move is set)
+	 */
+	private final AtomicLong movesVersion = new AtomicLong();
+	/**
+	 * The version of all users (increased if a user is renamed, because the lists contain the usernames)
+	 */
+	private final AtomicLong usersVersion = new AtomicLong();
+	
+	protected GameVersionRegistry() {
+		epoch = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+	}
+	
+	public static GameVersionRegistry getInstance() {
+		return instance;
+	}
+	
+	/**
+	 * Called after a game was created.
+	 */
+	public void gameCreated(int gameId) {
+		gamesVersion.incrementAndGet();
+	}
+	
+	/**
+	 * Called after the state of a game was updated.
+	 */
+	public void gameUpdated(int gameId) {
+		getVersion(gameVersions, gameId).incrementAndGet();
+		gamesVersion.incrementAndGet();
+	}
+	
+	/**
+	 * Called after a move was set in a game.
+	 */
+	public void moveSet(int gameId) {
+		getVersion(moveVersions, gameId).incrementAndGet();
+		movesVersion.incrementAndGet();
+	}
+	
+	/**
+	 * Called after a game was archived or restored from the archive (the game is removed from or added to the game list and its moves are
+	 * moved).
+	 */
+	public void gameArchiveChanged(int gameId) {
+		getVersion(moveVersions, gameId).incrementAndGet();
+		gamesVersion.incrementAndGet();
+		movesVersion.incrementAndGet();
+	}
+	
+	/**
+	 * Called after the moves of a game were removed by the compaction.
+	 */
+	public void movesCompacted(int gameId) {
+		getVersion(moveVersions, gameId).incrementAndGet();
+		movesVersion.incrementAndGet();
+	}
+	
+	/**
+	 * Called after a user was updated.
+	 */
+	public void userUpdated() {
+		usersVersion.incrementAndGet();
+	}
+	
+	/**
+	 * Discard all versions (all tags that were created before don't match anymore).
+	 */
+	public void clear() {
+		generation.incrementAndGet();
+		gameVersions.clear();
+		moveVersions.clear();
+	}
+	
+	/**
+	 * Get the tag of the current state of a game.
+	 */
+	public String getGameTag(int gameId) {
+		return createTag("game-" + gameId, getCurrentVersion(gameVersions, gameId));
+	}
+	
+	/**
+	 * Get the tag of the current moves of a game (or of all games if the id is -1).
+	 */
+	public String getMovesTag(int gameId) {
+		if (gameId == -1) {
+			return createTag("moves", movesVersion.get(), usersVersion.get());
+		}
+		return createTag("moves-" + gameId, getCurrentVersion(moveVersions, gameId), usersVersion.get());
+	}
+	
+	/**
+	 * Get the tag of the current list of games.
+	 */
+	public String getGameListTag() {
+		return createTag("games", gamesVersion.get(), usersVersion.get());
+	}
+	
+	private AtomicLong getVersion(ConcurrentMap<Integer, AtomicLong> versions, int gameId) {
+		return versions.computeIfAbsent(gameId, id -> new AtomicLong());
+	}
+	
+	/**
+	 * Get the current version without adding a counter (so requests for unknown games don't fill the registry).
+	 */
+	private long getCurrentVersion(ConcurrentMap<Integer, AtomicLong> versions, int gameId) {
+		AtomicLong version = versions.get(gameId);
+		return version == null ? 0 : version.get();
+	}
+	
+	private String createTag(String resource, long... versions) {
+		StringBuilder sb = new StringBuilder(epoch).append('.').append(generation.get()).append('.').append(resource);
+		for (long version : versions) {
+			sb.append('.').append(version);
+		}
+		return sb.toString();
+	}
+}
\ No newline at end of file
@@ -0,0 +1,449 @@
+package net.jfabricationgames.genesis_project_server.game;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import net.jfabricationgames.genesis_project_server.config.ServiceConfiguration;
+import net.jfabricationgames.genesis_project_server.database.CheckedSqlConsumer;
+import net.jfabricationgames.genesis_project_server.database.DatabaseConnection;
+import net.jfabricationgames.genesis_project_server.database.SqlExecutionType;
+import net.jfabricationgames.genesis_project_server.database.SqlStatement;
+import net.jfabricationgames.genesis_project_server.database.StorageCodec;
+import net.jfabricationgames.genesis_project_server.exception.GameDataException;
+
+/**
+ * A write-behind buffer for game updates (optional; enabled in the service configuration).
+ * <p>
+ * The latest state of every updated game is kept in memory (so several updates of the same game are coalesced into one write) and the
+ * buffered games are written to the database in batches, when the flush interval elapsed or the flush threshold (the number of buffered
+ * games) is reached. Reads of buffered games get the buffered state.
+ * <p>
+ * Only games that are known to exist (because they were already updated directly or created by this service) are buffered, so the update
+ * of an unknown game still fails immediately. If the maximum number of buffered games is reached, the updates of games that are not yet
+ * buffered are written to the database directly.
+ * <p>
+ * If a batch fails, the games of the batch are written one by one, so a game that can't be written doesn't keep the other games in the
+ * buffer. A game that can't be written while other games can (so the database is available) is discarded after the maximum number of
+ * write attempts. A game that is no longer updated by its write (because it was deleted or archived in the meantime) is discarded too.
+ */
+public class GameWriteBuffer {
+	
+	private static final Logger LOGGER = LogManager.getLogger(GameWriteBuffer.class);
+	
+	public static final boolean DEFAULT_ENABLED = false;
+	public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 1000;
+	public static final int DEFAULT_FLUSH_THRESHOLD = 100;
+	public static final int DEFAULT_MAX_BUFFERED_GAMES = 1000;
+	public static final int DEFAULT_MAX_WRITE_ATTEMPTS = 3;
+	
+	private static volatile GameWriteBuffer instance;
+	
+	private static class PendingWrite {
+		
+		private final String game;
+		/**
+		 * The number of the last move that is included in the game
+		 */
+		private final int snapshotNum;
+		/**
+		 * The time at which the game was updated first (since the last flush)
+		 */
+		private final long dirtySince;
+		/**
+		 * The number of failed writes of the game (while other games could be written)
+		 */
+		private final int failedAttempts;
+		
+		public PendingWrite(String game, int snapshotNum, long dirtySince, int failedAttempts) {
+			this.game = game;
+			this.snapshotNum = snapshotNum;
+			this.dirtySince = dirtySince;
+			this.failedAttempts = failedAttempts;
+		}
+	}
+	
+	private final boolean enabled;
+	private final long flushIntervalMillis;
+	private final int flushThreshold;
+	private final int maxBufferedGames;
+	private final int maxWriteAttempts;
+	
+	private final ConcurrentMap<Integer, PendingWrite> pendingWrites;
+	private final Set<Integer> knownGames;
+	private final ScheduledExecutorService flushExecutor;
+	private final AtomicBoolean flushRequested = new AtomicBoolean();
+	
+	private final AtomicLong bufferedWrites = new AtomicLong();
+	private final AtomicLong coalescedWrites = new AtomicLong();
+	private final AtomicLong flushes = new AtomicLong();
+	private final AtomicLong flushedGames = new AtomicLong();
+	private final AtomicLong failedFlushes = new AtomicLong();
+	private final AtomicLong writeThroughs = new AtomicLong();
+	private final AtomicLong discardedGames = new AtomicLong();
+	private volatile long lastFlushLagMillis;
+	private volatile long maxFlushLagMillis;
+	
+	private volatile boolean closed;
+	
+	protected GameWriteBuffer(boolean enabled, long flushIntervalMillis, int flushThreshold, int maxBufferedGames, int maxWriteAttempts) {
+		this.enabled = enabled;
+		this.flushIntervalMillis = flushIntervalMillis;
+		this.flushThreshold = flushThreshold;
+		this.maxBufferedGames = maxBufferedGames;
+		this.maxWriteAttempts = maxWriteAttempts;
+		
+		pendingWrites = new ConcurrentHashMap<Integer, PendingWrite>();
+		knownGames = ConcurrentHashMap.newKeySet();
+		
+		if (enabled) {
+			flushExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "game-write-buffer-flush");
+				thread.setDaemon(true);
+				return thread;
+			});
+			flushExecutor.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+			LOGGER.info("game write buffer enabled (flush interval: {} ms, flush threshold: {}, max buffered games: {})", flushIntervalMillis,
+					flushThreshold, maxBufferedGames);
+		}
+		else {
+			flushExecutor = null;
+		}
+	}
+	
+	public static GameWriteBuffer getInstance() {
+		//only synchronize if the instance is not yet created (to not synchronize every request)
+		GameWriteBuffer gameWriteBuffer = instance;
+		if (gameWriteBuffer == null) {
+			synchronized (GameWriteBuffer.class) {
+				if (instance == null) {
+					ServiceConfiguration config = ServiceConfiguration.getInstance();
+					instance = new GameWriteBuffer(config.getBoolean("game_write_buffer.enabled", DEFAULT_ENABLED),
+							config.getLong("game_write_buffer.flush_interval_millis", DEFAULT_FLUSH_INTERVAL_MILLIS),
+							config.getInt("game_write_buffer.flush_threshold", DEFAULT_FLUSH_THRESHOLD),
+							config.getInt("game_write_buffer.max_buffered_games", DEFAULT_MAX_BUFFERED_GAMES),
+							config.getInt("game_write_buffer.max_write_attempts", DEFAULT_MAX_WRITE_ATTEMPTS));
+				}
+				gameWriteBuffer = instance;
+			}
+		}
+		return gameWriteBuffer;
+	}
+	
+	/**
+	 * Shut down the buffer (if it was used) and write all buffered games to the database.
+	 */
+	public static synchronized void shutdown() {
+		if (instance != null) {
+			instance.close();
+		}
+	}
+	
+	/**
+	 * Buffer the update of a game (if the buffer is enabled, the game is known to exist and the buffer is not full).
+	 * 
+	 * @param snapshotNum
+	 *        The number of the last move that is included in the game.
+	 * 
+	 * @return True if the update was buffered. False if the update has to be written to the database directly.
+	 */
+	public boolean buffer(int id, String game, int snapshotNum) {
+		if (!enabled || closed || !knownGames.contains(id)) {
+			return false;
+		}
+		if (pendingWrites.size() >= maxBufferedGames && !pendingWrites.containsKey(id)) {
+			//the buffer is full (e.g. because the database is slow); a buffered game is still buffered, so it is not overwritten by the flush
+			writeThroughs.incrementAndGet();
+			requestFlush();
+			return false;
+		}
+		
+		long now = System.currentTimeMillis();
+		pendingWrites.compute(id, (gameId, pending) -> {
+			if (pending == null) {
+				return new PendingWrite(game, snapshotNum, now, 0);
+			}
+			//the previous state of the game was not yet written, so it's replaced by the new state
+			coalescedWrites.incrementAndGet();
+			return new PendingWrite(game, snapshotNum, pending.dirtySince, pending.failedAttempts);
+		});
+		bufferedWrites.incrementAndGet();
+		
+		if (pendingWrites.size() >= flushThreshold) {
+			requestFlush();
+		}
+		return true;
+	}
+	
+	private void requestFlush() {
+		if (flushRequested.compareAndSet(false, true)) {
+			flushExecutor.execute(this::flushQuietly);
+		}
+	}
+	
+	/**
+	 * Remember that a game exists in the database (so its updates can be buffered).
+	 */
+	public void addKnownGame(int id) {
+		if (enabled) {
+			knownGames.add(id);
+		}
+	}
+	
+	/**
+	 * Forget that a game exists (e.g. because it was archived), so its next update is written to the database directly.
+	 */
+	public void removeKnownGame(int id) {
+		knownGames.remove(id);
+	}
+	
+	/**
+	 * Get the buffered state of a game (or null if the game is not buffered).
+	 */
+	public String getBufferedGame(int id) {
+		PendingWrite pending = pendingWrites.get(id);
+		return pending == null ? null : pending.game;
+	}
+	
+	/**
+	 * Get the buffered snapshot of a game, including the number of the last move that is included in the game (or null if the game is not
+	 * buffered).
+	 */
+	public GameState getBufferedState(int id) {
+		PendingWrite pending = pendingWrites.get(id);
+		return pending == null ? null : new GameState(pending.game, pending.snapshotNum);
+	}
+	
+	/**
+	 * Write all buffered games to the database (in one batch; one by one if the batch fails).
+	 */
+	public synchronized void flush() throws GameDataException {
+		flushRequested.set(false);
+		if (pendingWrites.isEmpty()) {
+			return;
+		}
+		
+		Map<Integer, PendingWrite> flushedWrites = new LinkedHashMap<Integer, PendingWrite>(pendingWrites);
+		Map<Integer, String> games = new LinkedHashMap<Integer, String>();
+		Map<Integer, Integer> snapshotNums = new LinkedHashMap<Integer, Integer>();
+		long oldestWrite = Long.MAX_VALUE;
+		for (Map.Entry<Integer, PendingWrite> pending : flushedWrites.entrySet()) {
+			games.put(pending.getKey(), pending.getValue().game);
+			snapshotNums.put(pending.getKey(), pending.getValue().snapshotNum);
+			oldestWrite = Math.min(oldestWrite, pending.getValue().dirtySince);
+		}
+		
+		Set<Integer> missingGames;
+		try {
+			missingGames = writeGames(games, snapshotNums);
+		}
+		catch (GameDataException | RuntimeException e) {
+			failedFlushes.incrementAndGet();
+			if (flushedWrites.size() == 1) {
+				throw e;
+			}
+			LOGGER.warn("the batch of {} buffered games failed; writing the games one by one", flushedWrites.size(), e);
+			missingGames = writeGamesOneByOne(flushedWrites, e);
+		}
+		
+		//remove the written games from the buffer (unless they were updated again in the meantime)
+		for (Map.Entry<Integer, PendingWrite> flushedWrite : flushedWrites.entrySet()) {
+			pendingWrites.remove(flushedWrite.getKey(), flushedWrite.getValue());
+		}
+		for (int id : missingGames) {
+			//the game was deleted or archived after it was buffered, so the next update has to fail (instead of being buffered)
+			discardedGames.incrementAndGet();
+			knownGames.remove(id);
+			LOGGER.warn("the buffered game {} was not written, because it is no longer an active game", id);
+		}
+		
+		lastFlushLagMillis = System.currentTimeMillis() - oldestWrite;
+		maxFlushLagMillis = Math.max(maxFlushLagMillis, lastFlushLagMillis);
+		flushes.incrementAndGet();
+		flushedGames.addAndGet(flushedWrites.size() - missingGames.size());
+		LOGGER.debug("flushed {} buffered games (lag: {} ms)", flushedWrites.size(), lastFlushLagMillis);
+	}
+	
+	/**
+	 * Write the games to the database one by one (after the batch failed). The games that couldn't be written are kept in the buffer (and
+	 * removed from the map of the flushed writes), unless they failed too often while other games could be written.
+	 * 
+	 * @return The ids of the games that were not updated by their write.
+	 */
+	private Set<Integer> writeGamesOneByOne(Map<Integer, PendingWrite> flushedWrites, Exception batchFailure) throws GameDataException {
+		Set<Integer> missingGames = new HashSet<Integer>();
+		Map<Integer, PendingWrite> failedWrites = new LinkedHashMap<Integer, PendingWrite>();
+		Exception failure = batchFailure;
+		for (Map.Entry<Integer, PendingWrite> pending : flushedWrites.entrySet()) {
+			try {
+				if (!writeGame(pending.getKey(), pending.getValue().game, pending.getValue().snapshotNum)) {
+					missingGames.add(pending.getKey());
+				}
+			}
+			catch (GameDataException | RuntimeException e) {
+				failedWrites.put(pending.getKey(), pending.getValue());
+				failure = e;
+			}
+		}
+		
+		if (failedWrites.size() == flushedWrites.size()) {
+			//no game could be written, so the database is probably not available (the games stay in the buffer)
+			if (failure instanceof GameDataException) {
+				throw (GameDataException) failure;
+			}
+			throw (RuntimeException) failure;
+		}
+		
+		for (Map.Entry<Integer, PendingWrite> failedWrite : failedWrites.entrySet()) {
+			int id = failedWrite.getKey();
+			PendingWrite pending = failedWrite.getValue();
+			flushedWrites.remove(id);
+			if (pending.failedAttempts + 1 >= maxWriteAttempts) {
+				//the game can't be written although the database is available, so it would keep failing the batches
+				LOGGER.error("the buffered game {} (snapshot: {}) couldn't be written in {} attempts and is discarded", id, pending.snapshotNum,
+						maxWriteAttempts);
+				discardedGames.incrementAndGet();
+				pendingWrites.remove(id, pending);
+				knownGames.remove(id);
+			}
+			else {
+				PendingWrite retry = new PendingWrite(pending.game, pending.snapshotNum, pending.dirtySince, pending.failedAttempts + 1);
+				pendingWrites.replace(id, pending, retry);
+			}
+		}
+		return missingGames;
+	}
+	
+	private void flushQuietly() {
+		try {
+			flush();
+		}
+		catch (GameDataException | RuntimeException e) {
+			//the games stay in the buffer, so they are written with the next flush
+			LOGGER.error("buffered games couldn't be written to the database (buffered games: {})", pendingWrites.size(), e);
+		}
+	}
+	
+	/**
+	 * Write the games to the database (in one transaction).
+	 * 
+	 * @param games
+	 *        The games (by their ids).
+	 * 
+	 * @param snapshotNums
+	 *        The numbers of the last moves that are included in the games (by the ids of the games).
+	 * 
+	 * @return The ids of the games that were not updated (because they are not active games anymore).
+	 */
+	protected Set<Integer> writeGames(Map<Integer, String> games, Map<Integer, Integer> snapshotNums) throws GameDataException {
+		Date lastPlayed = Date.valueOf(LocalDate.now());
+		List<Integer> ids = new ArrayList<Integer>(games.keySet());
+		List<CheckedSqlConsumer<PreparedStatement>> variableSetters = new ArrayList<CheckedSqlConsumer<PreparedStatement>>();
+		for (int id : ids) {
+			variableSetters.add(ps -> setUpdateVariables(ps, id, games.get(id), snapshotNums.get(id), lastPlayed));
+		}
+		
+		int[] updateCounts = DatabaseConnection
+				.executeCheckedTransaction(transaction -> transaction.executeBatchForUpdateCounts(SqlStatement.UPDATE_GAME, variableSetters));
+		Set<Integer> missingGames = new HashSet<Integer>();
+		for (int i = 0; i < updateCounts.length; i++) {
+			if (updateCounts[i] == 0) {
+				missingGames.add(ids.get(i));
+			}
+		}
+		return missingGames;
+	}
+	
+	/**
+	 * Write one game to the database (if the batch of games failed).
+	 * 
+	 * @return False if the game was not updated (because it is not an active game anymore).
+	 */
+	protected boolean writeGame(int id, String game, int snapshotNum) throws GameDataException {
+		Date lastPlayed = Date.valueOf(LocalDate.now());
+		CheckedSqlConsumer<PreparedStatement> variableSetter = ps -> setUpdateVariables(ps, id, game, snapshotNum, lastPlayed);
+		int updatedRows = DatabaseConnection.executeCheckedTransaction(
+				transaction -> transaction.execute(SqlStatement.UPDATE_GAME, SqlExecutionType.UPDATE, variableSetter, null));
+		return updatedRows > 0;
+	}
+	
+	private static void setUpdateVariables(PreparedStatement ps, int id, String game, int snapshotNum, Date lastPlayed) throws SQLException {
+		StorageCodec.setData(ps, 1, 2, game);
+		ps.setInt(3, snapshotNum);
+		ps.setDate(4, lastPlayed);
+		ps.setInt(5, id);
+	}
+	
+	/**
+	 * Stop the periodic flushes and write all buffered games to the database.
+	 */
+	protected void close() {
+		if (!enabled || closed) {
+			return;
+		}
+		closed = true;
+		flushExecutor.shutdown();
+		try {
+			flushExecutor.awaitTermination(flushIntervalMillis, TimeUnit.MILLISECONDS);
+		}
+		catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+		}
+		
+		LOGGER.info("flushing {} buffered games on shutdown", pendingWrites.size());
+		flushQuietly();
+	}
+	
+	/**
+	 * Discard all buffered games and known game ids (e.g. because the test database was reset).
+	 */
+	public void clear() {
+		pendingWrites.clear();
+		knownGames.clear();
+	}
+	
+	public Map<String, Object> getStatistics() {
+		long now = System.currentTimeMillis();
+		long oldestWrite = now;
+		for (PendingWrite pending : pendingWrites.values()) {
+			oldestWrite = Math.min(oldestWrite, pending.dirtySince);
+		}
+		
+		Map<String, Object> statistics = new LinkedHashMap<String, Object>();
+		statistics.put("enabled", enabled);
+		statistics.put("bufferedGames", pendingWrites.size());
+		statistics.put("maxBufferedGames", maxBufferedGames);
+		statistics.put("currentLagMillis", now - oldestWrite);
+		statistics.put("lastFlushLagMillis", lastFlushLagMillis);
+		statistics.put("maxFlushLagMillis", maxFlushLagMillis);
+		statistics.put("bufferedWrites", bufferedWrites.get());
+		statistics.put("coalescedWrites", coalescedWrites.get());
+		statistics.put("flushes", flushes.get());
+		statistics.put("flushedGames", flushedGames.get());
+		statistics.put("failedFlushes", failedFlushes.get());
+		statistics.put("writeThroughs", writeThroughs.get());
+		statistics.put("discardedGames", discardedGames.get());
+		return statistics;
+	}
+	
+	public boolean isEnabled() {
+		return enabled;
+	}
+}
\ No newline at end of file
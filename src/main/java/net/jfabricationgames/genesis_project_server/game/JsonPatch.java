@@ -0,0 +1,219 @@
+package net.jfabricationgames.genesis_project_server.game;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import net.jfabricationgames.genesis_project_server.exception.GameDataException;
+import net.jfabricationgames.genesis_project_server.exception.GameDataException.Cause;
+
+/**
+ * Applies a JSON Patch (RFC 6902) to a JSON document. The operations add, remove, replace, move, copy and test are supported; the paths are
+ * JSON Pointers (RFC 6901).
+ * <p>
+ * The document is changed in place (a new root is returned only if the whole document is replaced), so a document whose patch failed has
+ * to be discarded.
+ */
+public class JsonPatch {
+	
+	private JsonPatch() {}
+	
+	/**
+	 * Apply all operations of a patch to a document.
+	 * 
+	 * @param document
+	 *        The document that is patched (changed in place).
+	 * 
+	 * @param patch
+	 *        The patch (an array of operations).
+	 * 
+	 * @return The patched document.
+	 * 
+	 * @throws GameDataException
+	 *         A {@link GameDataException} is thrown if the patch is invalid or can't be applied to the document (INVALID_REQUEST) or if a
+	 *         test operation failed (CONFLICT).
+	 */
+	public static JsonNode apply(JsonNode document, JsonNode patch) throws GameDataException {
+		if (patch == null || !patch.isArray()) {
+			throw new GameDataException("a JSON patch has to be an array of operations", Cause.INVALID_REQUEST);
+		}
+		JsonNode root = document;
+		for (JsonNode operation : patch) {
+			root = applyOperation(root, operation);
+		}
+		return root;
+	}
+	
+	private static JsonNode applyOperation(JsonNode root, JsonNode operation) throws GameDataException {
+		String op = getText(operation, "op");
+		List<String> path = parsePointer(getText(operation, "path"));
+		switch (op) {
+			case "add":
+				return add(root, path, getValue(operation));
+			case "remove":
+				remove(root, path);
+				return root;
+			case "replace":
+				return replace(root, path, getValue(operation));
+			case "move":
+				List<String> from = parsePointer(getText(operation, "from"));
+				if (path.size() > from.size() && path.subList(0, from.size()).equals(from)) {
+					throw new GameDataException("a value can't be moved into one of its children", Cause.INVALID_REQUEST);
+				}
+				JsonNode moved = get(root, from);
+				remove(root, from);
+				return add(root, path, moved);
+			case "copy":
+				return add(root, path, get(root, parsePointer(getText(operation, "from"))).deepCopy());
+			case "test":
+				if (!get(root, path).equals(getValue(operation))) {
+					throw new GameDataException("the test operation of the patch failed (path: " + operation.get("path").asText() + ")",
+							Cause.CONFLICT);
+				}
+				return root;
+			default:
+				throw new GameDataException("unknown JSON patch operation: " + op, Cause.INVALID_REQUEST);
+		}
+	}
+	
+	private static JsonNode add(JsonNode root, List<String> path, JsonNode value) throws GameDataException {
+		if (path.isEmpty()) {
+			return value;
+		}
+		JsonNode parent = get(root, path.subList(0, path.size() - 1));
+		String token = path.get(path.size() - 1);
+		if (parent.isObject()) {
+			((ObjectNode) parent).set(token, value);
+		}
+		else if (parent.isArray()) {
+			ArrayNode array = (ArrayNode) parent;
+			if (token.equals("-")) {
+				array.add(value);
+			}
+			else {
+				array.insert(getIndex(array, token, array.size()), value);
+			}
+		}
+		else {
+			throw new GameDataException("the parent of the path " + toPointer(path) + " is not a container", Cause.INVALID_REQUEST);
+		}
+		return root;
+	}
+	
+	private static void remove(JsonNode root, List<String> path) throws GameDataException {
+		if (path.isEmpty()) {
+			throw new GameDataException("the whole document can't be removed", Cause.INVALID_REQUEST);
+		}
+		JsonNode parent = get(root, path.subList(0, path.size() - 1));
+		String token = path.get(path.size() - 1);
+		if (parent.isObject() && parent.has(token)) {
+			((ObjectNode) parent).remove(token);
+		}
+		else if (parent.isArray()) {
+			ArrayNode array = (ArrayNode) parent;
+			array.remove(getIndex(array, token, array.size() - 1));
+		}
+		else {
+			throw new GameDataException("the path " + toPointer(path) + " doesn't exist", Cause.INVALID_REQUEST);
+		}
+	}
+	
+	private static JsonNode replace(JsonNode root, List<String> path, JsonNode value) throws GameDataException {
+		if (path.isEmpty()) {
+			return value;
+		}
+		JsonNode parent = get(root, path.subList(0, path.size() - 1));
+		String token = path.get(path.size() - 1);
+		if (parent.isObject() && parent.has(token)) {
+			((ObjectNode) parent).set(token, value);
+		}
+		else if (parent.isArray()) {
+			ArrayNode array = (ArrayNode) parent;
+			array.set(getIndex(array, token, array.size() - 1), value);
+		}
+		else {
+			throw new GameDataException("the path " + toPointer(path) + " doesn't exist", Cause.INVALID_REQUEST);
+		}
+		return root;
+	}
+	
+	/**
+	 * Get the value at a path (that has to exist).
+	 */
+	private static JsonNode get(JsonNode root, List<String> path) throws GameDataException {
+		JsonNode node = root;
+		for (String token : path) {
+			if (node.isObject()) {
+				node = node.get(token);
+			}
+			else if (node.isArray()) {
+				node = node.get(getIndex((ArrayNode) node, token, node.size() - 1));
+			}
+			else {
+				node = null;
+			}
+			if (node == null) {
+				throw new GameDataException("the path " + toPointer(path) + " doesn't exist", Cause.INVALID_REQUEST);
+			}
+		}
+		return node;
+	}
+	
+	/**
+	 * Parse an array index of a path (a number without leading zeros that is not greater than the maximum index).
+	 */
+	private static int getIndex(ArrayNode array, String token, int maxIndex) throws GameDataException {
+		if (!token.matches("0|[1-9][0-9]{0,8}")) {
+			throw new GameDataException("invalid array index in JSON pointer: " + token, Cause.INVALID_REQUEST);
+		}
+		int index = Integer.parseInt(token);
+		if (index > maxIndex) {
+			throw new GameDataException("array index out of bounds: " + index + " (size: " + array.size() + ")", Cause.INVALID_REQUEST);
+		}
+		return index;
+	}
+	
+	/**
+	 * Split a JSON pointer into its (unescaped) reference tokens (an empty list references the whole document).
+	 */
+	protected static List<String> parsePointer(String pointer) throws GameDataException {
+		List<String> tokens = new ArrayList<String>();
+		if (pointer.isEmpty()) {
+			return tokens;
+		}
+		if (!pointer.startsWith("/")) {
+			throw new GameDataException("a JSON pointer has to start with '/': " + pointer, Cause.INVALID_REQUEST);
+		}
+		for (String token : pointer.substring(1).split("/", -1)) {
+			tokens.add(token.replace("~1", "/").replace("~0", "~"));
+		}
+		return tokens;
+	}
+	
+	private static String toPointer(List<String> path) {
+		StringBuilder sb = new StringBuilder();
+		for (String token : path) {
+			sb.append('/').append(token.replace("~", "~0").replace("/", "~1"));
+		}
+		return sb.toString();
+	}
+	
+	private static String getText(JsonNode operation, String field) throws GameDataException {
+		JsonNode value = operation.get(field);
+		if (value == null || !value.isTextual()) {
+			throw new GameDataException("the field '" + field + "' of a JSON patch operation is missing: " + operation, Cause.INVALID_REQUEST);
+		}
+		return value.asText();
+	}
+	
+	private static JsonNode getValue(JsonNode operation) throws GameDataException {
+		JsonNode value = operation.get("value");
+		if (value == null) {
+			throw new GameDataException("the field 'value' of a JSON patch operation is missing: " + operation, Cause.INVALID_REQUEST);
+		}
+		return value;
+	}
+}
\ No newline at end of file
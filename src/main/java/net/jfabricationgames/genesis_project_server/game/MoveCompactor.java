@@ -0,0 +1,178 @@
+package net.jfabricationgames.genesis_project_server.game;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import net.jfabricationgames.genesis_project_server.config.ServiceConfiguration;
+import net.jfabricationgames.genesis_project_server.database.CheckedSqlConsumer;
+import net.jfabricationgames.genesis_project_server.database.DatabaseConnection;
+import net.jfabricationgames.genesis_project_server.database.SqlExecutionType;
+import net.jfabricationgames.genesis_project_server.database.SqlStatement;
+import net.jfabricationgames.genesis_project_server.exception.GameDataException;
+
+/**
+ * Removes the moves that are included in the stored snapshots of the games in the background (optional; enabled in the service
+ * configuration), so the number of stored moves per game stays bounded.
+ * <p>
+ * The last moves before a snapshot are retained (at least the last move, so the move numbers of a game are never reused). The number of the
+ * last removed move is stored as the compaction horizon of the game (compacted_num); the moves after the horizon stay available. The games
+ * are compacted in small batches (ordered by their ids) and the compaction starts again with the first game when all games were compacted.
+ * <p>
+ * Only the moves that a client included in a snapshot explicitly are removed: while the compaction is enabled, an update without the number
+ * of the last included move keeps the snapshot number of the stored game (see {@link GameDataManager#updateGame(int, String, int)}).
+ */
+public class MoveCompactor {
+	
+	private static final Logger LOGGER = LogManager.getLogger(MoveCompactor.class);
+	
+	public static final boolean DEFAULT_ENABLED = false;
+	public static final int DEFAULT_RETAINED_MOVES = 100;
+	public static final int DEFAULT_BATCH_SIZE = 100;
+	public static final long DEFAULT_INTERVAL_MILLIS = 60000;
+	
+	private static MoveCompactor instance;
+	
+	private final int retainedMoves;
+	private final int batchSize;
+	private final ScheduledExecutorService executor;
+	
+	/**
+	 * The id of the last game that was compacted in the current run over all games
+	 */
+	private int lastId;
+	
+	private final AtomicLong compactedGames = new AtomicLong();
+	private final AtomicLong removedMoves = new AtomicLong();
+	private final AtomicLong completedRuns = new AtomicLong();
+	private final AtomicLong failedBatches = new AtomicLong();
+	
+	private MoveCompactor(int retainedMoves, int batchSize, long intervalMillis) {
+		this.retainedMoves = retainedMoves;
+		this.batchSize = batchSize;
+		
+		executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "move-compactor");
+			thread.setDaemon(true);
+			thread.setPriority(Thread.MIN_PRIORITY);
+			return thread;
+		});
+		executor.scheduleWithFixedDelay(this::compactNextBatch, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+		LOGGER.info("move compaction started (retained moves: {}, batch size: {})", retainedMoves, batchSize);
+	}
+	
+	/**
+	 * Check whether the compaction is enabled in the service configuration.
+	 */
+	public static boolean isEnabled() {
+		return ServiceConfiguration.getInstance().getBoolean("compaction.enabled", DEFAULT_ENABLED);
+	}
+	
+	/**
+	 * Start the compaction (if it's enabled).
+	 */
+	public static synchronized void start() {
+		ServiceConfiguration config = ServiceConfiguration.getInstance();
+		if (instance != null || !isEnabled()) {
+			return;
+		}
+		//the last move of a game is always retained, so the move sequence can be seeded from the stored moves
+		int retainedMoves = Math.max(config.getInt("compaction.retained_moves", DEFAULT_RETAINED_MOVES), 1);
+		instance = new MoveCompactor(retainedMoves, config.getInt("compaction.batch_size", DEFAULT_BATCH_SIZE),
+				config.getLong("compaction.interval_millis", DEFAULT_INTERVAL_MILLIS));
+	}
+	
+	/**
+	 * Stop the compaction.
+	 */
+	public static synchronized void shutdown() {
+		if (instance != null) {
+			instance.executor.shutdownNow();
+			instance = null;
+		}
+	}
+	
+	public static synchronized Map<String, Object> getStatistics() {
+		Map<String, Object> statistics = new LinkedHashMap<String, Object>();
+		statistics.put("running", instance != null);
+		if (instance != null) {
+			statistics.put("retainedMoves", instance.retainedMoves);
+			statistics.put("compactedGames", instance.compactedGames.get());
+			statistics.put("removedMoves", instance.removedMoves.get());
+			statistics.put("completedRuns", instance.completedRuns.get());
+			statistics.put("failedBatches", instance.failedBatches.get());
+		}
+		return statistics;
+	}
+	
+	private void compactNextBatch() {
+		try {
+			if (compactBatch() == 0) {
+				LOGGER.debug("all games are compacted (removed moves: {})", removedMoves.get());
+				lastId = 0;
+				completedRuns.incrementAndGet();
+			}
+		}
+		catch (GameDataException | RuntimeException e) {
+			//the batch is compacted again with the next run
+			failedBatches.incrementAndGet();
+			LOGGER.warn("the compaction of the games after the id {} failed", lastId, e);
+		}
+	}
+	
+	/**
+	 * Compact the next batch of games, that have more moves before their snapshot than the retained moves.
+	 * 
+	 * @return The number of games that were loaded (0 if there are no more games to compact).
+	 */
+	private int compactBatch() throws GameDataException {
+		Map<Integer, Integer> snapshotNums = new LinkedHashMap<Integer, Integer>();
+		CheckedSqlConsumer<PreparedStatement> variableSetter = ps -> {
+			ps.setInt(1, lastId);
+			ps.setInt(2, retainedMoves);
+			ps.setInt(3, batchSize);
+		};
+		CheckedSqlConsumer<ResultSet> resultConsumer = resultSet -> {
+			while (resultSet.next()) {
+				snapshotNums.put(resultSet.getInt(1), resultSet.getInt(2));
+			}
+		};
+		DatabaseConnection.executeCheckedSQL(SqlStatement.LIST_COMPACTABLE_GAMES, SqlExecutionType.QUERY, variableSetter, resultConsumer);
+		
+		for (Map.Entry<Integer, Integer> game : snapshotNums.entrySet()) {
+			int gameId = game.getKey();
+			//the moves up to the horizon are removed (the last moves before the snapshot are retained)
+			int horizon = game.getValue() - retainedMoves;
+			
+			//remove the moves and store the horizon in one transaction (so the horizon always matches the stored moves)
+			int moves = DatabaseConnection.executeCheckedTransaction(transaction -> {
+				int deletedMoves = transaction.execute(SqlStatement.DELETE_COMPACTED_MOVES, SqlExecutionType.UPDATE, ps -> {
+					ps.setInt(1, gameId);
+					ps.setInt(2, horizon);
+				}, null);
+				transaction.execute(SqlStatement.SET_COMPACTED_NUM, SqlExecutionType.UPDATE, ps -> {
+					ps.setInt(1, horizon);
+					ps.setInt(2, gameId);
+					ps.setInt(3, horizon);
+				}, null);
+				return deletedMoves;
+			});
+			
+			//the moves lists of the game changed (the removed moves are not listed anymore)
+			GameVersionRegistry.getInstance().movesCompacted(gameId);
+			compactedGames.incrementAndGet();
+			removedMoves.addAndGet(moves);
+			lastId = gameId;
+			LOGGER.debug("compacted game {} (removed moves: {}, horizon: {})", gameId, moves, horizon);
+		}
+		return snapshotNums.size();
+	}
+}
\ No newline at end of file
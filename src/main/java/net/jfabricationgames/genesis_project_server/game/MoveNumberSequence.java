@@ -0,0 +1,84 @@
+package net.jfabricationgames.genesis_project_server.game;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Allocates the numbers of the moves of each game atomically (in the server process), so concurrent moves of one game never get the same
+ * number.
+ * <p>
+ * The sequence of a game is seeded with the highest move number in the database (MAX(num)) when the first move of a game is made after
+ * the server was started.
+ */
+public class MoveNumberSequence {
+	
+	private static final MoveNumberSequence instance = new MoveNumberSequence();
+	
+	/**
+	 * Maps the game id to the number of the last move that was allocated.
+	 */
+	private final ConcurrentMap<Integer, AtomicInteger> lastMoveNumbers;
+	
+	private MoveNumberSequence() {
+		lastMoveNumbers = new ConcurrentHashMap<Integer, AtomicInteger>();
+	}
+	
+	public static MoveNumberSequence getInstance() {
+		return instance;
+	}
+	
+	/**
+	 * Check whether the sequence of a game is already seeded (otherwise {@link #seed(int, int)} has to be called before allocating a number).
+	 */
+	public boolean isSeeded(int gameId) {
+		return lastMoveNumbers.containsKey(gameId);
+	}
+	
+	/**
+	 * Seed the sequence of a game with the number of the last move that is stored in the database (if the sequence was not already seeded by
+	 * another thread).
+	 */
+	public void seed(int gameId, int lastMoveNumber) {
+		lastMoveNumbers.putIfAbsent(gameId, new AtomicInteger(lastMoveNumber));
+	}
+	
+	/**
+	 * Allocate the number of the next move of a game.
+	 * 
+	 * @throws IllegalStateException
+	 *         An {@link IllegalStateException} is thrown if the sequence of the game was not seeded.
+	 */
+	public int next(int gameId) throws IllegalStateException {
+		AtomicInteger lastMoveNumber = lastMoveNumbers.get(gameId);
+		if (lastMoveNumber == null) {
+			throw new IllegalStateException("the move number sequence of the game " + gameId + " was not seeded");
+		}
+		return lastMoveNumber.incrementAndGet();
+	}
+	
+	/**
+	 * Get the number of the last move that was allocated for a game (or -1 if the sequence of the game is not seeded).
+	 */
+	public int getLast(int gameId) {
+		AtomicInteger lastMoveNumber = lastMoveNumbers.get(gameId);
+		if (lastMoveNumber == null) {
+			return -1;
+		}
+		return lastMoveNumber.get();
+	}
+	
+	/**
+	 * Reset the sequence of a game (so it's seeded from the database again).
+	 */
+	public void reset(int gameId) {
+		lastMoveNumbers.remove(gameId);
+	}
+	
+	/**
+	 * Reset the sequences of all games (e.g. after the test database was reset).
+	 */
+	public void clear() {
+		lastMoveNumbers.clear();
+	}
+}
\ No newline at end of file
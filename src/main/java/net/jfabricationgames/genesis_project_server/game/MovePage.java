@@ -0,0 +1,39 @@
+package net.jfabricationgames.genesis_project_server.game;
+
+/**
+ * A page of a paginated move list.
+ */
+public class MovePage {
+	
+	/**
+	 * The moves of this page.
+	 */
+	private MoveList moves;
+	/**
+	 * The cursor that is used to request the next page (or null if this is the last page).
+	 */
+	private String nextCursor;
+	
+	public MovePage() {
+		
+	}
+	
+	@Override
+	public String toString() {
+		return "MovePage [moves=" + moves + ", nextCursor=" + nextCursor + "]";
+	}
+	
+	public MoveList getMoves() {
+		return moves;
+	}
+	public void setMoves(MoveList moves) {
+		this.moves = moves;
+	}
+	
+	public String getNextCursor() {
+		return nextCursor;
+	}
+	public void setNextCursor(String nextCursor) {
+		this.nextCursor = nextCursor;
+	}
+}
\ No newline at end of file
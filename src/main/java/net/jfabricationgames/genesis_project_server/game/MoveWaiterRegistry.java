@@ -0,0 +1,273 @@
+package net.jfabricationgames.genesis_project_server.game;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
+
+import net.jfabricationgames.genesis_project_server.config.ServiceConfiguration;
+
+/**
+ * Keeps the requests that wait for the next move of a game (long polling) and signals them when a move is set.
+ * <p>
+ * The registry knows the number of the last committed move of every game that was waited for (it's loaded from the database once and then
+ * updated by {@link GameDataManager#setMove(int, String, String)}), so a waiting request doesn't cause any database queries until a new
+ * move is set. The entry of a game is removed when the game is archived (see {@link #remove(int)}), so only the active games are kept.
+ */
+public class MoveWaiterRegistry {
+	
+	public static final int DEFAULT_MAX_WAITERS = 10000;
+	
+	/**
+	 * The number of the last move of a game that is not yet known (not seeded)
+	 */
+	public static final int UNKNOWN = -1;
+	
+	private static final MoveWaiterRegistry instance = new MoveWaiterRegistry(
+			ServiceConfiguration.getInstance().getInt("await_move.max_waiters", DEFAULT_MAX_WAITERS));
+	
+	/**
+	 * A request that waits for a move of a game.
+	 */
+	public static class Waiter {
+		
+		private final int gameId;
+		private final int afterNum;
+		private final IntConsumer listener;
+		
+		private Waiter(int gameId, int afterNum, IntConsumer listener) {
+			this.gameId = gameId;
+			this.afterNum = afterNum;
+			this.listener = listener;
+		}
+		
+		public int getGameId() {
+			return gameId;
+		}
+		
+		public int getAfterNum() {
+			return afterNum;
+		}
+	}
+	
+	/**
+	 * The last committed move and the waiting requests of one game.
+	 */
+	private static class GameWaiters {
+		
+		private int lastMoveNum = UNKNOWN;
+		private final List<Waiter> waiters = new ArrayList<Waiter>();
+		/**
+		 * Set when the entry was removed from the registry (a thread that got the entry before must get a new one)
+		 */
+		private boolean removed;
+	}
+	
+	private final int maxWaiters;
+	
+	private final ConcurrentMap<Integer, GameWaiters> games = new ConcurrentHashMap<Integer, GameWaiters>();
+	private final AtomicInteger waiting = new AtomicInteger();
+	
+	private final AtomicLong signalled = new AtomicLong();
+	private final AtomicLong cancelled = new AtomicLong();
+	private final AtomicLong rejected = new AtomicLong();
+	
+	protected MoveWaiterRegistry(int maxWaiters) {
+		this.maxWaiters = maxWaiters;
+	}
+	
+	public static MoveWaiterRegistry getInstance() {
+		return instance;
+	}
+	
+	private GameWaiters getGame(int gameId) {
+		return games.computeIfAbsent(gameId, id -> new GameWaiters());
+	}
+	
+	/**
+	 * Check whether the number of the last move of a game is known (otherwise {@link #seed(int, int)} has to be called before waiting).
+	 */
+	public boolean isSeeded(int gameId) {
+		GameWaiters game = games.get(gameId);
+		if (game == null) {
+			return false;
+		}
+		synchronized (game) {
+			return game.lastMoveNum != UNKNOWN;
+		}
+	}
+	
+	/**
+	 * Seed the registry with the number of the last move of a game, that was loaded from the database (a higher number that was already
+	 * committed is kept).
+	 */
+	public void seed(int gameId, int lastMoveNum) {
+		while (true) {
+			GameWaiters game = getGame(gameId);
+			synchronized (game) {
+				if (!game.removed) {
+					game.lastMoveNum = Math.max(game.lastMoveNum, lastMoveNum);
+					return;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Get the number of the last committed move of a game (or {@link #UNKNOWN} if the game was not seeded).
+	 */
+	public int getLastMoveNum(int gameId) {
+		GameWaiters game = games.get(gameId);
+		if (game == null) {
+			return UNKNOWN;
+		}
+		synchronized (game) {
+			return game.lastMoveNum;
+		}
+	}
+	
+	/**
+	 * Wait for a move of a game with a number higher than afterNum. The listener is called (once) with the number of the last committed move,
+	 * either immediately (if the move was already committed) or by the thread that committed the move.
+	 * 
+	 * @return The {@link Waiter} that can be cancelled (e.g. on a timeout) or null if the maximum number of waiting requests is reached.
+	 */
+	public Waiter await(int gameId, int afterNum, IntConsumer listener) {
+		Waiter waiter = new Waiter(gameId, afterNum, listener);
+		int lastMoveNum = UNKNOWN;
+		boolean added = false;
+		while (!added) {
+			GameWaiters game = getGame(gameId);
+			synchronized (game) {
+				if (game.removed) {
+					continue;
+				}
+				added = true;
+				lastMoveNum = game.lastMoveNum;
+				if (lastMoveNum <= afterNum) {
+					if (waiting.incrementAndGet() > maxWaiters) {
+						waiting.decrementAndGet();
+						rejected.incrementAndGet();
+						return null;
+					}
+					game.waiters.add(waiter);
+					return waiter;
+				}
+			}
+		}
+		
+		//the move was already committed (the listener is called outside of the lock)
+		signalled.incrementAndGet();
+		listener.accept(lastMoveNum);
+		return waiter;
+	}
+	
+	/**
+	 * Cancel a waiting request.
+	 * 
+	 * @return True if the request was still waiting; false if it was already signalled (or cancelled).
+	 */
+	public boolean cancel(Waiter waiter) {
+		GameWaiters game = games.get(waiter.gameId);
+		if (game == null) {
+			return false;
+		}
+		synchronized (game) {
+			if (!game.waiters.remove(waiter)) {
+				return false;
+			}
+		}
+		waiting.decrementAndGet();
+		cancelled.incrementAndGet();
+		return true;
+	}
+	
+	/**
+	 * Called after a move was committed. All requests that wait for a move with a lower number are signalled.
+	 */
+	public void moveCommitted(int gameId, int num) {
+		List<Waiter> ready = new ArrayList<Waiter>();
+		int lastMoveNum = UNKNOWN;
+		boolean committed = false;
+		while (!committed) {
+			GameWaiters game = getGame(gameId);
+			synchronized (game) {
+				if (game.removed) {
+					continue;
+				}
+				committed = true;
+				game.lastMoveNum = Math.max(game.lastMoveNum, num);
+				lastMoveNum = game.lastMoveNum;
+				for (Iterator<Waiter> iter = game.waiters.iterator(); iter.hasNext();) {
+					Waiter waiter = iter.next();
+					if (waiter.afterNum < lastMoveNum) {
+						iter.remove();
+						ready.add(waiter);
+					}
+				}
+			}
+		}
+		
+		//call the listeners outside of the lock
+		for (Waiter waiter : ready) {
+			waiting.decrementAndGet();
+			signalled.incrementAndGet();
+			waiter.listener.accept(lastMoveNum);
+		}
+	}
+	
+	/**
+	 * Remove the entry of a game that is no longer played (called when the game is archived), so the registry doesn't keep an entry for
+	 * every game that was ever played. The entry is kept if requests are still waiting for a move of the game.
+	 * 
+	 * @return True if the entry was removed.
+	 */
+	public boolean remove(int gameId) {
+		GameWaiters game = games.get(gameId);
+		if (game == null) {
+			return false;
+		}
+		synchronized (game) {
+			if (!game.waiters.isEmpty()) {
+				return false;
+			}
+			game.removed = true;
+			games.remove(gameId, game);
+			return true;
+		}
+	}
+	
+	/**
+	 * Discard the known move numbers of all games (e.g. after the test database was reset). Waiting requests are kept (they time out).
+	 */
+	public void clear() {
+		for (GameWaiters game : games.values()) {
+			synchronized (game) {
+				game.lastMoveNum = UNKNOWN;
+			}
+		}
+		games.entrySet().removeIf(entry -> {
+			synchronized (entry.getValue()) {
+				entry.getValue().removed = entry.getValue().waiters.isEmpty();
+				return entry.getValue().removed;
+			}
+		});
+	}
+	
+	public Map<String, Object> getStatistics() {
+		Map<String, Object> statistics = new LinkedHashMap<String, Object>();
+		statistics.put("games", games.size());
+		statistics.put("waiting", waiting.get());
+		statistics.put("maxWaiters", maxWaiters);
+		statistics.put("signalled", signalled.get());
+		statistics.put("cancelled", cancelled.get());
+		statistics.put("rejected", rejected.get());
+		return statistics;
+	}
+}
\ No newline at end of file
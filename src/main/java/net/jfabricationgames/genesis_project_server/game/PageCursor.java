@@ -0,0 +1,106 @@
+package net.jfabricationgames.genesis_project_server.game;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import net.jfabricationgames.genesis_project_server.exception.GameDataException;
+import net.jfabricationgames.genesis_project_server.exception.GameDataException.Cause;
+
+/**
+ * The position after which the next page of a paginated list starts (the last game id or the last game id and move number of the previous
+ * page).
+ * <p>
+ * The cursor is sent to the clients as an opaque (URL safe) string, that they only have to send back to get the next page.
+ */
+public class PageCursor {
+	
+	private static final String GAME_CURSOR_TYPE = "g";
+	private static final String MOVE_CURSOR_TYPE = "m";
+	private static final String SEPARATOR = ":";
+	
+	private final String type;
+	private final int gameId;
+	private final int num;
+	
+	private PageCursor(String type, int gameId, int num) {
+		this.type = type;
+		this.gameId = gameId;
+		this.num = num;
+	}
+	
+	/**
+	 * Create a cursor that points to the last game of a page.
+	 */
+	public static PageCursor forGame(int gameId) {
+		return new PageCursor(GAME_CURSOR_TYPE, gameId, 0);
+	}
+	
+	/**
+	 * Create a cursor that points to the last move of a page.
+	 */
+	public static PageCursor forMove(int gameId, int num) {
+		return new PageCursor(MOVE_CURSOR_TYPE, gameId, num);
+	}
+	
+	/**
+	 * Decode a cursor of a game list.
+	 * 
+	 * @throws GameDataException
+	 *         A {@link GameDataException} is thrown if the cursor is not a valid game list cursor
+	 */
+	public static PageCursor decodeGameCursor(String cursor) throws GameDataException {
+		return decode(cursor, GAME_CURSOR_TYPE);
+	}
+	
+	/**
+	 * Decode a cursor of a move list.
+	 * 
+	 * @throws GameDataException
+	 *         A {@link GameDataException} is thrown if the cursor is not a valid move list cursor
+	 */
+	public static PageCursor decodeMoveCursor(String cursor) throws GameDataException {
+		return decode(cursor, MOVE_CURSOR_TYPE);
+	}
+	
+	private static PageCursor decode(String cursor, String expectedType) throws GameDataException {
+		try {
+			String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+			String[] parts = decoded.split(SEPARATOR);
+			if (!parts[0].equals(expectedType) || parts.length != (expectedType.equals(MOVE_CURSOR_TYPE) ? 3 : 2)) {
+				throw new GameDataException("invalid cursor: " + cursor, Cause.INVALID_REQUEST);
+			}
+			
+			int gameId = Integer.parseInt(parts[1]);
+			int num = parts.length > 2 ? Integer.parseInt(parts[2]) : 0;
+			return new PageCursor(expectedType, gameId, num);
+		}
+		catch (IllegalArgumentException iae) {
+			//also catches the NumberFormatException
+			throw new GameDataException("invalid cursor: " + cursor, iae, Cause.INVALID_REQUEST);
+		}
+	}
+	
+	/**
+	 * Encode the cursor to an opaque string.
+	 */
+	public String encode() {
+		String cursor = type + SEPARATOR + gameId;
+		if (type.equals(MOVE_CURSOR_TYPE)) {
+			cursor += SEPARATOR + num;
+		}
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+	}
+	
+	@Override
+	public String toString() {
+		return "PageCursor [type=" + type + ", gameId=" + gameId + ", num=" + num + "]";
+	}
+	
+	public int getGameId() {
+		return gameId;
+	}
+	
+	public int getNum() {
+		return num;
+	}
+}
\ No newline at end of file
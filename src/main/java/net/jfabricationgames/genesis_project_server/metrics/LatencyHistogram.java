@@ -0,0 +1,113 @@
+package net.jfabricationgames.genesis_project_server.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of latencies (in microseconds) that can be recorded concurrently without locks.
+ * <p>
+ * The values are counted in log-linear buckets (like in HdrHistogram): every power of two is divided into 16 sub-buckets, so the relative
+ * error of a recorded value is at most 1/16 (6.25%), while the whole range from 1 microsecond to about 19 hours only needs 528 counters.
+ * Recording a value costs a few bit operations and one atomic increment.
+ */
+public class LatencyHistogram {
+	
+	private static final int SUB_BUCKET_BITS = 4;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	/**
+	 * The exponent of the largest value that can be recorded (larger values are recorded as the largest value)
+	 */
+	private static final int MAX_EXPONENT = 35;
+	private static final long MAX_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+	private static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+	
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	/**
+	 * The count and the sum are updated by every recording (of all buckets), so they are striped to avoid contention between the threads
+	 */
+	private final LongAdder count = new LongAdder();
+	private final LongAdder sumMicros = new LongAdder();
+	
+	/**
+	 * Record a latency that was measured with {@link System#nanoTime()}.
+	 */
+	public void recordNanos(long nanos) {
+		record(TimeUnit.NANOSECONDS.toMicros(nanos));
+	}
+	
+	/**
+	 * Record a latency in microseconds.
+	 */
+	public void record(long micros) {
+		long value = Math.min(Math.max(micros, 0), MAX_VALUE);
+		counts.incrementAndGet(getBucketIndex(value));
+		count.increment();
+		sumMicros.add(value);
+	}
+	
+	protected static int getBucketIndex(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) - SUB_BUCKETS;
+		return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+	}
+	
+	/**
+	 * Get the largest value that is counted in a bucket.
+	 */
+	protected static long getHighestValue(int bucketIndex) {
+		if (bucketIndex < SUB_BUCKETS) {
+			return bucketIndex;
+		}
+		int exponent = bucketIndex / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+		int subBucket = bucketIndex % SUB_BUCKETS;
+		return ((long) (SUB_BUCKETS + subBucket + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+	}
+	
+	/**
+	 * Get the number of recorded values that are (up to the precision of the buckets) less than or equal to the given value.
+	 */
+	public long getCountAtOrBelow(long micros) {
+		long countAtOrBelow = 0;
+		for (int i = 0; i < BUCKETS && getHighestValue(i) <= micros; i++) {
+			countAtOrBelow += counts.get(i);
+		}
+		return countAtOrBelow;
+	}
+	
+	/**
+	 * Get the value (in microseconds) below which the given percentage of the recorded values lies (or 0 if no values were recorded).
+	 */
+	public long getValueAtPercentile(double percentile) {
+		long[] snapshot = new long[BUCKETS];
+		long total = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			snapshot[i] = counts.get(i);
+			total += snapshot[i];
+		}
+		if (total == 0) {
+			return 0;
+		}
+		
+		long target = Math.max(1, (long) Math.ceil(Math.min(percentile, 100) / 100 * total));
+		long cumulated = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			cumulated += snapshot[i];
+			if (cumulated >= target) {
+				return getHighestValue(i);
+			}
+		}
+		return MAX_VALUE;
+	}
+	
+	public long getCount() {
+		return count.sum();
+	}
+	
+	public long getSumMicros() {
+		return sumMicros.sum();
+	}
+}
\ No newline at end of file
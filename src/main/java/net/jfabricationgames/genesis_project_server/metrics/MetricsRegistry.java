@@ -0,0 +1,174 @@
+package net.jfabricationgames.genesis_project_server.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects the latencies, counters and in-flight gauges of the service endpoints and exposes them in the Prometheus text format (for the
+ * metrics endpoint) or as statistics.
+ * <p>
+ * The latencies are recorded per endpoint and HTTP status in {@link LatencyHistogram}s. Additionally the time that the requests waited in
+ * the queue of the database request executor is recorded per endpoint, so slow requests can be separated into queueing and processing.
+ */
+public class MetricsRegistry {
+	
+	private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+	
+	private static final MetricsRegistry instance = new MetricsRegistry();
+	
+	/**
+	 * The metrics of one endpoint.
+	 */
+	private static class EndpointMetrics {
+		
+		private final AtomicInteger inFlight = new AtomicInteger();
+		private final AtomicLong errors = new AtomicLong();
+		private final LatencyHistogram queueWait = new LatencyHistogram();
+		/**
+		 * The latencies by the HTTP status (sorted, so the output is stable)
+		 */
+		private final ConcurrentMap<Integer, LatencyHistogram> latencies = new ConcurrentSkipListMap<Integer, LatencyHistogram>();
+	}
+	
+	private final ConcurrentMap<String, EndpointMetrics> endpoints;
+	
+	protected MetricsRegistry() {
+		endpoints = new ConcurrentHashMap<String, EndpointMetrics>();
+	}
+	
+	public static MetricsRegistry getInstance() {
+		return instance;
+	}
+	
+	private EndpointMetrics getEndpoint(String endpoint) {
+		EndpointMetrics metrics = endpoints.get(endpoint);
+		if (metrics == null) {
+			metrics = endpoints.computeIfAbsent(endpoint, name -> new EndpointMetrics());
+		}
+		return metrics;
+	}
+	
+	/**
+	 * Count a request that is started (as in-flight request).
+	 */
+	public void requestStarted(String endpoint) {
+		getEndpoint(endpoint).inFlight.incrementAndGet();
+	}
+	
+	/**
+	 * Record the latency of a request that was started with {@link #requestStarted(String)}.
+	 */
+	public void requestFinished(String endpoint, int status, long durationNanos) {
+		EndpointMetrics metrics = getEndpoint(endpoint);
+		metrics.inFlight.decrementAndGet();
+		if (status >= 500) {
+			metrics.errors.incrementAndGet();
+		}
+		
+		LatencyHistogram latency = metrics.latencies.get(status);
+		if (latency == null) {
+			latency = metrics.latencies.computeIfAbsent(status, s -> new LatencyHistogram());
+		}
+		latency.recordNanos(durationNanos);
+	}
+	
+	/**
+	 * Record the time a request waited for a thread of the database request executor.
+	 */
+	public void recordQueueWait(String endpoint, long waitNanos) {
+		getEndpoint(endpoint).queueWait.recordNanos(waitNanos);
+	}
+	
+	/**
+	 * Write all metrics in the Prometheus text format (version 0.0.4).
+	 */
+	public String toPrometheusFormat() {
+		Map<String, EndpointMetrics> sortedEndpoints = new ConcurrentSkipListMap<String, EndpointMetrics>(endpoints);
+		StringBuilder sb = new StringBuilder();
+		
+		PrometheusFormat.writeHeader(sb, "genesis_requests_in_flight", "gauge", "The number of requests that are currently processed.");
+		for (Map.Entry<String, EndpointMetrics> endpoint : sortedEndpoints.entrySet()) {
+			PrometheusFormat.writeSample(sb, "genesis_requests_in_flight", labels(endpoint.getKey(), null), endpoint.getValue().inFlight.get());
+		}
+		
+		PrometheusFormat.writeHeader(sb, "genesis_requests_total", "counter", "The number of finished requests.");
+		for (Map.Entry<String, EndpointMetrics> endpoint : sortedEndpoints.entrySet()) {
+			for (Map.Entry<Integer, LatencyHistogram> latency : endpoint.getValue().latencies.entrySet()) {
+				PrometheusFormat.writeSample(sb, "genesis_requests_total", labels(endpoint.getKey(), latency.getKey()),
+						latency.getValue().getCount());
+			}
+		}
+		
+		PrometheusFormat.writeHeader(sb, "genesis_request_errors_total", "counter",
+				"The number of requests that failed with a server error (HTTP 5xx).");
+		for (Map.Entry<String, EndpointMetrics> endpoint : sortedEndpoints.entrySet()) {
+			PrometheusFormat.writeSample(sb, "genesis_request_errors_total", labels(endpoint.getKey(), null), endpoint.getValue().errors.get());
+		}
+		
+		PrometheusFormat.writeHeader(sb, "genesis_request_duration_seconds", "histogram", "The latency of the requests.");
+		for (Map.Entry<String, EndpointMetrics> endpoint : sortedEndpoints.entrySet()) {
+			for (Map.Entry<Integer, LatencyHistogram> latency : endpoint.getValue().latencies.entrySet()) {
+				PrometheusFormat.writeHistogram(sb, "genesis_request_duration_seconds", labels(endpoint.getKey(), latency.getKey()),
+						latency.getValue());
+			}
+		}
+		
+		PrometheusFormat.writeHeader(sb, "genesis_request_duration_quantile_seconds", "gauge",
+				"The quantiles of the request latencies since the start.");
+		for (Map.Entry<String, EndpointMetrics> endpoint : sortedEndpoints.entrySet()) {
+			for (Map.Entry<Integer, LatencyHistogram> latency : endpoint.getValue().latencies.entrySet()) {
+				String labels = labels(endpoint.getKey(), latency.getKey());
+				for (double quantile : QUANTILES) {
+					double seconds = PrometheusFormat.toSeconds(latency.getValue().getValueAtPercentile(quantile * 100));
+					PrometheusFormat.writeSample(sb, "genesis_request_duration_quantile_seconds",
+							labels + "," + PrometheusFormat.label("quantile", quantile), seconds);
+				}
+			}
+		}
+		
+		PrometheusFormat.writeHeader(sb, "genesis_executor_queue_wait_seconds", "histogram",
+				"The time the requests waited for a database request thread.");
+		for (Map.Entry<String, EndpointMetrics> endpoint : sortedEndpoints.entrySet()) {
+			LatencyHistogram queueWait = endpoint.getValue().queueWait;
+			if (queueWait.getCount() > 0) {
+				PrometheusFormat.writeHistogram(sb, "genesis_executor_queue_wait_seconds", labels(endpoint.getKey(), null), queueWait);
+			}
+		}
+		
+		return sb.toString();
+	}
+	
+	private String labels(String endpoint, Integer status) {
+		String labels = PrometheusFormat.label("endpoint", endpoint);
+		if (status != null) {
+			labels += "," + PrometheusFormat.label("status", status);
+		}
+		return labels;
+	}
+	
+	/**
+	 * Get the number of requests and the latency percentiles per endpoint (for logging and monitoring).
+	 */
+	public Map<String, Object> getStatistics() {
+		Map<String, Object> statistics = new LinkedHashMap<String, Object>();
+		for (Map.Entry<String, EndpointMetrics> endpoint : new ConcurrentSkipListMap<String, EndpointMetrics>(endpoints).entrySet()) {
+			Map<String, Object> endpointStatistics = new LinkedHashMap<String, Object>();
+			endpointStatistics.put("inFlight", endpoint.getValue().inFlight.get());
+			endpointStatistics.put("errors", endpoint.getValue().errors.get());
+			for (Map.Entry<Integer, LatencyHistogram> latency : endpoint.getValue().latencies.entrySet()) {
+				Map<String, Object> latencyStatistics = new LinkedHashMap<String, Object>();
+				latencyStatistics.put("count", latency.getValue().getCount());
+				latencyStatistics.put("p50Millis", latency.getValue().getValueAtPercentile(50) / 1e3);
+				latencyStatistics.put("p99Millis", latency.getValue().getValueAtPercentile(99) / 1e3);
+				endpointStatistics.put("status" + latency.getKey(), latencyStatistics);
+			}
+			statistics.put(endpoint.getKey(), endpointStatistics);
+		}
+		return statistics;
+	}
+}
\ No newline at end of file
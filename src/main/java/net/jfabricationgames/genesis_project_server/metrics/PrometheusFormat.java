@@ -0,0 +1,59 @@
+package net.jfabricationgames.genesis_project_server.metrics;
+
+import java.math.BigDecimal;
+import java.util.Locale;
+
+/**
+ * Writes metrics in the Prometheus text format (version 0.0.4).
+ */
+public abstract class PrometheusFormat {
+	
+	/**
+	 * The upper bounds (in seconds) of the histogram buckets
+	 */
+	private static final double[] HISTOGRAM_BUCKETS = {0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30};
+	
+	private static final double MICROS_PER_SECOND = 1e6;
+	
+	/**
+	 * Write the HELP and TYPE lines of a metric.
+	 */
+	public static void writeHeader(StringBuilder sb, String name, String type, String help) {
+		sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+		sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+	}
+	
+	/**
+	 * Write the buckets, the sum and the count of a {@link LatencyHistogram} (in seconds).
+	 */
+	public static void writeHistogram(StringBuilder sb, String name, String labels, LatencyHistogram histogram) {
+		for (double bucket : HISTOGRAM_BUCKETS) {
+			long count = histogram.getCountAtOrBelow((long) (bucket * MICROS_PER_SECOND));
+			writeSample(sb, name + "_bucket", labels + ",le=\"" + BigDecimal.valueOf(bucket).toPlainString() + "\"", count);
+		}
+		writeSample(sb, name + "_bucket", labels + ",le=\"+Inf\"", histogram.getCount());
+		writeSample(sb, name + "_sum", labels, histogram.getSumMicros() / MICROS_PER_SECOND);
+		writeSample(sb, name + "_count", labels, histogram.getCount());
+	}
+	
+	public static void writeSample(StringBuilder sb, String name, String labels, long value) {
+		sb.append(name).append('{').append(labels).append("} ").append(value).append('\n');
+	}
+	public static void writeSample(StringBuilder sb, String name, String labels, double value) {
+		sb.append(name).append('{').append(labels).append("} ").append(String.format(Locale.ROOT, "%.6f", value)).append('\n');
+	}
+	
+	/**
+	 * Create a label (with an escaped value).
+	 */
+	public static String label(String name, Object value) {
+		return name + "=\"" + String.valueOf(value).replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n") + "\"";
+	}
+	
+	/**
+	 * Convert microseconds (of a {@link LatencyHistogram}) to seconds.
+	 */
+	public static double toSeconds(long micros) {
+		return micros / MICROS_PER_SECOND;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,234 @@
+package net.jfabricationgames.genesis_project_server.service;
+
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import net.jfabricationgames.genesis_project_server.config.ServiceConfiguration;
+import net.jfabricationgames.genesis_project_server.database.DatabaseConnection;
+import net.jfabricationgames.genesis_project_server.metrics.MetricsRegistry;
+
+/**
+ * Executes the requests that access the database on a bounded thread pool (instead of the request threads of the server), so a slow
+ * database doesn't block all request threads.
+ * <p>
+ * The number of threads is the maximum size of the connection pool (more threads would only wait for connections). If all threads are busy
+ * and the queue is full, the request is rejected immediately with HTTP 503 (SERVICE_UNAVAILABLE) and a Retry-After header.
+ * <p>
+ * A request that is not answered within the response timeout is only rejected (with HTTP 503 and a Retry-After header) if it is still
+ * queued; it is removed from the queue, so a retry can't execute it twice. A request that was already started might still change the
+ * database (e.g. commit a move), so the response waits for its result.
+ */
+public class DatabaseRequestExecutor {
+	
+	private static final Logger LOGGER = LogManager.getLogger(DatabaseRequestExecutor.class);
+	
+	public static final int DEFAULT_QUEUE_SIZE = 100;
+	public static final long DEFAULT_RESPONSE_TIMEOUT_MILLIS = 30000;
+	public static final int DEFAULT_RETRY_AFTER_SECONDS = 1;
+	
+	private static final int QUEUED = 0;
+	private static final int STARTED = 1;
+	private static final int CANCELLED = 2;
+	
+	private static volatile DatabaseRequestExecutor instance;
+	
+	/**
+	 * The queue wait times and rejections of one endpoint.
+	 */
+	private static class EndpointStatistics {
+		
+		private final AtomicLong executed = new AtomicLong();
+		private final AtomicLong rejected = new AtomicLong();
+		private final AtomicLong timedOut = new AtomicLong();
+		private final AtomicLong totalQueueWaitNanos = new AtomicLong();
+		private final AtomicLong maxQueueWaitNanos = new AtomicLong();
+		
+		public void executed(long queueWaitNanos) {
+			executed.incrementAndGet();
+			totalQueueWaitNanos.addAndGet(queueWaitNanos);
+			maxQueueWaitNanos.accumulateAndGet(queueWaitNanos, Math::max);
+		}
+		
+		public Map<String, Object> toMap() {
+			long executedRequests = executed.get();
+			Map<String, Object> statistics = new LinkedHashMap<String, Object>();
+			statistics.put("executed", executedRequests);
+			statistics.put("rejected", rejected.get());
+			statistics.put("timedOut", timedOut.get());
+			statistics.put("averageQueueWaitMillis", executedRequests == 0 ? 0 : totalQueueWaitNanos.get() / executedRequests / 1e6);
+			statistics.put("maxQueueWaitMillis", maxQueueWaitNanos.get() / 1e6);
+			return statistics;
+		}
+	}
+	
+	private final ThreadPoolExecutor executor;
+	private final int queueSize;
+	private final long responseTimeoutMillis;
+	private final int retryAfterSeconds;
+	
+	private final ConcurrentMap<String, EndpointStatistics> endpointStatistics = new ConcurrentHashMap<String, EndpointStatistics>();
+	
+	protected DatabaseRequestExecutor(int threads, int queueSize, long responseTimeoutMillis, int retryAfterSeconds) {
+		this.queueSize = queueSize;
+		this.responseTimeoutMillis = responseTimeoutMillis;
+		this.retryAfterSeconds = retryAfterSeconds;
+		
+		AtomicInteger threadNumber = new AtomicInteger();
+		executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(queueSize), runnable -> {
+			Thread thread = new Thread(runnable, "database-request-" + threadNumber.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}, new ThreadPoolExecutor.AbortPolicy());
+		executor.allowCoreThreadTimeOut(true);
+		LOGGER.info("database request executor created (threads: {}, queue size: {})", threads, queueSize);
+	}
+	
+	public static DatabaseRequestExecutor getInstance() {
+		//only synchronize if the instance is not yet created (to not synchronize every request)
+		DatabaseRequestExecutor databaseRequestExecutor = instance;
+		if (databaseRequestExecutor == null) {
+			synchronized (DatabaseRequestExecutor.class) {
+				if (instance == null) {
+					ServiceConfiguration config = ServiceConfiguration.getInstance();
+					instance = new DatabaseRequestExecutor(getConnectionPoolSize(), config.getInt("db_executor.queue_size", DEFAULT_QUEUE_SIZE),
+							config.getLong("db_executor.response_timeout_millis", DEFAULT_RESPONSE_TIMEOUT_MILLIS),
+							config.getInt("db_executor.retry_after_seconds", DEFAULT_RETRY_AFTER_SECONDS));
+				}
+				databaseRequestExecutor = instance;
+			}
+		}
+		return databaseRequestExecutor;
+	}
+	
+	private static int getConnectionPoolSize() {
+		try {
+			return DatabaseConnection.getInstance().getConnectionPool().getMaxSize();
+		}
+		catch (SQLException sqle) {
+			LOGGER.warn("the connection pool size couldn't be loaded; using the default pool size", sqle);
+			return DatabaseConnection.DEFAULT_POOL_MAX_SIZE;
+		}
+	}
+	
+	/**
+	 * Shut down the executor (if it was used) and wait for the running requests to be finished.
+	 */
+	public static synchronized void shutdown() {
+		if (instance != null) {
+			instance.executor.shutdown();
+			try {
+				instance.executor.awaitTermination(instance.responseTimeoutMillis, TimeUnit.MILLISECONDS);
+			}
+			catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+			}
+			instance = null;
+		}
+	}
+	
+	/**
+	 * Execute a request on the executor and resume the asynchronous response with the result.
+	 * 
+	 * @param endpoint
+	 *        The name of the endpoint (for the statistics)
+	 * 
+	 * @param asyncResponse
+	 *        The suspended response of the request
+	 * 
+	 * @param request
+	 *        Creates the response (and accesses the database). If the request returns null, the response stays suspended (the request resumes
+	 *        it later itself).
+	 */
+	public void execute(String endpoint, AsyncResponse asyncResponse, Supplier<Response> request) {
+		EndpointStatistics statistics = endpointStatistics.computeIfAbsent(endpoint, name -> new EndpointStatistics());
+		
+		//the request is either started by the executor or cancelled by the timeout handler (while it is queued)
+		AtomicInteger state = new AtomicInteger(QUEUED);
+		long queued = System.nanoTime();
+		Runnable task = () -> {
+			long queueWaitNanos = System.nanoTime() - queued;
+			statistics.executed(queueWaitNanos);
+			MetricsRegistry.getInstance().recordQueueWait(endpoint, queueWaitNanos);
+			if (!state.compareAndSet(QUEUED, STARTED)) {
+				//the request already timed out while it was queued
+				return;
+			}
+			
+			Response response;
+			try {
+				response = request.get();
+			}
+			catch (RuntimeException re) {
+				LOGGER.error("an unknown error occured: ", re);
+				response = Response.status(Status.INTERNAL_SERVER_ERROR).build();
+			}
+			if (response != null) {
+				asyncResponse.resume(response);
+			}
+		};
+		
+		asyncResponse.setTimeout(responseTimeoutMillis, TimeUnit.MILLISECONDS);
+		asyncResponse.setTimeoutHandler(response -> {
+			if (state.compareAndSet(QUEUED, CANCELLED)) {
+				executor.remove(task);
+				statistics.timedOut.incrementAndGet();
+				LOGGER.warn("request to {} timed out after {} ms while it was queued", endpoint, responseTimeoutMillis);
+				response.resume(createServiceUnavailableResponse());
+			}
+			else {
+				//the request is executed and might still change the database, so it is not rejected (a retry could execute it twice)
+				LOGGER.warn("request to {} is still executed after {} ms; waiting for the result", endpoint, responseTimeoutMillis);
+				response.setTimeout(responseTimeoutMillis, TimeUnit.MILLISECONDS);
+			}
+		});
+		
+		try {
+			executor.execute(task);
+		}
+		catch (RejectedExecutionException ree) {
+			statistics.rejected.incrementAndGet();
+			LOGGER.warn("request to {} rejected (all {} threads are busy and the queue is full)", endpoint, executor.getMaximumPoolSize());
+			asyncResponse.resume(createServiceUnavailableResponse());
+		}
+	}
+	
+	/**
+	 * Create a response that rejects a request with HTTP 503 (SERVICE_UNAVAILABLE) and a Retry-After header.
+	 */
+	public Response createServiceUnavailableResponse() {
+		return Response.status(Status.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, retryAfterSeconds).build();
+	}
+	
+	public Map<String, Object> getStatistics() {
+		Map<String, Object> statistics = new LinkedHashMap<String, Object>();
+		statistics.put("threads", executor.getMaximumPoolSize());
+		statistics.put("activeThreads", executor.getActiveCount());
+		statistics.put("queueSize", queueSize);
+		statistics.put("queuedRequests", executor.getQueue().size());
+		
+		Map<String, Object> endpoints = new LinkedHashMap<String, Object>();
+		for (Map.Entry<String, EndpointStatistics> endpoint : endpointStatistics.entrySet()) {
+			endpoints.put(endpoint.getKey(), endpoint.getValue().toMap());
+		}
+		statistics.put("endpoints", endpoints);
+		return statistics;
+	}
+}
\ No newline at end of file
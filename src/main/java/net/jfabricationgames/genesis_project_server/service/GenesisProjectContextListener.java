@@ -0,0 +1,48 @@
+package net.jfabricationgames.genesis_project_server.service;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import net.jfabricationgames.genesis_project_server.config.ConfigurationDataManager;
+import net.jfabricationgames.genesis_project_server.database.DatabaseConnection;
+import net.jfabricationgames.genesis_project_server.game.BackgroundCompressor;
+import net.jfabricationgames.genesis_project_server.game.GameArchive;
+import net.jfabricationgames.genesis_project_server.game.GameEventBus;
+import net.jfabricationgames.genesis_project_server.game.GameWriteBuffer;
+import net.jfabricationgames.genesis_project_server.game.MoveCompactor;
+
+/**
+ * Releases the resources of the service (like the database connection pool) when the webapp is undeployed or the server is shut down.
+ */
+public class GenesisProjectContextListener implements ServletContextListener {
+	
+	private static final Logger LOGGER = LogManager.getLogger(GenesisProjectContextListener.class);
+	
+	@Override
+	public void contextInitialized(ServletContextEvent event) {
+		LOGGER.info("GenesisProject service context initialized");
+		//compress the games and moves that are still stored uncompressed
+		BackgroundCompressor.start();
+		//remove the moves that are included in the snapshots of the games
+		MoveCompactor.start();
+		//archive the games that were not played for a long time
+		GameArchive.start();
+	}
+	
+	@Override
+	public void contextDestroyed(ServletContextEvent event) {
+		LOGGER.info("GenesisProject service context destroyed; releasing resources");
+		//finish the running requests and write the buffered games before the database connections are closed
+		GameEventBus.shutdown();
+		DatabaseRequestExecutor.shutdown();
+		GameWriteBuffer.shutdown();
+		BackgroundCompressor.shutdown();
+		MoveCompactor.shutdown();
+		GameArchive.shutdown();
+		ConfigurationDataManager.shutdown();
+		DatabaseConnection.shutdown();
+	}
+}
\ No newline at end of file
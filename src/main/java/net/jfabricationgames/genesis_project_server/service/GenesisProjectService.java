@@ -2,35 +2,78 @@ package net.jfabricationgames.genesis_project_server.service;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.ws.rs.Consumes;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.HeaderParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.CacheControl;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
 import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.SecurityContext;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.sse.Sse;
+import javax.ws.rs.sse.SseEventSink;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 
+import net.jfabricationgames.genesis_project_server.config.ConfigResponse;
 import net.jfabricationgames.genesis_project_server.config.ConfigurationDataManager;
+import net.jfabricationgames.genesis_project_server.config.ServiceConfiguration;
 import net.jfabricationgames.genesis_project_server.database.DatabaseConnection;
+import net.jfabricationgames.genesis_project_server.database.QueryStatistics;
 import net.jfabricationgames.genesis_project_server.exception.GameDataException;
+import net.jfabricationgames.genesis_project_server.game.BackgroundCompressor;
+import net.jfabricationgames.genesis_project_server.game.GameArchive;
 import net.jfabricationgames.genesis_project_server.game.GameDataManager;
+import net.jfabricationgames.genesis_project_server.game.GameDocumentCache;
+import net.jfabricationgames.genesis_project_server.game.GameEventBus;
 import net.jfabricationgames.genesis_project_server.game.GameList;
+import net.jfabricationgames.genesis_project_server.game.GamePlayerCache;
+import net.jfabricationgames.genesis_project_server.game.GamePage;
+import net.jfabricationgames.genesis_project_server.game.GameState;
+import net.jfabricationgames.genesis_project_server.game.GameVersionRegistry;
+import net.jfabricationgames.genesis_project_server.game.GameWriteBuffer;
+import net.jfabricationgames.genesis_project_server.game.MoveCompactor;
 import net.jfabricationgames.genesis_project_server.game.MoveList;
+import net.jfabricationgames.genesis_project_server.game.MoveNumberSequence;
+import net.jfabricationgames.genesis_project_server.game.MovePage;
+import net.jfabricationgames.genesis_project_server.game.MoveWaiterRegistry;
+import net.jfabricationgames.genesis_project_server.metrics.MetricsRegistry;
 import net.jfabricationgames.genesis_project_server.user.Login;
+import net.jfabricationgames.genesis_project_server.user.SessionTokenManager;
 import net.jfabricationgames.genesis_project_server.user.UserDataManager;
+import net.jfabricationgames.genesis_project_server.user.UserIdCache;
 import net.jfabricationgames.genesis_project_server.util.ErrorUtil;
 
 @Path("/genesis_project")
@@ -38,6 +81,21 @@ public class GenesisProjectService {
 	
 	private static final Logger LOGGER = LogManager.getLogger(GenesisProjectService.class);
 	
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+	
+	public static final long DEFAULT_AWAIT_MOVE_TIMEOUT_MILLIS = 25000;
+	public static final int DEFAULT_CONFIG_MAX_AGE_SECONDS = 86400;
+	
+	/**
+	 * The response header that contains the session token that is issued by verify_user and update_user
+	 */
+	public static final String SESSION_TOKEN_HEADER = "Session-Token";
+	
+	/**
+	 * The content type of the Prometheus text format
+	 */
+	public static final String PROMETHEUS_CONTENT_TYPE = "text/plain; version=0.0.4";
+	
 	public static final String TEST_CONFIG_RESOURCE_FILE = "config/test.properties";
 	private static Properties testProperties;
 	
@@ -102,39 +160,214 @@ public class GenesisProjectService {
 		return Response.status(Status.OK).entity(answer).build();
 	}
 	
+	/**
+	 * Get statistics about the database usage (connection pool, statement cache, user id cache, game write buffer and request executor) for
+	 * monitoring.
+	 * 
+	 * @return The statistics as JSON object
+	 */
+	@GET
+	@Path("statistics")
+	@Produces(MediaType.APPLICATION_JSON)
+	public Response getStatistics() {
+		LOGGER.debug("getStatistics was called");
+		try {
+			DatabaseConnection dbConnection = DatabaseConnection.getInstance();
+			
+			Map<String, Object> statistics = new LinkedHashMap<String, Object>();
+			statistics.put("connectionPool", dbConnection.getConnectionPool().getStatistics());
+			statistics.put("statements", dbConnection.getStatementRegistry().getStatistics());
+			statistics.put("userIdCache", UserIdCache.getInstance().getStatistics());
+			statistics.put("gamePlayers", GamePlayerCache.getInstance().getStatistics());
+			statistics.put("gameWriteBuffer", GameWriteBuffer.getInstance().getStatistics());
+			statistics.put("databaseExecutor", DatabaseRequestExecutor.getInstance().getStatistics());
+			statistics.put("moveWaiters", MoveWaiterRegistry.getInstance().getStatistics());
+			statistics.put("gameEvents", GameEventBus.getInstance().getStatistics());
+			statistics.put("backgroundCompression", BackgroundCompressor.getStatistics());
+			statistics.put("gameDocuments", GameDocumentCache.getInstance().getStatistics());
+			statistics.put("moveCompaction", MoveCompactor.getStatistics());
+			statistics.put("gameArchive", GameArchive.getInstance().getStatistics());
+			statistics.put("configurations", ConfigurationDataManager.getInstance().getStatistics());
+			statistics.put("sessions", SessionTokenManager.getInstance().getStatistics());
+			statistics.put("rateLimits", RateLimitFilter.getStatistics());
+			statistics.put("requests", MetricsRegistry.getInstance().getStatistics());
+			statistics.put("sql", QueryStatistics.getInstance().getStatistics());
+			
+			String statisticsJson = new ObjectMapper().writeValueAsString(statistics);
+			return Response.status(Status.OK).entity(statisticsJson).build();
+		}
+		catch (Exception e) {
+			LOGGER.error("an unknown error occured: ", e);
+			return Response.status(Status.INTERNAL_SERVER_ERROR).build();
+		}
+	}
+	
+	/**
+	 * Get the latencies, counters and in-flight requests of all endpoints and the execution times of the SQL statements in the Prometheus
+	 * text format (for monitoring).
+	 * 
+	 * @return The metrics as plain text
+	 */
+	@GET
+	@Path("metrics")
+	@Produces(PROMETHEUS_CONTENT_TYPE)
+	public Response getMetrics() {
+		LOGGER.debug("getMetrics was called");
+		String metrics = MetricsRegistry.getInstance().toPrometheusFormat() + QueryStatistics.getInstance().toPrometheusFormat();
+		return Response.status(Status.OK).entity(metrics).build();
+	}
+	
 	/**
 	 * Update a game in the database.
 	 * 
 	 * @param id
 	 *        The id of the game that is updated as a header parameter.
 	 * 
+	 * @param snapshotNum
+	 *        The number of the last move that is included in the game as an optional header parameter (all moves that were committed before
+	 *        the update by default). If the move compaction is enabled, the number of the stored game is kept by default (so no moves become
+	 *        compactable).
+	 * 
 	 * @param game
 	 *        The game as JSON representation (as POST entity)
 	 * 
 	 * @return HTTP codes only:
 	 *         <ul>
 	 *         <li>HTTP 200: OK</li>
+	 *         <li>HTTP 400: The move snapshot_num was not yet committed</li>
+	 *         <li>HTTP 403: The user of the session token doesn't play in the game</li>
 	 *         <li>HTTP 404: Game id not found</li>
 	 *         <li>HTTP 500: Failed</li>
 	 *         </ul>
 	 */
 	@POST
 	@Path("update_game")
-	public Response updateGame(@HeaderParam("id") int id, String game) {
-		LOGGER.debug("updateGame was called. parameters: {}, {}", id, game);
-		try {
-			GameDataManager gameDataManager = new GameDataManager();
-			gameDataManager.updateGame(id, game);
-			
-			return Response.status(Status.OK).build();
-		}
-		catch (GameDataException gde) {
-			return handleGameDataException(gde);
-		}
-		catch (Exception e) {
-			LOGGER.error("an unknown error occured: ", e);
-			return Response.status(Status.INTERNAL_SERVER_ERROR).build();
-		}
+	@SessionAuthenticated
+	@RateLimited(RequestCost.WRITE)
+	public void updateGame(@HeaderParam("id") int id, @HeaderParam("snapshot_num") @DefaultValue("-1") int snapshotNum, String game,
+			@Context SecurityContext securityContext, @Suspended AsyncResponse asyncResponse) {
+		LOGGER.debug("updateGame was called. parameters: {}, {}, {}", id, snapshotNum, game);
+		DatabaseRequestExecutor.getInstance().execute("update_game", asyncResponse, () -> {
+			try {
+				Response forbidden = checkSessionPlayer(securityContext, id);
+				if (forbidden != null) {
+					return forbidden;
+				}
+				
+				GameDataManager gameDataManager = new GameDataManager();
+				gameDataManager.updateGame(id, game, snapshotNum);
+				
+				return Response.status(Status.OK).build();
+			}
+			catch (GameDataException gde) {
+				return handleGameDataException(gde);
+			}
+			catch (Exception e) {
+				LOGGER.error("an unknown error occured: ", e);
+				return Response.status(Status.INTERNAL_SERVER_ERROR).build();
+			}
+		});
+	}
+	
+	/**
+	 * Apply a JSON Patch (RFC 6902) to a game, so only the changed fields of the game have to be sent.
+	 * 
+	 * @param id
+	 *        The id of the game that is patched.
+	 * 
+	 * @param version
+	 *        The tag of the game version to which the patch is applied (the ETag of get_game or of the last patch), sent in the If-Match
+	 *        header.
+	 * 
+	 * @param patch
+	 *        The JSON patch (an array of operations).
+	 * 
+	 * @return HTTP 200 (OK) with the tag of the patched game (ETag header) or HTTP 409 (CONFLICT) if the game was changed since the given
+	 *         version (the complete game has to be sent with update_game)
+	 */
+	@POST
+	@Path("patch_game")
+	@SessionAuthenticated
+	@RateLimited(RequestCost.WRITE)
+	public void patchGame(@HeaderParam("id") int id, @HeaderParam(HttpHeaders.IF_MATCH) String version, String patch,
+			@Context SecurityContext securityContext, @Suspended AsyncResponse asyncResponse) {
+		LOGGER.debug("patchGame was called. parameters: {}, {}, {}", id, version, patch);
+		DatabaseRequestExecutor.getInstance().execute("patch_game", asyncResponse, () -> {
+			try {
+				Response forbidden = checkSessionPlayer(securityContext, id);
+				if (forbidden != null) {
+					return forbidden;
+				}
+				
+				if (version == null) {
+					return Response.status(Status.BAD_REQUEST).entity("The version of the game is missing (If-Match header)").build();
+				}
+				
+				EntityTag versionTag;
+				try {
+					versionTag = EntityTag.valueOf(version);
+				}
+				catch (IllegalArgumentException iae) {
+					return Response.status(Status.BAD_REQUEST).entity("The version of the game is not a valid entity tag").build();
+				}
+				
+				GameDataManager gameDataManager = new GameDataManager();
+				String patchedVersion = gameDataManager.patchGame(id, versionTag.getValue(), patch);
+				
+				return Response.status(Status.OK).tag(new EntityTag(patchedVersion)).build();
+			}
+			catch (GameDataException gde) {
+				return handleGameDataException(gde);
+			}
+			catch (Exception e) {
+				LOGGER.error("an unknown error occured: ", e);
+				return Response.status(Status.INTERNAL_SERVER_ERROR).build();
+			}
+		});
+	}
+	
+	/**
+	 * Move a game (and its moves) to the archive. Archived games are not listed anymore, but they can still be loaded. They are restored when
+	 * they are updated or a move is set.
+	 * 
+	 * @param id
+	 *        The id of the game that is archived as a header parameter.
+	 * 
+	 * @return HTTP codes only:
+	 *         <ul>
+	 *         <li>HTTP 200: OK</li>
+	 *         <li>HTTP 403: The user of the session token doesn't play in the game</li>
+	 *         <li>HTTP 404: Game id not found (or the game is already archived)</li>
+	 *         <li>HTTP 500: Failed</li>
+	 *         </ul>
+	 */
+	@POST
+	@Path("archive_game")
+	@SessionAuthenticated
+	@RateLimited(RequestCost.WRITE)
+	public void archiveGame(@HeaderParam("id") int id, @Context SecurityContext securityContext, @Suspended AsyncResponse asyncResponse) {
+		LOGGER.debug("archiveGame was called. parameters: {}", id);
+		DatabaseRequestExecutor.getInstance().execute("archive_game", asyncResponse, () -> {
+			try {
+				Response forbidden = checkSessionPlayer(securityContext, id);
+				if (forbidden != null) {
+					return forbidden;
+				}
+				
+				if (!GameArchive.getInstance().archiveGame(id)) {
+					return Response.status(Status.NOT_FOUND).build();
+				}
+				
+				return Response.status(Status.OK).build();
+			}
+			catch (GameDataException gde) {
+				return handleGameDataException(gde);
+			}
+			catch (Exception e) {
+				LOGGER.error("an unknown error occured: ", e);
+				return Response.status(Status.INTERNAL_SERVER_ERROR).build();
+			}
+		});
 	}
 	
 	/**
@@ -143,26 +376,91 @@ public class GenesisProjectService {
 	 * @param id
 	 *        The id of the game that is to be loaded.
 	 * 
-	 * @return The game (serialized as JSON)
+	 * @return The game (serialized as JSON) or HTTP 304 (NOT_MODIFIED) if the game didn't change since the tag in the If-None-Match header
+	 *         was sent
 	 */
 	@GET
 	@Path("get_game/{id}")
+	@SessionAuthenticated
+	@RateLimited(RequestCost.READ)
 	@Produces(MediaType.APPLICATION_JSON)
-	public Response getGame(@PathParam("id") int id) {
+	public void getGame(@PathParam("id") int id, @Context Request request, @Context SecurityContext securityContext,
+			@Suspended AsyncResponse asyncResponse) {
 		LOGGER.debug("getGame was called. parameters: {}", id);
-		try {
-			GameDataManager gameDataManager = new GameDataManager();
-			String game = gameDataManager.getGame(id);
-			
-			return Response.status(Status.OK).entity(game).build();
-		}
-		catch (GameDataException gde) {
-			return handleGameDataException(gde);
-		}
-		catch (Exception e) {
-			LOGGER.error("an unknown error occured: ", e);
-			return Response.status(Status.INTERNAL_SERVER_ERROR).build();
-		}
+		DatabaseRequestExecutor.getInstance().execute("get_game", asyncResponse, () -> {
+			try {
+				Response forbidden = checkSessionPlayer(securityContext, id);
+				if (forbidden != null) {
+					return forbidden;
+				}
+				
+				//the tag is created before the game is loaded (so it never describes a newer state than the loaded one)
+				EntityTag tag = new EntityTag(GameVersionRegistry.getInstance().getGameTag(id));
+				Response notModified = evaluateTag(request, tag);
+				if (notModified != null) {
+					return notModified;
+				}
+				
+				GameDataManager gameDataManager = new GameDataManager();
+				String game = gameDataManager.getGame(id);
+				
+				return Response.status(Status.OK).entity(game).tag(tag).build();
+			}
+			catch (GameDataException gde) {
+				return handleGameDataException(gde);
+			}
+			catch (Exception e) {
+				LOGGER.error("an unknown error occured: ", e);
+				return Response.status(Status.INTERNAL_SERVER_ERROR).build();
+			}
+		});
+	}
+	
+	/**
+	 * Get the state of a game: the last stored snapshot of the game and the moves that were made after the snapshot (the tail moves). The
+	 * moves before the snapshot may be removed by the compaction (up to the move compactedNum).
+	 * 
+	 * @param id
+	 *        The id of the game that is to be loaded.
+	 * 
+	 * @return A {@link GameState} (serialized as JSON) or HTTP 304 (NOT_MODIFIED) if the game and its moves didn't change since the tag in
+	 *         the If-None-Match header was sent
+	 */
+	@GET
+	@Path("get_game_state/{id}")
+	@SessionAuthenticated
+	@RateLimited(RequestCost.READ)
+	@Produces(MediaType.APPLICATION_JSON)
+	public void getGameState(@PathParam("id") int id, @Context Request request, @Context SecurityContext securityContext,
+			@Suspended AsyncResponse asyncResponse) {
+		LOGGER.debug("getGameState was called. parameters: {}", id);
+		DatabaseRequestExecutor.getInstance().execute("get_game_state", asyncResponse, () -> {
+			try {
+				Response forbidden = checkSessionPlayer(securityContext, id);
+				if (forbidden != null) {
+					return forbidden;
+				}
+				
+				GameVersionRegistry versionRegistry = GameVersionRegistry.getInstance();
+				EntityTag tag = new EntityTag(versionRegistry.getGameTag(id) + "-" + versionRegistry.getMovesTag(id));
+				Response notModified = evaluateTag(request, tag);
+				if (notModified != null) {
+					return notModified;
+				}
+				
+				GameDataManager gameDataManager = new GameDataManager();
+				GameState gameState = gameDataManager.getGameState(id);
+				
+				return Response.status(Status.OK).entity(gameState).tag(tag).build();
+			}
+			catch (GameDataException gde) {
+				return handleGameDataException(gde);
+			}
+			catch (Exception e) {
+				LOGGER.error("an unknown error occured: ", e);
+				return Response.status(Status.INTERNAL_SERVER_ERROR).build();
+			}
+		});
 	}
 	
 	/**
@@ -177,23 +475,41 @@ public class GenesisProjectService {
 	 *        <li>"main_menu_dynamic_content": loads the dynamic content that is displayed in the main menu</li>
 	 *        </ul>
 	 * 
-	 * @return The content of the configuration JSON file
+	 * @param acceptEncoding
+	 *        The Accept-Encoding header (the configuration is sent gzip compressed if the client accepts it).
+	 * 
+	 * @return The content of the configuration JSON file or HTTP 304 (NOT_MODIFIED) if the configuration didn't change since the tag in the
+	 *         If-None-Match header was sent
 	 */
 	@GET
 	@Path("get_config/{config}")
+	@RateLimited(RequestCost.READ)
 	@Produces(MediaType.APPLICATION_JSON)
-	public Response getConfig(@PathParam("config") String config) {
+	public Response getConfig(@PathParam("config") String config, @HeaderParam(HttpHeaders.ACCEPT_ENCODING) String acceptEncoding,
+			@Context Request request) {
 		LOGGER.debug("getConfig was called. parameters: {}", config);
 		try {
 			ConfigurationDataManager configDataManager = ConfigurationDataManager.getInstance();
-			String configurationFile = configDataManager.getConfiguration(config);
+			ConfigResponse configuration = configDataManager.getResponse(config);
 			
-			if (configurationFile == null) {
+			if (configuration == null) {
 				return Response.status(Status.NOT_FOUND).build();
 			}
-			else {
-				return Response.status(Status.OK).entity(configurationFile).build();
+			
+			//the encoded (and compressed) content is prepared when the configuration is loaded
+			boolean gzipped = configuration.hasGzip() && ConfigResponse.acceptsGzip(acceptEncoding);
+			EntityTag tag = new EntityTag(configuration.getTag(gzipped));
+			CacheControl cacheControl = new CacheControl();
+			cacheControl.setMaxAge(ServiceConfiguration.getInstance().getInt("get_config.max_age_seconds", DEFAULT_CONFIG_MAX_AGE_SECONDS));
+			
+			ResponseBuilder response = request.evaluatePreconditions(tag);
+			if (response == null) {
+				response = Response.status(Status.OK).entity(configuration.getBytes(gzipped));
+				if (gzipped) {
+					response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+				}
 			}
+			return response.tag(tag).cacheControl(cacheControl).header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING).build();
 		}
 		catch (Exception e) {
 			LOGGER.error("an unknown error occured: ", e);
@@ -216,27 +532,41 @@ public class GenesisProjectService {
 	 * @return HTTP codes only:
 	 *         <ul>
 	 *         <li>HTTP 200: OK</li>
+	 *         <li>HTTP 403: The user of the session token is not the user of the move or doesn't play in the game</li>
 	 *         <li>HTTP 404: Game or user id not found</li>
 	 *         <li>HTTP 500: Failed</li>
 	 *         </ul>
 	 */
 	@POST
 	@Path("set_move")
-	public Response setMove(@HeaderParam("game_id") int gameId, @HeaderParam("username") String username, String move) {
+	@SessionAuthenticated
+	@RateLimited(RequestCost.WRITE)
+	public void setMove(@HeaderParam("game_id") int gameId, @HeaderParam("username") String username, String move,
+			@Context SecurityContext securityContext, @Suspended AsyncResponse asyncResponse) {
 		LOGGER.debug("setMove was called. parameters: {}, {}, {}", gameId, username, move);
-		try {
-			GameDataManager gameDataManager = new GameDataManager();
-			gameDataManager.setMove(gameId, username, move);
-			
-			return Response.status(Status.OK).build();
-		}
-		catch (GameDataException gde) {
-			return handleGameDataException(gde);
-		}
-		catch (Exception e) {
-			LOGGER.error("an unknown error occured: ", e);
-			return Response.status(Status.INTERNAL_SERVER_ERROR).build();
-		}
+		DatabaseRequestExecutor.getInstance().execute("set_move", asyncResponse, () -> {
+			try {
+				Response forbidden = checkSessionUser(securityContext, username);
+				if (forbidden == null) {
+					forbidden = checkSessionPlayer(securityContext, gameId);
+				}
+				if (forbidden != null) {
+					return forbidden;
+				}
+				
+				GameDataManager gameDataManager = new GameDataManager();
+				gameDataManager.setMove(gameId, username, move);
+				
+				return Response.status(Status.OK).build();
+			}
+			catch (GameDataException gde) {
+				return handleGameDataException(gde);
+			}
+			catch (Exception e) {
+				LOGGER.error("an unknown error occured: ", e);
+				return Response.status(Status.INTERNAL_SERVER_ERROR).build();
+			}
+		});
 	}
 	
 	/**
@@ -249,23 +579,32 @@ public class GenesisProjectService {
 	 */
 	@POST
 	@Path("create_game")
+	@SessionAuthenticated
+	@RateLimited(RequestCost.WRITE)
 	@Consumes(MediaType.APPLICATION_JSON)
 	@Produces(MediaType.APPLICATION_JSON)
-	public Response createGame(List<String> players) {
+	public void createGame(List<String> players, @Context SecurityContext securityContext, @Suspended AsyncResponse asyncResponse) {
 		LOGGER.debug("createGame was called. parameters: {}", players);
-		try {
-			GameDataManager gameDataManager = new GameDataManager();
-			int id = gameDataManager.createGame(players);
-			
-			return Response.status(Status.OK).entity(id).build();
-		}
-		catch (GameDataException gde) {
-			return handleGameDataException(gde);
-		}
-		catch (Exception e) {
-			LOGGER.error("an unknown error occured: ", e);
-			return Response.status(Status.INTERNAL_SERVER_ERROR).build();
-		}
+		DatabaseRequestExecutor.getInstance().execute("create_game", asyncResponse, () -> {
+			try {
+				Response forbidden = checkSessionUserIn(securityContext, players);
+				if (forbidden != null) {
+					return forbidden;
+				}
+				
+				GameDataManager gameDataManager = new GameDataManager();
+				int id = gameDataManager.createGame(players);
+				
+				return Response.status(Status.OK).entity(id).build();
+			}
+			catch (GameDataException gde) {
+				return handleGameDataException(gde);
+			}
+			catch (Exception e) {
+				LOGGER.error("an unknown error occured: ", e);
+				return Response.status(Status.INTERNAL_SERVER_ERROR).build();
+			}
+		});
 	}
 	
 	/**
@@ -283,22 +622,25 @@ public class GenesisProjectService {
 	 */
 	@POST
 	@Path("create_user")
+	@RateLimited(RequestCost.WRITE)
 	@Consumes(MediaType.APPLICATION_JSON)
-	public Response createUser(Login login) {
+	public void createUser(Login login, @Suspended AsyncResponse asyncResponse) {
 		LOGGER.debug("createUser was called. parameters: {}", login);
-		try {
-			UserDataManager userDataManager = new UserDataManager();
-			userDataManager.createUser(login);
-			
-			return Response.status(Status.OK).build();
-		}
-		catch (GameDataException gde) {
-			return handleGameDataException(gde);
-		}
-		catch (Exception e) {
-			LOGGER.error("an unknown error occured: ", e);
-			return Response.status(Status.INTERNAL_SERVER_ERROR).build();
-		}
+		DatabaseRequestExecutor.getInstance().execute("create_user", asyncResponse, () -> {
+			try {
+				UserDataManager userDataManager = new UserDataManager();
+				userDataManager.createUser(login);
+				
+				return Response.status(Status.OK).build();
+			}
+			catch (GameDataException gde) {
+				return handleGameDataException(gde);
+			}
+			catch (Exception e) {
+				LOGGER.error("an unknown error occured: ", e);
+				return Response.status(Status.INTERNAL_SERVER_ERROR).build();
+			}
+		});
 	}
 	
 	/**
@@ -307,7 +649,8 @@ public class GenesisProjectService {
 	 * @param logins
 	 *        The users logins: The first has to be the valid current login; The second is the update.
 	 * 
-	 * @return HTTP codes only:
+	 * @return HTTP codes only (and a new session token for the updated login in the header "Session-Token"; the session tokens of the old
+	 *         login are revoked):
 	 *         <ul>
 	 *         <li>HTTP 200: OK</li>
 	 *         <li>HTTP 400: Not enough logins in the list (have to be 2)</li>
@@ -318,25 +661,29 @@ public class GenesisProjectService {
 	 */
 	@POST
 	@Path("update_user")
+	@RateLimited(RequestCost.WRITE)
 	@Consumes(MediaType.APPLICATION_JSON)
-	public Response updateUser(List<Login> logins) {
+	public void updateUser(List<Login> logins, @Suspended AsyncResponse asyncResponse) {
 		LOGGER.debug("updateUser was called. parameters: {}", logins);
-		if (logins.size() < 2) {
-			return Response.status(Status.BAD_REQUEST).build();
-		}
-		try {
-			UserDataManager userDataManager = new UserDataManager();
-			userDataManager.updateUser(logins.get(0), logins.get(1));
-			
-			return Response.status(Status.OK).build();
-		}
-		catch (GameDataException gde) {
-			return handleGameDataException(gde);
-		}
-		catch (Exception e) {
-			LOGGER.error("an unknown error occured: ", e);
-			return Response.status(Status.INTERNAL_SERVER_ERROR).build();
-		}
+		DatabaseRequestExecutor.getInstance().execute("update_user", asyncResponse, () -> {
+			if (logins.size() < 2) {
+				return Response.status(Status.BAD_REQUEST).build();
+			}
+			try {
+				UserDataManager userDataManager = new UserDataManager();
+				userDataManager.updateUser(logins.get(0), logins.get(1));
+				
+				String sessionToken = SessionTokenManager.getInstance().issueToken(logins.get(1).getUsername());
+				return Response.status(Status.OK).header(SESSION_TOKEN_HEADER, sessionToken).build();
+			}
+			catch (GameDataException gde) {
+				return handleGameDataException(gde);
+			}
+			catch (Exception e) {
+				LOGGER.error("an unknown error occured: ", e);
+				return Response.status(Status.INTERNAL_SERVER_ERROR).build();
+			}
+		});
 	}
 	
 	/**
@@ -345,7 +692,8 @@ public class GenesisProjectService {
 	 * @param login
 	 *        The user's login (username and password) in JSON form.
 	 * 
-	 * @return HTTP codes only:
+	 * @return HTTP codes only (and a session token in the header "Session-Token" if the login is correct, that can be used to authenticate the
+	 *         following requests with the header "Authorization: Bearer &lt;token&gt;"):
 	 *         <ul>
 	 *         <li>HTTP 200: OK</li>
 	 *         <li>HTTP 403: User validation failed</li>
@@ -355,25 +703,29 @@ public class GenesisProjectService {
 	 */
 	@POST
 	@Path("verify_user")
+	@RateLimited(RequestCost.WRITE)
 	@Consumes(MediaType.APPLICATION_JSON)
-	public Response verifyUser(Login login) {
+	public void verifyUser(Login login, @Suspended AsyncResponse asyncResponse) {
 		LOGGER.debug("verifyUser was called. parameters: {}", login);
-		try {
-			UserDataManager userDataManager = new UserDataManager();
-			boolean verified = userDataManager.verifyUser(login);
-			
-			if (!verified) {
-				return Response.status(Status.FORBIDDEN).build();
+		DatabaseRequestExecutor.getInstance().execute("verify_user", asyncResponse, () -> {
+			try {
+				UserDataManager userDataManager = new UserDataManager();
+				boolean verified = userDataManager.verifyUser(login);
+				
+				if (!verified) {
+					return Response.status(Status.FORBIDDEN).build();
+				}
+				String sessionToken = SessionTokenManager.getInstance().issueToken(login.getUsername());
+				return Response.status(Status.OK).header(SESSION_TOKEN_HEADER, sessionToken).build();
 			}
-			return Response.status(Status.OK).build();
-		}
-		catch (GameDataException gde) {
-			return handleGameDataException(gde);
-		}
-		catch (Exception e) {
-			LOGGER.error("an unknown error occured: ", e);
-			return Response.status(Status.INTERNAL_SERVER_ERROR).build();
-		}
+			catch (GameDataException gde) {
+				return handleGameDataException(gde);
+			}
+			catch (Exception e) {
+				LOGGER.error("an unknown error occured: ", e);
+				return Response.status(Status.INTERNAL_SERVER_ERROR).build();
+			}
+		});
 	}
 	
 	/**
@@ -389,26 +741,42 @@ public class GenesisProjectService {
 	 */
 	@GET
 	@Path("list_games/{complete}/{username}")
+	@SessionAuthenticated
+	@RateLimited(RequestCost.LIST)
 	@Produces(MediaType.APPLICATION_JSON)
-	public Response listGames(@PathParam("complete") boolean complete, @PathParam("username") String username) {
+	public void listGames(@PathParam("complete") boolean complete, @PathParam("username") String username, @Context Request request,
+			@Context SecurityContext securityContext, @Suspended AsyncResponse asyncResponse) {
 		LOGGER.debug("listGames was called. parameters: {}, {}", complete, username);
-		try {
-			GameDataManager gameDataManager = new GameDataManager();
-			GameList gameList = gameDataManager.listGames(complete, username);
-			
-			//manually parse to JSON (to register JavaTimeModule for parsing LocalDate)
-			ObjectWriter ow = new ObjectMapper().registerModule(new JavaTimeModule()).writer();
-			String gameListJson = ow.writeValueAsString(gameList);
-			
-			return Response.status(Status.OK).entity(gameListJson).build();
-		}
-		catch (GameDataException gde) {
-			return handleGameDataException(gde);
-		}
-		catch (Exception e) {
-			LOGGER.error("an unknown error occured: ", e);
-			return Response.status(Status.INTERNAL_SERVER_ERROR).build();
-		}
+		DatabaseRequestExecutor.getInstance().execute("list_games", asyncResponse, () -> {
+			try {
+				Response forbidden = checkSessionListUser(securityContext, username);
+				if (forbidden != null) {
+					return forbidden;
+				}
+				
+				EntityTag tag = new EntityTag(GameVersionRegistry.getInstance().getGameListTag());
+				Response notModified = evaluateTag(request, tag);
+				if (notModified != null) {
+					return notModified;
+				}
+				
+				GameDataManager gameDataManager = new GameDataManager();
+				GameList gameList = gameDataManager.listGames(complete, username);
+				
+				//manually parse to JSON (to register JavaTimeModule for parsing LocalDate)
+				ObjectWriter ow = new ObjectMapper().registerModule(new JavaTimeModule()).writer();
+				String gameListJson = ow.writeValueAsString(gameList);
+				
+				return Response.status(Status.OK).entity(gameListJson).tag(tag).build();
+			}
+			catch (GameDataException gde) {
+				return handleGameDataException(gde);
+			}
+			catch (Exception e) {
+				LOGGER.error("an unknown error occured: ", e);
+				return Response.status(Status.INTERNAL_SERVER_ERROR).build();
+			}
+		});
 	}
 	
 	/**
@@ -427,24 +795,393 @@ public class GenesisProjectService {
 	 */
 	@GET
 	@Path("list_moves/{game_id}/{username}/{num_moves}")
+	@SessionAuthenticated
+	@RateLimited(RequestCost.LIST)
 	@Produces(MediaType.APPLICATION_JSON)
-	public Response listMoves(@PathParam("game_id") int gameId, @PathParam("username") String username, @PathParam("num_moves") int numMoves) {
+	public void listMoves(@PathParam("game_id") int gameId, @PathParam("username") String username, @PathParam("num_moves") int numMoves,
+			@Context Request request, @Context SecurityContext securityContext, @Suspended AsyncResponse asyncResponse) {
 		LOGGER.debug("listMoves was called. parameters: {}, {}, {}", gameId, username, numMoves);
+		DatabaseRequestExecutor.getInstance().execute("list_moves", asyncResponse, () -> {
+			try {
+				Response forbidden = checkSessionMoveList(securityContext, gameId, username);
+				if (forbidden != null) {
+					return forbidden;
+				}
+				
+				EntityTag tag = new EntityTag(GameVersionRegistry.getInstance().getMovesTag(gameId));
+				Response notModified = evaluateTag(request, tag);
+				if (notModified != null) {
+					return notModified;
+				}
+				
+				GameDataManager gameDataManager = new GameDataManager();
+				MoveList moveList = gameDataManager.listMoves(gameId, username, numMoves);
+				
+				return Response.status(Status.OK).entity(moveList).tag(tag).build();
+			}
+			catch (GameDataException gde) {
+				return handleGameDataException(gde);
+			}
+			catch (Exception e) {
+				LOGGER.error("an unknown error occured: ", e);
+				return Response.status(Status.INTERNAL_SERVER_ERROR).build();
+			}
+		});
+	}
+	
+	/**
+	 * Wait for the next move of a game (long polling). The request is answered as soon as a move with a higher number than afterNum is set or
+	 * with HTTP 204 (NO_CONTENT) if no move was set before the timeout (the request can be sent again). A waiting request doesn't block a
+	 * thread and doesn't cause database queries.
+	 * 
+	 * @param gameId
+	 *        The id of the game.
+	 * 
+	 * @param afterNum
+	 *        The number of the last move that is already known (0 if the game has no moves yet).
+	 * 
+	 * @return A {@link MoveList} that contains the moves with a higher number than afterNum.
+	 */
+	@GET
+	@Path("await_move/{game_id}/{after_num}")
+	@SessionAuthenticated
+	@RateLimited(RequestCost.READ)
+	@Produces(MediaType.APPLICATION_JSON)
+	public void awaitMove(@PathParam("game_id") int gameId, @PathParam("after_num") int afterNum, @Context SecurityContext securityContext,
+			@Suspended AsyncResponse asyncResponse) {
+		LOGGER.debug("awaitMove was called. parameters: {}, {}", gameId, afterNum);
+		MoveWaiterRegistry registry = MoveWaiterRegistry.getInstance();
+		String sessionUser = SessionSecurityContext.getUsername(securityContext);
+		Set<String> cachedPlayers = sessionUser == null ? null : GamePlayerCache.getInstance().getCachedPlayers(gameId);
+		boolean permitted = sessionUser == null || (cachedPlayers != null && cachedPlayers.contains(sessionUser.toLowerCase(Locale.ROOT)));
+		if (registry.isSeeded(gameId) && permitted) {
+			Response response = registerMoveWaiter(gameId, afterNum, asyncResponse);
+			if (response != null) {
+				asyncResponse.resume(response);
+			}
+		}
+		else {
+			//the number of the last move (and the players of the game) are loaded from the database once (all further requests wait without a
+			//query)
+			DatabaseRequestExecutor.getInstance().execute("await_move", asyncResponse, () -> {
+				try {
+					Response forbidden = checkSessionPlayer(securityContext, gameId);
+					if (forbidden != null) {
+						return forbidden;
+					}
+					
+					if (!registry.isSeeded(gameId)) {
+						GameDataManager gameDataManager = new GameDataManager();
+						registry.seed(gameId, gameDataManager.getLastMoveNumber(gameId));
+					}
+					
+					return registerMoveWaiter(gameId, afterNum, asyncResponse);
+				}
+				catch (GameDataException gde) {
+					return handleGameDataException(gde);
+				}
+			});
+		}
+	}
+	
+	/**
+	 * Register a suspended request in the {@link MoveWaiterRegistry}. When the move is set, the moves are loaded on the
+	 * {@link DatabaseRequestExecutor}.
+	 * 
+	 * @return A response if the request can't wait (too many waiting requests) or null if the request is waiting.
+	 */
+	private Response registerMoveWaiter(int gameId, int afterNum, AsyncResponse asyncResponse) {
+		MoveWaiterRegistry registry = MoveWaiterRegistry.getInstance();
+		DatabaseRequestExecutor executor = DatabaseRequestExecutor.getInstance();
+		long timeoutMillis = ServiceConfiguration.getInstance().getLong("await_move.timeout_millis", DEFAULT_AWAIT_MOVE_TIMEOUT_MILLIS);
+		
+		AtomicReference<MoveWaiterRegistry.Waiter> waiter = new AtomicReference<MoveWaiterRegistry.Waiter>();
+		asyncResponse.setTimeout(timeoutMillis, TimeUnit.MILLISECONDS);
+		asyncResponse.setTimeoutHandler(response -> {
+			MoveWaiterRegistry.Waiter timedOut = waiter.get();
+			if (timedOut != null && registry.cancel(timedOut)) {
+				response.resume(Response.status(Status.NO_CONTENT).build());
+			}
+			else {
+				//the request was signalled at the same time (the moves are already loaded)
+				response.setTimeout(timeoutMillis, TimeUnit.MILLISECONDS);
+			}
+		});
+		
+		waiter.set(registry.await(gameId, afterNum, lastNum -> executor.execute("await_move", asyncResponse, () -> {
+			try {
+				GameDataManager gameDataManager = new GameDataManager();
+				MoveList moveList = gameDataManager.listMovesAfter(gameId, afterNum);
+				
+				return Response.status(Status.OK).entity(moveList).build();
+			}
+			catch (GameDataException gde) {
+				return handleGameDataException(gde);
+			}
+		})));
+		
+		if (waiter.get() == null) {
+			LOGGER.warn("too many requests are waiting for moves; rejecting the request");
+			return executor.createServiceUnavailableResponse();
+		}
+		return null;
+	}
+	
+	/**
+	 * Subscribe to the changes of all games that a user plays in (server-sent events). An event is sent whenever a game of the user is
+	 * created or updated or a move is set in one of the games, so the game list doesn't need to be polled.
+	 * <p>
+	 * Only the user itself can subscribe to its events: the subscription requires a session token of the user (also if the session tokens
+	 * are not required by the configuration).
+	 * 
+	 * @param username
+	 *        The name of the user.
+	 */
+	@GET
+	@Path("game_events/{username}")
+	@SessionAuthenticated
+	@RateLimited(RequestCost.READ)
+	@Produces(MediaType.SERVER_SENT_EVENTS)
+	public void subscribeGameEvents(@PathParam("username") String username, @Context SecurityContext securityContext,
+			@Context SseEventSink eventSink, @Context Sse sse) {
+		LOGGER.debug("subscribeGameEvents was called. parameters: {}", username);
+		if (SessionSecurityContext.getUsername(securityContext) == null) {
+			throw new WebApplicationException(Response.status(Status.UNAUTHORIZED)
+					.header(HttpHeaders.WWW_AUTHENTICATE, SessionSecurityContext.AUTHENTICATION_SCHEME).build());
+		}
+		Response forbidden = checkSessionUser(securityContext, username);
+		if (forbidden != null) {
+			throw new WebApplicationException(forbidden);
+		}
 		try {
-			GameDataManager gameDataManager = new GameDataManager();
-			MoveList moveList = gameDataManager.listMoves(gameId, username, numMoves);
-			
-			return Response.status(Status.OK).entity(moveList).build();
+			if (UserIdCache.getInstance().getUserId(username) == UserIdCache.UNKNOWN_USER) {
+				throw new WebApplicationException(Status.NOT_FOUND);
+			}
 		}
 		catch (GameDataException gde) {
-			return handleGameDataException(gde);
+			throw new WebApplicationException(handleGameDataException(gde));
 		}
-		catch (Exception e) {
-			LOGGER.error("an unknown error occured: ", e);
-			return Response.status(Status.INTERNAL_SERVER_ERROR).build();
+		
+		long sendTimeoutMillis = ServiceConfiguration.getInstance().getLong("game_events.send_timeout_millis",
+				SseGameEventSink.DEFAULT_SEND_TIMEOUT_MILLIS);
+		GameEventBus.Subscription subscription = GameEventBus.getInstance().subscribe(username,
+				new SseGameEventSink(eventSink, sse, sendTimeoutMillis));
+		if (subscription == null) {
+			LOGGER.warn("too many subscribers of the game events; rejecting the subscription of user {}", username);
+			throw new WebApplicationException(DatabaseRequestExecutor.getInstance().createServiceUnavailableResponse());
 		}
 	}
 	
+	/**
+	 * Get a page of the games in the database (newest games first).
+	 * 
+	 * @param complete
+	 *        Indicates whether complete games (true) or only ids (false) are requested.
+	 * 
+	 * @param username
+	 *        The name of a user to search for user specific games ('-' for all users).
+	 * 
+	 * @param pageSize
+	 *        The maximum number of games on the page.
+	 * 
+	 * @param cursor
+	 *        The cursor of the previous page (nextCursor of the previous page; not set for the first page).
+	 * 
+	 * @return A {@link GamePage} object in JSON format that contains the games and the cursor of the next page.
+	 */
+	@GET
+	@Path("list_games_page/{complete}/{username}/{page_size}")
+	@SessionAuthenticated
+	@RateLimited(RequestCost.READ)
+	@Produces(MediaType.APPLICATION_JSON)
+	public void listGamesPage(@PathParam("complete") boolean complete, @PathParam("username") String username,
+			@PathParam("page_size") int pageSize, @QueryParam("cursor") String cursor, @Context Request request,
+			@Context SecurityContext securityContext, @Suspended AsyncResponse asyncResponse) {
+		LOGGER.debug("listGamesPage was called. parameters: {}, {}, {}, {}", complete, username, pageSize, cursor);
+		DatabaseRequestExecutor.getInstance().execute("list_games_page", asyncResponse, () -> {
+			try {
+				Response forbidden = checkSessionListUser(securityContext, username);
+				if (forbidden != null) {
+					return forbidden;
+				}
+				
+				EntityTag tag = new EntityTag(GameVersionRegistry.getInstance().getGameListTag());
+				Response notModified = evaluateTag(request, tag);
+				if (notModified != null) {
+					return notModified;
+				}
+				
+				GameDataManager gameDataManager = new GameDataManager();
+				GamePage gamePage = gameDataManager.listGamesPage(complete, username, pageSize, cursor);
+				
+				//manually parse to JSON (to register JavaTimeModule for parsing LocalDate)
+				ObjectWriter ow = new ObjectMapper().registerModule(new JavaTimeModule()).writer();
+				String gamePageJson = ow.writeValueAsString(gamePage);
+				
+				return Response.status(Status.OK).entity(gamePageJson).tag(tag).build();
+			}
+			catch (GameDataException gde) {
+				return handleGameDataException(gde);
+			}
+			catch (Exception e) {
+				LOGGER.error("an unknown error occured: ", e);
+				return Response.status(Status.INTERNAL_SERVER_ERROR).build();
+			}
+		});
+	}
+	
+	/**
+	 * Get a page of the moves in the database (last made moves first).
+	 * 
+	 * @param gameId
+	 *        The id of the game from which the moves should be searched (-1 for all moves of all games).
+	 * 
+	 * @param username
+	 *        The name of the user from which the moves should be searched ('-' for all users of the game).
+	 * 
+	 * @param pageSize
+	 *        The maximum number of moves on the page.
+	 * 
+	 * @param cursor
+	 *        The cursor of the previous page (nextCursor of the previous page; not set for the first page).
+	 * 
+	 * @return A {@link MovePage} object in JSON format that contains the moves and the cursor of the next page.
+	 */
+	@GET
+	@Path("list_moves_page/{game_id}/{username}/{page_size}")
+	@SessionAuthenticated
+	@RateLimited(RequestCost.READ)
+	@Produces(MediaType.APPLICATION_JSON)
+	public void listMovesPage(@PathParam("game_id") int gameId, @PathParam("username") String username, @PathParam("page_size") int pageSize,
+			@QueryParam("cursor") String cursor, @Context Request request, @Context SecurityContext securityContext,
+			@Suspended AsyncResponse asyncResponse) {
+		LOGGER.debug("listMovesPage was called. parameters: {}, {}, {}, {}", gameId, username, pageSize, cursor);
+		DatabaseRequestExecutor.getInstance().execute("list_moves_page", asyncResponse, () -> {
+			try {
+				Response forbidden = checkSessionMoveList(securityContext, gameId, username);
+				if (forbidden != null) {
+					return forbidden;
+				}
+				
+				EntityTag tag = new EntityTag(GameVersionRegistry.getInstance().getMovesTag(gameId));
+				Response notModified = evaluateTag(request, tag);
+				if (notModified != null) {
+					return notModified;
+				}
+				
+				GameDataManager gameDataManager = new GameDataManager();
+				MovePage movePage = gameDataManager.listMovesPage(gameId, username, pageSize, cursor);
+				
+				return Response.status(Status.OK).entity(movePage).tag(tag).build();
+			}
+			catch (GameDataException gde) {
+				return handleGameDataException(gde);
+			}
+			catch (Exception e) {
+				LOGGER.error("an unknown error occured: ", e);
+				return Response.status(Status.INTERNAL_SERVER_ERROR).build();
+			}
+		});
+	}
+	
+	/**
+	 * Stream the games in the database (as a JSON array of games, that is written while the games are read from the database).
+	 * 
+	 * @param complete
+	 *        Indicates whether complete games (true) or only ids (false) are requested.
+	 * 
+	 * @param username
+	 *        The name of a user to search for user specific games ('-' for all users).
+	 * 
+	 * @return A JSON array of the games (objects with the fields id, started, lastPlayed and game).
+	 */
+	@GET
+	@Path("stream_games/{complete}/{username}")
+	@SessionAuthenticated
+	@RateLimited(RequestCost.LIST)
+	@Produces(MediaType.APPLICATION_JSON)
+	public void streamGames(@PathParam("complete") boolean complete, @PathParam("username") String username, @Context Request request,
+			@Context SecurityContext securityContext, @Suspended AsyncResponse asyncResponse) {
+		LOGGER.debug("streamGames was called. parameters: {}, {}", complete, username);
+		DatabaseRequestExecutor.getInstance().execute("stream_games", asyncResponse, () -> {
+			Response forbidden = checkSessionListUser(securityContext, username);
+			if (forbidden != null) {
+				return forbidden;
+			}
+			
+			EntityTag tag = new EntityTag(GameVersionRegistry.getInstance().getGameListTag());
+			Response notModified = evaluateTag(request, tag);
+			if (notModified != null) {
+				return notModified;
+			}
+			
+			StreamingOutput stream = output -> {
+				try (JsonGenerator generator = JSON_FACTORY.createGenerator(output)) {
+					GameDataManager gameDataManager = new GameDataManager();
+					gameDataManager.streamGames(complete, username, generator);
+				}
+				catch (GameDataException gde) {
+					LOGGER.error("streaming the games failed", gde);
+					throw new WebApplicationException(gde, Status.INTERNAL_SERVER_ERROR);
+				}
+			};
+			return Response.status(Status.OK).entity(stream).tag(tag).build();
+		});
+	}
+	
+	/**
+	 * Stream the moves in the database (as a JSON array of moves, that is written while the moves are read from the database).
+	 * 
+	 * @param gameId
+	 *        The id of the game from which the moves should be searched (-1 for all moves of all games).
+	 * 
+	 * @param username
+	 *        The name of the user from which the moves should be searched ('-' for all users of the game).
+	 * 
+	 * @param numMoves
+	 *        The number of moves that should be searched (last made moves first; -1 for all moves of the game and/or user).
+	 * 
+	 * @return A JSON array of the moves (objects with the fields id, num, username and move).
+	 */
+	@GET
+	@Path("stream_moves/{game_id}/{username}/{num_moves}")
+	@SessionAuthenticated
+	@RateLimited(RequestCost.LIST)
+	@Produces(MediaType.APPLICATION_JSON)
+	public void streamMoves(@PathParam("game_id") int gameId, @PathParam("username") String username, @PathParam("num_moves") int numMoves,
+			@Context Request request, @Context SecurityContext securityContext, @Suspended AsyncResponse asyncResponse) {
+		LOGGER.debug("streamMoves was called. parameters: {}, {}, {}", gameId, username, numMoves);
+		DatabaseRequestExecutor.getInstance().execute("stream_moves", asyncResponse, () -> {
+			try {
+				Response forbidden = checkSessionMoveList(securityContext, gameId, username);
+				if (forbidden != null) {
+					return forbidden;
+				}
+			}
+			catch (GameDataException gde) {
+				return handleGameDataException(gde);
+			}
+			
+			EntityTag tag = new EntityTag(GameVersionRegistry.getInstance().getMovesTag(gameId));
+			Response notModified = evaluateTag(request, tag);
+			if (notModified != null) {
+				return notModified;
+			}
+			
+			StreamingOutput stream = output -> {
+				try (JsonGenerator generator = JSON_FACTORY.createGenerator(output)) {
+					GameDataManager gameDataManager = new GameDataManager();
+					gameDataManager.streamMoves(gameId, username, numMoves, generator);
+				}
+				catch (GameDataException gde) {
+					LOGGER.error("streaming the moves failed", gde);
+					throw new WebApplicationException(gde, Status.INTERNAL_SERVER_ERROR);
+				}
+			};
+			return Response.status(Status.OK).entity(stream).tag(tag).build();
+		});
+	}
+	
 	/**
 	 * Reset the test database to an initial state. Only works in test environments (see configuration file config/test.properties).
 	 * 
@@ -461,8 +1198,17 @@ public class GenesisProjectService {
 		else {
 			try {
 				//the current environment is a test environment, so try to reset it
+				//discard the buffered games first, so they are not written to the new database
+				GameWriteBuffer.getInstance().clear();
 				DatabaseConnection dbConnection = DatabaseConnection.getInstance();
 				dbConnection.resetTestDatabase();
+				//the move numbers, the versions of the dropped games and the ids of the dropped users are no longer valid
+				MoveNumberSequence.getInstance().clear();
+				MoveWaiterRegistry.getInstance().clear();
+				GamePlayerCache.getInstance().clear();
+				GameDocumentCache.getInstance().clear();
+				GameVersionRegistry.getInstance().clear();
+				UserIdCache.getInstance().clear();
 				
 				return Response.status(Status.OK).build();
 			}
@@ -486,6 +1232,12 @@ public class GenesisProjectService {
 			case NO_PERMISSION:
 				responseStatus = Status.FORBIDDEN;
 				break;
+			case INVALID_REQUEST:
+				responseStatus = Status.BAD_REQUEST;
+				break;
+			case CONFLICT:
+				responseStatus = Status.CONFLICT;
+				break;
 			case UNKNOWN:
 			case SQL_EXCEPTION:
 			default:
@@ -495,6 +1247,87 @@ public class GenesisProjectService {
 		return Response.status(responseStatus).build();
 	}
 	
+	/**
+	 * Check whether the user of the session (if the request was authenticated by a session token) may act as a user.
+	 * 
+	 * @return A HTTP 403 (FORBIDDEN) response if the request was authenticated for another user or null if the request is permitted.
+	 */
+	private Response checkSessionUser(SecurityContext securityContext, String username) {
+		String sessionUser = SessionSecurityContext.getUsername(securityContext);
+		if (sessionUser == null || sessionUser.equalsIgnoreCase(username)) {
+			return null;
+		}
+		LOGGER.debug("user {} is not permitted to act as user {}", sessionUser, username);
+		return Response.status(Status.FORBIDDEN).build();
+	}
+	
+	/**
+	 * Check whether the user of the session (if the request was authenticated by a session token) may list the games of a user. The list of
+	 * the games of all users ('-') is public (like before the session tokens were introduced).
+	 * 
+	 * @return A HTTP 403 (FORBIDDEN) response if the request was authenticated for another user or null if the request is permitted.
+	 */
+	private Response checkSessionListUser(SecurityContext securityContext, String username) {
+		if ("-".equals(username)) {
+			return null;
+		}
+		return checkSessionUser(securityContext, username);
+	}
+	
+	/**
+	 * Check whether the user of the session (if the request was authenticated by a session token) is one of the given users.
+	 * 
+	 * @return A HTTP 403 (FORBIDDEN) response if the user of the session is not one of the users or null if the request is permitted.
+	 */
+	private Response checkSessionUserIn(SecurityContext securityContext, Collection<String> usernames) {
+		String sessionUser = SessionSecurityContext.getUsername(securityContext);
+		if (sessionUser == null || (usernames != null && usernames.stream().anyMatch(sessionUser::equalsIgnoreCase))) {
+			return null;
+		}
+		LOGGER.debug("user {} is not one of the users {}", sessionUser, usernames);
+		return Response.status(Status.FORBIDDEN).build();
+	}
+	
+	/**
+	 * Check whether the user of the session (if the request was authenticated by a session token) plays in a game.
+	 * 
+	 * @return A HTTP 403 (FORBIDDEN) response if the user of the session doesn't play in the game or null if the request is permitted.
+	 */
+	private Response checkSessionPlayer(SecurityContext securityContext, int gameId) throws GameDataException {
+		String sessionUser = SessionSecurityContext.getUsername(securityContext);
+		if (sessionUser == null || GamePlayerCache.getInstance().isPlayer(gameId, sessionUser)) {
+			return null;
+		}
+		LOGGER.debug("user {} is not permitted to access game {}", sessionUser, gameId);
+		return Response.status(Status.FORBIDDEN).build();
+	}
+	
+	/**
+	 * Check whether the user of the session (if the request was authenticated by a session token) may list moves: the moves of a game can
+	 * be listed by the players of the game (also the moves of the other players); the moves of all games only for the user of the session.
+	 * 
+	 * @return A HTTP 403 (FORBIDDEN) response if the moves may not be listed or null if the request is permitted.
+	 */
+	private Response checkSessionMoveList(SecurityContext securityContext, int gameId, String username) throws GameDataException {
+		if (gameId == -1) {
+			return checkSessionUser(securityContext, username);
+		}
+		return checkSessionPlayer(securityContext, gameId);
+	}
+	
+	/**
+	 * Evaluate the If-None-Match header of a request against the current tag of a resource.
+	 * 
+	 * @return A HTTP 304 (NOT_MODIFIED) response if the resource didn't change or null if the resource has to be sent.
+	 */
+	private Response evaluateTag(Request request, EntityTag tag) {
+		ResponseBuilder notModified = request.evaluatePreconditions(tag);
+		if (notModified == null) {
+			return null;
+		}
+		return notModified.tag(tag).build();
+	}
+	
 	public static Properties getTestProperties() {
 		return testProperties;
 	}
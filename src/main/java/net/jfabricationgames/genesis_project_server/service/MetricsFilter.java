@@ -0,0 +1,81 @@
+package net.jfabricationgames.genesis_project_server.service;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.Priority;
+import javax.ws.rs.Path;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.ext.Provider;
+
+import net.jfabricationgames.genesis_project_server.config.ServiceConfiguration;
+import net.jfabricationgames.genesis_project_server.metrics.MetricsRegistry;
+
+/**
+ * Records the latency, the status and the in-flight requests of every service method in the {@link MetricsRegistry}.
+ * <p>
+ * The latency is measured from the start of the request until the response is sent (including the time that asynchronous requests wait
+ * for the database request executor).
+ */
+@Provider
+//before the authentication and the rate limits, so the rejected requests are measured too
+@Priority(Priorities.AUTHENTICATION - 100)
+public class MetricsFilter implements ContainerRequestFilter, ContainerResponseFilter {
+	
+	private static final String START_PROPERTY = "genesis_project.metrics.start";
+	private static final String ENDPOINT_PROPERTY = "genesis_project.metrics.endpoint";
+	
+	private static final boolean ENABLED = ServiceConfiguration.getInstance().getBoolean("metrics.enabled", true);
+	
+	/**
+	 * The endpoint names of the service methods (the first part of the path)
+	 */
+	private static final ConcurrentMap<Method, String> endpointNames = new ConcurrentHashMap<Method, String>();
+	
+	@Context
+	private ResourceInfo resourceInfo;
+	
+	@Override
+	public void filter(ContainerRequestContext requestContext) {
+		if (!ENABLED) {
+			return;
+		}
+		String endpoint = getEndpointName(resourceInfo.getResourceMethod());
+		requestContext.setProperty(ENDPOINT_PROPERTY, endpoint);
+		requestContext.setProperty(START_PROPERTY, System.nanoTime());
+		MetricsRegistry.getInstance().requestStarted(endpoint);
+	}
+	
+	@Override
+	public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) {
+		Object start = requestContext.getProperty(START_PROPERTY);
+		if (start == null) {
+			//the request filter was not executed
+			return;
+		}
+		MetricsRegistry.getInstance().requestFinished((String) requestContext.getProperty(ENDPOINT_PROPERTY), responseContext.getStatus(),
+				System.nanoTime() - (Long) start);
+	}
+	
+	private String getEndpointName(Method method) {
+		if (method == null) {
+			return "unknown";
+		}
+		return endpointNames.computeIfAbsent(method, m -> {
+			Path path = m.getAnnotation(Path.class);
+			if (path == null) {
+				return m.getName();
+			}
+			String name = path.value().startsWith("/") ? path.value().substring(1) : path.value();
+			int separator = name.indexOf('/');
+			return separator == -1 ? name : name.substring(0, separator);
+		});
+	}
+}
\ No newline at end of file
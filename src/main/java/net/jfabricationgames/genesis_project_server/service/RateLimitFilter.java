@@ -0,0 +1,119 @@
+package net.jfabricationgames.genesis_project_server.service;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Priority;
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.ext.Provider;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import net.jfabricationgames.genesis_project_server.config.ServiceConfiguration;
+
+/**
+ * Limits the rate of the requests to the {@link RateLimited} service methods per client, so a single client (e.g. in a tight polling loop)
+ * can't overload the database for all other clients.
+ * <p>
+ * The clients are identified by the username of their session token or by their IP address (if the request doesn't contain a session
+ * token). Every {@link RequestCost} has its own rate limit. Requests that exceed the limit are rejected with HTTP 429 (TOO_MANY_REQUESTS) and
+ * a Retry-After header.
+ */
+@Provider
+@RateLimited
+//after the authentication, so the authenticated users are identified by their username
+@Priority(Priorities.AUTHORIZATION)
+public class RateLimitFilter implements ContainerRequestFilter {
+	
+	private static final Logger LOGGER = LogManager.getLogger(RateLimitFilter.class);
+	
+	public static final long DEFAULT_EVICTION_INTERVAL_MILLIS = 60000;
+	
+	private static final String FORWARDED_FOR_HEADER = "X-Forwarded-For";
+	
+	private static final boolean ENABLED = ServiceConfiguration.getInstance().getBoolean("rate_limit.enabled", true);
+	private static final boolean TRUST_FORWARDED_FOR = ServiceConfiguration.getInstance().getBoolean("rate_limit.trust_forwarded_for", false);
+	
+	private static final Map<RequestCost, RateLimiter> rateLimiters = createRateLimiters();
+	
+	@Context
+	private ResourceInfo resourceInfo;
+	@Context
+	private HttpServletRequest servletRequest;
+	
+	private static Map<RequestCost, RateLimiter> createRateLimiters() {
+		ServiceConfiguration configuration = ServiceConfiguration.getInstance();
+		long evictionIntervalMillis = configuration.getLong("rate_limit.eviction_interval_millis", DEFAULT_EVICTION_INTERVAL_MILLIS);
+		
+		Map<RequestCost, RateLimiter> rateLimiters = new EnumMap<RequestCost, RateLimiter>(RequestCost.class);
+		rateLimiters.put(RequestCost.READ, new RateLimiter(configuration.getInt("rate_limit.read.per_second", 20),
+				configuration.getInt("rate_limit.read.burst", 50), evictionIntervalMillis));
+		rateLimiters.put(RequestCost.LIST, new RateLimiter(configuration.getInt("rate_limit.list.per_second", 2),
+				configuration.getInt("rate_limit.list.burst", 10), evictionIntervalMillis));
+		rateLimiters.put(RequestCost.WRITE, new RateLimiter(configuration.getInt("rate_limit.write.per_second", 10),
+				configuration.getInt("rate_limit.write.burst", 20), evictionIntervalMillis));
+		return rateLimiters;
+	}
+	
+	@Override
+	public void filter(ContainerRequestContext requestContext) {
+		if (!ENABLED) {
+			return;
+		}
+		
+		RateLimited rateLimited = resourceInfo.getResourceMethod().getAnnotation(RateLimited.class);
+		RequestCost cost = rateLimited != null ? rateLimited.value() : RequestCost.READ;
+		String client = getClientKey(requestContext);
+		
+		long waitNanos = rateLimiters.get(cost).tryAcquire(client);
+		if (waitNanos > 0) {
+			long retryAfterSeconds = Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+			LOGGER.debug("request of {} to {} rate limited ({}; retry after {} s)", client, requestContext.getUriInfo().getPath(), cost,
+					retryAfterSeconds);
+			requestContext.abortWith(Response.status(Status.TOO_MANY_REQUESTS).header(HttpHeaders.RETRY_AFTER, retryAfterSeconds).build());
+		}
+	}
+	
+	/**
+	 * Identify the client by the username of its session token or by its IP address.
+	 */
+	private String getClientKey(ContainerRequestContext requestContext) {
+		Object username = requestContext.getProperty(SessionTokenFilter.USERNAME_PROPERTY);
+		if (username != null) {
+			return "user:" + username.toString().toLowerCase(Locale.ROOT);
+		}
+		if (TRUST_FORWARDED_FOR) {
+			String forwardedFor = requestContext.getHeaderString(FORWARDED_FOR_HEADER);
+			if (forwardedFor != null && !forwardedFor.isEmpty()) {
+				//the first address is the client (the others are proxies)
+				int separator = forwardedFor.indexOf(',');
+				return "ip:" + (separator == -1 ? forwardedFor : forwardedFor.substring(0, separator)).trim();
+			}
+		}
+		return "ip:" + (servletRequest != null ? servletRequest.getRemoteAddr() : "unknown");
+	}
+	
+	/**
+	 * Get the state of the rate limits (for logging and monitoring).
+	 */
+	public static Map<String, Object> getStatistics() {
+		Map<String, Object> statistics = new LinkedHashMap<String, Object>();
+		statistics.put("enabled", ENABLED);
+		for (Map.Entry<RequestCost, RateLimiter> rateLimiter : rateLimiters.entrySet()) {
+			statistics.put(rateLimiter.getKey().name().toLowerCase(Locale.ROOT), rateLimiter.getValue().getStatistics());
+		}
+		return statistics;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,22 @@
+package net.jfabricationgames.genesis_project_server.service;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import javax.ws.rs.NameBinding;
+
+/**
+ * Marks the service methods that are rate limited per client (see {@link RateLimitFilter}).
+ */
+@NameBinding
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.METHOD})
+public @interface RateLimited {
+	
+	/**
+	 * The class of the request, that decides which rate limit is used.
+	 */
+	RequestCost value() default RequestCost.READ;
+}
\ No newline at end of file
@@ -0,0 +1,110 @@
+package net.jfabricationgames.genesis_project_server.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A token bucket rate limiter with one bucket per client (identified by a key like the username or the IP address).
+ * <p>
+ * Every bucket holds up to burst tokens and is refilled with the given rate of tokens per second; every request takes one token. The buckets
+ * are implemented without locks: a bucket only stores the (theoretical) time at which it will be full again, which is updated by a
+ * compare-and-set. A bucket that is full again is not needed anymore, so the buckets of idle clients are evicted regularly.
+ */
+public class RateLimiter {
+	
+	private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+	
+	/**
+	 * The time it takes to refill one token
+	 */
+	private final long nanosPerToken;
+	/**
+	 * The time it takes to refill a bucket that is completely empty
+	 */
+	private final long burstNanos;
+	private final long evictionIntervalNanos;
+	
+	/**
+	 * The time (in nanos) at which the bucket of a client will be full again
+	 */
+	private final ConcurrentMap<String, AtomicLong> buckets;
+	private final AtomicLong nextEviction;
+	
+	private final AtomicLong allowedRequests = new AtomicLong();
+	private final AtomicLong limitedRequests = new AtomicLong();
+	private final AtomicLong evictedBuckets = new AtomicLong();
+	
+	public RateLimiter(double tokensPerSecond, int burst, long evictionIntervalMillis) {
+		if (tokensPerSecond <= 0 || burst < 1) {
+			throw new IllegalArgumentException("invalid rate limit (tokens per second: " + tokensPerSecond + ", burst: " + burst + ")");
+		}
+		nanosPerToken = Math.max(1, (long) (NANOS_PER_SECOND / tokensPerSecond));
+		burstNanos = nanosPerToken * burst;
+		evictionIntervalNanos = TimeUnit.MILLISECONDS.toNanos(evictionIntervalMillis);
+		buckets = new ConcurrentHashMap<String, AtomicLong>();
+		nextEviction = new AtomicLong(System.nanoTime() + evictionIntervalNanos);
+	}
+	
+	/**
+	 * Take a token from the bucket of a client.
+	 * 
+	 * @return 0 if the request is allowed or the time (in nanos) after which the next token is available if the request is limited.
+	 */
+	public long tryAcquire(String key) {
+		return tryAcquire(key, System.nanoTime());
+	}
+	
+	protected long tryAcquire(String key, long now) {
+		evictIdleBuckets(now);
+		
+		AtomicLong bucket = buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+		while (true) {
+			long full = bucket.get();
+			//an idle bucket is full, but can't hold more than the burst
+			long next = Math.max(full, now) + nanosPerToken;
+			long waitNanos = next - now - burstNanos;
+			if (waitNanos > 0) {
+				limitedRequests.incrementAndGet();
+				return waitNanos;
+			}
+			if (bucket.compareAndSet(full, next)) {
+				allowedRequests.incrementAndGet();
+				return 0;
+			}
+		}
+	}
+	
+	/**
+	 * Remove the buckets that are full (they are re-created with the same state on the next request of the client). Only one thread evicts
+	 * the buckets per eviction interval.
+	 */
+	private void evictIdleBuckets(long now) {
+		long eviction = nextEviction.get();
+		if (now - eviction < 0 || !nextEviction.compareAndSet(eviction, now + evictionIntervalNanos)) {
+			return;
+		}
+		for (Map.Entry<String, AtomicLong> bucket : buckets.entrySet()) {
+			if (bucket.getValue().get() - now <= 0 && buckets.remove(bucket.getKey(), bucket.getValue())) {
+				evictedBuckets.incrementAndGet();
+			}
+		}
+	}
+	
+	/**
+	 * Get the state of the rate limiter (for logging and monitoring).
+	 */
+	public Map<String, Object> getStatistics() {
+		Map<String, Object> statistics = new LinkedHashMap<String, Object>();
+		statistics.put("tokensPerSecond", (double) NANOS_PER_SECOND / nanosPerToken);
+		statistics.put("burst", burstNanos / nanosPerToken);
+		statistics.put("buckets", buckets.size());
+		statistics.put("allowedRequests", allowedRequests.get());
+		statistics.put("limitedRequests", limitedRequests.get());
+		statistics.put("evictedBuckets", evictedBuckets.get());
+		return statistics;
+	}
+}
\ No newline at end of file
@@ -0,0 +1,20 @@
+package net.jfabricationgames.genesis_project_server.service;
+
+/**
+ * The classes of service methods that have separate rate limits (see {@link RateLimitFilter}).
+ */
+public enum RequestCost {
+	
+	/**
+	 * Requests that read a single game or a bounded page (cheap)
+	 */
+	READ, //
+	/**
+	 * Requests that list or stream all games or moves (heavy)
+	 */
+	LIST, //
+	/**
+	 * Requests that change the database or verify a password
+	 */
+	WRITE,
+}
\ No newline at end of file
@@ -0,0 +1,18 @@
+package net.jfabricationgames.genesis_project_server.service;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import javax.ws.rs.NameBinding;
+
+/**
+ * Marks the service methods that are authenticated by the session token of the request (see {@link SessionTokenFilter}).
+ */
+@NameBinding
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.METHOD})
+public @interface SessionAuthenticated {
+	
+}
\ No newline at end of file
@@ -0,0 +1,61 @@
+package net.jfabricationgames.genesis_project_server.service;
+
+import java.security.Principal;
+
+import javax.ws.rs.core.SecurityContext;
+
+/**
+ * The security context of a request that was authenticated by a session token (see {@link SessionTokenFilter}). The user principal is the
+ * user the token was issued to.
+ */
+public class SessionSecurityContext implements SecurityContext {
+	
+	/**
+	 * The authentication scheme of the session tokens
+	 */
+	public static final String AUTHENTICATION_SCHEME = "Bearer";
+	
+	private final Principal user;
+	private final boolean secure;
+	
+	public SessionSecurityContext(String username, boolean secure) {
+		this.user = () -> username;
+		this.secure = secure;
+	}
+	
+	/**
+	 * Get the name of the user that was authenticated by the session token of a request.
+	 * 
+	 * @return The name of the user or null if the request was not authenticated by a session token.
+	 */
+	public static String getUsername(SecurityContext securityContext) {
+		if (securityContext == null || !AUTHENTICATION_SCHEME.equals(securityContext.getAuthenticationScheme())
+				|| securityContext.getUserPrincipal() == null) {
+			return null;
+		}
+		return securityContext.getUserPrincipal().getName();
+	}
+	
+	@Override
+	public Principal getUserPrincipal() {
+		return user;
+	}
+	
+	/**
+	 * The users don't have roles (the permissions are checked per game)
+	 */
+	@Override
+	public boolean isUserInRole(String role) {
+		return false;
+	}
+	
+	@Override
+	public boolean isSecure() {
+		return secure;
+	}
+	
+	@Override
+	public String getAuthenticationScheme() {
+		return AUTHENTICATION_SCHEME;
+	}
+}
\ No newline at end of file
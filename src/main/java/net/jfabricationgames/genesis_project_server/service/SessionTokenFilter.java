@@ -0,0 +1,70 @@
+package net.jfabricationgames.genesis_project_server.service;
+
+import javax.annotation.Priority;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.ext.Provider;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import net.jfabricationgames.genesis_project_server.config.ServiceConfiguration;
+import net.jfabricationgames.genesis_project_server.user.SessionTokenManager;
+
+/**
+ * Authenticates the requests to the {@link SessionAuthenticated} service methods by the session token that was issued by verify_user (sent in
+ * the header "Authorization: Bearer &lt;token&gt;").
+ * <p>
+ * The token is verified without accessing the database. A request with an invalid, expired or revoked token is rejected (HTTP 401). Requests
+ * without a token are only rejected if the session tokens are required by the configuration (not required by default, so older clients,
+ * that don't send a token, keep working until all clients send the token).
+ * <p>
+ * The user of a valid token is set as the user of the request's {@link SessionSecurityContext}. The service methods only permit the user of
+ * the token to act as this user (the username parameters of a request have to be the user of the token) and to access the games that the
+ * user plays in.
+ */
+@Provider
+@SessionAuthenticated
+@Priority(Priorities.AUTHENTICATION)
+public class SessionTokenFilter implements ContainerRequestFilter {
+	
+	private static final Logger LOGGER = LogManager.getLogger(SessionTokenFilter.class);
+	
+	/**
+	 * The request property that contains the name of the authenticated user
+	 */
+	public static final String USERNAME_PROPERTY = "genesis_project.username";
+	
+	private static final String BEARER_PREFIX = "Bearer ";
+	
+	private static final boolean SESSION_REQUIRED = ServiceConfiguration.getInstance().getBoolean("session.required", false);
+	
+	@Override
+	public void filter(ContainerRequestContext requestContext) {
+		String authorization = requestContext.getHeaderString(HttpHeaders.AUTHORIZATION);
+		if (authorization == null || !authorization.regionMatches(true, 0, BEARER_PREFIX, 0, BEARER_PREFIX.length())) {
+			if (SESSION_REQUIRED) {
+				abort(requestContext, "missing session token");
+			}
+			return;
+		}
+		
+		String username = SessionTokenManager.getInstance().verifyToken(authorization.substring(BEARER_PREFIX.length()).trim());
+		if (username == null) {
+			abort(requestContext, "invalid session token");
+		}
+		else {
+			requestContext.setProperty(USERNAME_PROPERTY, username);
+			requestContext.setSecurityContext(new SessionSecurityContext(username, requestContext.getSecurityContext().isSecure()));
+		}
+	}
+	
+	private void abort(ContainerRequestContext requestContext, String reason) {
+		LOGGER.debug("request to {} rejected: {}", requestContext.getUriInfo().getPath(), reason);
+		requestContext.abortWith(Response.status(Status.UNAUTHORIZED).header(HttpHeaders.WWW_AUTHENTICATE, "Bearer").build());
+	}
+}
\ No newline at end of file
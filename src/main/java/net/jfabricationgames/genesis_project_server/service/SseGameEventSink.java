@@ -0,0 +1,123 @@
+package net.jfabricationgames.genesis_project_server.service;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.ws.rs.sse.OutboundSseEvent;
+import javax.ws.rs.sse.Sse;
+import javax.ws.rs.sse.SseEventSink;
+
+import net.jfabricationgames.genesis_project_server.game.GameEvent;
+import net.jfabricationgames.genesis_project_server.game.GameEventSink;
+
+/**
+ * Sends the events of the {@link net.jfabricationgames.genesis_project_server.game.GameEventBus} to a client as server-sent events. The
+ * name of an event is the event type and the data is the JSON representation of the event. Heartbeats are sent as comments.
+ * <p>
+ * The events are written synchronously by the dispatcher thread of the event bus (the future that is returned by the {@link SseEventSink}
+ * is already completed when the event was written). A watchdog closes the connection if an event is not written within the send timeout
+ * (e.g. because the client doesn't read from the connection), so the blocked write is aborted, the subscription is cancelled and the
+ * dispatcher thread is free for the other subscribers.
+ */
+public class SseGameEventSink implements GameEventSink {
+	
+	public static final long DEFAULT_SEND_TIMEOUT_MILLIS = 5000;
+	
+	/**
+	 * Closes the connections of the subscribers whose events are not written within the send timeout
+	 */
+	private static final ScheduledThreadPoolExecutor WATCHDOG = createWatchdog();
+	
+	private final SseEventSink eventSink;
+	private final Sse sse;
+	private final long sendTimeoutMillis;
+	
+	public SseGameEventSink(SseEventSink eventSink, Sse sse, long sendTimeoutMillis) {
+		this.eventSink = eventSink;
+		this.sse = sse;
+		this.sendTimeoutMillis = sendTimeoutMillis;
+	}
+	
+	private static ScheduledThreadPoolExecutor createWatchdog() {
+		ScheduledThreadPoolExecutor watchdog = new ScheduledThreadPoolExecutor(1, runnable -> {
+			Thread thread = new Thread(runnable, "game-event-send-watchdog");
+			thread.setDaemon(true);
+			return thread;
+		});
+		//most sends are finished before the timeout, so the cancelled checks are removed immediately
+		watchdog.setRemoveOnCancelPolicy(true);
+		return watchdog;
+	}
+	
+	@Override
+	public void send(GameEvent event) throws IOException {
+		if (eventSink.isClosed()) {
+			throw new IOException("the connection was closed");
+		}
+		
+		OutboundSseEvent sseEvent;
+		if (event.getType() == GameEvent.Type.HEARTBEAT) {
+			sseEvent = sse.newEventBuilder().comment(event.getType().getName()).build();
+		}
+		else {
+			sseEvent = sse.newEventBuilder().name(event.getType().getName()).data(String.class, event.toJson()).build();
+		}
+		
+		AtomicBoolean timedOut = new AtomicBoolean();
+		ScheduledFuture<?> watchdog = WATCHDOG.schedule(() -> {
+			//closing the connection aborts the write that blocks the dispatcher thread
+			timedOut.set(true);
+			eventSink.close();
+		}, sendTimeoutMillis, TimeUnit.MILLISECONDS);
+		
+		Object result;
+		try {
+			//the event is written before the future is returned (the future is only awaited for implementations that write asynchronously)
+			result = eventSink.send(sseEvent).toCompletableFuture().get(sendTimeoutMillis, TimeUnit.MILLISECONDS);
+		}
+		catch (TimeoutException te) {
+			eventSink.close();
+			throw new IOException("the event was not sent within " + sendTimeoutMillis + " ms", te);
+		}
+		catch (ExecutionException ee) {
+			throw new IOException("the event couldn't be sent", ee.getCause());
+		}
+		catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			throw new IOException("interrupted while sending the event", ie);
+		}
+		catch (IllegalStateException ise) {
+			//the connection was closed in the meantime
+			throw new IOException("the event couldn't be sent", ise);
+		}
+		finally {
+			watchdog.cancel(false);
+		}
+		
+		if (timedOut.get()) {
+			throw new IOException("the event was not sent within " + sendTimeoutMillis + " ms");
+		}
+		if (result instanceof Throwable) {
+			//a failed write completes the future normally (with the exception as result)
+			throw new IOException("the event couldn't be sent", (Throwable) result);
+		}
+		if (eventSink.isClosed()) {
+			throw new IOException("the connection was closed while the event was sent");
+		}
+	}
+	
+	@Override
+	public void close() {
+		eventSink.close();
+	}
+	
+	@Override
+	public boolean isClosed() {
+		return eventSink.isClosed();
+	}
+}
\ No newline at end of file
@@ -11,9 +11,12 @@ public class Login {
 		
 	}
 	
+	/**
+	 * The password is not included, because the logins are logged by the service
+	 */
 	@Override
 	public String toString() {
-		return "Login [username=" + username + ", password=" + password + "]";
+		return "Login [username=" + username + ", password=" + (password == null ? null : "***") + "]";
 	}
 	
 	public Login(String username, String password) {
@@ -0,0 +1,234 @@
+package net.jfabricationgames.genesis_project_server.user;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import net.jfabricationgames.genesis_project_server.config.ServiceConfiguration;
+
+/**
+ * Issues and verifies the session tokens that are handed out by verify_user, so the following requests of a user can be authenticated without
+ * a database lookup and password hashing.
+ * <p>
+ * A token is self-contained: it contains the username, the time it was issued and the time it expires, signed with an HMAC-SHA256 of the
+ * server's secret. The only state that is kept in memory are the revocations: when a user's login is updated, all tokens of the user that
+ * were issued up to the revocation are rejected (until they would have expired anyway). Tokens that are issued after a revocation always
+ * get a later issue time than the revocation (even within the same millisecond).
+ * <p>
+ * If no secret is configured, a random secret is created on startup (so the tokens are invalidated when the server is restarted).
+ */
+public class SessionTokenManager {
+	
+	private static final Logger LOGGER = LogManager.getLogger(SessionTokenManager.class);
+	
+	public static final long DEFAULT_TTL_MILLIS = 12 * 60 * 60 * 1000L;
+	
+	private static final String HMAC_ALGORITHM = "HmacSHA256";
+	private static final int GENERATED_SECRET_LENGTH = 32;
+	private static final char SEPARATOR = '.';
+	
+	private static volatile SessionTokenManager instance;
+	
+	private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+	private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+	
+	private final SecretKeySpec secret;
+	private final long ttlMillis;
+	/**
+	 * The Mac instances are not thread safe, so every thread uses its own instance
+	 */
+	private final ThreadLocal<Mac> macs;
+	/**
+	 * The time of the last revocation for every user (by the lower case username); tokens that were issued up to this time are rejected
+	 */
+	private final ConcurrentMap<String, Long> revocations;
+	
+	private final AtomicLong issuedTokens = new AtomicLong();
+	private final AtomicLong verifiedTokens = new AtomicLong();
+	private final AtomicLong invalidTokens = new AtomicLong();
+	private final AtomicLong expiredTokens = new AtomicLong();
+	private final AtomicLong revokedTokens = new AtomicLong();
+	
+	protected SessionTokenManager(byte[] secret, long ttlMillis) {
+		if (secret == null || secret.length == 0) {
+			throw new IllegalArgumentException("the secret must not be empty");
+		}
+		this.secret = new SecretKeySpec(secret, HMAC_ALGORITHM);
+		this.ttlMillis = ttlMillis;
+		macs = ThreadLocal.withInitial(this::createMac);
+		revocations = new ConcurrentHashMap<String, Long>();
+		
+		//check the algorithm once, so a missing algorithm is reported on startup
+		createMac();
+	}
+	
+	public static SessionTokenManager getInstance() {
+		//only synchronize if the instance is not yet created (to not synchronize every request)
+		SessionTokenManager sessionTokenManager = instance;
+		if (sessionTokenManager == null) {
+			synchronized (SessionTokenManager.class) {
+				if (instance == null) {
+					ServiceConfiguration configuration = ServiceConfiguration.getInstance();
+					String configuredSecret = configuration.getString("session.secret", "");
+					byte[] secret;
+					if (configuredSecret.isEmpty()) {
+						LOGGER.info("no session secret configured; using a random secret (the session tokens are invalidated by a restart)");
+						secret = new byte[GENERATED_SECRET_LENGTH];
+						new SecureRandom().nextBytes(secret);
+					}
+					else {
+						secret = configuredSecret.getBytes(StandardCharsets.UTF_8);
+					}
+					instance = new SessionTokenManager(secret, configuration.getLong("session.ttl_millis", DEFAULT_TTL_MILLIS));
+				}
+				sessionTokenManager = instance;
+			}
+		}
+		return sessionTokenManager;
+	}
+	
+	private Mac createMac() {
+		try {
+			Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+			mac.init(secret);
+			return mac;
+		}
+		catch (GeneralSecurityException gse) {
+			throw new IllegalStateException("session token signature couldn't be created", gse);
+		}
+	}
+	
+	/**
+	 * Issue a new session token for a user (that was verified before).
+	 */
+	public String issueToken(String username) {
+		return issueToken(username, System.currentTimeMillis());
+	}
+	
+	protected String issueToken(String username, long now) {
+		//a token is always issued after the last revocation of the user (also if the tokens were revoked in the same millisecond, like in
+		//update_user), because the tokens that were issued up to the revocation are rejected
+		long issued = now;
+		Long revoked = revocations.get(normalize(username));
+		if (revoked != null && revoked >= issued) {
+			issued = revoked + 1;
+		}
+		String payload = ENCODER.encodeToString(username.getBytes(StandardCharsets.UTF_8)) + SEPARATOR + issued + SEPARATOR + (issued + ttlMillis);
+		issuedTokens.incrementAndGet();
+		return payload + SEPARATOR + ENCODER.encodeToString(sign(payload));
+	}
+	
+	/**
+	 * Verify a session token (without accessing the database).
+	 * 
+	 * @return The name of the user the token was issued to or null if the token is invalid, expired or revoked.
+	 */
+	public String verifyToken(String token) {
+		return verifyToken(token, System.currentTimeMillis());
+	}
+	
+	protected String verifyToken(String token, long now) {
+		if (token == null) {
+			invalidTokens.incrementAndGet();
+			return null;
+		}
+		int signatureStart = token.lastIndexOf(SEPARATOR);
+		String[] fields = signatureStart > 0 ? token.substring(0, signatureStart).split("\\.", -1) : new String[0];
+		if (fields.length != 3) {
+			invalidTokens.incrementAndGet();
+			return null;
+		}
+		
+		String username;
+		long issued;
+		long expires;
+		byte[] signature;
+		try {
+			username = new String(DECODER.decode(fields[0]), StandardCharsets.UTF_8);
+			issued = Long.parseLong(fields[1]);
+			expires = Long.parseLong(fields[2]);
+			signature = DECODER.decode(token.substring(signatureStart + 1));
+		}
+		catch (IllegalArgumentException iae) {
+			//also covers the NumberFormatException
+			invalidTokens.incrementAndGet();
+			return null;
+		}
+		
+		//compare in constant time, so the signature can't be guessed by the response times
+		if (!MessageDigest.isEqual(signature, sign(token.substring(0, signatureStart)))) {
+			invalidTokens.incrementAndGet();
+			return null;
+		}
+		if (now > expires) {
+			expiredTokens.incrementAndGet();
+			return null;
+		}
+		Long revoked = revocations.get(normalize(username));
+		if (revoked != null && issued <= revoked) {
+			revokedTokens.incrementAndGet();
+			return null;
+		}
+		
+		verifiedTokens.incrementAndGet();
+		return username;
+	}
+	
+	/**
+	 * Reject all tokens of a user that were issued up to now (e.g. because the user's password was changed).
+	 */
+	public void revokeTokens(String username) {
+		revokeTokens(username, System.currentTimeMillis());
+	}
+	
+	protected void revokeTokens(String username, long now) {
+		//the revocation time always increases (the tokens that were issued after an earlier revocation may have a later issue time than now)
+		revocations.merge(normalize(username), now, (revoked, time) -> revoked >= time ? revoked + 1 : time);
+		//the revocations are only needed until the revoked tokens expire
+		revocations.values().removeIf(revoked -> revoked + ttlMillis < now);
+	}
+	
+	private byte[] sign(String payload) {
+		return macs.get().doFinal(payload.getBytes(StandardCharsets.UTF_8));
+	}
+	
+	/**
+	 * The usernames are compared case insensitive (like in the database)
+	 */
+	private String normalize(String username) {
+		return username.toLowerCase(Locale.ROOT);
+	}
+	
+	/**
+	 * Get the state of the session tokens (for logging and monitoring).
+	 */
+	public Map<String, Object> getStatistics() {
+		Map<String, Object> statistics = new LinkedHashMap<String, Object>();
+		statistics.put("ttlMillis", ttlMillis);
+		statistics.put("revokedUsers", revocations.size());
+		statistics.put("issuedTokens", issuedTokens.get());
+		statistics.put("verifiedTokens", verifiedTokens.get());
+		statistics.put("invalidTokens", invalidTokens.get());
+		statistics.put("expiredTokens", expiredTokens.get());
+		statistics.put("revokedTokens", revokedTokens.get());
+		return statistics;
+	}
+	
+	public long getTtlMillis() {
+		return ttlMillis;
+	}
+}
\ No newline at end of file
@@ -13,8 +13,11 @@ import javax.crypto.NoSuchPaddingException;
 import net.jfabricationgames.genesis_project_server.database.CheckedSqlConsumer;
 import net.jfabricationgames.genesis_project_server.database.DatabaseConnection;
 import net.jfabricationgames.genesis_project_server.database.SqlExecutionType;
+import net.jfabricationgames.genesis_project_server.database.SqlStatement;
 import net.jfabricationgames.genesis_project_server.exception.GameDataException;
 import net.jfabricationgames.genesis_project_server.exception.GameDataException.Cause;
+import net.jfabricationgames.genesis_project_server.game.GamePlayerCache;
+import net.jfabricationgames.genesis_project_server.game.GameVersionRegistry;
 
 public class UserDataManager {
 	
@@ -24,22 +27,24 @@ public class UserDataManager {
 	private String passwordEncryptionKey = "vcuh31250hvcsojnl312vcnlsgr329fdsip";
 	private String salt = "ch48cho2nlc";
 	
-	private static MessageDigest md5;
+	/**
+	 * A MessageDigest is not thread safe, so every thread uses its own instance (a shared instance creates wrong hashes for concurrent requests)
+	 */
+	private static final ThreadLocal<MessageDigest> md5 = ThreadLocal.withInitial(() -> {
+		try {
+			return MessageDigest.getInstance("md5");
+		}
+		catch (NoSuchAlgorithmException nsae) {
+			throw new IllegalStateException("hash encryptor couldn't be created", nsae);
+		}
+	});
 	
 	private String password;
 	private boolean userExists;
 	
 	public UserDataManager() throws IllegalStateException {
-		synchronized (this) {
-			if (md5 == null) {
-				try {
-					md5 = MessageDigest.getInstance("md5");
-				}
-				catch (NoSuchAlgorithmException nsae) {
-					throw new IllegalStateException("hash encryptor couldn't be created", nsae);
-				}
-			}
-		}
+		//create the hash encryptor of this thread (to fail early if the algorithm is not available)
+		md5.get();
 	}
 	
 	/**
@@ -53,8 +58,6 @@ public class UserDataManager {
 			throw new GameDataException("the user already exists", Cause.NO_PERMISSION);
 		}
 		login.decryptPassword(passwordEncryptionKey);
-		String query = "INSERT INTO " + DatabaseConnection.getTable(DatabaseConnection.TABLE_USERS) + " (username, password) VALUES (?, ?)";
-		
 		CheckedSqlConsumer<PreparedStatement> variableSetter = ps -> {
 			ps.setString(1, login.getUsername());
 			//store a hash of the password
@@ -62,7 +65,10 @@ public class UserDataManager {
 		};
 		
 		//create the new user
-		DatabaseConnection.executeCheckedSQL(query, SqlExecutionType.UPDATE, variableSetter, null);
+		DatabaseConnection.executeCheckedSQL(SqlStatement.CREATE_USER, SqlExecutionType.UPDATE, variableSetter, null);
+		
+		//the username might be cached as unknown user
+		UserIdCache.getInstance().invalidate(login.getUsername());
 	}
 	
 	/**
@@ -77,9 +83,6 @@ public class UserDataManager {
 		//verify the users current login first
 		if (verifyUser(current)) {
 			//if the user is verified, update the login
-			String query = "UPDATE " + DatabaseConnection.getTable(DatabaseConnection.TABLE_USERS)
-					+ " SET username = ?, password = ? WHERE username = ?";
-			
 			CheckedSqlConsumer<PreparedStatement> variableSetter = ps -> {
 				ps.setString(1, update.getUsername());
 				//store a hash of the password
@@ -88,7 +91,26 @@ public class UserDataManager {
 			};
 			
 			//update the user
-			DatabaseConnection.executeCheckedSQL(query, SqlExecutionType.UPDATE, variableSetter, null);
+			DatabaseConnection.executeCheckedSQL(SqlStatement.UPDATE_USER, SqlExecutionType.UPDATE, variableSetter, null);
+			
+			//move the cached id to the new username (the id of the user doesn't change)
+			UserIdCache userIdCache = UserIdCache.getInstance();
+			Integer userId = userIdCache.getCachedUserId(current.getUsername());
+			userIdCache.invalidate(current.getUsername());
+			if (userId != null && userId != UserIdCache.UNKNOWN_USER) {
+				userIdCache.put(update.getUsername(), userId);
+			}
+			else {
+				userIdCache.invalidate(update.getUsername());
+			}
+			
+			//the session tokens of the old login are no longer valid
+			SessionTokenManager.getInstance().revokeTokens(current.getUsername());
+			
+			//the game and move lists contain the usernames
+			GameVersionRegistry.getInstance().userUpdated();
+			//the cached players of the games contain the old username
+			GamePlayerCache.getInstance().clear();
 		}
 		else {
 			throw new GameDataException("user verification failed", Cause.NO_PERMISSION);
@@ -105,8 +127,6 @@ public class UserDataManager {
 	 */
 	public boolean verifyUser(Login login) throws GameDataException {
 		login.decryptPassword(passwordEncryptionKey);
-		String query = "SELECT password FROM " + DatabaseConnection.getTable(DatabaseConnection.TABLE_USERS) + " WHERE username = ?";
-		
 		CheckedSqlConsumer<PreparedStatement> variableSetter = ps -> {
 			ps.setString(1, login.getUsername());
 		};
@@ -118,7 +138,7 @@ public class UserDataManager {
 		
 		//load the user's password
 		password = null;
-		DatabaseConnection.executeCheckedSQL(query, SqlExecutionType.QUERY, variableSetter, resultConsumer);
+		DatabaseConnection.executeCheckedSQL(SqlStatement.GET_USER_PASSWORD, SqlExecutionType.QUERY, variableSetter, resultConsumer);
 		
 		if (password == null) {
 			throw new GameDataException("user couldn't be loaded", Cause.NOT_FOUND);
@@ -135,8 +155,6 @@ public class UserDataManager {
 	 * Check whether a user with the given username exists in the database.
 	 */
 	private boolean userExists(Login login) throws GameDataException {
-		String query = "SELECT COUNT(*) FROM " + DatabaseConnection.getTable(DatabaseConnection.TABLE_USERS) + " WHERE username = ?";
-		
 		CheckedSqlConsumer<PreparedStatement> variableSetter = ps -> {
 			ps.setString(1, login.getUsername());
 		};
@@ -149,7 +167,7 @@ public class UserDataManager {
 		
 		//check whether the user exists in the database
 		userExists = false;
-		DatabaseConnection.executeCheckedSQL(query, SqlExecutionType.QUERY, variableSetter, resultConsumer);
+		DatabaseConnection.executeCheckedSQL(SqlStatement.COUNT_USERS, SqlExecutionType.QUERY, variableSetter, resultConsumer);
 		
 		return userExists;
 	}
@@ -162,7 +180,7 @@ public class UserDataManager {
 	 * 
 	 * @return The password hash (md5)
 	 */
-	private String getPasswordHash(String password) {
+	protected String getPasswordHash(String password) {
 		try {
 			byte[] decryptedPassword = getDecryptedPassword(password);
 			byte[] decryptedPasswordWithSalt = new byte[decryptedPassword.length + salt.length()];
@@ -212,7 +230,7 @@ public class UserDataManager {
 	 */
 	private String getHash(byte[] password) {
 		byte[] inBuff = password;
-		byte[] outBuff = md5.digest(inBuff);
+		byte[] outBuff = md5.get().digest(inBuff);
 		StringBuilder sb = new StringBuilder();
 		for (int i = 0; i < outBuff.length; i++) {
 			sb.append(Integer.toString((outBuff[i] & 0xff) + 0x100, 16).substring(1));
@@ -0,0 +1,262 @@
+package net.jfabricationgames.genesis_project_server.user;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.jfabricationgames.genesis_project_server.config.ServiceConfiguration;
+import net.jfabricationgames.genesis_project_server.database.CheckedSqlConsumer;
+import net.jfabricationgames.genesis_project_server.database.DatabaseConnection;
+import net.jfabricationgames.genesis_project_server.database.SqlExecutionType;
+import net.jfabricationgames.genesis_project_server.database.SqlStatement;
+import net.jfabricationgames.genesis_project_server.exception.GameDataException;
+import net.jfabricationgames.genesis_project_server.exception.GameDataException.Cause;
+
+/**
+ * A cache that maps usernames to user ids (shared by all data managers), so the users don't have to be resolved in the database on every
+ * request.
+ * <p>
+ * The ids are loaded on a cache miss. Unknown usernames are remembered for a short time (negative caching), so repeated requests with an
+ * unknown username don't query the database either. The usernames are compared case insensitive (like in the database).
+ * <p>
+ * The ids of different users are loaded concurrently. Concurrent misses of the same user are coalesced into one query (the other requests
+ * wait for the result of the running query).
+ */
+public class UserIdCache {
+	
+	/**
+	 * The id that is returned for usernames that don't exist in the database.
+	 */
+	public static final int UNKNOWN_USER = -1;
+	
+	public static final int DEFAULT_MAX_SIZE = 10000;
+	public static final long DEFAULT_NEGATIVE_TTL_MILLIS = 10000;
+	
+	private static final UserIdCache instance = new UserIdCache(
+			ServiceConfiguration.getInstance().getInt("user_id_cache.max_size", DEFAULT_MAX_SIZE),
+			ServiceConfiguration.getInstance().getLong("user_id_cache.negative_ttl_millis", DEFAULT_NEGATIVE_TTL_MILLIS));
+	
+	private static class CacheEntry {
+		
+		private final int userId;
+		/**
+		 * The time until which the entry is valid (only used for unknown users)
+		 */
+		private final long expires;
+		private volatile long lastAccess;
+		
+		public CacheEntry(int userId, long expires) {
+			this.userId = userId;
+			this.expires = expires;
+			this.lastAccess = System.currentTimeMillis();
+		}
+		
+		public boolean isExpired(long now) {
+			return now > expires;
+		}
+	}
+	
+	private final ConcurrentMap<String, CacheEntry> entries;
+	private final int maxSize;
+	private final long negativeTtlMillis;
+	
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong negativeHits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+	private final AtomicLong coalescedLoads = new AtomicLong();
+	
+	/**
+	 * The running loads of user ids (by the lower case usernames)
+	 */
+	private final ConcurrentMap<String, CompletableFuture<Integer>> loads = new ConcurrentHashMap<String, CompletableFuture<Integer>>();
+	
+	protected UserIdCache(int maxSize, long negativeTtlMillis) {
+		this.maxSize = maxSize;
+		this.negativeTtlMillis = negativeTtlMillis;
+		entries = new ConcurrentHashMap<String, CacheEntry>();
+	}
+	
+	public static UserIdCache getInstance() {
+		return instance;
+	}
+	
+	/**
+	 * Get the id of a user. If the user is not cached, the id is loaded from the database.
+	 * 
+	 * @return The id of the user or {@link #UNKNOWN_USER} if the user doesn't exist.
+	 */
+	public int getUserId(String username) throws GameDataException {
+		Integer cachedUserId = getCachedUserId(username);
+		if (cachedUserId != null) {
+			return cachedUserId;
+		}
+		
+		String key = toKey(username);
+		CompletableFuture<Integer> load = new CompletableFuture<Integer>();
+		CompletableFuture<Integer> runningLoad = loads.putIfAbsent(key, load);
+		if (runningLoad != null) {
+			//the user is already loaded by another request
+			coalescedLoads.incrementAndGet();
+			return awaitLoad(runningLoad);
+		}
+		
+		try {
+			int loadedUserId = loadUserId(username);
+			if (loadedUserId == UNKNOWN_USER) {
+				putUnknown(username);
+			}
+			else {
+				put(username, loadedUserId);
+			}
+			load.complete(loadedUserId);
+			return loadedUserId;
+		}
+		catch (GameDataException | RuntimeException e) {
+			load.completeExceptionally(e);
+			throw e;
+		}
+		finally {
+			loads.remove(key, load);
+		}
+	}
+	
+	private int awaitLoad(CompletableFuture<Integer> load) throws GameDataException {
+		try {
+			return load.get();
+		}
+		catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			throw new GameDataException("interrupted while waiting for the user id", ie, Cause.UNKNOWN);
+		}
+		catch (ExecutionException ee) {
+			if (ee.getCause() instanceof GameDataException) {
+				GameDataException cause = (GameDataException) ee.getCause();
+				throw new GameDataException(cause.getMessage(), cause, cause.getGameDataExceptionCause());
+			}
+			throw new GameDataException("the user id couldn't be loaded", ee.getCause(), Cause.UNKNOWN);
+		}
+	}
+	
+	/**
+	 * Load the id of a user from the database.
+	 * 
+	 * @return The id of the user or {@link #UNKNOWN_USER} if the user doesn't exist.
+	 */
+	protected int loadUserId(String username) throws GameDataException {
+		AtomicInteger userId = new AtomicInteger(UNKNOWN_USER);
+		CheckedSqlConsumer<PreparedStatement> variableSetter = ps -> ps.setString(1, username);
+		CheckedSqlConsumer<ResultSet> resultConsumer = resultSet -> {
+			if (resultSet.next()) {
+				userId.set(resultSet.getInt(1));
+			}
+		};
+		
+		DatabaseConnection.executeCheckedSQL(SqlStatement.GET_USER_ID, SqlExecutionType.QUERY, variableSetter, resultConsumer);
+		return userId.get();
+	}
+	
+	/**
+	 * Get the id of a user from the cache (without accessing the database).
+	 * 
+	 * @return The id of the user, {@link #UNKNOWN_USER} if the user is known to not exist or null if the user is not cached.
+	 */
+	public Integer getCachedUserId(String username) {
+		long now = System.currentTimeMillis();
+		CacheEntry entry = entries.get(toKey(username));
+		if (entry == null || entry.isExpired(now)) {
+			misses.incrementAndGet();
+			return null;
+		}
+		
+		entry.lastAccess = now;
+		if (entry.userId == UNKNOWN_USER) {
+			negativeHits.incrementAndGet();
+		}
+		else {
+			hits.incrementAndGet();
+		}
+		return entry.userId;
+	}
+	
+	/**
+	 * Add the id of an existing user to the cache.
+	 */
+	public void put(String username, int userId) {
+		entries.put(toKey(username), new CacheEntry(userId, Long.MAX_VALUE));
+		evictIfFull();
+	}
+	
+	/**
+	 * Remember that a user doesn't exist (for the configured negative time to live).
+	 */
+	public void putUnknown(String username) {
+		entries.put(toKey(username), new CacheEntry(UNKNOWN_USER, System.currentTimeMillis() + negativeTtlMillis));
+		evictIfFull();
+	}
+	
+	/**
+	 * Remove a user from the cache (e.g. because the user was created or renamed).
+	 */
+	public void invalidate(String username) {
+		entries.remove(toKey(username));
+	}
+	
+	/**
+	 * Remove all users from the cache.
+	 */
+	public void clear() {
+		entries.clear();
+	}
+	
+	/**
+	 * Remove the expired entries and the least recently used entries (down to 90% of the maximum size) if the cache is full.
+	 */
+	private void evictIfFull() {
+		if (entries.size() <= maxSize) {
+			return;
+		}
+		
+		synchronized (entries) {
+			long now = System.currentTimeMillis();
+			entries.entrySet().removeIf(entry -> entry.getValue().isExpired(now));
+			
+			int targetSize = maxSize * 9 / 10;
+			if (entries.size() > targetSize) {
+				List<Map.Entry<String, CacheEntry>> leastRecentlyUsed = new ArrayList<Map.Entry<String, CacheEntry>>(entries.entrySet());
+				leastRecentlyUsed.sort(Comparator.comparingLong(entry -> entry.getValue().lastAccess));
+				for (int i = 0; i < leastRecentlyUsed.size() - targetSize; i++) {
+					entries.remove(leastRecentlyUsed.get(i).getKey(), leastRecentlyUsed.get(i).getValue());
+					evictions.incrementAndGet();
+				}
+			}
+		}
+	}
+	
+	private String toKey(String username) {
+		return username.toLowerCase(Locale.ROOT);
+	}
+	
+	public Map<String, Object> getStatistics() {
+		Map<String, Object> statistics = new LinkedHashMap<String, Object>();
+		statistics.put("size", entries.size());
+		statistics.put("maxSize", maxSize);
+		statistics.put("hits", hits.get());
+		statistics.put("negativeHits", negativeHits.get());
+		statistics.put("misses", misses.get());
+		statistics.put("evictions", evictions.get());
+		statistics.put("coalescedLoads", coalescedLoads.get());
+		return statistics;
+	}
+}
\ No newline at end of file
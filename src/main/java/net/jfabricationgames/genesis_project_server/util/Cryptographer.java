@@ -1,39 +1,151 @@
 package net.jfabricationgames.genesis_project_server.util;
 
+import java.nio.CharBuffer;
+
 /**
+ * A simple substitution cipher, that shifts every character of a text by the index of the corresponding password character in a table of
+ * encoding characters.
+ * <p>
+ * The cipher works on lookup tables (instead of searching the encoding characters for every character) and writes the result to one
+ * preallocated buffer, so the runtime is linear in the length of the text. Large texts can be processed in chunks by the
+ * {@link CharBuffer} methods or the {@link CryptographerReader} and {@link CryptographerWriter}. The results are identical to the
+ * original implementation (including its quirks: characters that are not in the table are encrypted as if they were at the index -1 and
+ * the characters that occur twice in the table are always decrypted to their first occurrence).
  * 
  * @author Tobias Faßbender
  * @version Jun, 2015
  */
 public class Cryptographer {
 	
+	public enum Mode {
+		
+		ENCRYPT, //
+		DECRYPT;
+	}
+	
 	private static final String encodingChars = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZäöüÄÖÜ1234567890,;.:-_#'+*~!\"§$%&/()=?ß`^°{[]}\\'/- \n\t";
 	
+	private static final char[] ENCODING_CHARS = encodingChars.toCharArray();
+	/**
+	 * Maps a character to its (first) index in the encoding characters or -1 if the character is not an encoding character (all encoding
+	 * characters are lower than 256, so higher characters are not in the table)
+	 */
+	private static final int[] CHAR_INDEX = createCharIndex();
+	
+	private static int[] createCharIndex() {
+		int[] charIndex = new int[256];
+		for (int i = 0; i < charIndex.length; i++) {
+			charIndex[i] = encodingChars.indexOf(i);
+		}
+		return charIndex;
+	}
+	
 	public static String encryptText(String text, String password) {
-		String encryptedText = "";
-		int charIndex;
-		int passIndex;
-		for (int i = 0; i < text.length(); i++) {
-			charIndex = encodingChars.indexOf(text.charAt(i));
-			passIndex = encodingChars.indexOf(password.charAt(i % password.length()));
-			charIndex += passIndex;
-			charIndex %= encodingChars.length();
-			encryptedText += encodingChars.charAt(charIndex);
-		}
-		return encryptedText;
+		return transform(text, password, Mode.ENCRYPT);
 	}
 	public static String decryptText(String text, String password) {
-		String decryptedText = "";
-		int charIndex;
-		int passIndex;
-		for (int i = 0; i < text.length(); i++) {
-			charIndex = encodingChars.indexOf(text.charAt(i));
-			passIndex = encodingChars.indexOf(password.charAt(i % password.length()));
-			charIndex -= passIndex;
-			charIndex += encodingChars.length();
-			charIndex %= encodingChars.length();
-			decryptedText += encodingChars.charAt(charIndex);
-		}
-		return decryptedText;
+		return transform(text, password, Mode.DECRYPT);
+	}
+	
+	private static String transform(String text, String password, Mode mode) {
+		if (text.isEmpty()) {
+			return text;
+		}
+		char[] chars = new char[text.length()];
+		text.getChars(0, chars.length, chars, 0);
+		transform(chars, 0, chars.length, getKey(password), 0, mode);
+		return new String(chars);
+	}
+	
+	/**
+	 * Encrypt or decrypt the remaining characters of the input buffer (as far as they fit into the output buffer) and write them to the
+	 * output buffer.
+	 * 
+	 * @param position
+	 *        The position of the first remaining input character in the whole text (the password is applied by the position in the text, so a
+	 *        text can be processed in chunks).
+	 * 
+	 * @return The position in the whole text after the processed characters.
+	 */
+	public static long transform(CharBuffer input, CharBuffer output, String password, long position, Mode mode) {
+		int length = Math.min(input.remaining(), output.remaining());
+		if (length == 0) {
+			return position;
+		}
+		int[] key = getKey(password);
+		int keyPosition = (int) (position % key.length);
+		if (output.hasArray()) {
+			char[] chars = output.array();
+			int offset = output.arrayOffset() + output.position();
+			input.get(chars, offset, length);
+			transform(chars, offset, length, key, keyPosition, mode);
+			output.position(output.position() + length);
+		}
+		else {
+			char[] chars = new char[length];
+			input.get(chars);
+			transform(chars, 0, length, key, keyPosition, mode);
+			output.put(chars);
+		}
+		return position + length;
+	}
+	
+	/**
+	 * Get the indices of the password characters in the encoding characters (the key of the cipher).
+	 * 
+	 * @throws ArithmeticException
+	 *         An {@link ArithmeticException} is thrown if the password is empty (like in the original implementation)
+	 */
+	static int[] getKey(String password) throws ArithmeticException {
+		if (password.isEmpty()) {
+			throw new ArithmeticException("the password must not be empty");
+		}
+		int[] key = new int[password.length()];
+		for (int i = 0; i < key.length; i++) {
+			key[i] = indexOf(password.charAt(i));
+		}
+		return key;
+	}
+	
+	/**
+	 * Encrypt or decrypt characters in place.
+	 * 
+	 * @param keyPosition
+	 *        The position in the key, that is used for the first character.
+	 * 
+	 * @return The position in the key after the last character.
+	 * 
+	 * @throws StringIndexOutOfBoundsException
+	 *         A {@link StringIndexOutOfBoundsException} is thrown if a character can't be encrypted, because neither the character nor the
+	 *         password character are encoding characters (like in the original implementation)
+	 */
+	static int transform(char[] chars, int offset, int length, int[] key, int keyPosition, Mode mode) throws StringIndexOutOfBoundsException {
+		int size = ENCODING_CHARS.length;
+		int end = offset + length;
+		if (mode == Mode.ENCRYPT) {
+			for (int i = offset; i < end; i++) {
+				int charIndex = (indexOf(chars[i]) + key[keyPosition]) % size;
+				if (charIndex < 0) {
+					throw new StringIndexOutOfBoundsException(charIndex);
+				}
+				chars[i] = ENCODING_CHARS[charIndex];
+				if (++keyPosition == key.length) {
+					keyPosition = 0;
+				}
+			}
+		}
+		else {
+			for (int i = offset; i < end; i++) {
+				chars[i] = ENCODING_CHARS[(indexOf(chars[i]) - key[keyPosition] + size) % size];
+				if (++keyPosition == key.length) {
+					keyPosition = 0;
+				}
+			}
+		}
+		return keyPosition;
+	}
+	
+	private static int indexOf(char c) {
+		return c < CHAR_INDEX.length ? CHAR_INDEX[c] : -1;
 	}
 }
\ No newline at end of file
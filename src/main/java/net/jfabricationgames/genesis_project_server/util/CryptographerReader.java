@@ -0,0 +1,76 @@
+package net.jfabricationgames.genesis_project_server.util;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * A reader that decrypts (or encrypts) the characters of the underlying reader with the {@link Cryptographer}, so large texts don't have to
+ * be kept in memory completely. The read result is identical to the result of {@link Cryptographer#decryptText(String, String)} (or
+ * {@link Cryptographer#encryptText(String, String)}) for the complete text.
+ */
+public class CryptographerReader extends FilterReader {
+	
+	private final int[] key;
+	private final Cryptographer.Mode mode;
+	
+	private int keyPosition;
+	
+	/**
+	 * @throws ArithmeticException
+	 *         An {@link ArithmeticException} is thrown if the password is empty
+	 */
+	public CryptographerReader(Reader in, String password, Cryptographer.Mode mode) throws ArithmeticException {
+		super(in);
+		this.key = Cryptographer.getKey(password);
+		this.mode = mode;
+	}
+	
+	@Override
+	public int read() throws IOException {
+		char[] c = new char[1];
+		return read(c, 0, 1) == -1 ? -1 : c[0];
+	}
+	
+	@Override
+	public int read(char[] cbuf, int off, int len) throws IOException {
+		int read = in.read(cbuf, off, len);
+		if (read > 0) {
+			keyPosition = Cryptographer.transform(cbuf, off, read, key, keyPosition, mode);
+		}
+		return read;
+	}
+	
+	/**
+	 * The skipped characters are read (the position in the password has to be moved on).
+	 */
+	@Override
+	public long skip(long n) throws IOException {
+		if (n < 0) {
+			throw new IllegalArgumentException("skip value is negative");
+		}
+		char[] skipped = new char[(int) Math.min(n, 8192)];
+		long remaining = n;
+		while (remaining > 0) {
+			int read = read(skipped, 0, (int) Math.min(remaining, skipped.length));
+			if (read == -1) {
+				break;
+			}
+			remaining -= read;
+		}
+		return n - remaining;
+	}
+	
+	@Override
+	public boolean markSupported() {
+		return false;
+	}
+	@Override
+	public void mark(int readAheadLimit) throws IOException {
+		throw new IOException("mark() not supported");
+	}
+	@Override
+	public void reset() throws IOException {
+		throw new IOException("reset() not supported");
+	}
+}
\ No newline at end of file
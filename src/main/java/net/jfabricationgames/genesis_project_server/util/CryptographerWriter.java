@@ -0,0 +1,61 @@
+package net.jfabricationgames.genesis_project_server.util;
+
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * A writer that encrypts (or decrypts) the written characters with the {@link Cryptographer} before they are written to the underlying
+ * writer, so large texts don't have to be kept in memory completely. The written result is identical to the result of
+ * {@link Cryptographer#encryptText(String, String)} (or {@link Cryptographer#decryptText(String, String)}) for the complete text.
+ */
+public class CryptographerWriter extends FilterWriter {
+	
+	private static final int BUFFER_SIZE = 8192;
+	
+	private final int[] key;
+	private final Cryptographer.Mode mode;
+	private final char[] buffer = new char[BUFFER_SIZE];
+	
+	private int keyPosition;
+	
+	/**
+	 * @throws ArithmeticException
+	 *         An {@link ArithmeticException} is thrown if the password is empty
+	 */
+	public CryptographerWriter(Writer out, String password, Cryptographer.Mode mode) throws ArithmeticException {
+		super(out);
+		this.key = Cryptographer.getKey(password);
+		this.mode = mode;
+	}
+	
+	@Override
+	public void write(int c) throws IOException {
+		buffer[0] = (char) c;
+		writeBuffer(1);
+	}
+	
+	@Override
+	public void write(char[] cbuf, int off, int len) throws IOException {
+		//the characters are copied to the buffer (the array of the caller is not changed)
+		for (int written = 0; written < len; written += BUFFER_SIZE) {
+			int chunk = Math.min(BUFFER_SIZE, len - written);
+			System.arraycopy(cbuf, off + written, buffer, 0, chunk);
+			writeBuffer(chunk);
+		}
+	}
+	
+	@Override
+	public void write(String str, int off, int len) throws IOException {
+		for (int written = 0; written < len; written += BUFFER_SIZE) {
+			int chunk = Math.min(BUFFER_SIZE, len - written);
+			str.getChars(off + written, off + written + chunk, buffer, 0);
+			writeBuffer(chunk);
+		}
+	}
+	
+	private void writeBuffer(int length) throws IOException {
+		keyPosition = Cryptographer.transform(buffer, 0, length, key, keyPosition, mode);
+		out.write(buffer, 0, length);
+	}
+}
\ No newline at end of file
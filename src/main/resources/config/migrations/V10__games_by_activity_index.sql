@@ -0,0 +1,2 @@
+-- The archive finds the inactive games that were not played for a while (see GameArchive).
+CREATE INDEX gamesByActivity ON <<DATABASE_NAME>>.games (active, last_played);
\ No newline at end of file
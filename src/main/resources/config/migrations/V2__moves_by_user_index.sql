@@ -0,0 +1 @@
+CREATE INDEX movesByUser ON <<DATABASE_NAME>>.moves (user_id);
\ No newline at end of file
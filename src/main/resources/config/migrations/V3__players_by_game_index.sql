@@ -0,0 +1 @@
+CREATE INDEX playersByGame ON <<DATABASE_NAME>>.players (game_id);
\ No newline at end of file
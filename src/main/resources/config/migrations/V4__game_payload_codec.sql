@@ -0,0 +1,6 @@
+-- The games are stored as binary data, that is encoded by a storage codec (see StorageCodec).
+-- The existing games are converted to UTF-8 first, so they can be read with the IDENTITY codec (0). They are compressed in the background.
+-- The conversions can be repeated, so only the last statement (that adds the codec column) must not be executed twice.
+ALTER TABLE <<DATABASE_NAME>>.games MODIFY data MEDIUMTEXT CHARACTER SET utf8mb4;
+ALTER TABLE <<DATABASE_NAME>>.games MODIFY data MEDIUMBLOB;
+ALTER TABLE <<DATABASE_NAME>>.games ADD COLUMN data_codec TINYINT NOT NULL DEFAULT 0;
\ No newline at end of file
@@ -0,0 +1,6 @@
+-- The moves are stored as binary data, that is encoded by a storage codec (see StorageCodec).
+-- The existing moves are converted to UTF-8 first, so they can be read with the IDENTITY codec (0). They are compressed in the background.
+-- The conversions can be repeated, so only the last statement (that adds the codec column) must not be executed twice.
+ALTER TABLE <<DATABASE_NAME>>.moves MODIFY move TEXT CHARACTER SET utf8mb4;
+ALTER TABLE <<DATABASE_NAME>>.moves MODIFY move BLOB;
+ALTER TABLE <<DATABASE_NAME>>.moves ADD COLUMN move_codec TINYINT NOT NULL DEFAULT 0;
\ No newline at end of file
@@ -0,0 +1,2 @@
+-- The stored game is a snapshot that includes all moves up to the move snapshot_num (the moves after it are the tail of the game).
+ALTER TABLE <<DATABASE_NAME>>.games ADD COLUMN snapshot_num INT NOT NULL DEFAULT 0;
\ No newline at end of file
@@ -0,0 +1,2 @@
+-- The existing games already include all of their moves (the update can be repeated).
+UPDATE <<DATABASE_NAME>>.games g SET snapshot_num = (SELECT COALESCE(MAX(m.num), 0) FROM <<DATABASE_NAME>>.moves m WHERE m.game_id = g.id);
\ No newline at end of file
@@ -0,0 +1,2 @@
+-- The moves up to compacted_num were removed by the compaction (see MoveCompactor).
+ALTER TABLE <<DATABASE_NAME>>.games ADD COLUMN compacted_num INT NOT NULL DEFAULT 0;
\ No newline at end of file
@@ -0,0 +1,11 @@
+-- Inactive games (games.active = 0) are moved to the archive: the game and all of its moves are stored as one compressed row and only a stub
+-- of the game (without data) is kept in the games table (see GameArchive). The compacted_num of the stub is the number of the last archived move.
+CREATE TABLE IF NOT EXISTS <<DATABASE_NAME>>.archived_games (
+	game_id INT NOT NULL PRIMARY KEY,
+	archived DATE,
+	data MEDIUMBLOB,
+	data_codec TINYINT NOT NULL DEFAULT 0,
+	moves MEDIUMBLOB,
+	moves_codec TINYINT NOT NULL DEFAULT 0,
+	compacted_num INT NOT NULL DEFAULT 0
+);
\ No newline at end of file
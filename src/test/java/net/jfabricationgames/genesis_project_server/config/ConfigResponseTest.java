@@ -0,0 +1,100 @@
+package net.jfabricationgames.genesis_project_server.config;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.Test;
+
+class ConfigResponseTest {
+	
+	private static byte[] gunzip(byte[] compressed) throws IOException {
+		ByteArrayOutputStream uncompressed = new ByteArrayOutputStream();
+		try (GZIPInputStream gzipStream = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+			byte[] buffer = new byte[1024];
+			int read;
+			while ((read = gzipStream.read(buffer)) != -1) {
+				uncompressed.write(buffer, 0, read);
+			}
+		}
+		return uncompressed.toByteArray();
+	}
+	
+	@Test
+	public void testVariantsContainTheSameContent() throws IOException {
+		StringBuilder content = new StringBuilder("{");
+		for (int i = 0; i < 100; i++) {
+			content.append("\"constant_" + i + "\": \"Ä value that is repeated\", ");
+		}
+		content.append("\"last\": 0}");
+		ConfigResponse response = ConfigResponse.create(content.toString());
+		
+		assertEquals(content.toString(), response.getContent());
+		assertArrayEquals(content.toString().getBytes(StandardCharsets.UTF_8), response.getBytes(false));
+		assertTrue(response.hasGzip());
+		assertTrue(response.getCompressedSize() < response.getSize());
+		assertArrayEquals(response.getBytes(false), gunzip(response.getBytes(true)));
+	}
+	
+	@Test
+	public void testSmallContentIsNotCompressed() throws IOException {
+		ConfigResponse response = ConfigResponse.create("{}");
+		
+		assertFalse(response.hasGzip());
+		assertNull(response.getBytes(true));
+		assertEquals(response.getSize(), response.getCompressedSize());
+	}
+	
+	@Test
+	public void testTagsDependOnTheContent() throws IOException {
+		ConfigResponse response = ConfigResponse.create("{\"a\": 1}");
+		
+		assertEquals(response.getTag(false), ConfigResponse.create("{\"a\": 1}").getTag(false));
+		assertNotEquals(response.getTag(false), ConfigResponse.create("{\"a\": 2}").getTag(false));
+		assertNotEquals(response.getTag(false), response.getTag(true));
+	}
+	
+	@Test
+	public void testAcceptEncoding() {
+		assertFalse(ConfigResponse.acceptsGzip(null));
+		assertFalse(ConfigResponse.acceptsGzip(""));
+		assertFalse(ConfigResponse.acceptsGzip("identity"));
+		assertFalse(ConfigResponse.acceptsGzip("br, deflate"));
+		assertTrue(ConfigResponse.acceptsGzip("gzip"));
+		assertTrue(ConfigResponse.acceptsGzip("deflate, GZIP;q=0.5"));
+		assertTrue(ConfigResponse.acceptsGzip("*"));
+		assertFalse(ConfigResponse.acceptsGzip("gzip;q=0"));
+		assertFalse(ConfigResponse.acceptsGzip("*, gzip;q=0"));
+		assertFalse(ConfigResponse.acceptsGzip("gzip; q=0.0, *"));
+		assertFalse(ConfigResponse.acceptsGzip("gzip;q=invalid"));
+	}
+	
+	@Test
+	public void testConfigurationsAreLoaded() throws IOException {
+		try {
+			ConfigurationDataManager manager = ConfigurationDataManager.getInstance();
+			ConfigResponse constants = manager.getResponse("constants");
+			assertNotNull(constants);
+			assertTrue(constants.hasGzip());
+			assertEquals(constants.getContent(), manager.getConfiguration("constants"));
+			assertNull(manager.getResponse("unknown"));
+			
+			//the reloaded configurations are equal, so they have the same tag
+			manager.reload();
+			assertEquals(constants.getTag(false), manager.getResponse("constants").getTag(false));
+		}
+		finally {
+			ConfigurationDataManager.shutdown();
+		}
+	}
+}
\ No newline at end of file
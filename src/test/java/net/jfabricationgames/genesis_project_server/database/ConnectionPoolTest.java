@@ -0,0 +1,171 @@
+package net.jfabricationgames.genesis_project_server.database;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.PrintWriter;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.Test;
+
+class ConnectionPoolTest {
+	
+	/**
+	 * A data source that creates connection stubs (that only support close and isValid) and keeps track of the created connections.
+	 */
+	private static class StubDataSource implements DataSource {
+		
+		private List<Connection> createdConnections = new ArrayList<Connection>();
+		private Set<Connection> closedConnections = new HashSet<Connection>();
+		private boolean connectionsValid = true;
+		
+		@Override
+		public Connection getConnection() throws SQLException {
+			Connection connection = (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {Connection.class},
+					(proxy, method, args) -> {
+						switch (method.getName()) {
+							case "close":
+								closedConnections.add((Connection) proxy);
+								return null;
+							case "isValid":
+								return connectionsValid;
+							case "hashCode":
+								return System.identityHashCode(proxy);
+							case "equals":
+								return proxy == args[0];
+							default:
+								return null;
+						}
+					});
+			createdConnections.add(connection);
+			return connection;
+		}
+		@Override
+		public Connection getConnection(String username, String password) throws SQLException {
+			return getConnection();
+		}
+		@Override
+		public PrintWriter getLogWriter() throws SQLException {
+			return null;
+		}
+		@Override
+		public void setLogWriter(PrintWriter out) throws SQLException {}
+		@Override
+		public void setLoginTimeout(int seconds) throws SQLException {}
+		@Override
+		public int getLoginTimeout() throws SQLException {
+			return 0;
+		}
+		@Override
+		public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+			throw new SQLFeatureNotSupportedException();
+		}
+		@Override
+		public <T> T unwrap(Class<T> iface) throws SQLException {
+			throw new SQLException("not a wrapper");
+		}
+		@Override
+		public boolean isWrapperFor(Class<?> iface) throws SQLException {
+			return false;
+		}
+	}
+	
+	@Test
+	public void testConnectionsAreReused() throws SQLException {
+		StubDataSource dataSource = new StubDataSource();
+		ConnectionPool pool = new ConnectionPool(dataSource, 0, 2, 100, 30000, 10);
+		
+		PooledConnection first = pool.acquire();
+		Connection physicalConnection = first.getConnection();
+		first.close();
+		PooledConnection second = pool.acquire();
+		
+		assertSame(physicalConnection, second.getConnection());
+		assertEquals(1, dataSource.createdConnections.size());
+	}
+	
+	@Test
+	public void testAcquireTimeout() throws SQLException {
+		ConnectionPool pool = new ConnectionPool(new StubDataSource(), 0, 1, 50, 30000, 10);
+		
+		pool.acquire();
+		assertThrows(SQLTransientConnectionException.class, () -> pool.acquire());
+	}
+	
+	@Test
+	public void testBrokenConnectionsAreDiscarded() throws SQLException {
+		StubDataSource dataSource = new StubDataSource();
+		ConnectionPool pool = new ConnectionPool(dataSource, 0, 1, 100, 30000, 10);
+		
+		PooledConnection connection = pool.acquire();
+		connection.checkException(new SQLException("communications link failure", "08S01"));
+		connection.close();
+		PooledConnection newConnection = pool.acquire();
+		
+		assertTrue(dataSource.closedConnections.contains(connection.getConnection()));
+		assertNotSame(connection.getConnection(), newConnection.getConnection());
+		assertEquals(2, dataSource.createdConnections.size());
+	}
+	
+	@Test
+	public void testIdleConnectionsAreValidated() throws SQLException {
+		StubDataSource dataSource = new StubDataSource();
+		//a negative validation interval validates all idle connections
+		ConnectionPool pool = new ConnectionPool(dataSource, 1, 1, 100, -1, 10);
+		pool.fill();
+		dataSource.connectionsValid = false;
+		
+		PooledConnection connection = pool.acquire();
+		
+		//the idle connection is not valid, so it was closed and a new connection was created
+		assertEquals(2, dataSource.createdConnections.size());
+		assertTrue(dataSource.closedConnections.contains(dataSource.createdConnections.get(0)));
+		assertFalse(dataSource.closedConnections.contains(connection.getConnection()));
+	}
+	
+	@Test
+	public void testShutdownClosesIdleConnections() throws SQLException {
+		StubDataSource dataSource = new StubDataSource();
+		ConnectionPool pool = new ConnectionPool(dataSource, 0, 2, 100, 30000, 10);
+		PooledConnection connection = pool.acquire();
+		connection.close();
+		
+		pool.shutdown();
+		
+		assertTrue(dataSource.closedConnections.contains(connection.getConnection()));
+		assertTrue(pool.isClosed());
+		assertThrows(SQLException.class, () -> pool.acquire());
+	}
+	
+	@Test
+	public void testConnectionsReturnedDuringShutdownAreClosed() throws Exception {
+		for (int i = 0; i < 100; i++) {
+			StubDataSource dataSource = new StubDataSource();
+			ConnectionPool pool = new ConnectionPool(dataSource, 0, 1, 100, 30000, 10);
+			PooledConnection connection = pool.acquire();
+			
+			Thread release = new Thread(() -> connection.close());
+			release.start();
+			pool.shutdown();
+			release.join();
+			
+			assertTrue(dataSource.closedConnections.contains(connection.getConnection()));
+			assertEquals(0, pool.getStatistics().get("idleConnections"));
+		}
+	}
+}
\ No newline at end of file
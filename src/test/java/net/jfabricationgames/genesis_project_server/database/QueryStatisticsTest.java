@@ -0,0 +1,93 @@
+package net.jfabricationgames.genesis_project_server.database;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import net.jfabricationgames.genesis_project_server.database.QueryStatistics.Phase;
+
+class QueryStatisticsTest {
+	
+	@Test
+	public void testParametersAreRecordedAndTruncated() {
+		String parameters = ParameterRecorder.record(ps -> {
+			ps.setInt(1, 42);
+			ps.setString(2, "Player1");
+			ps.setBytes(3, new byte[2048]);
+			ps.setString(4, "0123456789abcdefghij");
+			ps.setNull(5, Types.VARCHAR);
+		}, 10);
+		
+		assertEquals("{1=42, 2='Player1', 3=<2048 bytes>, 4='0123456789...(20 chars)', 5=NULL}", parameters);
+	}
+	
+	@Test
+	public void testRowsAreCounted() throws SQLException {
+		int[] remainingRows = {3};
+		ResultSet resultSet = (ResultSet) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {ResultSet.class},
+				(proxy, method, args) -> {
+					if (method.getName().equals("next")) {
+						return remainingRows[0]-- > 0;
+					}
+					if (method.getName().equals("getInt")) {
+						return 7;
+					}
+					throw new SQLException("not supported");
+				});
+		
+		RowCountingResultSet countingResultSet = new RowCountingResultSet(resultSet);
+		int sum = 0;
+		while (countingResultSet.getResultSet().next()) {
+			sum += countingResultSet.getResultSet().getInt(1);
+		}
+		assertEquals(21, sum);
+		assertEquals(3, countingResultSet.getRows());
+		
+		//the exceptions of the result set are not wrapped
+		SQLException sqle = assertThrows(SQLException.class, () -> countingResultSet.getResultSet().getString(1));
+		assertEquals("not supported", sqle.getMessage());
+	}
+	
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testExecutionsAreRecordedPerStatementAndPhase() {
+		QueryStatistics statistics = new QueryStatistics(true, 500, 64);
+		RegisteredStatement statement = new RegisteredStatement("GET_GAME", "SELECT data FROM games WHERE id = ?", true);
+		long millis = TimeUnit.MILLISECONDS.toNanos(1);
+		
+		statistics.record("GET_GAME", Phase.ACQUIRE, 2 * millis);
+		statistics.recordExecution(statement, millis, 4 * millis, 2 * millis, 1, ps -> ps.setInt(1, 1));
+		statistics.recordExecution(statement, millis, 600 * millis, 2 * millis, 1, ps -> ps.setInt(1, 2));
+		statistics.recordFailure("GET_GAME");
+		
+		Map<String, Object> statementStatistics = (Map<String, Object>) statistics.getStatistics().get("GET_GAME");
+		assertEquals(2L, statementStatistics.get("executions"));
+		assertEquals(1L, statementStatistics.get("failures"));
+		assertEquals(1L, statementStatistics.get("slowExecutions"));
+		assertEquals(2L, statementStatistics.get("returnedRows"));
+		
+		String metrics = statistics.toPrometheusFormat();
+		assertTrue(metrics.contains("genesis_sql_executions_total{statement=\"GET_GAME\"} 2\n"));
+		assertTrue(metrics.contains("genesis_sql_phase_duration_seconds_count{statement=\"GET_GAME\",phase=\"acquire\"} 1\n"));
+		assertTrue(metrics.contains("genesis_sql_phase_duration_seconds_count{statement=\"GET_GAME\",phase=\"execute\"} 2\n"));
+		assertTrue(metrics.contains("genesis_sql_phase_duration_seconds_bucket{statement=\"GET_GAME\",phase=\"execute\",le=\"0.005\"} 1\n"));
+	}
+	
+	@Test
+	public void testDisabledStatisticsRecordNothing() {
+		QueryStatistics statistics = new QueryStatistics(false, 500, 64);
+		statistics.record("GET_GAME", Phase.ACQUIRE, 1000);
+		statistics.recordFailure("GET_GAME");
+		
+		assertTrue(statistics.getStatistics().isEmpty());
+	}
+}
\ No newline at end of file
@@ -0,0 +1,86 @@
+package net.jfabricationgames.genesis_project_server.database;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import net.jfabricationgames.genesis_project_server.database.SchemaMigrator.Migration;
+
+class SchemaMigratorTest {
+	
+	@Test
+	public void testMigrationsAreLoadedInOrder() throws IOException {
+		SchemaMigrator migrator = new SchemaMigrator(null, "genesis_project", SchemaMigrator.DEFAULT_MIGRATIONS_INDEX_FILE);
+		List<Migration> migrations = migrator.loadMigrations();
+		
+		assertEquals(1, migrations.get(0).getVersion());
+		assertEquals("initial schema", migrations.get(0).getDescription());
+		for (int i = 1; i < migrations.size(); i++) {
+			assertEquals(migrations.get(i - 1).getVersion() + 1, migrations.get(i).getVersion());
+		}
+	}
+	
+	@Test
+	public void testOnlyTheLastStatementOfAMigrationCanNotBeRepeated() throws IOException {
+		//MySQL commits DDL statements implicitly, so a script that failed is executed again (including the statements that were applied)
+		SchemaMigrator migrator = new SchemaMigrator(null, "genesis_project", SchemaMigrator.DEFAULT_MIGRATIONS_INDEX_FILE);
+		for (Migration migration : migrator.loadMigrations()) {
+			String[] statements = migration.getScript().replaceAll("(?m)^--.*$", "").split(";");
+			for (int i = 0; i < statements.length - 1; i++) {
+				assertTrue(isRepeatable(statements[i]), migration.getScriptName() + ": " + statements[i].trim());
+			}
+		}
+	}
+	
+	private static boolean isRepeatable(String statement) {
+		String normalized = statement.trim().replaceAll("\\s+", " ").toUpperCase(Locale.ROOT);
+		if (normalized.startsWith("CREATE") || normalized.startsWith("DROP")) {
+			return normalized.contains(" IF NOT EXISTS ") || normalized.contains(" IF EXISTS ");
+		}
+		return !normalized.contains(" ADD ") && !normalized.contains(" DROP ") && !normalized.contains(" RENAME ");
+	}
+	
+	@Test
+	public void testInvalidScriptNamesAreRejected() {
+		assertThrows(IOException.class, () -> SchemaMigrator.createMigration("initial_schema.sql", ""));
+		assertThrows(IOException.class, () -> SchemaMigrator.createMigration("V1_initial_schema.sql", ""));
+	}
+	
+	@Test
+	public void testChecksums() {
+		String script = "CREATE INDEX movesByUser ON <<DATABASE_NAME>>.moves (user_id);";
+		assertEquals(SchemaMigrator.createChecksum(script), SchemaMigrator.createChecksum(script));
+		assertEquals(SchemaMigrator.createChecksum("a\nb"), SchemaMigrator.createChecksum("a\r\nb"));
+		assertNotEquals(SchemaMigrator.createChecksum(script), SchemaMigrator.createChecksum(script + " "));
+	}
+	
+	@Test
+	public void testChangedMigrationsAreDetected() throws IOException, SQLException {
+		SchemaMigrator migrator = new SchemaMigrator(null, "genesis_project", SchemaMigrator.DEFAULT_MIGRATIONS_INDEX_FILE);
+		Migration v1 = SchemaMigrator.createMigration("V1__initial_schema.sql", "CREATE TABLE a (id INT);");
+		Migration v2 = SchemaMigrator.createMigration("V2__indexes.sql", "CREATE INDEX b ON a (id);");
+		List<Migration> migrations = Arrays.asList(v1, v2);
+		
+		Map<Integer, String> appliedChecksums = new HashMap<Integer, String>();
+		appliedChecksums.put(1, v1.getChecksum());
+		migrator.verifyAppliedMigrations(migrations, appliedChecksums);
+		
+		appliedChecksums.put(2, SchemaMigrator.createChecksum("CREATE INDEX c ON a (id);"));
+		assertThrows(SQLException.class, () -> migrator.verifyAppliedMigrations(migrations, appliedChecksums));
+		
+		appliedChecksums.remove(2);
+		appliedChecksums.put(3, v2.getChecksum());
+		assertThrows(SQLException.class, () -> migrator.verifyAppliedMigrations(migrations, appliedChecksums));
+	}
+}
\ No newline at end of file
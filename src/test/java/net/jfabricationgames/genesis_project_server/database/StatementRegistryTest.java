@@ -0,0 +1,41 @@
+package net.jfabricationgames.genesis_project_server.database;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class StatementRegistryTest {
+	
+	@Test
+	public void testStaticStatementsUseQualifiedTableNames() {
+		StatementRegistry registry = new StatementRegistry("genesis_project");
+		
+		assertEquals("UPDATE genesis_project.games SET data = ?, data_codec = ?, snapshot_num = ?, last_played = ? WHERE id = ? AND active = 1",
+				registry.get(SqlStatement.UPDATE_GAME).getSql());
+		assertEquals("INSERT INTO genesis_project.moves (user_id, game_id, move, move_codec, num) SELECT ?, g.id, ?, ?, ? "
+				+ "FROM genesis_project.games g WHERE g.id = ? AND g.active = 1", registry.get(SqlStatement.CREATE_MOVE).getSql());
+		assertEquals("DELETE FROM genesis_project.archived_games WHERE game_id = ?", registry.get(SqlStatement.DELETE_ARCHIVED_GAME).getSql());
+	}
+	
+	@Test
+	public void testDynamicStatementsAreBuiltOnlyOnce() {
+		StatementRegistry registry = new StatementRegistry("genesis_project");
+		AtomicInteger builtQueries = new AtomicInteger();
+		
+		RegisteredStatement first = registry.getOrRegister("LIST", () -> {
+			builtQueries.incrementAndGet();
+			return "SELECT * FROM " + registry.getTable(DatabaseConnection.TABLE_GAMES);
+		});
+		RegisteredStatement second = registry.getOrRegister("LIST", () -> {
+			builtQueries.incrementAndGet();
+			return "SELECT * FROM " + registry.getTable(DatabaseConnection.TABLE_GAMES);
+		});
+		
+		assertSame(first, second);
+		assertEquals(1, builtQueries.get());
+		assertEquals("SELECT * FROM genesis_project.games", first.getSql());
+	}
+}
\ No newline at end of file
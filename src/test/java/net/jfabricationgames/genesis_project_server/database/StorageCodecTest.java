@@ -0,0 +1,71 @@
+package net.jfabricationgames.genesis_project_server.database;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+class StorageCodecTest {
+	
+	/**
+	 * Create a JSON payload that is similar to a game state (many objects with repeating keys).
+	 */
+	private static String createGameState(int planets) {
+		StringBuilder sb = new StringBuilder("{\"players\":[\"player1\",\"player2\",\"player3\"],\"round\":4,\"planets\":[");
+		for (int i = 0; i < planets; i++) {
+			if (i > 0) {
+				sb.append(",");
+			}
+			sb.append("{\"id\":").append(i).append(",\"owner\":\"player").append(i % 3 + 1).append("\",\"type\":\"")
+					.append(i % 2 == 0 ? "GREEN" : "BLACK").append("\",\"buildings\":[\"COLONY\",\"MINE\"],\"resources\":{\"ORE\":")
+					.append(i * 7 % 13).append(",\"CARBON\":").append(i * 11 % 17).append("},\"ünicode\":\"äöü €\"}");
+		}
+		sb.append("]}");
+		return sb.toString();
+	}
+	
+	@Test
+	public void testCodecsDecodeTheEncodedPayload() throws SQLException {
+		String game = createGameState(100);
+		for (StorageCodec codec : StorageCodec.values()) {
+			assertEquals(game, codec.decode(codec.encode(game)));
+			assertEquals("", codec.decode(codec.encode("")));
+		}
+	}
+	
+	@Test
+	public void testDeflateCompressesGameStates() {
+		String game = createGameState(200);
+		
+		byte[] identity = StorageCodec.IDENTITY.encode(game);
+		byte[] deflate = StorageCodec.DEFLATE.encode(game);
+		
+		assertTrue(deflate.length * 4 < identity.length, "compressed: " + deflate.length + ", uncompressed: " + identity.length);
+	}
+	
+	@Test
+	public void testDeflateDetectsCorruptData() {
+		byte[] compressed = StorageCodec.DEFLATE.encode(createGameState(50));
+		
+		assertThrows(SQLException.class, () -> StorageCodec.DEFLATE.decode(Arrays.copyOf(compressed, compressed.length / 2)));
+	}
+	
+	@Test
+	public void testCodecsAreIdentifiedByTheirIds() throws SQLException {
+		for (StorageCodec codec : StorageCodec.values()) {
+			assertSame(codec, StorageCodec.forId(codec.getId()));
+		}
+		assertThrows(SQLException.class, () -> StorageCodec.forId(99));
+	}
+	
+	@Test
+	public void testSmallPayloadsAreNotCompressed() {
+		assertSame(StorageCodec.IDENTITY, StorageCodec.forValue("{\"move\":1}"));
+		assertSame(StorageCodec.getWriteCodec(), StorageCodec.forValue(createGameState(100)));
+	}
+}
\ No newline at end of file
@@ -0,0 +1,63 @@
+package net.jfabricationgames.genesis_project_server.game;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import net.jfabricationgames.genesis_project_server.database.StorageCodec;
+import net.jfabricationgames.genesis_project_server.game.GameArchive.ArchivedMove;
+
+class GameArchiveTest {
+	
+	private static List<ArchivedMove> createMoves() {
+		return Arrays.asList(new ArchivedMove(11, 1, "user1", 1, "{\"move\": 1}"), new ArchivedMove(12, 2, "user2", 2, "{\"move\": 2}"),
+				new ArchivedMove(15, 1, "user1", 3, "{\"move\": \"äöü\"}"));
+	}
+	
+	@Test
+	public void testArchivedMovesAreRestoredUnchanged() throws SQLException {
+		List<ArchivedMove> moves = createMoves();
+		
+		//the moves are stored compressed in the archive
+		byte[] archived = StorageCodec.DEFLATE.encode(GameArchive.encodeMoves(moves));
+		List<ArchivedMove> restored = GameArchive.decodeMoves(StorageCodec.DEFLATE.decode(archived));
+		
+		assertEquals(moves.size(), restored.size());
+		for (int i = 0; i < moves.size(); i++) {
+			assertEquals(moves.get(i).getId(), restored.get(i).getId());
+			assertEquals(moves.get(i).getUserId(), restored.get(i).getUserId());
+			assertEquals(moves.get(i).getUsername(), restored.get(i).getUsername());
+			assertEquals(moves.get(i).getNum(), restored.get(i).getNum());
+			assertEquals(moves.get(i).getMove(), restored.get(i).getMove());
+		}
+	}
+	
+	@Test
+	public void testGameWithoutMoves() throws SQLException {
+		assertTrue(GameArchive.decodeMoves(GameArchive.encodeMoves(Arrays.asList())).isEmpty());
+	}
+	
+	@Test
+	public void testInvalidArchivedMoves() {
+		assertThrows(SQLException.class, () -> GameArchive.decodeMoves("{\"not\": \"an array\"}"));
+	}
+	
+	@Test
+	public void testTailMovesOfArchivedGame() {
+		MoveList tail = GameArchive.toTailMoveList(createMoves(), 1);
+		
+		assertEquals(2, tail.getMoves().size());
+		assertEquals(2, tail.getIdToNum().get(12).intValue());
+		assertEquals(3, tail.getIdToNum().get(15).intValue());
+		assertEquals("user2", tail.getIdToUsername().get(12));
+		assertEquals("{\"move\": 2}", tail.getMoves().get(12));
+		
+		assertTrue(GameArchive.toTailMoveList(createMoves(), 3).getMoves().isEmpty());
+	}
+}
\ No newline at end of file
@@ -2,12 +2,159 @@ package net.jfabricationgames.genesis_project_server.game;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 
+import net.jfabricationgames.genesis_project_server.config.ServiceConfiguration;
+import net.jfabricationgames.genesis_project_server.database.DatabaseConnection;
 import net.jfabricationgames.genesis_project_server.exception.GameDataException;
 
 class GameDataManagerTest {
 	
+	/**
+	 * A data source that answers the queries for the tail moves of a game from a list of moves (rows of id, num, move, username and codec)
+	 * and the queries for the snapshot number of a game. The snapshot numbers of the game updates are recorded; all other statements return
+	 * no rows (or affect one row).
+	 */
+	private static class GameDataSource implements DataSource {
+		
+		private final List<Object[]> moves;
+		private final int snapshotNum;
+		private final List<Integer> updatedSnapshotNums = new ArrayList<Integer>();
+		
+		private GameDataSource(List<Object[]> moves, int snapshotNum) {
+			this.moves = moves;
+			this.snapshotNum = snapshotNum;
+		}
+		
+		@Override
+		public Connection getConnection() throws SQLException {
+			return stub(Connection.class, (proxy, method, args) -> {
+				if (method.getName().equals("prepareStatement")) {
+					return prepareStatement((String) args[0]);
+				}
+				return defaultValue(method.getReturnType());
+			});
+		}
+		private PreparedStatement prepareStatement(String sql) {
+			Map<Integer, Object> parameters = new HashMap<Integer, Object>();
+			return stub(PreparedStatement.class, (proxy, method, args) -> {
+				switch (method.getName()) {
+					case "setInt":
+						parameters.put((Integer) args[0], args[1]);
+						return null;
+					case "executeQuery":
+						List<Object[]> rows = new ArrayList<Object[]>();
+						if (sql.contains("m.num > ?")) {
+							for (Object[] move : moves) {
+								if ((Integer) move[1] > (Integer) parameters.get(2)) {
+									rows.add(move);
+								}
+							}
+						}
+						else if (sql.startsWith("SELECT snapshot_num FROM")) {
+							rows.add(new Object[] {snapshotNum});
+						}
+						return resultSet(rows.iterator());
+					case "executeUpdate":
+						if (sql.contains("snapshot_num = ?")) {
+							updatedSnapshotNums.add((Integer) parameters.get(3));
+						}
+						return 1;
+					default:
+						return defaultValue(method.getReturnType());
+				}
+			});
+		}
+		private ResultSet resultSet(Iterator<Object[]> rows) {
+			Object[][] row = new Object[1][];
+			return stub(ResultSet.class, (proxy, method, args) -> {
+				switch (method.getName()) {
+					case "next":
+						row[0] = rows.hasNext() ? rows.next() : null;
+						return row[0] != null;
+					case "getInt":
+					case "getString":
+						return row[0][(Integer) args[0] - 1];
+					case "getBytes":
+						return ((String) row[0][(Integer) args[0] - 1]).getBytes(StandardCharsets.UTF_8);
+					default:
+						return defaultValue(method.getReturnType());
+				}
+			});
+		}
+		
+		@Override
+		public Connection getConnection(String username, String password) throws SQLException {
+			return getConnection();
+		}
+		@Override
+		public PrintWriter getLogWriter() throws SQLException {
+			return null;
+		}
+		@Override
+		public void setLogWriter(PrintWriter out) throws SQLException {}
+		@Override
+		public void setLoginTimeout(int seconds) throws SQLException {}
+		@Override
+		public int getLoginTimeout() throws SQLException {
+			return 0;
+		}
+		@Override
+		public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+			throw new SQLFeatureNotSupportedException();
+		}
+		@Override
+		public <T> T unwrap(Class<T> iface) throws SQLException {
+			throw new SQLException("not a wrapper");
+		}
+		@Override
+		public boolean isWrapperFor(Class<?> iface) throws SQLException {
+			return false;
+		}
+	}
+	
+	private static <T> T stub(Class<T> type, InvocationHandler handler) {
+		return type.cast(Proxy.newProxyInstance(GameDataManagerTest.class.getClassLoader(), new Class<?>[] {type}, handler));
+	}
+	
+	private static Object defaultValue(Class<?> type) {
+		if (type == boolean.class) {
+			return false;
+		}
+		if (type == int.class) {
+			return 0;
+		}
+		if (type == long.class) {
+			return 0L;
+		}
+		return null;
+	}
+	
+	@AfterEach
+	public void shutdownDatabaseConnection() {
+		DatabaseConnection.shutdown();
+	}
+	
 	@Test
 	public void testBuildGameListQuery() throws GameDataException {
 		final String tableGames = "genesis_project.games";
@@ -20,12 +167,14 @@ class GameDataManagerTest {
 		String query_incomplete_noUser = manager.buildGameListQuery(false, "-", tableGames, tablePlayers, tableUsers);
 		String query_incomplete_user42 = manager.buildGameListQuery(false, "user42", tableGames, tablePlayers, tableUsers);
 		
-		assertEquals("SELECT g.id, g.started, g.last_played, g.data FROM " + tableGames + " g", query_complete_noUser);
-		assertEquals("SELECT g.id, g.started, g.last_played, g.data FROM " + tableGames + " g JOIN " + tablePlayers + " p ON g.id = p.game_id JOIN "
-				+ tableUsers + " u ON u.id = p.user_id WHERE u.username = ?", query_complete_user42);
-		assertEquals("SELECT g.id, g.started, g.last_played FROM " + tableGames + " g", query_incomplete_noUser);
+		assertEquals("SELECT g.id, g.started, g.last_played, g.data, g.data_codec FROM " + tableGames + " g WHERE g.active = 1",
+				query_complete_noUser);
+		assertEquals("SELECT g.id, g.started, g.last_played, g.data, g.data_codec FROM " + tableGames + " g JOIN " + tablePlayers
+				+ " p ON g.id = p.game_id JOIN " + tableUsers + " u ON u.id = p.user_id WHERE g.active = 1 AND u.username = ?",
+				query_complete_user42);
+		assertEquals("SELECT g.id, g.started, g.last_played FROM " + tableGames + " g WHERE g.active = 1", query_incomplete_noUser);
 		assertEquals("SELECT g.id, g.started, g.last_played FROM " + tableGames + " g JOIN " + tablePlayers + " p ON g.id = p.game_id JOIN "
-				+ tableUsers + " u ON u.id = p.user_id WHERE u.username = ?", query_incomplete_user42);
+				+ tableUsers + " u ON u.id = p.user_id WHERE g.active = 1 AND u.username = ?", query_incomplete_user42);
 	}
 	
 	@Test
@@ -43,32 +192,122 @@ class GameDataManagerTest {
 		String query_allGames_selectedUsers_selectedMoves = manager.buildMoveListQuery(true, false, false, tableMoves, tableUsers);
 		String query_selectedGames_selectedUsers_selectedMoves = manager.buildMoveListQuery(false, false, false, tableMoves, tableUsers);
 		
-		assertEquals("SELECT m.id, m.num, m.move, u.username FROM " + tableMoves + " m JOIN " + tableUsers
+		assertEquals("SELECT m.id, m.num, m.move, u.username, m.move_codec FROM " + tableMoves + " m JOIN " + tableUsers
 				+ " u ON u.id = m.user_id WHERE 1 ORDER BY m.num DESC", query_allGames_allUsers_allMoves);
 		
-		assertEquals("SELECT m.id, m.num, m.move, u.username FROM " + tableMoves + " m JOIN " + tableUsers
+		assertEquals("SELECT m.id, m.num, m.move, u.username, m.move_codec FROM " + tableMoves + " m JOIN " + tableUsers
 				+ " u ON u.id = m.user_id WHERE m.game_id = ? ORDER BY m.num DESC", query_selectedGames_allUsers_allMoves);
 		
-		assertEquals("SELECT m.id, m.num, m.move, u.username FROM " + tableMoves + " m JOIN " + tableUsers
+		assertEquals("SELECT m.id, m.num, m.move, u.username, m.move_codec FROM " + tableMoves + " m JOIN " + tableUsers
 				+ " u ON u.id = m.user_id WHERE u.username = ? ORDER BY m.num DESC", query_allGames_selectedUsers_allMoves);
 		
-		assertEquals("SELECT m.id, m.num, m.move, u.username FROM " + tableMoves + " m JOIN " + tableUsers
+		assertEquals("SELECT m.id, m.num, m.move, u.username, m.move_codec FROM " + tableMoves + " m JOIN " + tableUsers
 				+ " u ON u.id = m.user_id WHERE 1 ORDER BY m.num DESC LIMIT ?", query_allGames_allUsers_selectedMoves);
 		
 		assertEquals(
-				"SELECT m.id, m.num, m.move, u.username FROM " + tableMoves + " m JOIN " + tableUsers
+				"SELECT m.id, m.num, m.move, u.username, m.move_codec FROM " + tableMoves + " m JOIN " + tableUsers
 						+ " u ON u.id = m.user_id WHERE u.username = ? AND m.game_id = ? ORDER BY m.num DESC",
 				query_selectedGames_selectedUsers_allMoves);
 		
-		assertEquals("SELECT m.id, m.num, m.move, u.username FROM " + tableMoves + " m JOIN " + tableUsers
+		assertEquals("SELECT m.id, m.num, m.move, u.username, m.move_codec FROM " + tableMoves + " m JOIN " + tableUsers
 				+ " u ON u.id = m.user_id WHERE m.game_id = ? ORDER BY m.num DESC LIMIT ?", query_selectedGames_allUsers_selectedMoves);
 		
-		assertEquals("SELECT m.id, m.num, m.move, u.username FROM " + tableMoves + " m JOIN " + tableUsers
+		assertEquals("SELECT m.id, m.num, m.move, u.username, m.move_codec FROM " + tableMoves + " m JOIN " + tableUsers
 				+ " u ON u.id = m.user_id WHERE u.username = ? ORDER BY m.num DESC LIMIT ?", query_allGames_selectedUsers_selectedMoves);
 		
 		assertEquals(
-				"SELECT m.id, m.num, m.move, u.username FROM " + tableMoves + " m JOIN " + tableUsers
+				"SELECT m.id, m.num, m.move, u.username, m.move_codec FROM " + tableMoves + " m JOIN " + tableUsers
 						+ " u ON u.id = m.user_id WHERE u.username = ? AND m.game_id = ? ORDER BY m.num DESC LIMIT ?",
 				query_selectedGames_selectedUsers_selectedMoves);
 	}
+	
+	@Test
+	public void testBuildUserIdsQuery() {
+		final String tableUsers = "genesis_project.users";
+		
+		GameDataManager manager = new GameDataManager();
+		
+		assertEquals("SELECT id, username FROM " + tableUsers + " WHERE username IN (?)", manager.buildUserIdsQuery(1, tableUsers));
+		assertEquals("SELECT id, username FROM " + tableUsers + " WHERE username IN (?, ?, ?)", manager.buildUserIdsQuery(3, tableUsers));
+	}
+	
+	@Test
+	public void testBuildGamePageQuery() {
+		final String tableGames = "genesis_project.games";
+		final String tableUsers = "genesis_project.users";
+		final String tablePlayers = "genesis_project.players";
+		
+		GameDataManager manager = new GameDataManager();
+		String query_allUsers_firstPage = manager.buildGamePageQuery(false, true, true, tableGames, tablePlayers, tableUsers);
+		String query_allUsers_nextPage = manager.buildGamePageQuery(false, true, false, tableGames, tablePlayers, tableUsers);
+		String query_user_nextPage = manager.buildGamePageQuery(true, false, false, tableGames, tablePlayers, tableUsers);
+		
+		assertEquals("SELECT g.id, g.started, g.last_played FROM " + tableGames + " g WHERE g.active = 1 ORDER BY g.id DESC LIMIT ?",
+				query_allUsers_firstPage);
+		assertEquals("SELECT g.id, g.started, g.last_played FROM " + tableGames + " g WHERE g.active = 1 AND g.id < ? ORDER BY g.id DESC LIMIT ?",
+				query_allUsers_nextPage);
+		assertEquals("SELECT g.id, g.started, g.last_played, g.data, g.data_codec FROM " + tableGames + " g JOIN " + tablePlayers
+				+ " p ON g.id = p.game_id JOIN " + tableUsers + " u ON u.id = p.user_id WHERE g.active = 1 AND u.username = ? AND g.id < ? "
+				+ "ORDER BY g.id DESC LIMIT ?", query_user_nextPage);
+	}
+	
+	@Test
+	public void testBuildMovePageQuery() {
+		final String tableMoves = "genesis_project.moves";
+		final String tableUsers = "genesis_project.users";
+		final String select = "SELECT m.id, m.num, m.move, u.username, m.game_id, m.move_codec FROM " + tableMoves + " m JOIN " + tableUsers
+				+ " u ON u.id = m.user_id WHERE";
+		
+		GameDataManager manager = new GameDataManager();
+		String query_allGames_allUsers_firstPage = manager.buildMovePageQuery(true, true, true, tableMoves, tableUsers);
+		String query_allGames_allUsers_nextPage = manager.buildMovePageQuery(true, true, false, tableMoves, tableUsers);
+		String query_selectedGame_allUsers_nextPage = manager.buildMovePageQuery(false, true, false, tableMoves, tableUsers);
+		String query_selectedGame_selectedUser_nextPage = manager.buildMovePageQuery(false, false, false, tableMoves, tableUsers);
+		
+		assertEquals(select + " 1 ORDER BY m.game_id DESC, m.num DESC LIMIT ?", query_allGames_allUsers_firstPage);
+		assertEquals(select + " (m.game_id < ? OR (m.game_id = ? AND m.num < ?)) ORDER BY m.game_id DESC, m.num DESC LIMIT ?",
+				query_allGames_allUsers_nextPage);
+		assertEquals(select + " m.game_id = ? AND m.num < ? ORDER BY m.num DESC LIMIT ?", query_selectedGame_allUsers_nextPage);
+		assertEquals(select + " u.username = ? AND m.game_id = ? AND m.num < ? ORDER BY m.num DESC LIMIT ?",
+				query_selectedGame_selectedUser_nextPage);
+	}
+	
+	@Test
+	public void testListMovesAfterIncludesMovesCommittedAfterTheSignal() throws Exception {
+		//the waiter was signalled by move 3 (after move 1), but the moves 4 and 5 were committed before the moves were loaded
+		List<Object[]> moves = Arrays.asList(new Object[] {11, 1, "{\"move\": 1}", "user1", 0}, new Object[] {12, 2, "{\"move\": 2}", "user2", 0},
+				new Object[] {13, 3, "{\"move\": 3}", "user1", 0}, new Object[] {14, 4, "{\"move\": 4}", "user2", 0},
+				new Object[] {15, 5, "{\"move\": 5}", "user1", 0});
+		DatabaseConnection.initialize(new GameDataSource(moves, 0), "genesis_project", 1);
+		
+		MoveList moveList = new GameDataManager().listMovesAfter(42, 1);
+		
+		assertEquals(4, moveList.getMoves().size());
+		for (int id = 12; id <= 15; id++) {
+			assertEquals(id - 10, moveList.getIdToNum().get(id).intValue());
+			assertEquals("{\"move\": " + (id - 10) + "}", moveList.getMoves().get(id));
+		}
+		assertEquals("user2", moveList.getIdToUsername().get(14));
+	}
+	
+	@Test
+	public void testUpdateWithoutSnapshotNumKeepsTheSnapshotIfMovesAreCompacted() throws Exception {
+		final int gameId = 4711;
+		GameDataSource dataSource = new GameDataSource(Arrays.asList(), 3);
+		DatabaseConnection.initialize(dataSource, "genesis_project", 1);
+		MoveWaiterRegistry.getInstance().seed(gameId, 7);
+		
+		String compactionEnabled = ServiceConfiguration.SYSTEM_PROPERTY_PREFIX + "compaction.enabled";
+		System.setProperty(compactionEnabled, "true");
+		try {
+			//the moves that the game includes are not known, so the moves after the stored snapshot must not be compacted
+			new GameDataManager().updateGame(gameId, "{\"game\": 1}");
+		}
+		finally {
+			System.clearProperty(compactionEnabled);
+		}
+		new GameDataManager().updateGame(gameId, "{\"game\": 2}");
+		
+		assertEquals(Arrays.asList(3, 7), dataSource.updatedSnapshotNums);
+	}
 }
\ No newline at end of file
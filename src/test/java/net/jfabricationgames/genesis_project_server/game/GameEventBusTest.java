@@ -0,0 +1,216 @@
+package net.jfabricationgames.genesis_project_server.game;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class GameEventBusTest {
+	
+	/**
+	 * A player cache that doesn't load the players from the database.
+	 */
+	private static class TestGamePlayerCache extends GamePlayerCache {
+		
+		private final AtomicInteger loadedGames = new AtomicInteger();
+		/**
+		 * Blocks the loading of the players (to simulate a slow database)
+		 */
+		private volatile CountDownLatch loading = new CountDownLatch(0);
+		
+		public TestGamePlayerCache() {
+			super(100);
+		}
+		
+		@Override
+		protected Set<String> loadPlayers(int gameId) {
+			loadedGames.incrementAndGet();
+			try {
+				loading.await();
+			}
+			catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+			}
+			return new HashSet<String>(Arrays.asList("player1", "player2"));
+		}
+	}
+	
+	/**
+	 * An event bus that doesn't load the players from the database.
+	 */
+	private static class TestGameEventBus extends GameEventBus {
+		
+		private final TestGamePlayerCache players;
+		
+		public TestGameEventBus(int bufferSize, long heartbeatIntervalMillis) {
+			this(bufferSize, heartbeatIntervalMillis, new TestGamePlayerCache());
+		}
+		
+		private TestGameEventBus(int bufferSize, long heartbeatIntervalMillis, TestGamePlayerCache players) {
+			super(bufferSize, heartbeatIntervalMillis, 2, 1, 100, players);
+			this.players = players;
+		}
+	}
+	
+	/**
+	 * A sink that records the sent events (and can be blocked to simulate a slow subscriber).
+	 */
+	private static class RecordingSink implements GameEventSink {
+		
+		private final BlockingQueue<GameEvent> events = new LinkedBlockingQueue<GameEvent>();
+		private final CountDownLatch blocked;
+		private volatile boolean closed;
+		
+		public RecordingSink(CountDownLatch blocked) {
+			this.blocked = blocked;
+		}
+		
+		@Override
+		public void send(GameEvent event) throws IOException {
+			try {
+				blocked.await();
+			}
+			catch (InterruptedException ie) {
+				throw new IOException(ie);
+			}
+			events.add(event);
+		}
+		
+		@Override
+		public void close() {
+			closed = true;
+		}
+		
+		@Override
+		public boolean isClosed() {
+			return closed;
+		}
+	}
+	
+	private TestGameEventBus bus;
+	
+	@AfterEach
+	public void closeBus() {
+		if (bus != null) {
+			bus.close();
+		}
+	}
+	
+	@Test
+	public void testEventsAreSentToThePlayersOfTheGame() throws InterruptedException {
+		bus = new TestGameEventBus(10, 60000);
+		RecordingSink player = new RecordingSink(new CountDownLatch(0));
+		RecordingSink otherUser = new RecordingSink(new CountDownLatch(0));
+		bus.subscribe("Player1", player);
+		bus.subscribe("other_user", otherUser);
+		
+		GameEvent event = GameEvent.moveSet(42, 3, "player2");
+		bus.publish(event);
+		bus.publish(GameEvent.gameUpdated(42));
+		
+		assertSame(event, player.events.poll(5, TimeUnit.SECONDS));
+		assertEquals(GameEvent.Type.GAME_UPDATED, player.events.poll(5, TimeUnit.SECONDS).getType());
+		assertTrue(otherUser.events.isEmpty());
+		//the players are loaded only once
+		assertEquals(1, bus.players.loadedGames.get());
+	}
+	
+	@Test
+	public void testPublishingDoesNotWaitForThePlayersToBeLoaded() throws InterruptedException {
+		bus = new TestGameEventBus(10, 60000);
+		RecordingSink player = new RecordingSink(new CountDownLatch(0));
+		bus.subscribe("player1", player);
+		bus.players.loading = new CountDownLatch(1);
+		
+		//the players are loaded by the publisher thread (not by the thread that publishes the event, e.g. a write request)
+		long start = System.nanoTime();
+		bus.publish(GameEvent.gameUpdated(42));
+		bus.publish(GameEvent.gameUpdated(42));
+		assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+		assertNull(player.events.poll(100, TimeUnit.MILLISECONDS));
+		
+		bus.players.loading.countDown();
+		assertNotNull(player.events.poll(5, TimeUnit.SECONDS));
+		assertNotNull(player.events.poll(5, TimeUnit.SECONDS));
+	}
+	
+	@Test
+	public void testPlayersOfCreatedGamesAreNotLoaded() throws InterruptedException {
+		bus = new TestGameEventBus(10, 60000);
+		RecordingSink player = new RecordingSink(new CountDownLatch(0));
+		bus.subscribe("player3", player);
+		
+		bus.gameCreated(43, Arrays.asList("Player3", "player4"));
+		
+		assertEquals(GameEvent.Type.GAME_CREATED, player.events.poll(5, TimeUnit.SECONDS).getType());
+		assertEquals(0, bus.players.loadedGames.get());
+	}
+	
+	@Test
+	public void testSlowSubscriberIsCancelledIfTheBufferIsFull() throws InterruptedException {
+		bus = new TestGameEventBus(2, 60000);
+		CountDownLatch blocked = new CountDownLatch(1);
+		RecordingSink slowPlayer = new RecordingSink(blocked);
+		GameEventBus.Subscription subscription = bus.subscribe("player1", slowPlayer);
+		
+		//the first event is taken from the buffer by the (blocked) dispatcher, the next two events fill the buffer
+		for (int i = 1; i <= 10; i++) {
+			bus.publish(GameEvent.moveSet(42, i, "player2"));
+		}
+		
+		//the events are added to the buffers by the publisher thread
+		long timeout = System.currentTimeMillis() + 5000;
+		while (!subscription.isCancelled() && System.currentTimeMillis() < timeout) {
+			Thread.sleep(10);
+		}
+		assertTrue(subscription.isCancelled());
+		assertTrue(slowPlayer.isClosed());
+		assertEquals(1L, bus.getStatistics().get("overflows"));
+		assertEquals(0, bus.getStatistics().get("subscribers"));
+		blocked.countDown();
+	}
+	
+	@Test
+	public void testHeartbeatsAreSent() throws InterruptedException {
+		bus = new TestGameEventBus(10, 10);
+		RecordingSink player = new RecordingSink(new CountDownLatch(0));
+		bus.subscribe("player1", player);
+		
+		assertSame(GameEvent.HEARTBEAT, player.events.poll(5, TimeUnit.SECONDS));
+	}
+	
+	@Test
+	public void testMaximumNumberOfSubscribers() {
+		bus = new TestGameEventBus(10, 60000);
+		GameEventBus.Subscription first = bus.subscribe("player1", new RecordingSink(new CountDownLatch(0)));
+		assertNotNull(bus.subscribe("player2", new RecordingSink(new CountDownLatch(0))));
+		assertNull(bus.subscribe("player3", new RecordingSink(new CountDownLatch(0))));
+		
+		first.cancel();
+		assertNotNull(bus.subscribe("player3", new RecordingSink(new CountDownLatch(0))));
+	}
+	
+	@Test
+	public void testEventIsSerializedOnce() {
+		GameEvent event = GameEvent.moveSet(42, 7, "player");
+		
+		String json = event.toJson();
+		assertEquals("{\"gameId\":42,\"num\":7,\"username\":\"player\"}", json);
+		assertSame(json, event.toJson());
+		assertEquals("{\"gameId\":42}", GameEvent.gameUpdated(42).toJson());
+	}
+}
\ No newline at end of file
@@ -0,0 +1,71 @@
+package net.jfabricationgames.genesis_project_server.game;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class GamePlayerCacheTest {
+	
+	/**
+	 * A player cache that doesn't load the players from the database (only the game 42 exists).
+	 */
+	private static class TestGamePlayerCache extends GamePlayerCache {
+		
+		private final AtomicInteger loadedGames = new AtomicInteger();
+		
+		public TestGamePlayerCache(int maxSize) {
+			super(maxSize);
+		}
+		
+		@Override
+		protected Set<String> loadPlayers(int gameId) {
+			loadedGames.incrementAndGet();
+			return gameId == 42 ? new HashSet<String>(Arrays.asList("player1", "player2")) : new HashSet<String>();
+		}
+	}
+	
+	@Test
+	public void testPlayersAreLoadedOnce() throws Exception {
+		TestGamePlayerCache cache = new TestGamePlayerCache(10);
+		assertNull(cache.getCachedPlayers(42));
+		
+		//the usernames are compared case insensitive (like in the database)
+		assertTrue(cache.isPlayer(42, "Player1"));
+		assertFalse(cache.isPlayer(42, "player3"));
+		assertFalse(cache.isPlayer(42, null));
+		assertEquals(1, cache.loadedGames.get());
+		
+		//games without players are not cached (the game may be created later)
+		assertFalse(cache.isPlayer(43, "player1"));
+		assertNull(cache.getCachedPlayers(43));
+	}
+	
+	@Test
+	public void testPlayersOfCreatedGamesAreNotLoaded() throws Exception {
+		TestGamePlayerCache cache = new TestGamePlayerCache(10);
+		cache.put(43, Arrays.asList("Player3", "player4"));
+		
+		assertTrue(cache.isPlayer(43, "player3"));
+		assertEquals(0, cache.loadedGames.get());
+	}
+	
+	@Test
+	public void testCacheIsClearedIfFull() {
+		TestGamePlayerCache cache = new TestGamePlayerCache(2);
+		cache.put(1, Arrays.asList("player1"));
+		cache.put(2, Arrays.asList("player1"));
+		cache.put(3, Arrays.asList("player1"));
+		
+		assertNull(cache.getCachedPlayers(1));
+		assertEquals(1, cache.getStatistics().get("size"));
+		assertEquals(1L, cache.getStatistics().get("clears"));
+	}
+}
\ No newline at end of file
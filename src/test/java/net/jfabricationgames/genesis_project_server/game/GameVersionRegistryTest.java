@@ -0,0 +1,63 @@
+package net.jfabricationgames.genesis_project_server.game;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import org.junit.jupiter.api.Test;
+
+class GameVersionRegistryTest {
+	
+	@Test
+	public void testTagsChangeOnlyWithTheirResource() {
+		GameVersionRegistry registry = new GameVersionRegistry();
+		String gameTag = registry.getGameTag(1);
+		String otherGameTag = registry.getGameTag(2);
+		String movesTag = registry.getMovesTag(1);
+		String gameListTag = registry.getGameListTag();
+		
+		registry.gameUpdated(1);
+		assertNotEquals(gameTag, registry.getGameTag(1));
+		assertEquals(otherGameTag, registry.getGameTag(2));
+		assertEquals(movesTag, registry.getMovesTag(1));
+		assertNotEquals(gameListTag, registry.getGameListTag());
+		
+		String allMovesTag = registry.getMovesTag(-1);
+		registry.moveSet(1);
+		assertNotEquals(movesTag, registry.getMovesTag(1));
+		assertNotEquals(allMovesTag, registry.getMovesTag(-1));
+		assertEquals(registry.getMovesTag(2), registry.getMovesTag(2));
+		
+		//the compaction removes moves, so the move lists change
+		movesTag = registry.getMovesTag(1);
+		allMovesTag = registry.getMovesTag(-1);
+		gameTag = registry.getGameTag(1);
+		registry.movesCompacted(1);
+		assertNotEquals(movesTag, registry.getMovesTag(1));
+		assertNotEquals(allMovesTag, registry.getMovesTag(-1));
+		assertEquals(gameTag, registry.getGameTag(1));
+	}
+	
+	@Test
+	public void testClearInvalidatesAllTags() {
+		GameVersionRegistry registry = new GameVersionRegistry();
+		String gameTag = registry.getGameTag(1);
+		String movesTag = registry.getMovesTag(1);
+		
+		registry.clear();
+		assertNotEquals(gameTag, registry.getGameTag(1));
+		assertNotEquals(movesTag, registry.getMovesTag(1));
+	}
+	
+	@Test
+	public void testUserUpdatesChangeTheListTags() {
+		GameVersionRegistry registry = new GameVersionRegistry();
+		String gameTag = registry.getGameTag(1);
+		String movesTag = registry.getMovesTag(1);
+		String gameListTag = registry.getGameListTag();
+		
+		registry.userUpdated();
+		assertEquals(gameTag, registry.getGameTag(1));
+		assertNotEquals(movesTag, registry.getMovesTag(1));
+		assertNotEquals(gameListTag, registry.getGameListTag());
+	}
+}
\ No newline at end of file
@@ -0,0 +1,232 @@
+package net.jfabricationgames.genesis_project_server.game;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import net.jfabricationgames.genesis_project_server.exception.GameDataException;
+import net.jfabricationgames.genesis_project_server.exception.GameDataException.Cause;
+
+class GameWriteBufferTest {
+	
+	/**
+	 * A write buffer that records the flushed games instead of writing them to the database.
+	 */
+	private static class RecordingGameWriteBuffer extends GameWriteBuffer {
+		
+		private List<Map<Integer, String>> flushes = new ArrayList<Map<Integer, String>>();
+		private List<Map<Integer, Integer>> flushedSnapshotNums = new ArrayList<Map<Integer, Integer>>();
+		private List<Integer> writtenGames = new ArrayList<Integer>();
+		private boolean failing;
+		/**
+		 * The games that can't be written (e.g. because the data is too large for the column)
+		 */
+		private Set<Integer> invalidGames = new HashSet<Integer>();
+		/**
+		 * The games that are not active anymore (so the update doesn't change a row)
+		 */
+		private Set<Integer> inactiveGames = new HashSet<Integer>();
+		
+		public RecordingGameWriteBuffer(int flushThreshold) {
+			this(flushThreshold, 1000, 3);
+		}
+		
+		public RecordingGameWriteBuffer(int flushThreshold, int maxBufferedGames, int maxWriteAttempts) {
+			super(true, 60000, flushThreshold, maxBufferedGames, maxWriteAttempts);
+		}
+		
+		@Override
+		protected Set<Integer> writeGames(Map<Integer, String> games, Map<Integer, Integer> snapshotNums) throws GameDataException {
+			if (failing || games.keySet().stream().anyMatch(invalidGames::contains)) {
+				throw new GameDataException("database not available", Cause.UNKNOWN);
+			}
+			flushes.add(games);
+			flushedSnapshotNums.add(snapshotNums);
+			Set<Integer> missingGames = new HashSet<Integer>(games.keySet());
+			missingGames.retainAll(inactiveGames);
+			return missingGames;
+		}
+		
+		@Override
+		protected boolean writeGame(int id, String game, int snapshotNum) throws GameDataException {
+			if (failing || invalidGames.contains(id)) {
+				throw new GameDataException("game couldn't be written", Cause.UNKNOWN);
+			}
+			writtenGames.add(id);
+			return !inactiveGames.contains(id);
+		}
+	}
+	
+	@Test
+	public void testOnlyKnownGamesAreBuffered() {
+		GameWriteBuffer buffer = new GameWriteBuffer(false, 1000, 10, 1000, 3);
+		buffer.addKnownGame(1);
+		assertFalse(buffer.buffer(1, "{}", 0));
+		
+		RecordingGameWriteBuffer enabledBuffer = new RecordingGameWriteBuffer(10);
+		assertFalse(enabledBuffer.buffer(1, "{}", 0));
+		enabledBuffer.addKnownGame(1);
+		assertTrue(enabledBuffer.buffer(1, "{}", 0));
+		enabledBuffer.close();
+	}
+	
+	@Test
+	public void testUpdatesAreCoalesced() throws GameDataException {
+		RecordingGameWriteBuffer buffer = new RecordingGameWriteBuffer(10);
+		buffer.addKnownGame(1);
+		buffer.addKnownGame(2);
+		buffer.buffer(1, "{\"state\": 1}", 3);
+		buffer.buffer(1, "{\"state\": 2}", 5);
+		buffer.buffer(2, "{\"state\": 1}", 0);
+		
+		//reads get the latest buffered state (with the number of the last move that is included in the state)
+		assertEquals("{\"state\": 2}", buffer.getBufferedGame(1));
+		assertEquals("{\"state\": 2}", buffer.getBufferedState(1).getGame());
+		assertEquals(5, buffer.getBufferedState(1).getSnapshotNum());
+		
+		buffer.flush();
+		assertEquals(1, buffer.flushes.size());
+		assertEquals(2, buffer.flushes.get(0).size());
+		assertEquals("{\"state\": 2}", buffer.flushes.get(0).get(1));
+		assertEquals(5, buffer.flushedSnapshotNums.get(0).get(1).intValue());
+		assertNull(buffer.getBufferedGame(1));
+		assertNull(buffer.getBufferedState(1));
+		assertEquals(1L, buffer.getStatistics().get("coalescedWrites"));
+		buffer.close();
+	}
+	
+	@Test
+	public void testFailedFlushKeepsTheGames() throws GameDataException {
+		RecordingGameWriteBuffer buffer = new RecordingGameWriteBuffer(10);
+		buffer.addKnownGame(1);
+		buffer.buffer(1, "{}", 0);
+		
+		buffer.failing = true;
+		assertThrows(GameDataException.class, () -> buffer.flush());
+		assertEquals("{}", buffer.getBufferedGame(1));
+		
+		//the games are written on shutdown
+		buffer.failing = false;
+		buffer.close();
+		assertEquals(1, buffer.flushes.size());
+		assertFalse(buffer.buffer(1, "{}", 0));
+	}
+	
+	@Test
+	public void testThresholdTriggersFlush() throws InterruptedException {
+		RecordingGameWriteBuffer buffer = new RecordingGameWriteBuffer(2);
+		buffer.addKnownGame(1);
+		buffer.addKnownGame(2);
+		buffer.buffer(1, "{}", 0);
+		buffer.buffer(2, "{}", 0);
+		
+		for (int i = 0; i < 100 && buffer.getBufferedGame(1) != null; i++) {
+			Thread.sleep(10);
+		}
+		assertNull(buffer.getBufferedGame(1));
+		assertNull(buffer.getBufferedGame(2));
+		buffer.close();
+	}
+	
+	@Test
+	public void testInvalidGameDoesNotBlockTheOtherGames() throws GameDataException {
+		RecordingGameWriteBuffer buffer = new RecordingGameWriteBuffer(10, 1000, 2);
+		buffer.invalidGames.add(2);
+		for (int id = 1; id <= 3; id++) {
+			buffer.addKnownGame(id);
+		}
+		buffer.buffer(1, "{}", 0);
+		buffer.buffer(2, "{}", 0);
+		
+		//the batch fails, so the games are written one by one
+		buffer.flush();
+		assertEquals(Arrays.asList(1), buffer.writtenGames);
+		assertNull(buffer.getBufferedGame(1));
+		assertEquals("{}", buffer.getBufferedGame(2));
+		
+		//the invalid game is discarded after the second failed attempt
+		buffer.buffer(3, "{}", 0);
+		buffer.flush();
+		assertEquals(Arrays.asList(1, 3), buffer.writtenGames);
+		assertNull(buffer.getBufferedGame(2));
+		assertEquals(1L, buffer.getStatistics().get("discardedGames"));
+		assertFalse(buffer.buffer(2, "{}", 0));
+		buffer.close();
+	}
+	
+	@Test
+	public void testGamesAreKeptIfNoGameCanBeWritten() throws GameDataException {
+		RecordingGameWriteBuffer buffer = new RecordingGameWriteBuffer(10, 1000, 1);
+		buffer.addKnownGame(1);
+		buffer.addKnownGame(2);
+		buffer.buffer(1, "{}", 0);
+		buffer.buffer(2, "{}", 0);
+		
+		//the database is not available, so the games are not discarded (although the maximum number of attempts is reached)
+		buffer.failing = true;
+		assertThrows(GameDataException.class, () -> buffer.flush());
+		assertEquals("{}", buffer.getBufferedGame(1));
+		assertEquals("{}", buffer.getBufferedGame(2));
+		assertEquals(0L, buffer.getStatistics().get("discardedGames"));
+		
+		buffer.failing = false;
+		buffer.flush();
+		assertNull(buffer.getBufferedGame(1));
+		assertNull(buffer.getBufferedGame(2));
+		buffer.close();
+	}
+	
+	@Test
+	public void testInactiveGamesAreDiscarded() throws GameDataException {
+		RecordingGameWriteBuffer buffer = new RecordingGameWriteBuffer(10);
+		buffer.inactiveGames.add(2);
+		buffer.addKnownGame(1);
+		buffer.addKnownGame(2);
+		buffer.buffer(1, "{}", 0);
+		buffer.buffer(2, "{}", 0);
+		
+		buffer.flush();
+		assertNull(buffer.getBufferedGame(2));
+		assertEquals(1L, buffer.getStatistics().get("discardedGames"));
+		assertEquals(1L, buffer.getStatistics().get("flushedGames"));
+		
+		//the next update of the game is not buffered, so it fails
+		assertFalse(buffer.buffer(2, "{}", 0));
+		assertTrue(buffer.buffer(1, "{}", 0));
+		buffer.close();
+	}
+	
+	@Test
+	public void testFullBufferWritesThrough() {
+		RecordingGameWriteBuffer buffer = new RecordingGameWriteBuffer(10, 2, 3);
+		for (int id = 1; id <= 3; id++) {
+			buffer.addKnownGame(id);
+		}
+		assertTrue(buffer.buffer(1, "{\"state\": 1}", 0));
+		assertTrue(buffer.buffer(2, "{}", 0));
+		
+		//a game that is not yet buffered is written directly, but a buffered game is still buffered (so the flush doesn't overwrite it)
+		assertFalse(buffer.buffer(3, "{}", 0));
+		assertTrue(buffer.buffer(1, "{\"state\": 2}", 0));
+		assertEquals(1L, buffer.getStatistics().get("writeThroughs"));
+		buffer.close();
+		
+		//the last written state of the game is the latest state
+		String writtenGame = null;
+		for (Map<Integer, String> flush : buffer.flushes) {
+			writtenGame = flush.getOrDefault(1, writtenGame);
+		}
+		assertEquals("{\"state\": 2}", writtenGame);
+	}
+}
\ No newline at end of file
@@ -0,0 +1,79 @@
+package net.jfabricationgames.genesis_project_server.game;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import net.jfabricationgames.genesis_project_server.exception.GameDataException;
+import net.jfabricationgames.genesis_project_server.exception.GameDataException.Cause;
+
+class JsonPatchTest {
+	
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+	
+	/**
+	 * Parse JSON that is written with single quotes (to keep the tests readable).
+	 */
+	private JsonNode json(String json) throws IOException {
+		return MAPPER.readTree(json.replace('\'', '"'));
+	}
+	
+	private JsonNode apply(String document, String patch) throws IOException, GameDataException {
+		return JsonPatch.apply(json(document), json(patch));
+	}
+	
+	@Test
+	public void testAddAndRemove() throws Exception {
+		assertEquals(json("{'a':1,'b':2}"), apply("{'a':1}", "[{'op':'add','path':'/b','value':2}]"));
+		assertEquals(json("{'a':[1,3,2]}"), apply("{'a':[1,2]}", "[{'op':'add','path':'/a/1','value':3}]"));
+		assertEquals(json("{'a':[1,2,3]}"), apply("{'a':[1,2]}", "[{'op':'add','path':'/a/-','value':3}]"));
+		assertEquals(json("{'a':[2]}"), apply("{'a':[1,2],'b':0}", "[{'op':'remove','path':'/a/0'},{'op':'remove','path':'/b'}]"));
+		assertEquals(json("[1]"), apply("{'a':1}", "[{'op':'add','path':'','value':[1]}]"));
+	}
+	
+	@Test
+	public void testReplaceMoveAndCopy() throws Exception {
+		assertEquals(json("{'a':{'b':5}}"), apply("{'a':{'b':1}}", "[{'op':'replace','path':'/a/b','value':5}]"));
+		assertEquals(json("{'a':{},'c':1}"), apply("{'a':{'b':1}}", "[{'op':'move','from':'/a/b','path':'/c'}]"));
+		assertEquals(json("{'a':[3,1,2]}"), apply("{'a':[1,2,3]}", "[{'op':'move','from':'/a/2','path':'/a/0'}]"));
+		assertEquals(json("{'a':{'b':[1]},'c':[1]}"), apply("{'a':{'b':[1]}}", "[{'op':'copy','from':'/a/b','path':'/c'}]"));
+	}
+	
+	@Test
+	public void testEscapedPointers() throws Exception {
+		assertEquals(Arrays.asList("a/b", "c~d", ""), JsonPatch.parsePointer("/a~1b/c~0d/"));
+		assertEquals(json("{'a/b':2}"), apply("{'a/b':1}", "[{'op':'replace','path':'/a~1b','value':2}]"));
+	}
+	
+	@Test
+	public void testFailedTestIsAConflict() throws Exception {
+		assertEquals(json("{'a':1,'b':2}"), apply("{'a':1}", "[{'op':'test','path':'/a','value':1},{'op':'add','path':'/b','value':2}]"));
+		
+		GameDataException conflict = assertThrows(GameDataException.class, () -> apply("{'a':1}", "[{'op':'test','path':'/a','value':2}]"));
+		assertEquals(Cause.CONFLICT, conflict.getGameDataExceptionCause());
+	}
+	
+	@Test
+	public void testInvalidPatches() throws Exception {
+		String[] invalidPatches = {"{'op':'add','path':'/b','value':2}", //
+				"[{'op':'add','path':'b','value':2}]", //
+				"[{'op':'add','path':'/b'}]", //
+				"[{'op':'unknown','path':'/a'}]", //
+				"[{'op':'remove','path':'/missing'}]", //
+				"[{'op':'replace','path':'/list/2','value':0}]", //
+				"[{'op':'add','path':'/list/01','value':0}]", //
+				"[{'op':'move','from':'/list','path':'/list/0'}]", //
+				"[{'op':'remove','path':''}]"};
+		for (String patch : invalidPatches) {
+			GameDataException invalid = assertThrows(GameDataException.class, () -> apply("{'a':1,'list':[1,2]}", patch), patch);
+			assertEquals(Cause.INVALID_REQUEST, invalid.getGameDataExceptionCause(), patch);
+		}
+	}
+}
\ No newline at end of file
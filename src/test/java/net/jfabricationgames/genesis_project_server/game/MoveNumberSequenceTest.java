@@ -0,0 +1,65 @@
+package net.jfabricationgames.genesis_project_server.game;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class MoveNumberSequenceTest {
+	
+	private MoveNumberSequence sequence = MoveNumberSequence.getInstance();
+	
+	@BeforeEach
+	public void clearSequence() {
+		sequence.clear();
+	}
+	
+	@Test
+	public void testSequenceContinuesAfterSeed() {
+		sequence.seed(1, 5);
+		//seeding again doesn't change the sequence
+		sequence.seed(1, 2);
+		
+		assertEquals(6, sequence.next(1));
+		assertEquals(7, sequence.next(1));
+		assertEquals(7, sequence.getLast(1));
+	}
+	
+	@Test
+	public void testUnseededSequence() {
+		assertFalse(sequence.isSeeded(2));
+		assertEquals(-1, sequence.getLast(2));
+		assertThrows(IllegalStateException.class, () -> sequence.next(2));
+		
+		sequence.seed(2, 0);
+		assertTrue(sequence.isSeeded(2));
+		sequence.reset(2);
+		assertFalse(sequence.isSeeded(2));
+	}
+	
+	@Test
+	public void testConcurrentMovesGetDistinctNumbers() throws InterruptedException {
+		final int moves = 1000;
+		sequence.seed(3, 0);
+		Set<Integer> numbers = ConcurrentHashMap.newKeySet();
+		
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		for (int i = 0; i < moves; i++) {
+			executor.execute(() -> numbers.add(sequence.next(3)));
+		}
+		executor.shutdown();
+		executor.awaitTermination(10, TimeUnit.SECONDS);
+		
+		assertEquals(moves, numbers.size());
+		assertEquals(moves, sequence.getLast(3));
+	}
+}
\ No newline at end of file
@@ -0,0 +1,116 @@
+package net.jfabricationgames.genesis_project_server.game;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class MoveWaiterRegistryTest {
+	
+	private MoveWaiterRegistry registry = new MoveWaiterRegistry(2);
+	
+	@Test
+	public void testWaiterIsSignalledWhenTheMoveIsCommitted() {
+		List<Integer> signals = new ArrayList<Integer>();
+		registry.seed(1, 3);
+		
+		MoveWaiterRegistry.Waiter waiter = registry.await(1, 3, signals::add);
+		assertNotNull(waiter);
+		assertTrue(signals.isEmpty());
+		
+		//moves of other games don't signal the waiter
+		registry.moveCommitted(2, 4);
+		assertTrue(signals.isEmpty());
+		
+		registry.moveCommitted(1, 4);
+		assertEquals(1, signals.size());
+		assertEquals(4, signals.get(0));
+		
+		//the waiter is only signalled once and can't be cancelled anymore
+		registry.moveCommitted(1, 5);
+		assertEquals(1, signals.size());
+		assertFalse(registry.cancel(waiter));
+	}
+	
+	@Test
+	public void testWaiterIsSignalledImmediatelyIfTheMoveIsAlreadyCommitted() {
+		List<Integer> signals = new ArrayList<Integer>();
+		registry.seed(1, 5);
+		
+		registry.await(1, 3, signals::add);
+		
+		assertEquals(1, signals.size());
+		assertEquals(5, signals.get(0));
+	}
+	
+	@Test
+	public void testCancelledWaiterIsNotSignalled() {
+		List<Integer> signals = new ArrayList<Integer>();
+		registry.seed(1, 3);
+		
+		MoveWaiterRegistry.Waiter waiter = registry.await(1, 3, signals::add);
+		assertTrue(registry.cancel(waiter));
+		registry.moveCommitted(1, 4);
+		
+		assertTrue(signals.isEmpty());
+		assertEquals(0, registry.getStatistics().get("waiting"));
+	}
+	
+	@Test
+	public void testSeedKeepsCommittedMoves() {
+		assertFalse(registry.isSeeded(1));
+		assertEquals(MoveWaiterRegistry.UNKNOWN, registry.getLastMoveNum(1));
+		
+		registry.moveCommitted(1, 7);
+		//the seed was loaded before the move was committed
+		registry.seed(1, 6);
+		
+		assertTrue(registry.isSeeded(1));
+		assertEquals(7, registry.getLastMoveNum(1));
+		
+		registry.clear();
+		assertFalse(registry.isSeeded(1));
+	}
+	
+	@Test
+	public void testMaximumNumberOfWaiters() {
+		registry.seed(1, 0);
+		
+		assertNotNull(registry.await(1, 0, num -> {}));
+		assertNotNull(registry.await(1, 0, num -> {}));
+		assertNull(registry.await(1, 0, num -> {}));
+		
+		registry.moveCommitted(1, 1);
+		assertNotNull(registry.await(1, 1, num -> {}));
+	}
+	
+	@Test
+	public void testEntriesOfArchivedGamesAreRemoved() {
+		List<Integer> signals = new ArrayList<Integer>();
+		registry.moveCommitted(1, 3);
+		registry.seed(2, 5);
+		MoveWaiterRegistry.Waiter waiter = registry.await(2, 5, signals::add);
+		assertEquals(2, registry.getStatistics().get("games"));
+		
+		assertTrue(registry.remove(1));
+		//the entry of a game with waiting requests is kept
+		assertFalse(registry.remove(2));
+		assertEquals(1, registry.getStatistics().get("games"));
+		assertFalse(registry.isSeeded(1));
+		
+		assertTrue(registry.cancel(waiter));
+		assertTrue(registry.remove(2));
+		assertEquals(0, registry.getStatistics().get("games"));
+		
+		//a restored game is registered again
+		registry.seed(1, 3);
+		assertEquals(3, registry.getLastMoveNum(1));
+		assertTrue(signals.isEmpty());
+	}
+}
\ No newline at end of file
@@ -0,0 +1,32 @@
+package net.jfabricationgames.genesis_project_server.game;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+import net.jfabricationgames.genesis_project_server.exception.GameDataException;
+import net.jfabricationgames.genesis_project_server.exception.GameDataException.Cause;
+
+class PageCursorTest {
+	
+	@Test
+	public void testEncodedCursorsCanBeDecoded() throws GameDataException {
+		PageCursor moveCursor = PageCursor.decodeMoveCursor(PageCursor.forMove(42, 17).encode());
+		assertEquals(42, moveCursor.getGameId());
+		assertEquals(17, moveCursor.getNum());
+		
+		PageCursor gameCursor = PageCursor.decodeGameCursor(PageCursor.forGame(42).encode());
+		assertEquals(42, gameCursor.getGameId());
+	}
+	
+	@Test
+	public void testInvalidCursorsAreRejected() {
+		String gameCursor = PageCursor.forGame(42).encode();
+		GameDataException wrongType = assertThrows(GameDataException.class, () -> PageCursor.decodeMoveCursor(gameCursor));
+		assertEquals(Cause.INVALID_REQUEST, wrongType.getGameDataExceptionCause());
+		
+		assertThrows(GameDataException.class, () -> PageCursor.decodeGameCursor("not a cursor"));
+		assertThrows(GameDataException.class, () -> PageCursor.decodeGameCursor("bTpmb28"));
+	}
+}
\ No newline at end of file
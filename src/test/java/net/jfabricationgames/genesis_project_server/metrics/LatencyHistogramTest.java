@@ -0,0 +1,78 @@
+package net.jfabricationgames.genesis_project_server.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class LatencyHistogramTest {
+	
+	@Test
+	public void testBucketsCoverAllValues() {
+		//every value lies in the bucket, whose highest value is the first one that is not lower than the value
+		for (long value = 0; value < 100000; value++) {
+			int bucket = LatencyHistogram.getBucketIndex(value);
+			assertTrue(value <= LatencyHistogram.getHighestValue(bucket));
+			if (bucket > 0) {
+				assertTrue(value > LatencyHistogram.getHighestValue(bucket - 1));
+			}
+		}
+	}
+	
+	@Test
+	public void testRelativeErrorIsBounded() {
+		for (long value = 16; value < 1L << 35; value = value * 3 / 2 + 1) {
+			long highestValue = LatencyHistogram.getHighestValue(LatencyHistogram.getBucketIndex(value));
+			assertTrue((highestValue - value) / (double) value <= 1d / 16, "value: " + value);
+		}
+	}
+	
+	@Test
+	public void testPercentiles() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		assertEquals(0, histogram.getValueAtPercentile(99));
+		for (int i = 1; i <= 1000; i++) {
+			histogram.record(i);
+		}
+		
+		assertEquals(1000, histogram.getCount());
+		assertEquals(500500, histogram.getSumMicros());
+		assertEquals(1, histogram.getValueAtPercentile(0));
+		assertEquals(500, histogram.getValueAtPercentile(50), 500 / 16);
+		assertEquals(990, histogram.getValueAtPercentile(99), 990 / 16);
+		assertEquals(1000, histogram.getValueAtPercentile(100), 1000 / 16);
+		assertEquals(15, histogram.getCountAtOrBelow(15));
+		assertEquals(1000, histogram.getCountAtOrBelow(1100));
+	}
+	
+	@Test
+	public void testOutOfRangeValuesAreClamped() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(-5);
+		histogram.record(Long.MAX_VALUE);
+		
+		assertEquals(2, histogram.getCount());
+		assertEquals(1, histogram.getCountAtOrBelow(0));
+		assertEquals((1L << 36) - 1, histogram.getValueAtPercentile(100));
+	}
+	
+	@Test
+	public void testConcurrentRecording() throws InterruptedException {
+		LatencyHistogram histogram = new LatencyHistogram();
+		Thread[] threads = new Thread[8];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread(() -> {
+				for (int j = 0; j < 10000; j++) {
+					histogram.record(j % 100);
+				}
+			});
+			threads[i].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		
+		assertEquals(80000, histogram.getCount());
+		assertEquals(80000, histogram.getCountAtOrBelow(100));
+	}
+}
\ No newline at end of file
@@ -0,0 +1,38 @@
+package net.jfabricationgames.genesis_project_server.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class MetricsRegistryTest {
+	
+	@Test
+	public void testPrometheusFormat() {
+		MetricsRegistry registry = new MetricsRegistry();
+		registry.requestStarted("get_game");
+		registry.requestStarted("get_game");
+		registry.requestStarted("set_move");
+		registry.requestFinished("get_game", 200, TimeUnit.MILLISECONDS.toNanos(3));
+		registry.requestFinished("set_move", 500, TimeUnit.MILLISECONDS.toNanos(40));
+		registry.recordQueueWait("set_move", TimeUnit.MILLISECONDS.toNanos(2));
+		
+		String metrics = registry.toPrometheusFormat();
+		assertTrue(metrics.contains("# TYPE genesis_request_duration_seconds histogram\n"));
+		assertTrue(metrics.contains("genesis_requests_in_flight{endpoint=\"get_game\"} 1\n"));
+		assertTrue(metrics.contains("genesis_requests_in_flight{endpoint=\"set_move\"} 0\n"));
+		assertTrue(metrics.contains("genesis_requests_total{endpoint=\"get_game\",status=\"200\"} 1\n"));
+		assertTrue(metrics.contains("genesis_request_errors_total{endpoint=\"get_game\"} 0\n"));
+		assertTrue(metrics.contains("genesis_request_errors_total{endpoint=\"set_move\"} 1\n"));
+		
+		assertTrue(metrics.contains("genesis_request_duration_seconds_bucket{endpoint=\"get_game\",status=\"200\",le=\"0.0025\"} 0\n"));
+		assertTrue(metrics.contains("genesis_request_duration_seconds_bucket{endpoint=\"get_game\",status=\"200\",le=\"0.005\"} 1\n"));
+		assertTrue(metrics.contains("genesis_request_duration_seconds_bucket{endpoint=\"set_move\",status=\"500\",le=\"+Inf\"} 1\n"));
+		assertTrue(metrics.contains("genesis_request_duration_seconds_sum{endpoint=\"set_move\",status=\"500\"} 0.040000\n"));
+		assertTrue(metrics.contains("genesis_executor_queue_wait_seconds_count{endpoint=\"set_move\"} 1\n"));
+		//no queue wait was recorded for get_game
+		assertFalse(metrics.contains("genesis_executor_queue_wait_seconds_count{endpoint=\"get_game\"}"));
+	}
+}
\ No newline at end of file
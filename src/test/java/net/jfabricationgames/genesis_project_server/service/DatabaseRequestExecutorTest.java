@@ -0,0 +1,143 @@
+package net.jfabricationgames.genesis_project_server.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.TimeoutHandler;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+
+import org.junit.jupiter.api.Test;
+
+class DatabaseRequestExecutorTest {
+	
+	/**
+	 * Create an AsyncResponse that completes the future with the response it's resumed with.
+	 */
+	private AsyncResponse createAsyncResponse(CompletableFuture<Response> response) {
+		return createAsyncResponse(response, new AtomicReference<TimeoutHandler>());
+	}
+	
+	/**
+	 * Create an AsyncResponse that completes the future with the response it is resumed with and keeps the timeout handler (so the test can
+	 * let the response time out).
+	 */
+	private AsyncResponse createAsyncResponse(CompletableFuture<Response> response, AtomicReference<TimeoutHandler> timeoutHandler) {
+		return (AsyncResponse) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {AsyncResponse.class}, (proxy, method, args) -> {
+			switch (method.getName()) {
+				case "resume":
+					return response.complete((Response) args[0]);
+				case "isDone":
+					return response.isDone();
+				case "setTimeout":
+					return true;
+				case "setTimeoutHandler":
+					timeoutHandler.set((TimeoutHandler) args[0]);
+					return null;
+				default:
+					return null;
+			}
+		});
+	}
+	
+	@Test
+	public void testRequestsAreExecuted() throws Exception {
+		DatabaseRequestExecutor executor = new DatabaseRequestExecutor(1, 1, 10000, 1);
+		CompletableFuture<Response> response = new CompletableFuture<Response>();
+		
+		executor.execute("get_game", createAsyncResponse(response), () -> Response.status(Status.OK).build());
+		
+		assertEquals(Status.OK.getStatusCode(), response.get(5, TimeUnit.SECONDS).getStatus());
+	}
+	
+	@Test
+	public void testRequestsAreRejectedIfTheQueueIsFull() throws Exception {
+		DatabaseRequestExecutor executor = new DatabaseRequestExecutor(1, 1, 10000, 3);
+		CountDownLatch blocked = new CountDownLatch(1);
+		CompletableFuture<Response> blockingResponse = new CompletableFuture<Response>();
+		CompletableFuture<Response> queuedResponse = new CompletableFuture<Response>();
+		CompletableFuture<Response> rejectedResponse = new CompletableFuture<Response>();
+		
+		//block the only thread and fill the queue
+		executor.execute("set_move", createAsyncResponse(blockingResponse), () -> {
+			try {
+				blocked.await();
+			}
+			catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+			}
+			return Response.status(Status.OK).build();
+		});
+		executor.execute("set_move", createAsyncResponse(queuedResponse), () -> Response.status(Status.OK).build());
+		executor.execute("set_move", createAsyncResponse(rejectedResponse), () -> Response.status(Status.OK).build());
+		
+		Response rejected = rejectedResponse.get(5, TimeUnit.SECONDS);
+		assertEquals(Status.SERVICE_UNAVAILABLE.getStatusCode(), rejected.getStatus());
+		assertEquals(3, rejected.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+		
+		blocked.countDown();
+		assertEquals(Status.OK.getStatusCode(), blockingResponse.get(5, TimeUnit.SECONDS).getStatus());
+		assertEquals(Status.OK.getStatusCode(), queuedResponse.get(5, TimeUnit.SECONDS).getStatus());
+		
+		@SuppressWarnings("unchecked")
+		Map<String, Object> statistics = (Map<String, Object>) ((Map<String, Object>) executor.getStatistics().get("endpoints")).get("set_move");
+		assertEquals(1L, statistics.get("rejected"));
+		assertTrue((Long) statistics.get("executed") >= 1);
+	}
+	
+	@Test
+	public void testOnlyQueuedRequestsAreRejectedOnTimeout() throws Exception {
+		DatabaseRequestExecutor executor = new DatabaseRequestExecutor(1, 1, 10000, 2);
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch blocked = new CountDownLatch(1);
+		AtomicBoolean queuedRequestExecuted = new AtomicBoolean();
+		CompletableFuture<Response> runningResponse = new CompletableFuture<Response>();
+		CompletableFuture<Response> queuedResponse = new CompletableFuture<Response>();
+		AtomicReference<TimeoutHandler> runningTimeout = new AtomicReference<TimeoutHandler>();
+		AtomicReference<TimeoutHandler> queuedTimeout = new AtomicReference<TimeoutHandler>();
+		AsyncResponse running = createAsyncResponse(runningResponse, runningTimeout);
+		AsyncResponse queued = createAsyncResponse(queuedResponse, queuedTimeout);
+		
+		executor.execute("set_move", running, () -> {
+			started.countDown();
+			try {
+				blocked.await();
+			}
+			catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+			}
+			return Response.status(Status.OK).build();
+		});
+		executor.execute("set_move", queued, () -> {
+			queuedRequestExecuted.set(true);
+			return Response.status(Status.OK).build();
+		});
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		
+		//the queued request is rejected and removed from the queue, so a retry can't execute it twice
+		queuedTimeout.get().handleTimeout(queued);
+		Response rejected = queuedResponse.get(5, TimeUnit.SECONDS);
+		assertEquals(Status.SERVICE_UNAVAILABLE.getStatusCode(), rejected.getStatus());
+		assertEquals(2, rejected.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+		
+		//the running request might still commit, so the response waits for its result
+		runningTimeout.get().handleTimeout(running);
+		assertFalse(runningResponse.isDone());
+		
+		blocked.countDown();
+		assertEquals(Status.OK.getStatusCode(), runningResponse.get(5, TimeUnit.SECONDS).getStatus());
+		assertFalse(queuedRequestExecuted.get());
+		assertEquals(0, executor.getStatistics().get("queuedRequests"));
+	}
+}
\ No newline at end of file
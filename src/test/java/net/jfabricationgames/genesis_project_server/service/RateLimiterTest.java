@@ -0,0 +1,88 @@
+package net.jfabricationgames.genesis_project_server.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class RateLimiterTest {
+	
+	private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+	
+	@Test
+	public void testBurstIsAllowed() {
+		RateLimiter rateLimiter = new RateLimiter(10, 5, 60000);
+		long now = System.nanoTime();
+		for (int i = 0; i < 5; i++) {
+			assertEquals(0, rateLimiter.tryAcquire("client", now));
+		}
+		
+		long waitNanos = rateLimiter.tryAcquire("client", now);
+		//the next token is available after 1/10 second
+		assertEquals(SECOND / 10, waitNanos);
+		assertEquals(5L, rateLimiter.getStatistics().get("allowedRequests"));
+		assertEquals(1L, rateLimiter.getStatistics().get("limitedRequests"));
+	}
+	
+	@Test
+	public void testTokensAreRefilled() {
+		RateLimiter rateLimiter = new RateLimiter(10, 2, 60000);
+		long now = System.nanoTime();
+		assertEquals(0, rateLimiter.tryAcquire("client", now));
+		assertEquals(0, rateLimiter.tryAcquire("client", now));
+		assertTrue(rateLimiter.tryAcquire("client", now) > 0);
+		
+		assertEquals(0, rateLimiter.tryAcquire("client", now + SECOND / 10));
+		assertTrue(rateLimiter.tryAcquire("client", now + SECOND / 10) > 0);
+		
+		//an idle bucket doesn't hold more than the burst
+		assertEquals(0, rateLimiter.tryAcquire("client", now + 10 * SECOND));
+		assertEquals(0, rateLimiter.tryAcquire("client", now + 10 * SECOND));
+		assertTrue(rateLimiter.tryAcquire("client", now + 10 * SECOND) > 0);
+	}
+	
+	@Test
+	public void testClientsAreLimitedSeparately() {
+		RateLimiter rateLimiter = new RateLimiter(1, 1, 60000);
+		long now = System.nanoTime();
+		assertEquals(0, rateLimiter.tryAcquire("client1", now));
+		assertTrue(rateLimiter.tryAcquire("client1", now) > 0);
+		assertEquals(0, rateLimiter.tryAcquire("client2", now));
+	}
+	
+	@Test
+	public void testIdleBucketsAreEvicted() {
+		RateLimiter rateLimiter = new RateLimiter(10, 1, 1000);
+		long now = System.nanoTime();
+		rateLimiter.tryAcquire("client1", now);
+		rateLimiter.tryAcquire("client2", now);
+		assertEquals(2, rateLimiter.getStatistics().get("buckets"));
+		
+		//the buckets are full again after 1/10 second and evicted after the eviction interval
+		rateLimiter.tryAcquire("client3", now + 2 * SECOND);
+		assertEquals(1, rateLimiter.getStatistics().get("buckets"));
+		assertEquals(2L, rateLimiter.getStatistics().get("evictedBuckets"));
+	}
+	
+	@Test
+	public void testConcurrentRequestsDontExceedTheBurst() throws InterruptedException {
+		RateLimiter rateLimiter = new RateLimiter(0.001, 100, 60000);
+		Thread[] threads = new Thread[8];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread(() -> {
+				for (int j = 0; j < 100; j++) {
+					rateLimiter.tryAcquire("client");
+				}
+			});
+			threads[i].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		
+		assertEquals(100L, rateLimiter.getStatistics().get("allowedRequests"));
+		assertEquals(700L, rateLimiter.getStatistics().get("limitedRequests"));
+	}
+}
\ No newline at end of file
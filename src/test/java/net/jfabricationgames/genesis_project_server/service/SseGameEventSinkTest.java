@@ -0,0 +1,100 @@
+package net.jfabricationgames.genesis_project_server.service;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.sse.OutboundSseEvent;
+import javax.ws.rs.sse.Sse;
+import javax.ws.rs.sse.SseEventSink;
+
+import org.glassfish.jersey.media.sse.OutboundEvent;
+import org.junit.jupiter.api.Test;
+
+import net.jfabricationgames.genesis_project_server.game.GameEvent;
+
+class SseGameEventSinkTest {
+	
+	/**
+	 * Creates the events like the Jersey implementation of {@link Sse}.
+	 */
+	private static final Sse SSE = (Sse) Proxy.newProxyInstance(Sse.class.getClassLoader(), new Class<?>[] {Sse.class},
+			(proxy, method, args) -> {
+				if (method.getName().equals("newEventBuilder")) {
+					return new OutboundEvent.Builder();
+				}
+				throw new UnsupportedOperationException(method.getName());
+			});
+	
+	/**
+	 * An event sink that writes the events synchronously (like the Jersey implementation). The write blocks until the sink is closed if the
+	 * client doesn't read from the connection.
+	 */
+	private static class BlockingEventSink implements SseEventSink {
+		
+		private final CountDownLatch closed = new CountDownLatch(1);
+		private final boolean blocking;
+		/**
+		 * The result of the write (an exception is returned as result of a completed future, like in the Jersey implementation)
+		 */
+		private final Object result;
+		
+		public BlockingEventSink(boolean blocking, Object result) {
+			this.blocking = blocking;
+			this.result = result;
+		}
+		
+		@Override
+		public CompletionStage<?> send(OutboundSseEvent event) {
+			if (blocking) {
+				try {
+					closed.await();
+				}
+				catch (InterruptedException ie) {
+					Thread.currentThread().interrupt();
+				}
+				return CompletableFuture.completedFuture(new IOException("connection closed"));
+			}
+			return CompletableFuture.completedFuture(result);
+		}
+		
+		@Override
+		public boolean isClosed() {
+			return closed.getCount() == 0;
+		}
+		
+		@Override
+		public void close() {
+			closed.countDown();
+		}
+	}
+	
+	@Test
+	public void testBlockedWriteIsAbortedAfterTheTimeout() throws InterruptedException {
+		BlockingEventSink eventSink = new BlockingEventSink(true, null);
+		SseGameEventSink sink = new SseGameEventSink(eventSink, SSE, 100);
+		
+		long start = System.nanoTime();
+		assertThrows(IOException.class, () -> sink.send(GameEvent.gameUpdated(42)));
+		assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 5000);
+		assertTrue(sink.isClosed());
+		
+		//the closed connection is not written again
+		assertThrows(IOException.class, () -> sink.send(GameEvent.gameUpdated(42)));
+	}
+	
+	@Test
+	public void testFailedWriteIsReported() throws IOException {
+		SseGameEventSink sink = new SseGameEventSink(new BlockingEventSink(false, null), SSE, 1000);
+		sink.send(GameEvent.gameUpdated(42));
+		
+		SseGameEventSink failingSink = new SseGameEventSink(new BlockingEventSink(false, new IOException("broken pipe")), SSE, 1000);
+		assertThrows(IOException.class, () -> failingSink.send(GameEvent.gameUpdated(42)));
+	}
+}
\ No newline at end of file
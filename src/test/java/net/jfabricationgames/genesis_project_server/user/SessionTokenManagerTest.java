@@ -0,0 +1,101 @@
+package net.jfabricationgames.genesis_project_server.user;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+class SessionTokenManagerTest {
+	
+	private static final byte[] SECRET = "a_secret_for_the_tests".getBytes(StandardCharsets.UTF_8);
+	
+	@Test
+	public void testIssuedTokensAreVerified() {
+		SessionTokenManager manager = new SessionTokenManager(SECRET, 1000);
+		String token = manager.issueToken("Player1", 5000);
+		
+		assertEquals("Player1", manager.verifyToken(token, 5000));
+		assertEquals("Player1", manager.verifyToken(token, 6000));
+		//the token is signed with the secret, so it's also valid for another instance with the same secret
+		assertEquals("Player1", new SessionTokenManager(SECRET, 1000).verifyToken(token, 5500));
+	}
+	
+	@Test
+	public void testTokensExpire() {
+		SessionTokenManager manager = new SessionTokenManager(SECRET, 1000);
+		String token = manager.issueToken("Player1", 5000);
+		
+		assertNull(manager.verifyToken(token, 6001));
+		assertEquals(1L, manager.getStatistics().get("expiredTokens"));
+	}
+	
+	@Test
+	public void testManipulatedTokensAreRejected() {
+		SessionTokenManager manager = new SessionTokenManager(SECRET, 1000);
+		String token = manager.issueToken("Player1", 5000);
+		String[] fields = token.split("\\.");
+		
+		//extend the expiration time
+		assertNull(manager.verifyToken(fields[0] + "." + fields[1] + "." + (Long.parseLong(fields[2]) + 100000) + "." + fields[3], 5000));
+		//use the signature of another user's token
+		String otherToken = manager.issueToken("Player2", 5000);
+		assertNull(manager.verifyToken(otherToken.substring(0, otherToken.lastIndexOf('.')) + "." + fields[3], 5000));
+		//sign with another secret
+		String foreignToken = new SessionTokenManager("another_secret".getBytes(StandardCharsets.UTF_8), 1000).issueToken("Player1", 5000);
+		assertNull(manager.verifyToken(foreignToken, 5000));
+		
+		assertNull(manager.verifyToken(null, 5000));
+		assertNull(manager.verifyToken("", 5000));
+		assertNull(manager.verifyToken("no.token", 5000));
+		assertNull(manager.verifyToken("!!!.x.y.z", 5000));
+		assertEquals(7L, manager.getStatistics().get("invalidTokens"));
+	}
+	
+	@Test
+	public void testRevokedTokensAreRejected() {
+		SessionTokenManager manager = new SessionTokenManager(SECRET, 1000);
+		String token = manager.issueToken("Player1", 5000);
+		String otherToken = manager.issueToken("Player2", 5000);
+		
+		//the usernames are compared case insensitive (like in the database)
+		manager.revokeTokens("PLAYER1", 5100);
+		assertNull(manager.verifyToken(token, 5200));
+		assertEquals("Player2", manager.verifyToken(otherToken, 5200));
+		
+		//tokens that are issued after the revocation are valid
+		String newToken = manager.issueToken("Player1", 5200);
+		assertEquals("Player1", manager.verifyToken(newToken, 5300));
+		assertEquals(1L, manager.getStatistics().get("revokedTokens"));
+	}
+	
+	@Test
+	public void testTokensIssuedInTheMillisecondOfTheRevocationAreValid() {
+		SessionTokenManager manager = new SessionTokenManager(SECRET, 1000);
+		String token = manager.issueToken("Player1", 5000);
+		
+		//update_user revokes the tokens and issues a new token immediately
+		manager.revokeTokens("Player1", 5000);
+		String newToken = manager.issueToken("Player1", 5000);
+		
+		assertNull(manager.verifyToken(token, 5000));
+		assertEquals("Player1", manager.verifyToken(newToken, 5000));
+		
+		//a second revocation in the same millisecond also rejects the new token
+		manager.revokeTokens("Player1", 5000);
+		assertNull(manager.verifyToken(newToken, 5000));
+		assertEquals("Player1", manager.verifyToken(manager.issueToken("Player1", 5000), 5000));
+	}
+	
+	@Test
+	public void testRevocationsAreRemovedAfterTheTokensExpired() {
+		SessionTokenManager manager = new SessionTokenManager(SECRET, 1000);
+		manager.revokeTokens("Player1", 5000);
+		manager.revokeTokens("Player2", 5500);
+		assertEquals(2, manager.getStatistics().get("revokedUsers"));
+		
+		manager.revokeTokens("Player3", 6100);
+		assertEquals(2, manager.getStatistics().get("revokedUsers"));
+	}
+}
\ No newline at end of file
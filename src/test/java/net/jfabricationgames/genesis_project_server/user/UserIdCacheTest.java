@@ -0,0 +1,100 @@
+package net.jfabricationgames.genesis_project_server.user;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class UserIdCacheTest {
+	
+	@Test
+	public void testCachedUserIds() {
+		UserIdCache cache = new UserIdCache(10, 10000);
+		assertNull(cache.getCachedUserId("Player1"));
+		
+		cache.put("Player1", 42);
+		assertEquals(Integer.valueOf(42), cache.getCachedUserId("Player1"));
+		//the usernames are compared case insensitive (like in the database)
+		assertEquals(Integer.valueOf(42), cache.getCachedUserId("PLAYER1"));
+		
+		cache.invalidate("player1");
+		assertNull(cache.getCachedUserId("Player1"));
+	}
+	
+	@Test
+	public void testUnknownUsersExpire() throws InterruptedException {
+		UserIdCache cache = new UserIdCache(10, 50);
+		cache.putUnknown("unknown");
+		assertEquals(Integer.valueOf(UserIdCache.UNKNOWN_USER), cache.getCachedUserId("unknown"));
+		
+		Thread.sleep(100);
+		assertNull(cache.getCachedUserId("unknown"));
+	}
+	
+	@Test
+	public void testLeastRecentlyUsedUsersAreEvicted() throws InterruptedException {
+		UserIdCache cache = new UserIdCache(10, 10000);
+		for (int i = 0; i < 10; i++) {
+			cache.put("user" + i, i);
+			Thread.sleep(2);
+		}
+		//use the first user, so it's not the least recently used one anymore
+		cache.getCachedUserId("user0");
+		cache.put("user10", 10);
+		
+		assertEquals(9, cache.getStatistics().get("size"));
+		assertEquals(Integer.valueOf(0), cache.getCachedUserId("user0"));
+		assertNull(cache.getCachedUserId("user1"));
+		assertNull(cache.getCachedUserId("user2"));
+		assertEquals(Integer.valueOf(10), cache.getCachedUserId("user10"));
+	}
+	
+	@Test
+	public void testConcurrentLoadsOfAUserAreCoalesced() throws Exception {
+		CountDownLatch loading = new CountDownLatch(1);
+		AtomicInteger loads = new AtomicInteger();
+		UserIdCache cache = new UserIdCache(10, 10000) {
+			
+			@Override
+			protected int loadUserId(String username) {
+				loads.incrementAndGet();
+				try {
+					loading.await();
+				}
+				catch (InterruptedException ie) {
+					Thread.currentThread().interrupt();
+				}
+				return username.equalsIgnoreCase("player1") ? 42 : UNKNOWN_USER;
+			}
+		};
+		
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		try {
+			Future<Integer> first = executor.submit(() -> cache.getUserId("Player1"));
+			Future<Integer> second = executor.submit(() -> cache.getUserId("PLAYER1"));
+			//the load of another user is not blocked by the running load
+			Future<Integer> other = executor.submit(() -> cache.getUserId("player2"));
+			for (int i = 0; i < 500 && (loads.get() < 2 || cache.getStatistics().get("coalescedLoads").equals(0L)); i++) {
+				Thread.sleep(10);
+			}
+			assertEquals(2, loads.get());
+			assertEquals(1L, cache.getStatistics().get("coalescedLoads"));
+			
+			loading.countDown();
+			assertEquals(Integer.valueOf(42), first.get(5, TimeUnit.SECONDS));
+			assertEquals(Integer.valueOf(42), second.get(5, TimeUnit.SECONDS));
+			assertEquals(Integer.valueOf(UserIdCache.UNKNOWN_USER), other.get(5, TimeUnit.SECONDS));
+			assertEquals(2, loads.get());
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+}
\ No newline at end of file
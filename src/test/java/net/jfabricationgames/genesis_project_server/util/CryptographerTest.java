@@ -2,6 +2,16 @@ package net.jfabricationgames.genesis_project_server.util;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.util.Random;
 
 import org.junit.jupiter.api.Test;
 
@@ -24,4 +34,193 @@ class CryptographerTest {
 		assertNotEquals(text, encrypted);
 		assertEquals(text, decrypted);
 	}
+	
+	/**
+	 * The encoding characters and some characters that are not in the table (that are encrypted differently)
+	 */
+	private static final String CHARS = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZäöüÄÖÜ1234567890,;.:-_#'+*~!\"§$%&/()=?ß`^°{[]}\\'/- \n\t€@<>|é";
+	
+	/**
+	 * The original implementation of {@link Cryptographer#encryptText(String, String)} (the results must not change)
+	 */
+	private static String originalEncryptText(String text, String password) {
+		String encodingChars = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZäöüÄÖÜ1234567890,;.:-_#'+*~!\"§$%&/()=?ß`^°{[]}\\'/- \n\t";
+		String encryptedText = "";
+		for (int i = 0; i < text.length(); i++) {
+			int charIndex = encodingChars.indexOf(text.charAt(i)) + encodingChars.indexOf(password.charAt(i % password.length()));
+			encryptedText += encodingChars.charAt(charIndex % encodingChars.length());
+		}
+		return encryptedText;
+	}
+	/**
+	 * The original implementation of {@link Cryptographer#decryptText(String, String)} (the results must not change)
+	 */
+	private static String originalDecryptText(String text, String password) {
+		String encodingChars = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZäöüÄÖÜ1234567890,;.:-_#'+*~!\"§$%&/()=?ß`^°{[]}\\'/- \n\t";
+		String decryptedText = "";
+		for (int i = 0; i < text.length(); i++) {
+			int charIndex = encodingChars.indexOf(text.charAt(i)) - encodingChars.indexOf(password.charAt(i % password.length()));
+			decryptedText += encodingChars.charAt((charIndex + encodingChars.length()) % encodingChars.length());
+		}
+		return decryptedText;
+	}
+	
+	private static String randomText(Random random, int maxLength) {
+		StringBuilder sb = new StringBuilder();
+		int length = random.nextInt(maxLength + 1);
+		for (int i = 0; i < length; i++) {
+			sb.append(CHARS.charAt(random.nextInt(CHARS.length())));
+		}
+		return sb.toString();
+	}
+	
+	private static String randomPassword(Random random) {
+		String password = randomText(random, 20);
+		return password.isEmpty() ? "p" : password;
+	}
+	
+	@Test
+	public void testResultsAreIdenticalToTheOriginalImplementation() {
+		Random random = new Random(42);
+		for (int i = 0; i < 2000; i++) {
+			String text = randomText(random, 200);
+			String password = randomPassword(random);
+			
+			String expectedEncryption;
+			try {
+				expectedEncryption = originalEncryptText(text, password);
+			}
+			catch (StringIndexOutOfBoundsException sioobe) {
+				//neither the character nor the password character are encoding characters
+				assertThrows(StringIndexOutOfBoundsException.class, () -> Cryptographer.encryptText(text, password));
+				expectedEncryption = null;
+			}
+			if (expectedEncryption != null) {
+				assertEquals(expectedEncryption, Cryptographer.encryptText(text, password));
+			}
+			assertEquals(originalDecryptText(text, password), Cryptographer.decryptText(text, password));
+		}
+	}
+	
+	@Test
+	public void testEmptyTextAndPassword() {
+		assertEquals("", Cryptographer.encryptText("", ""));
+		assertEquals("", Cryptographer.decryptText("", "password"));
+		assertThrows(ArithmeticException.class, () -> Cryptographer.encryptText("text", ""));
+		assertThrows(ArithmeticException.class, () -> Cryptographer.decryptText("text", ""));
+	}
+	
+	/**
+	 * Create a text that only contains encoding characters (so it can always be encrypted, if the password also only contains encoding
+	 * characters).
+	 */
+	private static String randomEncodableText(Random random, int length) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < length; i++) {
+			sb.append(CHARS.charAt(random.nextInt(CHARS.indexOf('\t') + 1)));
+		}
+		return sb.toString();
+	}
+	
+	@Test
+	public void testCharBufferChunksAreIdenticalToTheBulkResult() {
+		Random random = new Random(43);
+		for (int i = 0; i < 200; i++) {
+			String text = randomEncodableText(random, random.nextInt(5000));
+			String password = randomEncodableText(random, 1 + random.nextInt(20));
+			for (Cryptographer.Mode mode : Cryptographer.Mode.values()) {
+				String expected = mode == Cryptographer.Mode.ENCRYPT ? Cryptographer.encryptText(text, password)
+						: Cryptographer.decryptText(text, password);
+				
+				//the output is either an array backed buffer or a buffer without an array
+				CharBuffer output = random.nextBoolean() ? CharBuffer.allocate(text.length())
+						: ByteBuffer.allocateDirect(text.length() * 2).asCharBuffer();
+				CharBuffer input = CharBuffer.wrap(text);
+				long position = 0;
+				while (input.hasRemaining()) {
+					CharBuffer chunk = input.duplicate();
+					chunk.limit(chunk.position() + Math.min(chunk.remaining(), 1 + random.nextInt(100)));
+					position = Cryptographer.transform(chunk, output, password, position, mode);
+					input.position(chunk.position());
+				}
+				output.flip();
+				assertEquals(text.length(), position);
+				assertEquals(expected, output.toString());
+			}
+		}
+	}
+	
+	@Test
+	public void testWriterIsIdenticalToTheBulkResult() throws IOException {
+		Random random = new Random(44);
+		for (int i = 0; i < 200; i++) {
+			String text = randomEncodableText(random, random.nextInt(20000));
+			String password = randomEncodableText(random, 1 + random.nextInt(20));
+			
+			StringWriter encrypted = new StringWriter();
+			try (Writer writer = new CryptographerWriter(encrypted, password, Cryptographer.Mode.ENCRYPT)) {
+				//write single characters, arrays and strings
+				int position = 0;
+				while (position < text.length()) {
+					int length = Math.min(text.length() - position, random.nextInt(10000));
+					switch (random.nextInt(3)) {
+						case 0:
+							writer.write(text.charAt(position));
+							length = 1;
+							break;
+						case 1:
+							char[] chars = text.toCharArray();
+							writer.write(chars, position, length);
+							assertEquals(text, new String(chars));
+							break;
+						default:
+							writer.write(text, position, length);
+					}
+					position += length;
+				}
+			}
+			assertEquals(Cryptographer.encryptText(text, password), encrypted.toString());
+		}
+	}
+	
+	@Test
+	public void testReaderIsIdenticalToTheBulkResult() throws IOException {
+		Random random = new Random(45);
+		for (int i = 0; i < 200; i++) {
+			String text = randomEncodableText(random, random.nextInt(20000));
+			String password = randomEncodableText(random, 1 + random.nextInt(20));
+			String decrypted = Cryptographer.decryptText(text, password);
+			
+			StringBuilder read = new StringBuilder();
+			int skipped = 0;
+			try (Reader reader = new CryptographerReader(new StringReader(text), password, Cryptographer.Mode.DECRYPT)) {
+				//read single characters and arrays and skip characters
+				char[] buffer = new char[10000];
+				while (true) {
+					int operation = random.nextInt(3);
+					if (operation == 0) {
+						int c = reader.read();
+						if (c == -1) {
+							break;
+						}
+						read.append((char) c);
+					}
+					else if (operation == 1) {
+						int length = reader.read(buffer, 0, 1 + random.nextInt(buffer.length));
+						if (length == -1) {
+							break;
+						}
+						read.append(buffer, 0, length);
+					}
+					else if (skipped == 0) {
+						//skip some characters once (the rest is compared after the skipped characters)
+						skipped = (int) reader.skip(random.nextInt(100));
+						assertEquals(decrypted.substring(0, read.length()), read.toString());
+						decrypted = decrypted.substring(0, read.length()) + decrypted.substring(read.length() + skipped);
+					}
+				}
+			}
+			assertEquals(decrypted, read.toString());
+		}
+	}
 }